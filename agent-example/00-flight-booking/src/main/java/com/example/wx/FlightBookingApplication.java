@@ -1,5 +1,6 @@
 package com.example.wx;
 
+import com.example.wx.rag.vectorstore.SnapshotSimpleVectorStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.ai.chat.memory.ChatMemory;
@@ -7,14 +8,16 @@ import org.springframework.ai.chat.memory.MessageWindowChatMemory;
 import org.springframework.ai.embedding.EmbeddingModel;
 import org.springframework.ai.reader.TextReader;
 import org.springframework.ai.transformer.splitter.TokenTextSplitter;
-import org.springframework.ai.vectorstore.SimpleVectorStore;
-import org.springframework.ai.vectorstore.VectorStore;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
 import org.springframework.core.io.Resource;
+import org.springframework.util.DigestUtils;
+
+import java.io.IOException;
+import java.nio.file.Paths;
 
 /**
  * @author wangx
@@ -31,7 +34,7 @@ public class FlightBookingApplication {
 
     @Bean
     CommandLineRunner ingestTermOfServiceToVectorStore(
-            VectorStore vectorStore,
+            SnapshotSimpleVectorStore vectorStore,
             @Value("classpath:rag/terms-of-service.txt") Resource termsOfServiceDocs
     ) {
 
@@ -42,7 +45,11 @@ public class FlightBookingApplication {
              * 2、TokenTextSplitter 按token长度切分文本（避免大文本超出模型限制）
              * 3、向量化存储 通过 VectorStore.write() 将文本向量存入内存（后续可用于RAG检索）
              */
-            vectorStore.write(new TokenTextSplitter().transform(new TextReader(termsOfServiceDocs).read()));
+            // 快照已完整包含当前版本的文档时跳过，避免每次启动重新向量化
+            if (!vectorStore.isComplete()) {
+                vectorStore.write(new TokenTextSplitter().transform(new TextReader(termsOfServiceDocs).read()));
+                vectorStore.markComplete();
+            }
 
             // 相似性搜索检测
             vectorStore.similaritySearch("Cancelling Bookings").forEach(doc -> {
@@ -54,13 +61,21 @@ public class FlightBookingApplication {
     /**
      * 提供基于内存的向量存储（SimpleVectorStore）
      * <p>
-     * 依赖 EmbeddingModel（自动注入，Alibaba的嵌入模型）
+     * 依赖 EmbeddingModel（自动注入，Alibaba的嵌入模型），数据持久化到二进制快照，
+     * 以服务条款文件的哈希作为指纹，文件变更后快照失效
      * @param embeddingModel
      * @return
      */
     @Bean
-    public VectorStore vectorStore(EmbeddingModel embeddingModel) {
-        return SimpleVectorStore.builder(embeddingModel).build();
+    public SnapshotSimpleVectorStore vectorStore(EmbeddingModel embeddingModel,
+                                                 @Value("classpath:rag/terms-of-service.txt") Resource termsOfServiceDocs,
+                                                 @Value("${vector-store.snapshot-dir:data/vector-store}") String snapshotDir)
+            throws IOException {
+        return SnapshotSimpleVectorStore.snapshotBuilder(embeddingModel)
+                .directory(Paths.get(snapshotDir))
+                .name("terms-of-service")
+                .fingerprint(DigestUtils.md5DigestAsHex(termsOfServiceDocs.getContentAsByteArray()))
+                .build();
     }
 
     /**
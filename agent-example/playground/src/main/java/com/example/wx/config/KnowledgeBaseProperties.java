@@ -3,6 +3,8 @@ package com.example.wx.config;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.time.Duration;
+
 /**
  * @author wangx
  * @description
@@ -16,6 +18,10 @@ public class KnowledgeBaseProperties {
     private BailianProperties bailian = new BailianProperties();
     private PgVectorProperties pgvector = new PgVectorProperties();
     private SimpleProperties simple = new SimpleProperties();
+    private IngestionProperties ingestion = new IngestionProperties();
+    private ContextProperties context = new ContextProperties();
+    private HealthProperties health = new HealthProperties();
+    private FederatedProperties federated = new FederatedProperties();
 
     @Data
     public static class BailianProperties {
@@ -28,10 +34,87 @@ public class KnowledgeBaseProperties {
         private boolean enabled = true;
         private int topK = 5;
         private double similarityThreshold = 0.7;
+        // 重排方式：remote（RerankModel 远程调用）| local（进程内 LocalRerankModel）
+        private String reranker = "remote";
     }
 
     @Data
     public static class SimpleProperties {
         private boolean enabled = true;
+        // 二进制快照目录，重启时从快照恢复而不是重新向量化
+        private String snapshotDir = "data/vector-store";
+        // 存储引擎：snapshot（SimpleVectorStore + 二进制快照）| off-heap（堆外向量，不持久化）
+        private String engine = "snapshot";
+        // off-heap 引擎是否构建 HNSW 图
+        private boolean hnswEnabled = false;
+    }
+
+    /**
+     * 本地 markdown 语料入库配置
+     */
+    @Data
+    public static class IngestionProperties {
+        // 单批次 token 上限
+        private int maxBatchTokens = 8000;
+        // 单批次文档数上限，需不超过 embedding 接口的批量限制
+        private int maxBatchSize = 25;
+        // 同时进行的 embedding 调用数
+        private int maxConcurrency = 4;
+        // 文件解析线程数
+        private int parseThreads = 4;
+        // 失败重试次数与初始退避时间
+        private int maxAttempts = 3;
+        private long initialBackoffMillis = 500;
+        // 增量入库清单文件，为空时使用 ${user.dir}/rag/.index-manifest-{向量库类型}.json
+        private String manifestPath;
+        // 监听 markdown 目录，文件变更后增量同步
+        private boolean watch = false;
+        // 文件变更事件的合并窗口
+        private long watchDebounceMillis = 1000;
+    }
+
+    /**
+     * 检索结果放入提示词前的上下文打包配置
+     */
+    @Data
+    public static class ContextProperties {
+        // 上下文 token 预算，按 cl100k_base 计算
+        private int maxTokens = 3000;
+        // SimHash 汉明距离不超过该值的片段视为近似重复
+        private int duplicateDistance = 3;
+        // 剩余预算低于该值时不再截断放入
+        private int minTrimTokens = 32;
+    }
+
+    /**
+     * 知识库健康探测与熔断配置
+     */
+    @Data
+    public static class HealthProperties {
+        // 后台探测间隔
+        private Duration probeInterval = Duration.ofSeconds(10);
+        // 单次探测超时，超时视为失败
+        private Duration probeTimeout = Duration.ofSeconds(2);
+        // 连续失败多少次后熔断
+        private int failureThreshold = 3;
+        // 熔断持续时间，之后进入半开状态重新探测
+        private Duration openDuration = Duration.ofSeconds(30);
+    }
+
+    /**
+     * 联邦检索配置，primary-type 或 fallback-type 为 federated 时生效
+     */
+    @Data
+    public static class FederatedProperties {
+        // 单次请求等待各知识库的总时长，超时的知识库被放弃
+        private Duration deadline = Duration.ofMillis(1500);
+        // 融合后返回的文档数
+        private int topK = 8;
+        // RRF 平滑常数
+        private int rrfK = 60;
+        // 并发检索线程数
+        private int poolSize = 8;
+        // 等待线程的召回任务上限，队列已满时该知识库按超时处理
+        private int queueCapacity = 32;
     }
 }
@@ -0,0 +1,96 @@
+package com.example.wx.config.knowledge;
+
+import com.example.wx.enums.KnowledgeBaseType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.AdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.BaseAdvisor;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * 可在运行时切换知识库的检索顾问
+ * <p>
+ * 每次请求按 KnowledgeBaseFactory 给出的优先级（主知识库、备用知识库）选择熔断器允许的第一个知识库，
+ * 调用其检索顾问的 before；检索失败时记录到熔断器并在同一次请求内改用下一个知识库，
+ * 所有知识库都失败时抛出最后一次的异常。
+ * 实际使用的知识库类型写入请求上下文，after 阶段交给同一个顾问处理。
+ *
+ * @author wangx
+ * @create 2026/10/19 16:20
+ */
+public class FailoverRetrievalAdvisor implements BaseAdvisor {
+
+    private static final Logger logger = LoggerFactory.getLogger(FailoverRetrievalAdvisor.class);
+
+    /**
+     * 请求上下文中记录实际使用的知识库类型
+     */
+    public static final String KNOWLEDGE_BASE_TYPE = "knowledge_base_type";
+
+    private final Supplier<List<KnowledgeBaseCircuitBreaker>> candidates;
+
+    private final Map<KnowledgeBaseType, BaseAdvisor> advisors;
+
+    private final int order;
+
+    /**
+     * @param candidates 按优先级排列的候选知识库熔断器
+     * @param advisors   各知识库的检索顾问
+     */
+    public FailoverRetrievalAdvisor(Supplier<List<KnowledgeBaseCircuitBreaker>> candidates,
+                                   Map<KnowledgeBaseType, BaseAdvisor> advisors) {
+        this.candidates = candidates;
+        this.advisors = Map.copyOf(advisors);
+        this.order = advisors.values().stream().mapToInt(BaseAdvisor::getOrder).min().orElse(0);
+    }
+
+    @Override
+    public ChatClientRequest before(ChatClientRequest chatClientRequest, AdvisorChain advisorChain) {
+        RuntimeException lastFailure = null;
+        for (KnowledgeBaseCircuitBreaker breaker : candidates.get()) {
+            BaseAdvisor advisor = advisors.get(breaker.getType());
+            if (advisor == null || !breaker.allowRequest()) {
+                continue;
+            }
+            try {
+                ChatClientRequest advised = advisor.before(chatClientRequest, advisorChain);
+                breaker.recordSuccess();
+                return advised.mutate()
+                        .context(KNOWLEDGE_BASE_TYPE, breaker.getType().name())
+                        .build();
+            } catch (RuntimeException e) {
+                if (breaker.recordFailure()) {
+                    logger.warn("Knowledge base {} circuit opened after retrieval failure", breaker.getType());
+                }
+                logger.warn("Retrieval from knowledge base {} failed, trying next", breaker.getType(), e);
+                lastFailure = e;
+            }
+        }
+        if (lastFailure != null) {
+            throw lastFailure;
+        }
+        throw new IllegalStateException("No knowledge base available");
+    }
+
+    @Override
+    public ChatClientResponse after(ChatClientResponse chatClientResponse, AdvisorChain advisorChain) {
+        Object type = chatClientResponse.context().get(KNOWLEDGE_BASE_TYPE);
+        BaseAdvisor advisor = type != null ? advisors.get(KnowledgeBaseType.valueOf(type.toString())) : null;
+        return advisor != null ? advisor.after(chatClientResponse, advisorChain) : chatClientResponse;
+    }
+
+    @Override
+    public int getOrder() {
+        return order;
+    }
+
+    @Override
+    public String getName() {
+        return FailoverRetrievalAdvisor.class.getSimpleName();
+    }
+}
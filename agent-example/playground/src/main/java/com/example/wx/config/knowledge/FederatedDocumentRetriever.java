@@ -0,0 +1,162 @@
+package com.example.wx.config.knowledge;
+
+import com.example.wx.rag.retrieval.ReciprocalRankFusion;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.rag.Query;
+import org.springframework.ai.rag.retrieval.search.DocumentRetriever;
+import org.springframework.util.Assert;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 多知识库联邦检索
+ * <p>
+ * 各知识库的召回器在 executor 上并发执行，共用一个请求级截止时间：超时的知识库被中断并放弃，
+ * 只用按时返回的结果，单个慢后端不会拖住整轮对话；全部超时或失败时返回空列表。
+ * executor 应使用有界队列，队列已满被拒绝的知识库与超时同样处理，不会排队等待空闲线程。
+ * 合并时按去除空白后的正文去重（同一文档可能同时存在于多个知识库），
+ * 各知识库的分数量纲不同，按倒数排名融合（RRF）重新排序后取 topK。
+ * <p>
+ * 截止时间默认为 deadline，可通过 {@link Query#context()} 中的 {@link #DEADLINE} 覆盖。
+ *
+ * @author wangx
+ * @create 2026/10/19 17:10
+ */
+public class FederatedDocumentRetriever implements DocumentRetriever {
+
+    private static final Logger logger = LoggerFactory.getLogger(FederatedDocumentRetriever.class);
+
+    /**
+     * Query context 中覆盖截止时间的 key，值为 {@link Duration}
+     */
+    public static final String DEADLINE = "federated_deadline";
+
+    /**
+     * 融合后写入文档元数据：RRF 分数、命中的知识库
+     */
+    public static final String RRF_SCORE = ReciprocalRankFusion.RRF_SCORE;
+
+    public static final String SOURCES = "federated_sources";
+
+    private final Map<String, DocumentRetriever> retrievers;
+
+    private final ExecutorService executor;
+
+    private final long deadlineMillis;
+
+    private final ReciprocalRankFusion fusion;
+
+    private final int topK;
+
+    private FederatedDocumentRetriever(Builder builder) {
+        Assert.notEmpty(builder.retrievers, "retrievers cannot be empty");
+        Assert.notNull(builder.executor, "executor cannot be null");
+        Assert.isTrue(builder.rrfK > 0 && builder.topK > 0, "rrfK and topK must be greater than 0");
+        this.retrievers = Collections.unmodifiableMap(new LinkedHashMap<>(builder.retrievers));
+        this.executor = builder.executor;
+        this.deadlineMillis = builder.deadline.toMillis();
+        this.fusion = ReciprocalRankFusion.byText(builder.rrfK, SOURCES);
+        this.topK = builder.topK;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public List<Document> retrieve(Query query) {
+        Assert.notNull(query, "query cannot be null");
+        long timeout = query.context().get(DEADLINE) instanceof Duration duration ? duration.toMillis() : deadlineMillis;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+
+        Map<String, Future<List<Document>>> futures = new LinkedHashMap<>();
+        retrievers.forEach((name, retriever) -> {
+            try {
+                futures.put(name, executor.submit(() -> retriever.retrieve(query)));
+            } catch (RejectedExecutionException e) {
+                logger.warn("Knowledge base {} skipped, federated retrieval pool is saturated", name);
+            }
+        });
+
+        Map<String, List<Document>> rankings = new LinkedHashMap<>();
+        for (Map.Entry<String, Future<List<Document>>> entry : futures.entrySet()) {
+            try {
+                long remaining = Math.max(0, deadline - System.nanoTime());
+                rankings.put(entry.getKey(), entry.getValue().get(remaining, TimeUnit.NANOSECONDS));
+            } catch (TimeoutException e) {
+                // FutureTask.cancel(true) 中断执行线程，释放给后续请求
+                entry.getValue().cancel(true);
+                logger.warn("Knowledge base {} missed the {} ms deadline, using partial results", entry.getKey(), timeout);
+            } catch (ExecutionException e) {
+                logger.warn("Knowledge base {} failed, using partial results", entry.getKey(), e.getCause());
+            } catch (InterruptedException e) {
+                futures.values().forEach(future -> future.cancel(true));
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        if (rankings.size() < retrievers.size()) {
+            logger.info("Federated retrieval answered by {} of {} knowledge bases", rankings.size(), retrievers.size());
+        }
+        return fusion.fuse(rankings, topK);
+    }
+
+    public static class Builder {
+
+        private final Map<String, DocumentRetriever> retrievers = new LinkedHashMap<>();
+        private ExecutorService executor;
+        private Duration deadline = Duration.ofMillis(1500);
+        private int rrfK = 60;
+        private int topK = 8;
+
+        /**
+         * 添加一个知识库的召回器，name 用于日志与 {@link #SOURCES} 元数据
+         */
+        public Builder retriever(String name, DocumentRetriever retriever) {
+            this.retrievers.put(name, retriever);
+            return this;
+        }
+
+        /**
+         * 执行各知识库召回的线程池，超时的召回通过 {@link Future#cancel(boolean)} 中断
+         */
+        public Builder executor(ExecutorService executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * 单次请求等待各知识库的总时长
+         */
+        public Builder deadline(Duration deadline) {
+            this.deadline = deadline;
+            return this;
+        }
+
+        public Builder rrfK(int rrfK) {
+            this.rrfK = rrfK;
+            return this;
+        }
+
+        public Builder topK(int topK) {
+            this.topK = topK;
+            return this;
+        }
+
+        public FederatedDocumentRetriever build() {
+            return new FederatedDocumentRetriever(this);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.wx.config.knowledge;
+
+import com.example.wx.enums.KnowledgeBaseType;
+
+/**
+ * 单个知识库的熔断器
+ * <ul>
+ *   <li>CLOSED：正常路由，连续失败 failureThreshold 次后进入 OPEN</li>
+ *   <li>OPEN：不再路由请求，openMillis 之后进入 HALF_OPEN</li>
+ *   <li>HALF_OPEN：只放行一个试探请求（后台健康探测不受限制），一次成功回到 CLOSED，一次失败回到 OPEN；
+ *   试探请求超过 openMillis 仍未上报结果时视为丢失，允许新的试探请求</li>
+ * </ul>
+ * 失败来源包括后台健康探测与实际检索请求。
+ *
+ * @author wangx
+ * @create 2026/10/19 16:10
+ */
+public class KnowledgeBaseCircuitBreaker {
+
+    public enum State {
+        CLOSED, HALF_OPEN, OPEN
+    }
+
+    private final KnowledgeBaseType type;
+
+    private final int failureThreshold;
+
+    private final long openMillis;
+
+    private State state = State.CLOSED;
+
+    private int consecutiveFailures;
+
+    private long openedAt;
+
+    private boolean trialInFlight;
+
+    private long trialStartedAt;
+
+    public KnowledgeBaseCircuitBreaker(KnowledgeBaseType type, int failureThreshold, long openMillis) {
+        this.type = type;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openMillis = openMillis;
+    }
+
+    public KnowledgeBaseType getType() {
+        return type;
+    }
+
+    /**
+     * 当前是否允许路由请求，OPEN 超过 openMillis 时转为 HALF_OPEN。
+     * HALF_OPEN 下返回 true 即占用唯一的试探名额，调用方必须随后调用 recordSuccess 或 recordFailure
+     */
+    public synchronized boolean allowRequest() {
+        State current = currentState();
+        if (current != State.HALF_OPEN) {
+            return current == State.CLOSED;
+        }
+        long now = System.currentTimeMillis();
+        if (trialInFlight && now - trialStartedAt < openMillis) {
+            return false;
+        }
+        trialInFlight = true;
+        trialStartedAt = now;
+        return true;
+    }
+
+    /**
+     * 是否处于 CLOSED，不占用试探名额
+     */
+    public synchronized boolean isClosed() {
+        return currentState() == State.CLOSED;
+    }
+
+    public synchronized State currentState() {
+        if (state == State.OPEN && System.currentTimeMillis() - openedAt >= openMillis) {
+            state = State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    public synchronized void recordSuccess() {
+        consecutiveFailures = 0;
+        trialInFlight = false;
+        state = State.CLOSED;
+    }
+
+    /**
+     * @return 本次失败是否使熔断器打开
+     */
+    public synchronized boolean recordFailure() {
+        consecutiveFailures++;
+        trialInFlight = false;
+        State current = currentState();
+        if (current == State.HALF_OPEN || (current == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+            return true;
+        }
+        return false;
+    }
+}
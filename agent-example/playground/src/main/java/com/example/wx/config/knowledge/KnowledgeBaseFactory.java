@@ -1,49 +1,215 @@
 package com.example.wx.config.knowledge;
 
+import com.example.wx.config.KnowledgeBaseProperties;
+import com.example.wx.config.knowledge.factory.FederatedKnowledgeBaseService;
 import com.example.wx.enums.KnowledgeBaseType;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.client.advisor.api.BaseAdvisor;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.stereotype.Component;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author wangx
  * @description 工厂模式实现知识库创建
+ * <p>
+ * 每个知识库对应一个熔断器，后台线程定期调用 {@link KnowledgeBaseService#probe()} 探测健康状态；
+ * {@link #getRetrievalAdvisor()} 返回可在运行时切换知识库的检索顾问，主知识库熔断后同一次请求内即切到备用知识库。
+ * 探测耗时记录为 knowledge_base.probe，熔断状态记录为 knowledge_base.circuit.state（0 关闭、1 半开、2 打开）。
+ * 主知识库或备用知识库配置为 federated 时，以其余全部已启用的知识库为成员创建联邦知识库。
  * @create 2025/8/7 21:18
  */
 @Component
-public class KnowledgeBaseFactory {
+public class KnowledgeBaseFactory implements DisposableBean {
 
-    private final Map<KnowledgeBaseType, KnowledgeBaseService> knowledgeBaseServiceMap = new HashMap<>();
+    private static final Logger logger = LoggerFactory.getLogger(KnowledgeBaseFactory.class);
 
-    public KnowledgeBaseFactory(List<KnowledgeBaseService> services) {
+    private final Map<KnowledgeBaseType, KnowledgeBaseService> knowledgeBaseServiceMap = new EnumMap<>(KnowledgeBaseType.class);
+
+    private final Map<KnowledgeBaseType, KnowledgeBaseCircuitBreaker> breakers = new EnumMap<>(KnowledgeBaseType.class);
+
+    private final KnowledgeBaseType primaryType;
+
+    private final KnowledgeBaseType fallbackType;
+
+    private final KnowledgeBaseProperties.HealthProperties health;
+
+    private final MeterRegistry meterRegistry;
+
+    private final ScheduledExecutorService scheduler;
+
+    private final ExecutorService probeExecutor;
+
+    private final ExecutorService federatedExecutor;
+
+    private volatile FailoverRetrievalAdvisor retrievalAdvisor;
+
+    public KnowledgeBaseFactory(List<KnowledgeBaseService> services, KnowledgeBaseProperties knowledgeBaseProperties,
+                                ObjectProvider<MeterRegistry> meterRegistry) {
         for (KnowledgeBaseService service : services) {
             knowledgeBaseServiceMap.put(service.getType(), service);
         }
-    }
+        // 类型只在启动时解析一次
+        this.primaryType = KnowledgeBaseType.valueOf(knowledgeBaseProperties.getPrimaryType().toUpperCase(Locale.ROOT));
+        this.fallbackType = KnowledgeBaseType.valueOf(knowledgeBaseProperties.getFallbackType().toUpperCase(Locale.ROOT));
+        if (primaryType == KnowledgeBaseType.FEDERATED || fallbackType == KnowledgeBaseType.FEDERATED) {
+            // 有界队列：后端卡住占满线程时新的召回直接被拒绝并按超时处理，不在队列里无限排队
+            KnowledgeBaseProperties.FederatedProperties federated = knowledgeBaseProperties.getFederated();
+            this.federatedExecutor = new ThreadPoolExecutor(federated.getPoolSize(), federated.getPoolSize(),
+                    0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(federated.getQueueCapacity()),
+                    daemon("knowledge-base-federated"));
+            knowledgeBaseServiceMap.put(KnowledgeBaseType.FEDERATED, new FederatedKnowledgeBaseService(
+                    List.copyOf(services), federatedExecutor, knowledgeBaseProperties));
+        } else {
+            this.federatedExecutor = null;
+        }
+        this.health = knowledgeBaseProperties.getHealth();
+        this.meterRegistry = meterRegistry.getIfAvailable(() -> Metrics.globalRegistry);
 
-    @Value("${spring.ai.knowledge-base.primary-type:pgvector}")
-    private String primaryType;
+        for (KnowledgeBaseType type : knowledgeBaseServiceMap.keySet()) {
+            KnowledgeBaseCircuitBreaker breaker = new KnowledgeBaseCircuitBreaker(type, health.getFailureThreshold(),
+                    health.getOpenDuration().toMillis());
+            breakers.put(type, breaker);
+            Gauge.builder("knowledge_base.circuit.state", breaker, b -> b.currentState().ordinal())
+                    .description("0 closed, 1 half-open, 2 open")
+                    .tag("type", type.getCode())
+                    .register(this.meterRegistry);
+        }
 
-    @Value("${spring.ai.knowledge-base.fallback-type:simple}")
-    private String fallbackType;
+        // 探测串行执行，超时后中断；忽略中断的探测最多占满每个知识库一个线程，线程耗尽时新的探测直接记为失败
+        this.probeExecutor = new ThreadPoolExecutor(1, Math.max(1, breakers.size()), 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), daemon("knowledge-base-probe"));
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(daemon("knowledge-base-health"));
+        long interval = health.getProbeInterval().toMillis();
+        this.scheduler.scheduleWithFixedDelay(this::probeAll, interval, interval, TimeUnit.MILLISECONDS);
+    }
 
     /**
-     * 获取知识库服务（支持降级）
+     * 获取当前应使用的知识库服务（主知识库熔断时降级到备用知识库）
      */
     public KnowledgeBaseService getKnowledgeBaseService() {
-        KnowledgeBaseType primary = KnowledgeBaseType.valueOf(primaryType.toUpperCase());
-        KnowledgeBaseService primaryService = knowledgeBaseServiceMap.get(primary);
+        // 调用方不会上报结果，只选择已关闭的知识库，半开状态的试探交给检索顾问和健康探测
+        for (KnowledgeBaseCircuitBreaker breaker : candidates()) {
+            if (breaker.isClosed()) {
+                return knowledgeBaseServiceMap.get(breaker.getType());
+            }
+        }
+        KnowledgeBaseService fallback = knowledgeBaseServiceMap.get(fallbackType);
+        return fallback != null ? fallback : knowledgeBaseServiceMap.get(primaryType);
+    }
 
-        if (primaryService != null && primaryService.isAvailable()) {
-            return primaryService;
+    /**
+     * 获取可在运行时切换知识库的检索顾问，各知识库的顾问只创建一次
+     */
+    public BaseAdvisor getRetrievalAdvisor() {
+        FailoverRetrievalAdvisor advisor = retrievalAdvisor;
+        if (advisor == null) {
+            synchronized (this) {
+                advisor = retrievalAdvisor;
+                if (advisor == null) {
+                    Map<KnowledgeBaseType, BaseAdvisor> advisors = new EnumMap<>(KnowledgeBaseType.class);
+                    for (KnowledgeBaseType type : List.of(primaryType, fallbackType)) {
+                        KnowledgeBaseService service = knowledgeBaseServiceMap.get(type);
+                        if (service != null) {
+                            advisors.computeIfAbsent(type, t -> service.createRetrievalAdvisor());
+                        }
+                    }
+                    advisor = new FailoverRetrievalAdvisor(this::candidates, advisors);
+                    retrievalAdvisor = advisor;
+                }
+            }
+        }
+        return advisor;
+    }
+
+    /**
+     * 按优先级排列的候选知识库：主知识库、备用知识库
+     */
+    private List<KnowledgeBaseCircuitBreaker> candidates() {
+        List<KnowledgeBaseCircuitBreaker> candidates = new ArrayList<>(2);
+        for (KnowledgeBaseType type : List.of(primaryType, fallbackType)) {
+            KnowledgeBaseCircuitBreaker breaker = breakers.get(type);
+            if (breaker != null && !candidates.contains(breaker)) {
+                candidates.add(breaker);
+            }
         }
+        return candidates;
+    }
+
+    private void probeAll() {
+        breakers.forEach((type, breaker) -> {
+            KnowledgeBaseService service = knowledgeBaseServiceMap.get(type);
+            long start = System.nanoTime();
+            boolean healthy;
+            Future<?> future = null;
+            try {
+                future = probeExecutor.submit(service::probe);
+                future.get(health.getProbeTimeout().toMillis(), TimeUnit.MILLISECONDS);
+                healthy = true;
+            } catch (InterruptedException e) {
+                future.cancel(true);
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                healthy = false;
+                if (future != null) {
+                    // 超时的探测中断掉，避免挂起的连接持续占用线程
+                    future.cancel(true);
+                }
+                logger.debug("Knowledge base {} probe failed", type, e);
+            }
+            Timer.builder("knowledge_base.probe")
+                    .tag("type", type.getCode())
+                    .tag("outcome", healthy ? "success" : "failure")
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            KnowledgeBaseCircuitBreaker.State before = breaker.currentState();
+            if (healthy) {
+                breaker.recordSuccess();
+            } else {
+                breaker.recordFailure();
+            }
+            KnowledgeBaseCircuitBreaker.State after = breaker.currentState();
+            if (before != after) {
+                logger.info("Knowledge base {} circuit {} -> {}", type, before, after);
+            }
+        });
+    }
 
-        // 降级到备用知识库
-        KnowledgeBaseType fallback = KnowledgeBaseType.valueOf(fallbackType.toUpperCase());
-        return knowledgeBaseServiceMap.get(fallback);
+    private static ThreadFactory daemon(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+        probeExecutor.shutdownNow();
+        if (federatedExecutor != null) {
+            federatedExecutor.shutdownNow();
+        }
     }
-}
\ No newline at end of file
+}
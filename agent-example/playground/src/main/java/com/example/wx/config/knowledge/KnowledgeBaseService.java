@@ -2,6 +2,7 @@ package com.example.wx.config.knowledge;
 
 import com.example.wx.enums.KnowledgeBaseType;
 import org.springframework.ai.chat.client.advisor.api.BaseAdvisor;
+import org.springframework.ai.rag.retrieval.search.DocumentRetriever;
 
 /**
  * @author wangx
@@ -14,6 +15,11 @@ public interface KnowledgeBaseService {
      */
     BaseAdvisor createRetrievalAdvisor();
 
+    /**
+     * 创建知识库召回器，供联邦检索并发调用
+     */
+    DocumentRetriever createDocumentRetriever();
+
     /**
      * 获取知识库类型
      */
@@ -23,4 +29,14 @@ public interface KnowledgeBaseService {
      * 检查知识库是否可用
      */
     boolean isAvailable();
+
+    /**
+     * 健康探测，由 KnowledgeBaseFactory 在后台定期调用，不可用时抛出异常。
+     * 默认只检查配置是否可用，能低成本访问后端的实现应覆盖该方法。
+     */
+    default void probe() {
+        if (!isAvailable()) {
+            throw new IllegalStateException(getType().getCode() + " knowledge base is not available");
+        }
+    }
 }
@@ -7,6 +7,7 @@ import com.alibaba.cloud.ai.dashscope.rag.DashScopeDocumentRetrieverOptions;
 import com.example.wx.config.knowledge.KnowledgeBaseService;
 import com.example.wx.enums.KnowledgeBaseType;
 import org.springframework.ai.chat.client.advisor.api.BaseAdvisor;
+import org.springframework.ai.rag.retrieval.search.DocumentRetriever;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
@@ -32,13 +33,16 @@ public class BailianKnowledgeBaseService implements KnowledgeBaseService {
 
     @Override
     public BaseAdvisor createRetrievalAdvisor() {
-        return new DocumentRetrievalAdvisor(
-                new DashScopeDocumentRetriever(
-                        dashscopeApi,
-                        DashScopeDocumentRetrieverOptions.builder()
-                                .withIndexName(indexName)
-                                .build()
-                )
+        return new DocumentRetrievalAdvisor(createDocumentRetriever());
+    }
+
+    @Override
+    public DocumentRetriever createDocumentRetriever() {
+        return new DashScopeDocumentRetriever(
+                dashscopeApi,
+                DashScopeDocumentRetrieverOptions.builder()
+                        .withIndexName(indexName)
+                        .build()
         );
     }
 
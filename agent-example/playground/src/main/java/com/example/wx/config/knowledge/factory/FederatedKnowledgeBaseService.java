@@ -0,0 +1,79 @@
+package com.example.wx.config.knowledge.factory;
+
+import com.example.wx.config.KnowledgeBaseProperties;
+import com.example.wx.config.knowledge.FederatedDocumentRetriever;
+import com.example.wx.config.knowledge.KnowledgeBaseService;
+import com.example.wx.enums.KnowledgeBaseType;
+import com.example.wx.rag.context.ContextPacker;
+import org.springframework.ai.chat.client.advisor.api.BaseAdvisor;
+import org.springframework.ai.rag.advisor.RetrievalAugmentationAdvisor;
+import org.springframework.ai.rag.generation.augmentation.ContextualQueryAugmenter;
+import org.springframework.ai.rag.retrieval.search.DocumentRetriever;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * @author wangx
+ * @description 联邦知识库：并发检索全部已启用的知识库，在请求级截止时间内合并、去重并按 RRF 重排
+ * <p>
+ * 由 KnowledgeBaseFactory 在 primary-type 或 fallback-type 为 federated 时创建，成员为其余已注册的知识库。
+ * 融合结果再经 {@link ContextPacker} 按 token 预算打包后放入提示词。
+ * @create 2026/10/19 17:30
+ */
+public class FederatedKnowledgeBaseService implements KnowledgeBaseService {
+
+    private final List<KnowledgeBaseService> members;
+
+    private final FederatedDocumentRetriever retriever;
+
+    private final ContextPacker contextPacker;
+
+    public FederatedKnowledgeBaseService(List<KnowledgeBaseService> members, ExecutorService executor,
+                                         KnowledgeBaseProperties knowledgeBaseProperties) {
+        this.members = List.copyOf(members);
+        KnowledgeBaseProperties.FederatedProperties federated = knowledgeBaseProperties.getFederated();
+        FederatedDocumentRetriever.Builder builder = FederatedDocumentRetriever.builder()
+                .executor(executor)
+                .deadline(federated.getDeadline())
+                .rrfK(federated.getRrfK())
+                .topK(federated.getTopK());
+        for (KnowledgeBaseService member : this.members) {
+            builder.retriever(member.getType().getCode(), member.createDocumentRetriever());
+        }
+        this.retriever = builder.build();
+        KnowledgeBaseProperties.ContextProperties context = knowledgeBaseProperties.getContext();
+        this.contextPacker = ContextPacker.builder()
+                .maxTokens(context.getMaxTokens())
+                .duplicateDistance(context.getDuplicateDistance())
+                .minTrimTokens(context.getMinTrimTokens())
+                .build();
+    }
+
+    @Override
+    public BaseAdvisor createRetrievalAdvisor() {
+        return RetrievalAugmentationAdvisor.builder()
+                .documentRetriever(retriever)
+                .documentPostProcessors((query, documents) -> contextPacker.pack(documents).documents())
+                .queryAugmenter(ContextualQueryAugmenter.builder().allowEmptyContext(true).build())
+                .build();
+    }
+
+    @Override
+    public DocumentRetriever createDocumentRetriever() {
+        return retriever;
+    }
+
+    @Override
+    public KnowledgeBaseType getType() {
+        return KnowledgeBaseType.FEDERATED;
+    }
+
+    /**
+     * 任一成员可用即可用
+     */
+    @Override
+    public boolean isAvailable() {
+        return members.stream().anyMatch(KnowledgeBaseService::isAvailable);
+    }
+}
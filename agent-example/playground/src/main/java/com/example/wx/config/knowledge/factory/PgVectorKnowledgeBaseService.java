@@ -2,13 +2,21 @@ package com.example.wx.config.knowledge.factory;
 
 import com.alibaba.cloud.ai.advisor.RetrievalRerankAdvisor;
 import com.alibaba.cloud.ai.model.RerankModel;
+import com.example.wx.config.KnowledgeBaseProperties;
 import com.example.wx.config.knowledge.KnowledgeBaseService;
+import com.example.wx.config.rag.ContextPackingRerankModel;
+import com.example.wx.config.rag.LocalRerankModel;
 import com.example.wx.config.rag.VectorStoreDelegate;
 import com.example.wx.enums.KnowledgeBaseType;
+import com.example.wx.rag.context.ContextPacker;
 import org.springframework.ai.chat.client.advisor.api.BaseAdvisor;
+import org.springframework.ai.rag.retrieval.search.DocumentRetriever;
+import org.springframework.ai.rag.retrieval.search.VectorStoreDocumentRetriever;
 import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
 /**
@@ -26,9 +34,20 @@ public class PgVectorKnowledgeBaseService implements KnowledgeBaseService {
     @Value("${spring.ai.knowledge-base.pgvector.top-k:5}")
     private int topK;
 
-    public PgVectorKnowledgeBaseService(VectorStoreDelegate vectorStoreDelegate, RerankModel rerankModel) {
+    public PgVectorKnowledgeBaseService(VectorStoreDelegate vectorStoreDelegate, ObjectProvider<RerankModel> rerankModel,
+                                        KnowledgeBaseProperties knowledgeBaseProperties) {
         this.vectorStoreDelegate = vectorStoreDelegate;
-        this.rerankModel = rerankModel;
+        // local 时在进程内重排，不依赖远程 RerankModel
+        RerankModel reranker = "local".equalsIgnoreCase(knowledgeBaseProperties.getPgvector().getReranker())
+                ? LocalRerankModel.builder().build()
+                : rerankModel.getObject();
+        KnowledgeBaseProperties.ContextProperties context = knowledgeBaseProperties.getContext();
+        // 重排后按 token 预算打包，去除近似重复片段
+        this.rerankModel = new ContextPackingRerankModel(reranker, ContextPacker.builder()
+                .maxTokens(context.getMaxTokens())
+                .duplicateDistance(context.getDuplicateDistance())
+                .minTrimTokens(context.getMinTrimTokens())
+                .build());
     }
 
     @Override
@@ -40,6 +59,14 @@ public class PgVectorKnowledgeBaseService implements KnowledgeBaseService {
         );
     }
 
+    @Override
+    public DocumentRetriever createDocumentRetriever() {
+        return VectorStoreDocumentRetriever.builder()
+                .vectorStore(vectorStoreDelegate.getVectorStore("pgvector"))
+                .topK(topK)
+                .build();
+    }
+
     @Override
     public KnowledgeBaseType getType() {
         return KnowledgeBaseType.PGVECTOR;
@@ -49,5 +76,15 @@ public class PgVectorKnowledgeBaseService implements KnowledgeBaseService {
     public boolean isAvailable() {
         return vectorStoreDelegate.getVectorStore("pgvector") != null;
     }
+
+    /**
+     * 通过 PgVectorStore 的 JdbcTemplate 执行 SELECT 1，不调用 embedding
+     */
+    @Override
+    public void probe() {
+        JdbcTemplate jdbcTemplate = vectorStoreDelegate.getVectorStore("pgvector").<JdbcTemplate>getNativeClient()
+                .orElseThrow(() -> new IllegalStateException("pgvector store has no jdbc client"));
+        jdbcTemplate.queryForObject("SELECT 1", Integer.class);
+    }
 }
 
@@ -0,0 +1,57 @@
+package com.example.wx.config.knowledge.factory;
+
+import com.example.wx.config.knowledge.KnowledgeBaseService;
+import com.example.wx.config.rag.VectorStoreDelegate;
+import com.example.wx.enums.KnowledgeBaseType;
+import org.springframework.ai.chat.client.advisor.api.BaseAdvisor;
+import org.springframework.ai.chat.client.advisor.vectorstore.QuestionAnswerAdvisor;
+import org.springframework.ai.rag.retrieval.search.DocumentRetriever;
+import org.springframework.ai.rag.retrieval.search.VectorStoreDocumentRetriever;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+/**
+ * @author wangx
+ * @description 本地内存向量库知识库，作为默认的备用知识库
+ * @create 2026/10/19 16:40
+ */
+@Service
+@ConditionalOnProperty(name = "spring.ai.knowledge-base.simple.enabled", havingValue = "true")
+public class SimpleKnowledgeBaseService implements KnowledgeBaseService {
+
+    private final VectorStoreDelegate vectorStoreDelegate;
+
+    @Value("${spring.ai.knowledge-base.simple.top-k:5}")
+    private int topK;
+
+    public SimpleKnowledgeBaseService(VectorStoreDelegate vectorStoreDelegate) {
+        this.vectorStoreDelegate = vectorStoreDelegate;
+    }
+
+    @Override
+    public BaseAdvisor createRetrievalAdvisor() {
+        return QuestionAnswerAdvisor.builder(vectorStoreDelegate.getVectorStore("simple"))
+                .searchRequest(SearchRequest.builder().topK(topK).build())
+                .build();
+    }
+
+    @Override
+    public DocumentRetriever createDocumentRetriever() {
+        return VectorStoreDocumentRetriever.builder()
+                .vectorStore(vectorStoreDelegate.getVectorStore("simple"))
+                .topK(topK)
+                .build();
+    }
+
+    @Override
+    public KnowledgeBaseType getType() {
+        return KnowledgeBaseType.SIMPLE;
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return vectorStoreDelegate.getVectorStore("simple") != null;
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.wx.config.rag;
+
+import com.alibaba.cloud.ai.document.DocumentWithScore;
+import com.alibaba.cloud.ai.model.RerankModel;
+import com.alibaba.cloud.ai.model.RerankRequest;
+import com.alibaba.cloud.ai.model.RerankResponse;
+import com.example.wx.rag.context.ContextPacker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 在重排结果上做上下文打包的 RerankModel 装饰器
+ * <p>
+ * RetrievalRerankAdvisor 会把重排后的文档全部拼进提示词，这里在重排之后、拼接之前按 {@link ContextPacker}
+ * 的 token 预算选取文档，advisor 本身不需要改动。
+ *
+ * @author wangx
+ * @create 2026/10/19 13:40
+ */
+public class ContextPackingRerankModel implements RerankModel {
+
+    private static final Logger logger = LoggerFactory.getLogger(ContextPackingRerankModel.class);
+
+    private final RerankModel delegate;
+
+    private final ContextPacker contextPacker;
+
+    public ContextPackingRerankModel(RerankModel delegate, ContextPacker contextPacker) {
+        this.delegate = delegate;
+        this.contextPacker = contextPacker;
+    }
+
+    @Override
+    public RerankResponse call(RerankRequest request) {
+        RerankResponse response = delegate.call(request);
+        List<DocumentWithScore> results = new ArrayList<>(response.getResults());
+        results.sort(Comparator.comparingDouble(DocumentWithScore::getScore).reversed());
+
+        // 以重排分数作为打包时的相关度
+        Map<String, Double> scores = new HashMap<>();
+        List<Document> ranked = new ArrayList<>(results.size());
+        for (DocumentWithScore result : results) {
+            scores.put(result.getOutput().getId(), result.getScore());
+            ranked.add(result.getOutput().mutate().score(result.getScore()).build());
+        }
+        ContextPacker.Result packed = contextPacker.pack(ranked);
+        logger.debug("Packed rerank results: {} -> {} documents, {} -> {} tokens, {} duplicates, {} trimmed",
+                ranked.size(), packed.documents().size(), packed.inputTokens(), packed.packedTokens(),
+                packed.duplicates(), packed.trimmed());
+
+        List<DocumentWithScore> kept = new ArrayList<>(packed.documents().size());
+        for (Document document : packed.documents()) {
+            kept.add(DocumentWithScore.builder()
+                    .withDocument(document)
+                    .withScore(scores.get(document.getId()))
+                    .build());
+        }
+        return new RerankResponse(kept, response.getMetadata());
+    }
+}
@@ -0,0 +1,218 @@
+package com.example.wx.config.rag;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+
+/**
+ * 基于 {@link OffHeapVectorSlots} 的 HNSW 近邻图
+ * <p>
+ * 节点号与向量槽位号一致，相似度为归一化向量的点积（越大越近）。
+ * 每层保留 m 个邻居（第 0 层 2m 个），超出时按与该节点的相似度保留最近的邻居。
+ * 删除的节点仍保留在图中参与遍历，由调用方在结果中过滤。
+ * <p>
+ * 非线程安全，由调用方通过读写锁保证插入与查询互斥；多个查询可以并发执行。
+ *
+ * @author wangx
+ * @create 2026/10/18 22:30
+ */
+class HnswIndex {
+
+    private final OffHeapVectorSlots slots;
+
+    private final int m;
+
+    private final int efConstruction;
+
+    private final double levelMultiplier;
+
+    private final SplittableRandom random = new SplittableRandom(42);
+
+    /**
+     * links.get(node)[level] 为该层的邻居，下标 0 存放邻居个数
+     */
+    private final List<int[][]> links = new ArrayList<>();
+
+    private int entryPoint = -1;
+
+    private int maxLevel = -1;
+
+    HnswIndex(OffHeapVectorSlots slots, int m, int efConstruction) {
+        this.slots = slots;
+        this.m = m;
+        this.efConstruction = efConstruction;
+        this.levelMultiplier = 1 / Math.log(m);
+    }
+
+    /**
+     * 插入节点，node 需为 slots 中刚写入的槽位
+     */
+    void insert(int node, float[] vector) {
+        int level = (int) (-Math.log(1 - random.nextDouble()) * levelMultiplier);
+        int[][] nodeLinks = new int[level + 1][];
+        for (int l = 0; l <= level; l++) {
+            nodeLinks[l] = new int[maxLinks(l) + 1];
+        }
+        while (links.size() <= node) {
+            links.add(null);
+        }
+        links.set(node, nodeLinks);
+
+        if (entryPoint < 0) {
+            entryPoint = node;
+            maxLevel = level;
+            return;
+        }
+
+        int current = entryPoint;
+        float currentScore = slots.dot(vector, current);
+        for (int l = maxLevel; l > level; l--) {
+            Candidate closest = greedy(vector, current, currentScore, l);
+            current = closest.node();
+            currentScore = closest.score();
+        }
+        for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+            PriorityQueue<Candidate> found = searchLayer(vector, List.of(new Candidate(current, currentScore)), efConstruction, l);
+            List<Candidate> nearest = sortedDescending(found);
+            int limit = Math.min(m, nearest.size());
+            for (int i = 0; i < limit; i++) {
+                Candidate neighbor = nearest.get(i);
+                addLink(node, l, neighbor.node());
+                connectBack(neighbor.node(), l, node);
+            }
+            current = nearest.get(0).node();
+            currentScore = nearest.get(0).score();
+        }
+        if (level > maxLevel) {
+            entryPoint = node;
+            maxLevel = level;
+        }
+    }
+
+    /**
+     * 查询 ef 个近似最近邻
+     *
+     * @return 按相似度从高到低排序
+     */
+    List<Candidate> search(float[] query, int ef) {
+        if (entryPoint < 0) {
+            return List.of();
+        }
+        int current = entryPoint;
+        float currentScore = slots.dot(query, current);
+        for (int l = maxLevel; l > 0; l--) {
+            Candidate closest = greedy(query, current, currentScore, l);
+            current = closest.node();
+            currentScore = closest.score();
+        }
+        return sortedDescending(searchLayer(query, List.of(new Candidate(current, currentScore)), ef, 0));
+    }
+
+    private Candidate greedy(float[] query, int start, float startScore, int level) {
+        int current = start;
+        float currentScore = startScore;
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            int[] neighbors = links.get(current)[level];
+            for (int i = 1; i <= neighbors[0]; i++) {
+                float score = slots.dot(query, neighbors[i]);
+                if (score > currentScore) {
+                    current = neighbors[i];
+                    currentScore = score;
+                    changed = true;
+                }
+            }
+        }
+        return new Candidate(current, currentScore);
+    }
+
+    /**
+     * @return 大小不超过 ef 的结果集，堆顶为其中相似度最低的节点
+     */
+    private PriorityQueue<Candidate> searchLayer(float[] query, List<Candidate> entries, int ef, int level) {
+        BitSet visited = new BitSet();
+        PriorityQueue<Candidate> candidates = new PriorityQueue<>(Comparator.comparingDouble(Candidate::score).reversed());
+        PriorityQueue<Candidate> results = new PriorityQueue<>(Comparator.comparingDouble(Candidate::score));
+        for (Candidate entry : entries) {
+            visited.set(entry.node());
+            candidates.add(entry);
+            results.add(entry);
+        }
+        while (!candidates.isEmpty()) {
+            Candidate candidate = candidates.poll();
+            if (results.size() >= ef && candidate.score() < results.peek().score()) {
+                break;
+            }
+            int[][] candidateLinks = links.get(candidate.node());
+            if (level >= candidateLinks.length) {
+                continue;
+            }
+            int[] neighbors = candidateLinks[level];
+            for (int i = 1; i <= neighbors[0]; i++) {
+                int neighbor = neighbors[i];
+                if (visited.get(neighbor)) {
+                    continue;
+                }
+                visited.set(neighbor);
+                float score = slots.dot(query, neighbor);
+                if (results.size() < ef || score > results.peek().score()) {
+                    Candidate next = new Candidate(neighbor, score);
+                    candidates.add(next);
+                    results.add(next);
+                    if (results.size() > ef) {
+                        results.poll();
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    private void addLink(int node, int level, int neighbor) {
+        int[] neighbors = links.get(node)[level];
+        neighbors[++neighbors[0]] = neighbor;
+    }
+
+    /**
+     * 反向连接，邻居已满时在原有邻居与新节点中保留与该邻居最相似的 maxLinks 个
+     */
+    private void connectBack(int neighbor, int level, int node) {
+        int[] neighbors = links.get(neighbor)[level];
+        int maxLinks = maxLinks(level);
+        if (neighbors[0] < maxLinks) {
+            neighbors[++neighbors[0]] = node;
+            return;
+        }
+        float[] base = new float[slots.dimensions()];
+        slots.copy(neighbor, base, 0);
+        PriorityQueue<Candidate> keep = new PriorityQueue<>(Comparator.comparingDouble(Candidate::score));
+        keep.add(new Candidate(node, slots.dot(base, node)));
+        for (int i = 1; i <= neighbors[0]; i++) {
+            keep.add(new Candidate(neighbors[i], slots.dot(base, neighbors[i])));
+            if (keep.size() > maxLinks) {
+                keep.poll();
+            }
+        }
+        neighbors[0] = 0;
+        for (Candidate candidate : keep) {
+            neighbors[++neighbors[0]] = candidate.node();
+        }
+    }
+
+    private int maxLinks(int level) {
+        return level == 0 ? 2 * m : m;
+    }
+
+    private static List<Candidate> sortedDescending(PriorityQueue<Candidate> queue) {
+        List<Candidate> sorted = new ArrayList<>(queue);
+        sorted.sort(Comparator.comparingDouble(Candidate::score).reversed());
+        return sorted;
+    }
+
+    record Candidate(int node, float score) {
+    }
+}
@@ -0,0 +1,242 @@
+package com.example.wx.config.rag;
+
+import com.alibaba.cloud.ai.document.DocumentWithScore;
+import com.alibaba.cloud.ai.model.RerankModel;
+import com.alibaba.cloud.ai.model.RerankRequest;
+import com.alibaba.cloud.ai.model.RerankResponse;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.document.DocumentMetadata;
+import org.springframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+
+/**
+ * 进程内的重排模型，可替代远程 RerankModel，省去每轮对话一次网络往返
+ * <p>
+ * 对每个候选文档计算三个特征并加权求和：
+ * <ul>
+ *   <li>lexical：以候选集为语料的 BM25，词元为英文/数字单词与中文字符 bigram，按候选集内最大值归一化</li>
+ *   <li>coverage：查询词元在文档中出现的比例</li>
+ *   <li>vector：向量检索返回的相似度（{@link Document#getScore()} 或 1 - distance），不额外调用 embedding</li>
+ * </ul>
+ * 候选数不少于 parallelThreshold 时在 ForkJoinPool 上并行打分，利用多核。
+ *
+ * @author wangx
+ * @create 2026/10/19 15:00
+ */
+public class LocalRerankModel implements RerankModel {
+
+    private static final double K1 = 1.2;
+
+    private static final double B = 0.75;
+
+    private final double lexicalWeight;
+
+    private final double coverageWeight;
+
+    private final double vectorWeight;
+
+    private final int parallelThreshold;
+
+    private final ForkJoinPool pool;
+
+    private LocalRerankModel(Builder builder) {
+        Assert.isTrue(builder.lexicalWeight >= 0 && builder.coverageWeight >= 0 && builder.vectorWeight >= 0,
+                "weights must not be negative");
+        Assert.notNull(builder.pool, "pool cannot be null");
+        this.lexicalWeight = builder.lexicalWeight;
+        this.coverageWeight = builder.coverageWeight;
+        this.vectorWeight = builder.vectorWeight;
+        this.parallelThreshold = builder.parallelThreshold;
+        this.pool = builder.pool;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public RerankResponse call(RerankRequest request) {
+        List<Document> candidates = request.getInstructions();
+        if (candidates == null || candidates.isEmpty()) {
+            return new RerankResponse(List.of());
+        }
+        Set<String> queryTerms = new LinkedHashSet<>(terms(request.getQuery()));
+        int size = candidates.size();
+
+        // 各候选的词频在打分前并行统计，文档频率与平均长度依赖全部候选
+        List<Map<String, Integer>> frequencies = map(size, i -> termFrequencies(candidates.get(i).getText()));
+        Map<String, Integer> documentFrequencies = new HashMap<>();
+        long totalLength = 0;
+        for (Map<String, Integer> frequency : frequencies) {
+            for (String term : queryTerms) {
+                if (frequency.containsKey(term)) {
+                    documentFrequencies.merge(term, 1, Integer::sum);
+                }
+            }
+            totalLength += frequency.getOrDefault("", 0);
+        }
+        double averageLength = Math.max(1, (double) totalLength / size);
+
+        List<double[]> features = map(size, i -> features(queryTerms, frequencies.get(i), documentFrequencies,
+                size, averageLength, candidates.get(i)));
+        double maxLexical = features.stream().mapToDouble(feature -> feature[0]).max().orElse(0);
+
+        List<DocumentWithScore> results = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            double[] feature = features.get(i);
+            double lexical = maxLexical > 0 ? feature[0] / maxLexical : 0;
+            double score = lexicalWeight * lexical + coverageWeight * feature[1] + vectorWeight * feature[2];
+            results.add(DocumentWithScore.builder()
+                    .withDocument(candidates.get(i))
+                    .withScore(score)
+                    .build());
+        }
+        results.sort(Comparator.comparingDouble(DocumentWithScore::getScore).reversed());
+        return new RerankResponse(results);
+    }
+
+    /**
+     * [BM25, 覆盖率, 向量相似度]
+     */
+    private static double[] features(Set<String> queryTerms, Map<String, Integer> frequency,
+                                     Map<String, Integer> documentFrequencies, int size, double averageLength,
+                                     Document document) {
+        int length = frequency.getOrDefault("", 0);
+        double bm25 = 0;
+        int covered = 0;
+        for (String term : queryTerms) {
+            Integer tf = frequency.get(term);
+            if (tf == null) {
+                continue;
+            }
+            covered++;
+            int df = documentFrequencies.getOrDefault(term, 0);
+            double idf = Math.log(1 + (size - df + 0.5) / (df + 0.5));
+            bm25 += idf * tf * (K1 + 1) / (tf + K1 * (1 - B + B * length / averageLength));
+        }
+        double coverage = queryTerms.isEmpty() ? 0 : (double) covered / queryTerms.size();
+        return new double[]{bm25, coverage, vectorScore(document)};
+    }
+
+    private static double vectorScore(Document document) {
+        if (document.getScore() != null) {
+            return clamp(document.getScore());
+        }
+        Object distance = document.getMetadata().get(DocumentMetadata.DISTANCE.value());
+        return distance instanceof Number number ? clamp(1 - number.doubleValue()) : 0;
+    }
+
+    private static double clamp(double value) {
+        return Math.max(0, Math.min(1, value));
+    }
+
+    /**
+     * 词频表，空字符串 key 存放词元总数
+     */
+    private static Map<String, Integer> termFrequencies(String text) {
+        List<String> terms = terms(text);
+        Map<String, Integer> frequency = new HashMap<>(terms.size() * 2);
+        for (String term : terms) {
+            frequency.merge(term, 1, Integer::sum);
+        }
+        frequency.put("", terms.size());
+        return frequency;
+    }
+
+    /**
+     * 英文/数字按单词切分，中文按相邻字符 bigram 切分
+     */
+    static List<String> terms(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null) {
+            return terms;
+        }
+        StringBuilder word = new StringBuilder();
+        char previousCjk = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c) && c < 0x3000) {
+                word.append(Character.toLowerCase(c));
+                previousCjk = 0;
+                continue;
+            }
+            if (!word.isEmpty()) {
+                terms.add(word.toString());
+                word.setLength(0);
+            }
+            if (Character.UnicodeScript.of(c) == Character.UnicodeScript.HAN) {
+                if (previousCjk != 0) {
+                    terms.add(new String(new char[]{previousCjk, c}));
+                }
+                previousCjk = c;
+            } else {
+                previousCjk = 0;
+            }
+        }
+        if (!word.isEmpty()) {
+            terms.add(word.toString());
+        }
+        return terms;
+    }
+
+    private <T> List<T> map(int size, IntFunction<T> function) {
+        if (size < parallelThreshold) {
+            return IntStream.range(0, size).mapToObj(function).toList();
+        }
+        return pool.submit(() -> IntStream.range(0, size).parallel().mapToObj(function).toList()).join();
+    }
+
+    public static class Builder {
+
+        private double lexicalWeight = 0.45;
+        private double coverageWeight = 0.25;
+        private double vectorWeight = 0.3;
+        private int parallelThreshold = 16;
+        private ForkJoinPool pool = ForkJoinPool.commonPool();
+
+        public Builder lexicalWeight(double lexicalWeight) {
+            this.lexicalWeight = lexicalWeight;
+            return this;
+        }
+
+        public Builder coverageWeight(double coverageWeight) {
+            this.coverageWeight = coverageWeight;
+            return this;
+        }
+
+        public Builder vectorWeight(double vectorWeight) {
+            this.vectorWeight = vectorWeight;
+            return this;
+        }
+
+        /**
+         * 候选数达到该值时并行打分，候选较少时串行更快
+         */
+        public Builder parallelThreshold(int parallelThreshold) {
+            this.parallelThreshold = parallelThreshold;
+            return this;
+        }
+
+        /**
+         * 并行打分使用的线程池，默认 commonPool
+         */
+        public Builder pool(ForkJoinPool pool) {
+            this.pool = pool;
+            return this;
+        }
+
+        public LocalRerankModel build() {
+            return new LocalRerankModel(this);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.wx.config.rag;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * markdown 语料入库清单
+ * <p>
+ * 记录每个源文件的内容哈希以及写入向量库的分片 id，启动或文件变更时据此做增量比对：
+ * 哈希未变的文件直接跳过，变更的文件只写入新增分片并删除失效分片，已删除文件的分片全部清理。
+ * 分片 id 由 源文件名 + 分片文本哈希 生成，同一分片多次写入时 id 不变。
+ *
+ * @author wangx
+ * @create 2026/10/18 20:40
+ */
+public class MarkdownIndexManifest {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    /**
+     * key 为源文件名（相对 markdown 目录的路径）
+     */
+    private final Map<String, Entry> entries;
+
+    private MarkdownIndexManifest(Map<String, Entry> entries) {
+        this.entries = entries;
+    }
+
+    public static MarkdownIndexManifest empty() {
+        return new MarkdownIndexManifest(new TreeMap<>());
+    }
+
+    /**
+     * 读取清单文件，文件不存在时返回空清单
+     */
+    public static MarkdownIndexManifest load(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return empty();
+        }
+        Map<String, Entry> entries = OBJECT_MAPPER.readValue(path.toFile(), new TypeReference<TreeMap<String, Entry>>() {
+        });
+        return new MarkdownIndexManifest(entries);
+    }
+
+    /**
+     * 先写临时文件再原子替换，避免进程中断留下半个清单
+     */
+    public void save(Path path) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path tmp = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+        try {
+            OBJECT_MAPPER.writerWithDefaultPrettyPrinter().writeValue(tmp.toFile(), entries);
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    public Entry get(String source) {
+        return entries.get(source);
+    }
+
+    public void put(String source, Entry entry) {
+        entries.put(source, entry);
+    }
+
+    public Entry remove(String source) {
+        return entries.remove(source);
+    }
+
+    public Map<String, Entry> entries() {
+        return entries;
+    }
+
+    public static String sha256(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 分片的确定性 id，向量库按 id upsert，重复写入不会产生重复分片
+     */
+    public static String chunkId(String source, String text) {
+        String key = source + '\0' + sha256(text.getBytes(StandardCharsets.UTF_8));
+        return UUID.nameUUIDFromBytes(key.getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
+    /**
+     * @param hash 源文件内容哈希
+     * @param chunkIds 该文件写入向量库的分片 id
+     */
+    public record Entry(String hash, List<String> chunkIds) {
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.wx.config.rag;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 堆外连续存储的定长向量槽位
+ * <p>
+ * 向量按槽位连续存放在若干个 direct buffer 分段中（单个分段约 32MB，避免单个 buffer 超过 2GB），
+ * 写入时归一化，余弦相似度退化为点积。打分时按块把向量批量拷贝到线程本地的 float[] 中，
+ * 再用多累加器的原始类型循环计算点积，批量拷贝由 JIT 内联为内存复制，热点循环只访问堆内数组。
+ * <p>
+ * 非线程安全，由调用方通过读写锁保证写入与读取互斥。
+ *
+ * @author wangx
+ * @create 2026/10/18 22:10
+ */
+class OffHeapVectorSlots {
+
+    private static final int SEGMENT_BYTES = 32 * 1024 * 1024;
+
+    /**
+     * 扫描时一次拷贝的向量个数
+     */
+    static final int BLOCK_SIZE = 64;
+
+    private final int dimensions;
+
+    private final int slotsPerSegment;
+
+    private final List<FloatBuffer> segments = new ArrayList<>();
+
+    private final ThreadLocal<float[]> scratch;
+
+    private int size = 0;
+
+    OffHeapVectorSlots(int dimensions) {
+        this.dimensions = dimensions;
+        this.slotsPerSegment = Math.max(BLOCK_SIZE, SEGMENT_BYTES / (dimensions * Float.BYTES)) / BLOCK_SIZE * BLOCK_SIZE;
+        this.scratch = ThreadLocal.withInitial(() -> new float[BLOCK_SIZE * dimensions]);
+    }
+
+    int dimensions() {
+        return dimensions;
+    }
+
+    /**
+     * 已分配的槽位数（含已删除的槽位）
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * 追加一个已归一化的向量
+     *
+     * @return 槽位号
+     */
+    int append(float[] vector) {
+        int slot = size;
+        if (slot / slotsPerSegment >= segments.size()) {
+            segments.add(ByteBuffer.allocateDirect(slotsPerSegment * dimensions * Float.BYTES)
+                    .order(ByteOrder.nativeOrder())
+                    .asFloatBuffer());
+        }
+        set(slot, vector);
+        size++;
+        return slot;
+    }
+
+    /**
+     * 覆盖已有槽位，用于复用已删除的槽位
+     */
+    void set(int slot, float[] vector) {
+        segments.get(slot / slotsPerSegment).put((slot % slotsPerSegment) * dimensions, vector, 0, dimensions);
+    }
+
+    void copy(int slot, float[] into, int offset) {
+        segments.get(slot / slotsPerSegment).get((slot % slotsPerSegment) * dimensions, into, offset, dimensions);
+    }
+
+    /**
+     * 查询向量与单个槽位的点积
+     */
+    float dot(float[] query, int slot) {
+        float[] buffer = scratch.get();
+        copy(slot, buffer, 0);
+        return dot(query, buffer, 0, dimensions);
+    }
+
+    /**
+     * 按块扫描所有槽位，逐个回调点积
+     */
+    void scan(float[] query, SlotConsumer consumer) {
+        float[] buffer = scratch.get();
+        for (int segment = 0; segment < segments.size(); segment++) {
+            FloatBuffer vectors = segments.get(segment);
+            int base = segment * slotsPerSegment;
+            int end = Math.min(size - base, slotsPerSegment);
+            for (int block = 0; block < end; block += BLOCK_SIZE) {
+                int count = Math.min(BLOCK_SIZE, end - block);
+                vectors.get(block * dimensions, buffer, 0, count * dimensions);
+                for (int i = 0; i < count; i++) {
+                    consumer.accept(base + block + i, dot(query, buffer, i * dimensions, dimensions));
+                }
+            }
+        }
+    }
+
+    /**
+     * 四路累加器拆开浮点加法的依赖链，便于 JIT 展开与流水
+     */
+    static float dot(float[] a, float[] b, int offset, int length) {
+        float s0 = 0f;
+        float s1 = 0f;
+        float s2 = 0f;
+        float s3 = 0f;
+        int i = 0;
+        for (; i + 3 < length; i += 4) {
+            s0 += a[i] * b[offset + i];
+            s1 += a[i + 1] * b[offset + i + 1];
+            s2 += a[i + 2] * b[offset + i + 2];
+            s3 += a[i + 3] * b[offset + i + 3];
+        }
+        for (; i < length; i++) {
+            s0 += a[i] * b[offset + i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    /**
+     * 原地归一化，零向量保持不变
+     */
+    static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        if (norm == 0) {
+            return vector;
+        }
+        float scale = (float) (1.0 / Math.sqrt(norm));
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] *= scale;
+        }
+        return vector;
+    }
+
+    @FunctionalInterface
+    interface SlotConsumer {
+
+        void accept(int slot, float score);
+    }
+}
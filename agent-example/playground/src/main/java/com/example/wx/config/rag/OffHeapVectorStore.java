@@ -0,0 +1,340 @@
+package com.example.wx.config.rag;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.document.DocumentMetadata;
+import org.springframework.ai.embedding.BatchingStrategy;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingOptions;
+import org.springframework.ai.observation.conventions.VectorStoreProvider;
+import org.springframework.ai.observation.conventions.VectorStoreSimilarityMetric;
+import org.springframework.ai.vectorstore.AbstractVectorStoreBuilder;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.ai.vectorstore.filter.FilterExpressionConverter;
+import org.springframework.ai.vectorstore.filter.converter.SimpleVectorStoreFilterExpressionConverter;
+import org.springframework.ai.vectorstore.observation.AbstractObservationVectorStore;
+import org.springframework.ai.vectorstore.observation.VectorStoreObservationContext;
+import org.springframework.expression.Expression;
+import org.springframework.expression.ExpressionParser;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+import org.springframework.util.Assert;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntPredicate;
+
+/**
+ * 堆外存储向量的内存向量库，可替代 SimpleVectorStore
+ * <p>
+ * SimpleVectorStore 每个文档一个堆内 float[]，查询时对全部文档逐个计算余弦相似度并排序。这里：
+ * <ul>
+ *   <li>向量归一化后连续存放在堆外（{@link OffHeapVectorSlots}），余弦相似度即点积，不占用堆也不增加 GC 压力</li>
+ *   <li>暴力扫描按块拷贝后用原始类型循环打分，只维护 topK 大小的堆，不对全部结果排序</li>
+ *   <li>可选 HNSW 图（{@link HnswIndex}），查询复杂度近似对数级</li>
+ *   <li>与 SimpleVectorStore 一致地支持 topK、similarityThreshold 与过滤表达式（SpEL 求值，表达式每次查询只解析一次，
+ *   且只对能进入 topK 的候选求值）</li>
+ * </ul>
+ * HNSW 模式下过滤后不足 topK 条时回退到暴力扫描，保证过滤查询的召回。
+ * 数据只在进程内，重启后需重新写入。
+ *
+ * @author wangx
+ * @create 2026/10/18 22:50
+ */
+public class OffHeapVectorStore extends AbstractObservationVectorStore {
+
+    private final ExpressionParser expressionParser = new SpelExpressionParser();
+
+    private final FilterExpressionConverter filterExpressionConverter = new SimpleVectorStoreFilterExpressionConverter();
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final boolean hnswEnabled;
+
+    private final int hnswM;
+
+    private final int hnswEfConstruction;
+
+    private final int hnswEfSearch;
+
+    private final BatchingStrategy batchingStrategy;
+
+    /**
+     * 槽位号到文档的映射，已删除的槽位为 null
+     */
+    private final List<Entry> entries = new ArrayList<>();
+
+    private final Map<String, Integer> idToSlot = new HashMap<>();
+
+    /**
+     * 可复用的已删除槽位，HNSW 模式下节点不能复用，不记录
+     */
+    private final Deque<Integer> freeSlots = new ArrayDeque<>();
+
+    private volatile OffHeapVectorSlots slots;
+
+    private HnswIndex hnsw;
+
+    private OffHeapVectorStore(Builder builder) {
+        super(builder);
+        Assert.isTrue(builder.hnswM > 1, "hnswM must be greater than 1");
+        this.hnswEnabled = builder.hnswEnabled;
+        this.hnswM = builder.hnswM;
+        this.hnswEfConstruction = builder.hnswEfConstruction;
+        this.hnswEfSearch = builder.hnswEfSearch;
+        this.batchingStrategy = builder.getBatchingStrategy();
+    }
+
+    public static Builder builder(EmbeddingModel embeddingModel) {
+        return new Builder(embeddingModel);
+    }
+
+    /**
+     * 当前文档数
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return idToSlot.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void doAdd(List<Document> documents) {
+        Assert.notNull(documents, "documents cannot be null");
+        if (documents.isEmpty()) {
+            return;
+        }
+        // 向量化在锁外执行
+        List<float[]> embeddings = this.embeddingModel.embed(documents, EmbeddingOptions.builder().build(),
+                this.batchingStrategy);
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < documents.size(); i++) {
+                Document document = documents.get(i);
+                float[] vector = OffHeapVectorSlots.normalize(embeddings.get(i).clone());
+                if (slots == null) {
+                    slots = new OffHeapVectorSlots(vector.length);
+                    hnsw = hnswEnabled ? new HnswIndex(slots, hnswM, hnswEfConstruction) : null;
+                }
+                Assert.isTrue(vector.length == slots.dimensions(),
+                        "embedding dimensions " + vector.length + " do not match store dimensions " + slots.dimensions());
+                remove(document.getId());
+                Entry entry = new Entry(document.getId(), document.getText(), Map.copyOf(document.getMetadata()));
+                int slot;
+                Integer free = freeSlots.poll();
+                if (free != null) {
+                    slot = free;
+                    slots.set(slot, vector);
+                    entries.set(slot, entry);
+                } else {
+                    slot = slots.append(vector);
+                    entries.add(entry);
+                    if (hnsw != null) {
+                        hnsw.insert(slot, vector);
+                    }
+                }
+                idToSlot.put(document.getId(), slot);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void doDelete(List<String> idList) {
+        lock.writeLock().lock();
+        try {
+            idList.forEach(this::remove);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    protected void doDelete(Filter.Expression filterExpression) {
+        IntPredicate filter = filter(filterExpression);
+        lock.writeLock().lock();
+        try {
+            List<String> matched = new ArrayList<>();
+            for (int slot = 0; slot < entries.size(); slot++) {
+                Entry entry = entries.get(slot);
+                if (entry != null && filter.test(slot)) {
+                    matched.add(entry.id());
+                }
+            }
+            matched.forEach(this::remove);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Document> doSimilaritySearch(SearchRequest request) {
+        float[] query = OffHeapVectorSlots.normalize(this.embeddingModel.embed(request.getQuery()).clone());
+        IntPredicate filter = request.hasFilterExpression() ? filter(request.getFilterExpression()) : slot -> true;
+        int topK = request.getTopK();
+        float threshold = (float) request.getSimilarityThreshold();
+
+        lock.readLock().lock();
+        try {
+            if (slots == null || idToSlot.isEmpty()) {
+                return List.of();
+            }
+            Assert.isTrue(query.length == slots.dimensions(),
+                    "query dimensions " + query.length + " do not match store dimensions " + slots.dimensions());
+            List<HnswIndex.Candidate> top = hnsw != null
+                    ? searchHnsw(query, topK, threshold, filter)
+                    : scan(query, topK, threshold, filter);
+            List<Document> documents = new ArrayList<>(top.size());
+            for (HnswIndex.Candidate candidate : top) {
+                Entry entry = entries.get(candidate.node());
+                Map<String, Object> metadata = new HashMap<>(entry.metadata());
+                metadata.put(DocumentMetadata.DISTANCE.value(), 1.0f - candidate.score());
+                documents.add(Document.builder()
+                        .id(entry.id())
+                        .text(entry.text())
+                        .metadata(metadata)
+                        .score((double) candidate.score())
+                        .build());
+            }
+            return documents;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public VectorStoreObservationContext.Builder createObservationContextBuilder(String operationName) {
+        // 不调用 embeddingModel.dimensions()，避免每次观测都触发一次向量化
+        VectorStoreObservationContext.Builder builder = VectorStoreObservationContext
+                .builder(VectorStoreProvider.SIMPLE.value(), operationName)
+                .collectionName("off-heap")
+                .similarityMetric(VectorStoreSimilarityMetric.COSINE.value());
+        OffHeapVectorSlots current = slots;
+        return current != null ? builder.dimensions(current.dimensions()) : builder;
+    }
+
+    private List<HnswIndex.Candidate> scan(float[] query, int topK, float threshold, IntPredicate filter) {
+        PriorityQueue<HnswIndex.Candidate> top = new PriorityQueue<>(topK + 1,
+                Comparator.comparingDouble(HnswIndex.Candidate::score));
+        slots.scan(query, (slot, score) -> {
+            if (score < threshold || (top.size() >= topK && score <= top.peek().score())) {
+                return;
+            }
+            if (entries.get(slot) == null || !filter.test(slot)) {
+                return;
+            }
+            top.add(new HnswIndex.Candidate(slot, score));
+            if (top.size() > topK) {
+                top.poll();
+            }
+        });
+        List<HnswIndex.Candidate> sorted = new ArrayList<>(top);
+        sorted.sort(Comparator.comparingDouble(HnswIndex.Candidate::score).reversed());
+        return sorted;
+    }
+
+    private List<HnswIndex.Candidate> searchHnsw(float[] query, int topK, float threshold, IntPredicate filter) {
+        List<HnswIndex.Candidate> result = new ArrayList<>(topK);
+        List<HnswIndex.Candidate> candidates = hnsw.search(query, Math.max(hnswEfSearch, topK));
+        int skipped = 0;
+        for (HnswIndex.Candidate candidate : candidates) {
+            if (candidate.score() < threshold) {
+                break;
+            }
+            if (entries.get(candidate.node()) != null && filter.test(candidate.node())) {
+                result.add(candidate);
+                if (result.size() == topK) {
+                    return result;
+                }
+            } else {
+                skipped++;
+            }
+        }
+        // 删除留下的墓碑节点仍在图中，和过滤条件一样会占用近邻候选；候选中有被跳过的节点且结果不足 topK 时回退到暴力扫描
+        boolean exhausted = candidates.isEmpty() || candidates.get(candidates.size() - 1).score() >= threshold;
+        if (skipped > 0 && exhausted) {
+            return scan(query, topK, threshold, filter);
+        }
+        return result;
+    }
+
+    private IntPredicate filter(Filter.Expression filterExpression) {
+        Expression expression = expressionParser.parseExpression(filterExpressionConverter.convertExpression(filterExpression));
+        return slot -> {
+            StandardEvaluationContext context = new StandardEvaluationContext();
+            context.setVariable("metadata", entries.get(slot).metadata());
+            return Boolean.TRUE.equals(expression.getValue(context, Boolean.class));
+        };
+    }
+
+    /**
+     * 需持有写锁
+     */
+    private void remove(String id) {
+        Integer slot = idToSlot.remove(id);
+        if (slot == null) {
+            return;
+        }
+        entries.set(slot, null);
+        if (hnsw == null) {
+            freeSlots.push(slot);
+        }
+    }
+
+    private record Entry(String id, String text, Map<String, Object> metadata) {
+    }
+
+    public static class Builder extends AbstractVectorStoreBuilder<Builder> {
+
+        private boolean hnswEnabled = false;
+        private int hnswM = 16;
+        private int hnswEfConstruction = 100;
+        private int hnswEfSearch = 64;
+
+        private Builder(EmbeddingModel embeddingModel) {
+            super(embeddingModel);
+        }
+
+        public Builder hnswEnabled(boolean hnswEnabled) {
+            this.hnswEnabled = hnswEnabled;
+            return this;
+        }
+
+        /**
+         * 每层邻居数，第 0 层为 2m
+         */
+        public Builder hnswM(int hnswM) {
+            this.hnswM = hnswM;
+            return this;
+        }
+
+        public Builder hnswEfConstruction(int hnswEfConstruction) {
+            this.hnswEfConstruction = hnswEfConstruction;
+            return this;
+        }
+
+        /**
+         * 查询时的候选集大小，实际取 max(efSearch, topK)
+         */
+        public Builder hnswEfSearch(int hnswEfSearch) {
+            this.hnswEfSearch = hnswEfSearch;
+            return this;
+        }
+
+        @Override
+        public OffHeapVectorStore build() {
+            return new OffHeapVectorStore(this);
+        }
+    }
+}
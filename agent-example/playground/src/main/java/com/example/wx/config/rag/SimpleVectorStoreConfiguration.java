@@ -1,7 +1,8 @@
 package com.example.wx.config.rag;
 
+import com.example.wx.config.KnowledgeBaseProperties;
+import com.example.wx.rag.vectorstore.SnapshotSimpleVectorStore;
 import org.springframework.ai.embedding.EmbeddingModel;
-import org.springframework.ai.vectorstore.SimpleVectorStore;
 import org.springframework.ai.vectorstore.VectorStore;
 import org.springframework.ai.vectorstore.pgvector.PgVectorStore;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -11,6 +12,11 @@ import org.springframework.boot.CommandLineRunner;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.StringUtils;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Objects;
 
 /**
  * @author wangx
@@ -25,13 +31,23 @@ public class SimpleVectorStoreConfiguration {
     /**
      * 提供基于内存的向量存储（SimpleVectorStore）
      * <p>
-     * 依赖 EmbeddingModel（自动注入，Alibaba 的嵌入模型）
+     * 依赖 EmbeddingModel（自动注入，Alibaba 的嵌入模型），数据持久化到二进制快照，重启时直接加载；
+     * engine 为 off-heap 时改用堆外向量存储，适合数据量较大、查询频繁的场景
      * @param embeddingModel
      * @return
      */
     @Bean
-    public VectorStore simpleVectorStore(EmbeddingModel embeddingModel) {
-        return SimpleVectorStore.builder(embeddingModel).build();
+    public VectorStore simpleVectorStore(EmbeddingModel embeddingModel, KnowledgeBaseProperties knowledgeBaseProperties) {
+        KnowledgeBaseProperties.SimpleProperties simple = knowledgeBaseProperties.getSimple();
+        if ("off-heap".equals(simple.getEngine())) {
+            return OffHeapVectorStore.builder(embeddingModel)
+                    .hnswEnabled(simple.isHnswEnabled())
+                    .build();
+        }
+        return SnapshotSimpleVectorStore.snapshotBuilder(embeddingModel)
+                .directory(Paths.get(simple.getSnapshotDir()))
+                .name("simple")
+                .build();
     }
 
     @Bean
@@ -50,14 +66,21 @@ public class SimpleVectorStoreConfiguration {
     }
 
     @Bean
-    CommandLineRunner ingestTermOfServiceToVectorStore(VectorStoreDelegate vectorStoreDelegate) {
+    CommandLineRunner ingestTermOfServiceToVectorStore(VectorStoreDelegate vectorStoreDelegate,
+                                                       KnowledgeBaseProperties knowledgeBaseProperties) {
         return args -> {
             // 百炼知识库和向量存储初始化
             // 如果未启用百炼知识库，则默认用向量存储服务
             if (!enable) {
                 String type = System.getProperty("VECTOR_STORE_TYPE");
-                VectorStoreInitializer initializer = new VectorStoreInitializer();
-                initializer.init(vectorStoreDelegate.getVectorStore(type));
+                KnowledgeBaseProperties.IngestionProperties ingestion = knowledgeBaseProperties.getIngestion();
+                // 清单按向量库类型区分，切换向量库后重新全量比对
+                Path manifestPath = StringUtils.hasText(ingestion.getManifestPath())
+                        ? Paths.get(ingestion.getManifestPath())
+                        : Paths.get(System.getProperty("user.dir"), "rag",
+                                ".index-manifest-" + Objects.requireNonNullElse(type, "simple") + ".json");
+                VectorStoreInitializer initializer = new VectorStoreInitializer(ingestion);
+                initializer.init(vectorStoreDelegate.getVectorStore(type), manifestPath);
             }
         };
     }
@@ -0,0 +1,227 @@
+package com.example.wx.config.rag;
+
+import com.example.wx.config.KnowledgeBaseProperties.IngestionProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.document.DocumentReader;
+import org.springframework.ai.document.DocumentTransformer;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 并发批量向量化入库引擎
+ * <p>
+ * <ul>
+ *   <li>文件解析与切分在 parseThreads 个线程上并行执行</li>
+ *   <li>切分结果按 token 预算装箱：单批次不超过 maxBatchTokens 个 token、maxBatchSize 个文档</li>
+ *   <li>最多 maxConcurrency 个批次同时调用 {@link VectorStore#add(List)}，达到上限时生产者阻塞等待</li>
+ *   <li>写入失败按指数退避重试，超过 maxAttempts 次后整体失败</li>
+ * </ul>
+ * token 计数与 {@link org.springframework.ai.transformer.splitter.TokenTextSplitter} 使用同一编码（cl100k_base）。
+ *
+ * @author wangx
+ * @create 2026/10/18 19:30
+ */
+public class VectorStoreIngestionEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(VectorStoreIngestionEngine.class);
+
+    private final IngestionProperties properties;
+
+    private final DocumentTransformer splitter;
+
+    private final TokenCountEstimator tokenCountEstimator = new JTokkitTokenCountEstimator();
+
+    public VectorStoreIngestionEngine(IngestionProperties properties, DocumentTransformer splitter) {
+        Assert.notNull(properties, "properties cannot be null");
+        Assert.notNull(splitter, "splitter cannot be null");
+        Assert.isTrue(properties.getMaxConcurrency() > 0 && properties.getParseThreads() > 0,
+                "maxConcurrency and parseThreads must be greater than 0");
+        this.properties = properties;
+        this.splitter = splitter;
+    }
+
+    /**
+     * 解析、切分并写入向量库
+     *
+     * @param vectorStore 目标向量库
+     * @param readers 文档读取器，每个读取器对应一个文件
+     * @return 入库统计
+     */
+    public IngestionStats ingest(VectorStore vectorStore, List<? extends DocumentReader> readers) {
+        ExecutorService parseExecutor = Executors.newFixedThreadPool(properties.getParseThreads());
+        try {
+            // 并行解析切分，按文件完成顺序装箱提交
+            List<CompletableFuture<List<Document>>> parsed = readers.stream()
+                    .map(reader -> CompletableFuture.supplyAsync(() -> splitter.apply(reader.get()), parseExecutor))
+                    .toList();
+            return write(vectorStore, readers.size(), parsed);
+        } finally {
+            parseExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * 只做并行解析与切分，不写入向量库
+     *
+     * @param readers 文档读取器
+     * @return 与 readers 一一对应的切分结果
+     */
+    public List<List<Document>> split(List<? extends DocumentReader> readers) {
+        ExecutorService parseExecutor = Executors.newFixedThreadPool(properties.getParseThreads());
+        try {
+            List<CompletableFuture<List<Document>>> parsed = readers.stream()
+                    .map(reader -> CompletableFuture.supplyAsync(() -> splitter.apply(reader.get()), parseExecutor))
+                    .toList();
+            return parsed.stream().map(CompletableFuture::join).toList();
+        } finally {
+            parseExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * 写入已切分好的文档，跳过解析阶段
+     *
+     * @param vectorStore 目标向量库
+     * @param documents 已切分的文档
+     * @return 入库统计
+     */
+    public IngestionStats ingestDocuments(VectorStore vectorStore, List<Document> documents) {
+        return write(vectorStore, 0, List.of(CompletableFuture.completedFuture(documents)));
+    }
+
+    private IngestionStats write(VectorStore vectorStore, int files, List<CompletableFuture<List<Document>>> parsed) {
+        long start = System.nanoTime();
+        ExecutorService embedExecutor = Executors.newFixedThreadPool(properties.getMaxConcurrency());
+        Semaphore inFlight = new Semaphore(properties.getMaxConcurrency());
+        AtomicInteger documents = new AtomicInteger();
+        AtomicInteger batches = new AtomicInteger();
+        AtomicLong tokens = new AtomicLong();
+        List<CompletableFuture<Void>> writes = new ArrayList<>();
+        try {
+            BatchPacker packer = new BatchPacker();
+            for (CompletableFuture<List<Document>> future : parsed) {
+                for (Document document : future.join()) {
+                    int documentTokens = tokenCountEstimator.estimate(document.getText());
+                    tokens.addAndGet(documentTokens);
+                    List<Document> full = packer.offer(document, documentTokens);
+                    if (full != null) {
+                        writes.add(submit(vectorStore, full, inFlight, embedExecutor, documents, batches));
+                    }
+                }
+            }
+            List<Document> rest = packer.drain();
+            if (!rest.isEmpty()) {
+                writes.add(submit(vectorStore, rest, inFlight, embedExecutor, documents, batches));
+            }
+            CompletableFuture.allOf(writes.toArray(CompletableFuture[]::new)).join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Vector store ingestion interrupted", e);
+        } finally {
+            embedExecutor.shutdownNow();
+        }
+
+        IngestionStats stats = new IngestionStats(files, documents.get(), batches.get(), tokens.get(),
+                (System.nanoTime() - start) / 1_000_000);
+        logger.info("Vector store ingestion finished: {} files, {} documents, {} batches, {} tokens in {} ms ({} docs/sec)",
+                stats.files(), stats.documents(), stats.batches(), stats.tokens(), stats.elapsedMillis(),
+                String.format("%.1f", stats.docsPerSecond()));
+        return stats;
+    }
+
+    private CompletableFuture<Void> submit(VectorStore vectorStore, List<Document> batch, Semaphore inFlight,
+                                           ExecutorService executor, AtomicInteger documents,
+                                           AtomicInteger batches) throws InterruptedException {
+        // 达到并发上限时阻塞装箱线程，形成背压
+        inFlight.acquire();
+        return CompletableFuture.runAsync(() -> {
+            try {
+                addWithRetry(vectorStore, batch);
+                documents.addAndGet(batch.size());
+                batches.incrementAndGet();
+            } finally {
+                inFlight.release();
+            }
+        }, executor);
+    }
+
+    private void addWithRetry(VectorStore vectorStore, List<Document> batch) {
+        long backoff = properties.getInitialBackoffMillis();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                vectorStore.add(batch);
+                return;
+            } catch (RuntimeException e) {
+                if (attempt >= properties.getMaxAttempts()) {
+                    throw new CompletionException(e);
+                }
+                long sleep = backoff + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+                logger.warn("Embedding batch of {} documents failed (attempt {}/{}), retrying in {} ms: {}",
+                        batch.size(), attempt, properties.getMaxAttempts(), sleep, e.getMessage());
+                try {
+                    Thread.sleep(sleep);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new CompletionException(ie);
+                }
+                backoff *= 2;
+            }
+        }
+    }
+
+    /**
+     * 按 token 预算与文档数上限装箱
+     */
+    private class BatchPacker {
+
+        private List<Document> current = new ArrayList<>();
+
+        private int currentTokens = 0;
+
+        /**
+         * @return 放入当前文档前已装满的批次，未装满时返回 null
+         */
+        List<Document> offer(Document document, int tokens) {
+            List<Document> full = null;
+            if (!current.isEmpty() && (currentTokens + tokens > properties.getMaxBatchTokens()
+                    || current.size() >= properties.getMaxBatchSize())) {
+                full = drain();
+            }
+            current.add(document);
+            currentTokens += tokens;
+            return full;
+        }
+
+        List<Document> drain() {
+            List<Document> batch = current;
+            current = new ArrayList<>();
+            currentTokens = 0;
+            return batch;
+        }
+    }
+
+    /**
+     * 入库统计
+     */
+    public record IngestionStats(int files, int documents, int batches, long tokens, long elapsedMillis) {
+
+        public double docsPerSecond() {
+            return elapsedMillis == 0 ? documents : documents * 1000.0 / elapsedMillis;
+        }
+    }
+}
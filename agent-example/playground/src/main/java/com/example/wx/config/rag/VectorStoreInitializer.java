@@ -1,20 +1,39 @@
 package com.example.wx.config.rag;
 
+import com.example.wx.config.KnowledgeBaseProperties.IngestionProperties;
+import com.example.wx.rag.vectorstore.SnapshotSimpleVectorStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.ai.document.Document;
 import org.springframework.ai.reader.markdown.MarkdownDocumentReader;
+import org.springframework.ai.reader.markdown.config.MarkdownDocumentReaderConfig;
 import org.springframework.ai.transformer.splitter.TokenTextSplitter;
+import org.springframework.ai.vectorstore.SimpleVectorStore;
 import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
 
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Stream;
 
 /**
@@ -25,54 +44,204 @@ import java.util.stream.Stream;
 public class VectorStoreInitializer {
     private static final Logger logger = LoggerFactory.getLogger(VectorStoreInitializer.class);
 
+    private final IngestionProperties ingestionProperties;
+
+    private final VectorStoreIngestionEngine ingestionEngine;
+
+    public VectorStoreInitializer(IngestionProperties ingestionProperties) {
+        this.ingestionProperties = ingestionProperties;
+        this.ingestionEngine = new VectorStoreIngestionEngine(ingestionProperties,
+                new TokenTextSplitter(2000, 1024, 10, 10000, true));
+    }
 
     public void init(VectorStore vectorStore) throws IOException, URISyntaxException {
-        List<MarkdownDocumentReader> markdownDocumentReaderList = loadMarkdownDocuments();
+        init(vectorStore, null);
+    }
 
-        int size = 0;
-        if (markdownDocumentReaderList.isEmpty()) {
+    /**
+     * 初始化向量库
+     * <p>
+     * 纯内存的 SimpleVectorStore、OffHeapVectorStore 每次启动都需要全量写入；持久化的向量库（含带快照的 {@link SnapshotSimpleVectorStore}）
+     * 按清单增量同步，开启 watch 时继续监听运行目录下的 markdown 目录。
+     *
+     * @param vectorStore 目标向量库
+     * @param manifestPath 增量清单文件，为 null 时全量写入
+     */
+    public void init(VectorStore vectorStore, Path manifestPath) throws IOException, URISyntaxException {
+        MarkdownSources sources = loadMarkdownDocuments();
+
+        if (sources.files().isEmpty()) {
             logger.warn("No markdown documents found in the directory.");
             return;
         }
-        for (MarkdownDocumentReader markdownDocumentReader : markdownDocumentReaderList) {
-            List<Document> documents = new TokenTextSplitter(2000, 1024, 10, 10000, true).transform(markdownDocumentReader.get());
-            size += documents.size();
+        boolean inMemory = (vectorStore instanceof SimpleVectorStore && !(vectorStore instanceof SnapshotSimpleVectorStore))
+                || vectorStore instanceof OffHeapVectorStore;
+        boolean persistent = !inMemory;
+        if (manifestPath == null || !persistent) {
+            // 并行解析，按 token 预算分批并发写入
+            List<MarkdownDocumentReader> markdownDocumentReaderList = sources.files().values().stream()
+                    .map(this::markdownReader)
+                    .toList();
+            VectorStoreIngestionEngine.IngestionStats stats = ingestionEngine.ingest(vectorStore, markdownDocumentReaderList);
+            logger.debug("Load markdown documents into vector store successfully. Load {} documents.", stats.documents());
+            return;
+        }
+
+        if (vectorStore instanceof SnapshotSimpleVectorStore snapshotStore && !snapshotStore.isComplete()) {
+            // 快照被删除、已失效或未写完时清单不再可信，全量重建
+            Files.deleteIfExists(manifestPath);
+        }
+        sync(vectorStore, sources.files(), manifestPath);
+        if (vectorStore instanceof SnapshotSimpleVectorStore snapshotStore) {
+            snapshotStore.markComplete();
+        }
+        if (ingestionProperties.isWatch()) {
+            if (sources.directory() == null) {
+                logger.warn("Markdown watch mode requires the user.dir/rag/markdown directory, watch disabled");
+            } else {
+                startWatcher(vectorStore, sources.directory(), manifestPath);
+            }
+        }
+    }
+
+    /**
+     * 按清单做增量同步：内容哈希未变的文件跳过，变更文件只写入新增分片、删除失效分片，已删除文件的分片全部清理。
+     * 全部写入成功后才保存清单，中途失败时下次同步会重新处理，分片 id 确定因此重复写入是幂等的。
+     */
+    synchronized void sync(VectorStore vectorStore, Map<String, Resource> files, Path manifestPath) throws IOException {
+        MarkdownIndexManifest manifest = MarkdownIndexManifest.load(manifestPath);
+
+        Map<String, String> changed = new LinkedHashMap<>();
+        for (Map.Entry<String, Resource> file : files.entrySet()) {
+            String hash = MarkdownIndexManifest.sha256(file.getValue().getContentAsByteArray());
+            MarkdownIndexManifest.Entry entry = manifest.get(file.getKey());
+            if (entry == null || !entry.hash().equals(hash)) {
+                changed.put(file.getKey(), hash);
+            }
+        }
+        List<String> removed = manifest.entries().keySet().stream()
+                .filter(source -> !files.containsKey(source))
+                .toList();
+        if (changed.isEmpty() && removed.isEmpty()) {
+            logger.info("Markdown index is up to date: {} files", files.size());
+            return;
+        }
+
+        List<String> sources = new ArrayList<>(changed.keySet());
+        List<List<Document>> chunks = ingestionEngine.split(sources.stream()
+                .map(source -> markdownReader(files.get(source)))
+                .toList());
+
+        List<Document> toAdd = new ArrayList<>();
+        List<String> toDelete = new ArrayList<>();
+        for (int i = 0; i < sources.size(); i++) {
+            String source = sources.get(i);
+            // 同一文件内文本相同的分片 id 相同，只保留一份
+            Map<String, Document> current = new LinkedHashMap<>();
+            for (Document chunk : chunks.get(i)) {
+                String id = MarkdownIndexManifest.chunkId(source, chunk.getText());
+                current.putIfAbsent(id, Document.builder()
+                        .id(id)
+                        .text(chunk.getText())
+                        .metadata(chunk.getMetadata())
+                        .build());
+            }
+            MarkdownIndexManifest.Entry previous = manifest.get(source);
+            Set<String> stale = previous == null ? new HashSet<>() : new HashSet<>(previous.chunkIds());
+            current.forEach((id, document) -> {
+                if (!stale.remove(id)) {
+                    toAdd.add(document);
+                }
+            });
+            toDelete.addAll(stale);
+            manifest.put(source, new MarkdownIndexManifest.Entry(changed.get(source), List.copyOf(current.keySet())));
+        }
+        for (String source : removed) {
+            toDelete.addAll(manifest.remove(source).chunkIds());
+        }
 
-            // 拆分 documents 列表为最大 25 个元素的子列表
-            for (int i = 0; i < documents.size(); i += 25) {
-                int end = Math.min(i + 25, documents.size());
-                List<Document> subList = documents.subList(i, end);
-                vectorStore.add(subList);
+        if (!toAdd.isEmpty()) {
+            ingestionEngine.ingestDocuments(vectorStore, toAdd);
+        }
+        if (!toDelete.isEmpty()) {
+            vectorStore.delete(toDelete);
+        }
+        manifest.save(manifestPath);
+        logger.info("Markdown index synced: {} changed, {} removed, {} unchanged files; {} chunks added, {} chunks deleted",
+                changed.size(), removed.size(), files.size() - changed.size(), toAdd.size(), toDelete.size());
+    }
+
+    private void startWatcher(VectorStore vectorStore, Path directory, Path manifestPath) {
+        Thread watcher = new Thread(() -> watch(vectorStore, directory, manifestPath), "markdown-index-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+        logger.info("Watching markdown directory for changes: {}", directory);
+    }
+
+    private void watch(VectorStore vectorStore, Path directory, Path manifestPath) {
+        try (WatchService watchService = FileSystems.getDefault().newWatchService()) {
+            Map<WatchKey, Path> keys = new HashMap<>();
+            register(watchService, directory, keys);
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = watchService.take();
+                // 编辑器保存一次文件通常会产生多个事件，在合并窗口内攒齐后只同步一次
+                while (key != null) {
+                    handleEvents(watchService, key, keys);
+                    key = watchService.poll(ingestionProperties.getWatchDebounceMillis(), TimeUnit.MILLISECONDS);
+                }
+                try {
+                    sync(vectorStore, loadMarkdownDocuments().files(), manifestPath);
+                } catch (Exception e) {
+                    logger.warn("Incremental markdown index sync failed, will retry on next change", e);
+                }
             }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            logger.error("Markdown directory watcher stopped: {}", directory, e);
         }
-        logger.debug("Load markdown documents into vector store successfully. Load {} documents.", size);
     }
 
-    private List<MarkdownDocumentReader> loadMarkdownDocuments() throws IOException, URISyntaxException {
-        List<MarkdownDocumentReader> readers;
+    private void handleEvents(WatchService watchService, WatchKey key, Map<WatchKey, Path> keys) throws IOException {
+        Path dir = keys.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (dir != null && event.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+                Path child = dir.resolve((Path) event.context());
+                if (Files.isDirectory(child)) {
+                    register(watchService, child, keys);
+                }
+            }
+        }
+        if (!key.reset()) {
+            keys.remove(key);
+        }
+    }
 
+    private void register(WatchService watchService, Path root, Map<WatchKey, Path> keys) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path dir : paths.filter(Files::isDirectory).toList()) {
+                keys.put(dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE), dir);
+            }
+        }
+    }
+
+    private MarkdownDocumentReader markdownReader(Resource resource) {
+        return new MarkdownDocumentReader(resource, MarkdownDocumentReaderConfig.defaultConfig());
+    }
+
+    private MarkdownSources loadMarkdownDocuments() throws IOException, URISyntaxException {
         // 首先检查jar包当前运行目录是否存在markdown文件
         Path currentDirPath = Paths.get(System.getProperty("user.dir"), "rag", "markdown");
         if (Files.exists(currentDirPath) && Files.isDirectory(currentDirPath)) {
             // 存在
             logger.debug("Found markdown directory in current running directory: {}", currentDirPath);
-            try (Stream<Path> paths = Files.walk(currentDirPath)) {
-                List<Path> markdownFiles = paths.filter(Files::isRegularFile)
-                        .filter(path -> path.toString().endsWith(".md"))
-                        .toList();
-
-                if (!markdownFiles.isEmpty()) {
-                    logger.debug("Loading {} markdown files from current directory", markdownFiles.size());
-                    readers = markdownFiles.stream()
-                            .map(path -> {
-                                String filePath = path.toAbsolutePath().toString();
-                                return new MarkdownDocumentReader("file:" + filePath);
-                            })
-                            .collect(Collectors.toList());
-                    return readers;
-                } else {
-                    logger.debug("No markdown files found in current directory, falling back to resources");
-                }
+            Map<String, Resource> files = listMarkdownFiles(currentDirPath);
+            if (!files.isEmpty()) {
+                logger.debug("Loading {} markdown files from current directory", files.size());
+                return new MarkdownSources(currentDirPath, files);
+            } else {
+                logger.debug("No markdown files found in current directory, falling back to resources");
             }
         } else {
             logger.debug("Markdown directory not found in current directory, falling back to resources");
@@ -81,16 +250,27 @@ public class VectorStoreInitializer {
         // 如果当前运行目录没有找到，则从resources目录加载
         Path markdownDir = Paths.get(Objects.requireNonNull(getClass().getClassLoader().getResource("rag/markdown")).toURI());
         logger.debug("Loading markdown files from resources directory: {}", markdownDir);
-        try (Stream<Path> paths = Files.walk(markdownDir)) {
-            readers = paths.filter(Files::isRegularFile)
+        return new MarkdownSources(null, listMarkdownFiles(markdownDir));
+    }
+
+    /**
+     * @return key 为相对 markdown 目录的路径，按路径排序
+     */
+    private Map<String, Resource> listMarkdownFiles(Path directory) throws IOException {
+        Map<String, Resource> files = new TreeMap<>();
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.filter(Files::isRegularFile)
                     .filter(path -> path.toString().endsWith(".md"))
-                    .map(path -> {
-                        String fileName = path.getFileName().toString();
-                        String classpathPath = "classpath:rag/markdown/" + fileName;
-                        return new MarkdownDocumentReader(classpathPath);
-                    })
-                    .collect(Collectors.toList());
-        }
-        return readers;
+                    .forEach(path -> files.put(directory.relativize(path).toString().replace('\\', '/'),
+                            new FileSystemResource(path)));
+        }
+        return files;
+    }
+
+    /**
+     * @param directory 可监听的运行目录，从 resources 加载时为 null
+     * @param files 源文件名到文件资源的映射
+     */
+    private record MarkdownSources(Path directory, Map<String, Resource> files) {
     }
 }
@@ -13,7 +13,8 @@ import lombok.RequiredArgsConstructor;
 public enum KnowledgeBaseType {
     BAILIAN("bailian", "百炼知识库"),
     PGVECTOR("pgvector", "PGVector向量库"),
-    SIMPLE("simple", "内存向量库");
+    SIMPLE("simple", "内存向量库"),
+    FEDERATED("federated", "联邦检索（全部已启用知识库）");
 
     private final String code;
     private final String description;
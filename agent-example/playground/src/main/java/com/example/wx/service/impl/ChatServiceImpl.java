@@ -48,7 +48,8 @@ public class ChatServiceImpl implements ChatService {
         this.chatClientMap = chatClientMap;
         this.deepThinkPromptTemplate = deepThinkPromptTemplate;
         this.reasoningContentAdvisor = new ReasoningContentAdvisor(1);
-        this.ragAdvisor = knowledgeBaseFactory.getKnowledgeBaseService().createRetrievalAdvisor();
+        // 运行时按知识库健康状态切换，主知识库故障时同一次请求内降级到备用知识库
+        this.ragAdvisor = knowledgeBaseFactory.getRetrievalAdvisor();
     }
 
     @Override
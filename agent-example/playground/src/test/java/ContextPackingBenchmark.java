@@ -0,0 +1,121 @@
+import com.example.wx.rag.context.ContextPacker;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.transformer.splitter.TokenTextSplitter;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ *@description 上下文打包的 token 节省与答案覆盖率，语料为 rag/markdown/advisors.md
+ * <p>
+ * 语料按 256 token 分片，其中每三个分片追加一份只改动版本号的近似副本（模拟同一文档的多个版本都被入库）。
+ * 以分片中的一句话作为查询，字符 bigram 余弦相似度作为检索的替身取 top8，
+ * 对比直接拼接与不同 token 预算下打包后的上下文 token 数，以及该句是否仍在上下文中。
+ *@author wangx
+ *@create 2026/10/19 14:10
+ */
+public class ContextPackingBenchmark {
+
+    private static final int TOP_K = 8;
+    private static final int[] BUDGETS = {400, 800, 1600};
+
+    public static void main(String[] args) throws IOException {
+        String markdown = new ClassPathResource("rag/markdown/advisors.md").getContentAsString(StandardCharsets.UTF_8);
+        List<Document> chunks = new TokenTextSplitter(256, 100, 10, 10000, true).apply(List.of(new Document(markdown)));
+        List<Document> corpus = new ArrayList<>(chunks);
+        for (int i = 0; i < chunks.size(); i += 3) {
+            corpus.add(new Document(chunks.get(i).getText() + "\n（适用版本 1.0.0-M" + i + "）"));
+        }
+        Map<String, Map<String, Integer>> vectors = new HashMap<>();
+        corpus.forEach(document -> vectors.put(document.getId(), bigrams(document.getText())));
+
+        // 每个原始分片取最长的一句作为查询，该句出现在上下文中视为可回答
+        List<String> queries = chunks.stream()
+                .map(chunk -> longestSentence(chunk.getText()))
+                .filter(sentence -> sentence.length() >= 20)
+                .toList();
+        System.out.printf("corpus %d chunks (%d near-duplicates), %d queries, top%d%n", corpus.size(),
+                corpus.size() - chunks.size(), queries.size(), TOP_K);
+
+        ContextPacker counter = ContextPacker.builder().build();
+        List<List<Document>> retrieved = new ArrayList<>(queries.size());
+        long rawTokens = 0;
+        int rawCovered = 0;
+        for (String query : queries) {
+            List<Document> top = search(query, corpus, vectors);
+            retrieved.add(top);
+            String context = top.stream().map(Document::getText).collect(Collectors.joining("\n\n"));
+            rawTokens += counter.estimate(context);
+            rawCovered += context.contains(query) ? 1 : 0;
+        }
+        System.out.printf("%-14s | %10s | %8s | %10s | %8s%n", "context", "avg tokens", "coverage", "duplicates", "trimmed");
+        System.out.printf("%-14s | %10.0f | %8.3f | %10s | %8s%n", "concatenate", (double) rawTokens / queries.size(),
+                (double) rawCovered / queries.size(), "-", "-");
+
+        for (int budget : BUDGETS) {
+            ContextPacker packer = ContextPacker.builder().maxTokens(budget).build();
+            long tokens = 0;
+            int covered = 0;
+            int duplicates = 0;
+            int trimmed = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < queries.size(); i++) {
+                ContextPacker.Result result = packer.pack(retrieved.get(i));
+                String context = result.documents().stream().map(Document::getText).collect(Collectors.joining("\n\n"));
+                tokens += counter.estimate(context);
+                covered += context.contains(queries.get(i)) ? 1 : 0;
+                duplicates += result.duplicates();
+                trimmed += result.trimmed();
+            }
+            double micros = (System.nanoTime() - start) / 1e3 / queries.size();
+            System.out.printf("%-14s | %10.0f | %8.3f | %10d | %8d   (%.0f us/pack)%n", "packed " + budget,
+                    (double) tokens / queries.size(), (double) covered / queries.size(), duplicates, trimmed, micros);
+        }
+    }
+
+    private static List<Document> search(String query, List<Document> corpus, Map<String, Map<String, Integer>> vectors) {
+        Map<String, Integer> queryVector = bigrams(query);
+        return corpus.stream()
+                .map(document -> document.mutate().score(cosine(queryVector, vectors.get(document.getId()))).build())
+                .sorted(Comparator.comparingDouble(Document::getScore).reversed())
+                .limit(TOP_K)
+                .toList();
+    }
+
+    private static Map<String, Integer> bigrams(String text) {
+        String normalized = text.replaceAll("\\s+", "");
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i + 2 <= normalized.length(); i++) {
+            counts.merge(normalized.substring(i, i + 2), 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    private static double cosine(Map<String, Integer> a, Map<String, Integer> b) {
+        double dot = 0;
+        for (Map.Entry<String, Integer> entry : a.entrySet()) {
+            dot += entry.getValue() * b.getOrDefault(entry.getKey(), 0);
+        }
+        double normA = Math.sqrt(a.values().stream().mapToDouble(v -> v * v).sum());
+        double normB = Math.sqrt(b.values().stream().mapToDouble(v -> v * v).sum());
+        return normA == 0 || normB == 0 ? 0 : dot / (normA * normB);
+    }
+
+    private static String longestSentence(String text) {
+        String longest = "";
+        for (String sentence : text.split("(?<=[。！？\\n])")) {
+            String stripped = sentence.strip();
+            if (stripped.length() > longest.length()) {
+                longest = stripped;
+            }
+        }
+        return longest;
+    }
+}
@@ -0,0 +1,99 @@
+import com.example.wx.config.knowledge.FederatedDocumentRetriever;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.rag.Query;
+import org.springframework.ai.rag.retrieval.search.DocumentRetriever;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ *@description 联邦检索的截止时间与部分结果验证，各知识库为延迟可配置的桩召回器
+ * <p>
+ * 用法：FederatedRetrievalBenchmark [知识库=延迟ms,...，默认 bailian=300,pgvector=40,simple=5] [截止时间 ms，默认 150]
+ * 各桩召回器返回 5 个文档，其中第一个文档在所有知识库中正文相同，用于验证去重。
+ * 输出串行调用各知识库的耗时、联邦检索的耗时，以及结果来自哪些知识库。
+ *@author wangx
+ *@create 2026/10/19 17:50
+ */
+public class FederatedRetrievalBenchmark {
+
+    private static final int ROUNDS = 20;
+
+    public static void main(String[] args) {
+        Map<String, Long> latencies = new LinkedHashMap<>();
+        for (String item : (args.length > 0 ? args[0] : "bailian=300,pgvector=40,simple=5").split(",")) {
+            String[] pair = item.split("=");
+            latencies.put(pair[0], Long.parseLong(pair[1]));
+        }
+        Duration deadline = Duration.ofMillis(args.length > 1 ? Long.parseLong(args[1]) : 150);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        FederatedDocumentRetriever.Builder builder = FederatedDocumentRetriever.builder()
+                .executor(executor)
+                .deadline(deadline)
+                .topK(8);
+        Map<String, DocumentRetriever> stubs = new LinkedHashMap<>();
+        latencies.forEach((name, latency) -> stubs.put(name, new StubRetriever(name, latency)));
+        stubs.forEach(builder::retriever);
+        FederatedDocumentRetriever federated = builder.build();
+        Query query = new Query("Advisor 的执行顺序如何确定");
+
+        long serialStart = System.nanoTime();
+        stubs.values().forEach(stub -> stub.retrieve(query));
+        System.out.printf("serial    : %4d ms (sum of backend latencies %s)%n",
+                (System.nanoTime() - serialStart) / 1_000_000, latencies);
+
+        long[] elapsed = new long[ROUNDS];
+        List<Document> result = List.of();
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = System.nanoTime();
+            result = federated.retrieve(query);
+            elapsed[i] = (System.nanoTime() - start) / 1_000_000;
+        }
+        Arrays.sort(elapsed);
+        System.out.printf("federated : p50 %4d ms, max %4d ms (deadline %d ms)%n", elapsed[ROUNDS / 2],
+                elapsed[ROUNDS - 1], deadline.toMillis());
+        System.out.printf("results   : %d documents%n", result.size());
+        for (Document document : result) {
+            System.out.printf("  %-28s sources=%s rrf=%.4f%n", document.getText(),
+                    document.getMetadata().get(FederatedDocumentRetriever.SOURCES),
+                    (double) document.getMetadata().get(FederatedDocumentRetriever.RRF_SCORE));
+        }
+
+        // 单次请求放宽截止时间，全部知识库都能返回
+        Query relaxed = Query.builder()
+                .text(query.text())
+                .context(Map.of(FederatedDocumentRetriever.DEADLINE, Duration.ofSeconds(2)))
+                .build();
+        List<String> sources = new ArrayList<>();
+        federated.retrieve(relaxed).forEach(document ->
+                sources.add((String) document.getMetadata().get(FederatedDocumentRetriever.SOURCES)));
+        System.out.printf("relaxed   : sources %s%n", sources);
+        executor.shutdownNow();
+    }
+
+    private record StubRetriever(String name, long latencyMs) implements DocumentRetriever {
+
+        @Override
+        public List<Document> retrieve(Query query) {
+            try {
+                Thread.sleep(latencyMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return List.of();
+            }
+            List<Document> documents = new ArrayList<>();
+            documents.add(new Document("Advisor 按 getOrder() 从小到大依次执行"));
+            for (int i = 1; i < 5; i++) {
+                documents.add(new Document(name + " 文档 " + i));
+            }
+            return documents;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+import com.alibaba.cloud.ai.document.DocumentWithScore;
+import com.alibaba.cloud.ai.model.RerankModel;
+import com.alibaba.cloud.ai.model.RerankRequest;
+import com.alibaba.cloud.ai.model.RerankResponse;
+import com.example.wx.config.rag.LocalRerankModel;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.transformer.splitter.TokenTextSplitter;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ *@description 不重排 / LocalRerankModel / 桩远程 RerankModel 的排序质量与延迟对比，语料为 rag/markdown/advisors.md
+ * <p>
+ * 以分片中一句话的后半部分作为查询、该分片作为标准答案；检索替身为字符 bigram 余弦相似度叠加高斯噪声（模拟向量检索的误差），取 top20。
+ * 远程重排的替身在本地用无噪声的相似度打分，并注入固定网络延迟。
+ * 最后在 400 个候选上对比 LocalRerankModel 串行与并行打分的耗时。
+ *@author wangx
+ *@create 2026/10/19 15:30
+ */
+public class LocalRerankBenchmark {
+
+    private static final int CANDIDATES = 20;
+    private static final double RETRIEVAL_NOISE = 0.08;
+    private static final long REMOTE_LATENCY_MS = 120;
+
+    public static void main(String[] args) throws IOException {
+        String markdown = new ClassPathResource("rag/markdown/advisors.md").getContentAsString(StandardCharsets.UTF_8);
+        List<Document> corpus = new TokenTextSplitter(128, 50, 10, 10000, true).apply(List.of(new Document(markdown)));
+        SplittableRandom random = new SplittableRandom(42);
+
+        List<String> queries = new ArrayList<>();
+        List<String> golds = new ArrayList<>();
+        for (Document chunk : corpus) {
+            String sentence = longestSentence(chunk.getText());
+            if (sentence.length() >= 20) {
+                queries.add(sentence.substring(sentence.length() / 2));
+                golds.add(chunk.getId());
+            }
+        }
+        List<List<Document>> candidates = new ArrayList<>();
+        for (String query : queries) {
+            Map<String, Integer> queryVector = bigrams(query);
+            candidates.add(corpus.stream()
+                    .map(document -> document.mutate()
+                            .score(cosine(queryVector, bigrams(document.getText())) + random.nextGaussian() * RETRIEVAL_NOISE)
+                            .build())
+                    .sorted(Comparator.comparingDouble(Document::getScore).reversed())
+                    .limit(CANDIDATES)
+                    .toList());
+        }
+        System.out.printf("%d chunks, %d queries, %d candidates per query%n", corpus.size(), queries.size(), CANDIDATES);
+        System.out.printf("%-12s | %6s | %6s | %6s | %s%n", "reranker", "hit@1", "hit@3", "MRR", "latency mean / p99");
+
+        RerankModel none = new RetrievalOrderRerankModel();
+        RerankModel remote = new StubRemoteRerankModel();
+        RerankModel local = LocalRerankModel.builder().build();
+        for (var named : List.of(Map.entry("none", none), Map.entry("local", local), Map.entry("remote stub", remote))) {
+            evaluate(named.getKey(), named.getValue(), queries, golds, candidates);
+        }
+
+        // 候选较多时串行与并行打分的对比
+        List<Document> many = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            Document source = corpus.get(i % corpus.size());
+            many.add(new Document(source.getText() + " #" + i, Map.of()));
+        }
+        RerankRequest request = new RerankRequest(queries.get(0), many);
+        for (var named : List.of(Map.entry("sequential", LocalRerankModel.builder().parallelThreshold(Integer.MAX_VALUE).build()),
+                Map.entry("parallel", LocalRerankModel.builder().build()))) {
+            for (int i = 0; i < 50; i++) {
+                named.getValue().call(request);
+            }
+            long start = System.nanoTime();
+            for (int i = 0; i < 200; i++) {
+                named.getValue().call(request);
+            }
+            System.out.printf("local %-10s on %d candidates: %.2f ms/call (%d cores)%n", named.getKey(), many.size(),
+                    (System.nanoTime() - start) / 1e6 / 200, Runtime.getRuntime().availableProcessors());
+        }
+    }
+
+    private static void evaluate(String name, RerankModel reranker, List<String> queries, List<String> golds,
+                                 List<List<Document>> candidates) {
+        int hit1 = 0;
+        int hit3 = 0;
+        double reciprocalRank = 0;
+        long[] latencies = new long[queries.size()];
+        for (int i = 0; i < queries.size(); i++) {
+            long start = System.nanoTime();
+            List<DocumentWithScore> ranked = reranker.call(new RerankRequest(queries.get(i), candidates.get(i))).getResults();
+            latencies[i] = System.nanoTime() - start;
+            for (int rank = 0; rank < ranked.size(); rank++) {
+                if (ranked.get(rank).getOutput().getId().equals(golds.get(i))) {
+                    hit1 += rank == 0 ? 1 : 0;
+                    hit3 += rank < 3 ? 1 : 0;
+                    reciprocalRank += 1.0 / (rank + 1);
+                    break;
+                }
+            }
+        }
+        Arrays.sort(latencies);
+        int n = queries.size();
+        System.out.printf("%-12s | %6.3f | %6.3f | %6.3f | %8.3f / %8.3f ms%n", name, (double) hit1 / n,
+                (double) hit3 / n, reciprocalRank / n, Arrays.stream(latencies).average().orElse(0) / 1e6,
+                latencies[n * 99 / 100] / 1e6);
+    }
+
+    private static Map<String, Integer> bigrams(String text) {
+        String normalized = text.replaceAll("\\s+", "");
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i + 2 <= normalized.length(); i++) {
+            counts.merge(normalized.substring(i, i + 2), 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    private static double cosine(Map<String, Integer> a, Map<String, Integer> b) {
+        double dot = 0;
+        for (Map.Entry<String, Integer> entry : a.entrySet()) {
+            dot += entry.getValue() * b.getOrDefault(entry.getKey(), 0);
+        }
+        double normA = Math.sqrt(a.values().stream().mapToDouble(v -> v * v).sum());
+        double normB = Math.sqrt(b.values().stream().mapToDouble(v -> v * v).sum());
+        return normA == 0 || normB == 0 ? 0 : dot / (normA * normB);
+    }
+
+    private static String longestSentence(String text) {
+        String longest = "";
+        for (String sentence : text.split("(?<=[。！？\\n])")) {
+            String stripped = sentence.strip();
+            if (stripped.length() > longest.length()) {
+                longest = stripped;
+            }
+        }
+        return longest;
+    }
+
+    /**
+     * 不重排，保持检索顺序
+     */
+    private static class RetrievalOrderRerankModel implements RerankModel {
+
+        @Override
+        public RerankResponse call(RerankRequest request) {
+            return new RerankResponse(request.getInstructions().stream()
+                    .map(document -> DocumentWithScore.builder()
+                            .withDocument(document)
+                            .withScore(document.getScore())
+                            .build())
+                    .toList());
+        }
+    }
+
+    /**
+     * 远程重排的替身：无噪声的相似度打分 + 固定网络延迟
+     */
+    private static class StubRemoteRerankModel implements RerankModel {
+
+        @Override
+        public RerankResponse call(RerankRequest request) {
+            try {
+                Thread.sleep(REMOTE_LATENCY_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            Map<String, Integer> query = bigrams(request.getQuery());
+            List<DocumentWithScore> results = new ArrayList<>(request.getInstructions().stream()
+                    .map(document -> DocumentWithScore.builder()
+                            .withDocument(document)
+                            .withScore(cosine(query, bigrams(document.getText())))
+                            .build())
+                    .toList());
+            results.sort(Comparator.comparingDouble(DocumentWithScore::getScore).reversed());
+            return new RerankResponse(results);
+        }
+    }
+}
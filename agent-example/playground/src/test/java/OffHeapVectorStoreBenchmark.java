@@ -0,0 +1,149 @@
+import ch.qos.logback.classic.Level;
+import com.example.wx.config.rag.OffHeapVectorStore;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.SimpleVectorStore;
+import org.springframework.ai.vectorstore.VectorStore;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ *@description SimpleVectorStore / OffHeapVectorStore（暴力扫描）/ OffHeapVectorStore（HNSW）的单线程 QPS、p99 与召回率对比
+ * <p>
+ * 用法：OffHeapVectorStoreBenchmark [规模列表，默认 10000,100000] [维度，默认 256]
+ * 1M 规模需要足够的堆（SimpleVectorStore）和堆外内存，例如 -Xmx8g -XX:MaxDirectMemorySize=4g
+ *@author wangx
+ *@create 2026/10/18 23:20
+ */
+public class OffHeapVectorStoreBenchmark {
+
+    private static final int TOP_K = 10;
+    private static final int WARMUP_QUERIES = 200;
+    private static final int QUERIES = 1000;
+    private static final int BATCH = 1000;
+
+    public static void main(String[] args) {
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger("org.springframework.ai")).setLevel(Level.WARN);
+        int[] sizes = Arrays.stream((args.length > 0 ? args[0] : "10000,100000").split(","))
+                .mapToInt(Integer::parseInt)
+                .toArray();
+        int dimensions = args.length > 1 ? Integer.parseInt(args[1]) : 256;
+        RandomEmbeddingModel embeddingModel = new RandomEmbeddingModel(dimensions);
+
+        for (int size : sizes) {
+            System.out.printf("==== %d vectors, %d dimensions ====%n", size, dimensions);
+            List<Document> documents = IntStream.range(0, size)
+                    .mapToObj(i -> new Document("doc-" + i, "document " + i, Map.of("tenant", i % 10)))
+                    .toList();
+            List<String> queries = IntStream.range(0, WARMUP_QUERIES + QUERIES)
+                    .mapToObj(i -> "query " + i)
+                    .toList();
+
+            VectorStore simple = SimpleVectorStore.builder(embeddingModel).build();
+            VectorStore flat = OffHeapVectorStore.builder(embeddingModel).build();
+            VectorStore hnsw = OffHeapVectorStore.builder(embeddingModel).hnswEnabled(true).build();
+
+            List<List<String>> expected = null;
+            for (var named : List.of(Map.entry("SimpleVectorStore", simple), Map.entry("OffHeap flat", flat),
+                    Map.entry("OffHeap HNSW", hnsw))) {
+                long start = System.nanoTime();
+                for (int i = 0; i < documents.size(); i += BATCH) {
+                    named.getValue().add(documents.subList(i, Math.min(i + BATCH, documents.size())));
+                }
+                long loadMillis = (System.nanoTime() - start) / 1_000_000;
+
+                for (int i = 0; i < WARMUP_QUERIES; i++) {
+                    named.getValue().similaritySearch(request(queries.get(i)));
+                }
+                long[] latencies = new long[QUERIES];
+                List<List<String>> results = new ArrayList<>(QUERIES);
+                start = System.nanoTime();
+                for (int i = 0; i < QUERIES; i++) {
+                    long queryStart = System.nanoTime();
+                    List<Document> found = named.getValue().similaritySearch(request(queries.get(WARMUP_QUERIES + i)));
+                    latencies[i] = System.nanoTime() - queryStart;
+                    results.add(found.stream().map(Document::getId).toList());
+                }
+                double seconds = (System.nanoTime() - start) / 1e9;
+                Arrays.sort(latencies);
+                if (expected == null) {
+                    expected = results;
+                }
+                System.out.printf("%-18s load %6d ms | %8.1f qps | p50 %7.3f ms | p99 %7.3f ms | recall@%d %.3f%n",
+                        named.getKey(), loadMillis, QUERIES / seconds, latencies[QUERIES / 2] / 1e6,
+                        latencies[QUERIES * 99 / 100] / 1e6, TOP_K, recall(expected, results));
+            }
+
+            // 带过滤条件的查询，HNSW 过滤后不足 topK 时回退扫描
+            SearchRequest filtered = SearchRequest.builder().query("query filtered").topK(TOP_K)
+                    .filterExpression("tenant == 3").build();
+            System.out.printf("filtered results   simple %d | flat %d | hnsw %d%n",
+                    simple.similaritySearch(filtered).size(), flat.similaritySearch(filtered).size(),
+                    hnsw.similaritySearch(filtered).size());
+        }
+    }
+
+    private static SearchRequest request(String query) {
+        return SearchRequest.builder().query(query).topK(TOP_K).build();
+    }
+
+    private static double recall(List<List<String>> expected, List<List<String>> actual) {
+        long hits = 0;
+        long total = 0;
+        for (int i = 0; i < expected.size(); i++) {
+            Set<String> truth = new HashSet<>(expected.get(i));
+            total += truth.size();
+            hits += actual.get(i).stream().filter(truth::contains).count();
+        }
+        return total == 0 ? 1 : (double) hits / total;
+    }
+
+    private static class RandomEmbeddingModel implements EmbeddingModel {
+
+        private final int dimensions;
+
+        RandomEmbeddingModel(int dimensions) {
+            this.dimensions = dimensions;
+        }
+
+        @Override
+        public EmbeddingResponse call(EmbeddingRequest request) {
+            List<Embedding> embeddings = new ArrayList<>();
+            for (int i = 0; i < request.getInstructions().size(); i++) {
+                embeddings.add(new Embedding(vector(request.getInstructions().get(i)), i));
+            }
+            return new EmbeddingResponse(embeddings);
+        }
+
+        @Override
+        public float[] embed(Document document) {
+            return vector(document.getText());
+        }
+
+        @Override
+        public int dimensions() {
+            return dimensions;
+        }
+
+        private float[] vector(String text) {
+            SplittableRandom random = new SplittableRandom(text.hashCode());
+            float[] vector = new float[dimensions];
+            for (int i = 0; i < dimensions; i++) {
+                vector[i] = (float) random.nextGaussian();
+            }
+            return vector;
+        }
+    }
+}
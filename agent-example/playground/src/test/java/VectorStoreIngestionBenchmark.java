@@ -0,0 +1,92 @@
+import com.example.wx.config.KnowledgeBaseProperties;
+import com.example.wx.config.rag.VectorStoreIngestionEngine;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.document.DocumentReader;
+import org.springframework.ai.transformer.splitter.TokenTextSplitter;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+/**
+ *@description 串行 25 条一批 vs VectorStoreIngestionEngine 的入库耗时对比，向量库写入为带固定延迟的桩实现
+ *@author wangx
+ *@create 2026/10/18 20:05
+ */
+public class VectorStoreIngestionBenchmark {
+
+    private static final int FILES = 20;
+    private static final int SECTIONS_PER_FILE = 60;
+    private static final long EMBEDDING_LATENCY_MS = 80;
+
+    public static void main(String[] args) {
+        List<DocumentReader> readers = IntStream.range(0, FILES)
+                .mapToObj(VectorStoreIngestionBenchmark::reader)
+                .toList();
+        TokenTextSplitter splitter = new TokenTextSplitter(2000, 1024, 10, 10000, true);
+
+        // 改造前：逐文件串行，每 25 个文档一批
+        LatencyVectorStore serialStore = new LatencyVectorStore();
+        long start = System.nanoTime();
+        int serialDocs = 0;
+        for (DocumentReader reader : readers) {
+            List<Document> documents = splitter.transform(reader.get());
+            serialDocs += documents.size();
+            for (int i = 0; i < documents.size(); i += 25) {
+                serialStore.add(documents.subList(i, Math.min(i + 25, documents.size())));
+            }
+        }
+        long serialMillis = (System.nanoTime() - start) / 1_000_000;
+        System.out.printf("serial : %d docs, %d calls, %d ms, %.1f docs/sec%n", serialDocs,
+                serialStore.calls.get(), serialMillis, serialDocs * 1000.0 / serialMillis);
+
+        KnowledgeBaseProperties.IngestionProperties properties = new KnowledgeBaseProperties.IngestionProperties();
+        LatencyVectorStore engineStore = new LatencyVectorStore();
+        var stats = new VectorStoreIngestionEngine(properties, splitter).ingest(engineStore, readers);
+        System.out.printf("engine : %d docs, %d calls, %d ms, %.1f docs/sec%n", stats.documents(),
+                engineStore.calls.get(), stats.elapsedMillis(), stats.docsPerSecond());
+    }
+
+    private static DocumentReader reader(int file) {
+        return () -> {
+            List<Document> sections = new ArrayList<>(SECTIONS_PER_FILE);
+            for (int i = 0; i < SECTIONS_PER_FILE; i++) {
+                sections.add(new Document(("file " + file + " section " + i
+                        + " spring ai advisors retrieval augmented generation. ").repeat(20 + i % 40)));
+            }
+            return sections;
+        };
+    }
+
+    private static class LatencyVectorStore implements VectorStore {
+
+        private final AtomicInteger calls = new AtomicInteger();
+
+        @Override
+        public void add(List<Document> documents) {
+            calls.incrementAndGet();
+            try {
+                Thread.sleep(EMBEDDING_LATENCY_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void delete(List<String> idList) {
+        }
+
+        @Override
+        public void delete(Filter.Expression filterExpression) {
+        }
+
+        @Override
+        public List<Document> similaritySearch(SearchRequest request) {
+            return List.of();
+        }
+    }
+}
@@ -0,0 +1,130 @@
+import com.example.wx.rag.vectorstore.SnapshotSimpleVectorStore;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.ai.vectorstore.SimpleVectorStore;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+/**
+ *@description SimpleVectorStore JSON save/load 与 SnapshotSimpleVectorStore 二进制快照的加载耗时、文件大小、常驻内存对比
+ *@author wangx
+ *@create 2026/10/18 21:40
+ */
+public class VectorStoreSnapshotBenchmark {
+
+    private static final int DOCUMENTS = 20_000;
+    private static final int DIMENSIONS = 1024;
+
+    public static void main(String[] args) throws IOException {
+        Path dir = Files.createTempDirectory("vector-store-snapshot");
+        RandomEmbeddingModel embeddingModel = new RandomEmbeddingModel();
+        List<Document> documents = IntStream.range(0, DOCUMENTS)
+                .mapToObj(i -> new Document("doc-" + i, ("section " + i + " of the terms of service. ").repeat(8),
+                        Map.of("source", "terms-" + (i % 50) + ".md", "index", i)))
+                .toList();
+
+        // 写入：两种方式都只向量化一次
+        SimpleVectorStore jsonStore = SimpleVectorStore.builder(embeddingModel).build();
+        jsonStore.add(documents);
+        File jsonFile = dir.resolve("store.json").toFile();
+        jsonStore.save(jsonFile);
+        jsonStore = null;
+
+        SnapshotSimpleVectorStore snapshotStore = SnapshotSimpleVectorStore.snapshotBuilder(embeddingModel)
+                .directory(dir)
+                .name("store")
+                .build();
+        for (int i = 0; i < documents.size(); i += 500) {
+            snapshotStore.add(documents.subList(i, Math.min(i + 500, documents.size())));
+        }
+        snapshotStore.markComplete();
+        snapshotStore = null;
+        int embedCallsAfterWrite = embeddingModel.calls.get();
+
+        System.out.printf("json     file: %6.1f MB%n", jsonFile.length() / 1e6);
+        System.out.printf("snapshot file: %6.1f MB (vec) + %6.1f MB (docs)%n",
+                Files.size(dir.resolve("store.vec")) / 1e6, Files.size(dir.resolve("store.docs")) / 1e6);
+
+        for (int round = 0; round < 3; round++) {
+            long heapBefore = usedHeap();
+            long start = System.nanoTime();
+            SimpleVectorStore loadedJson = SimpleVectorStore.builder(embeddingModel).build();
+            loadedJson.load(jsonFile);
+            long jsonMillis = (System.nanoTime() - start) / 1_000_000;
+            long jsonHeap = usedHeap() - heapBefore;
+            loadedJson = null;
+
+            heapBefore = usedHeap();
+            start = System.nanoTime();
+            SnapshotSimpleVectorStore loadedSnapshot = SnapshotSimpleVectorStore.snapshotBuilder(embeddingModel)
+                    .directory(dir)
+                    .name("store")
+                    .build();
+            long snapshotMillis = (System.nanoTime() - start) / 1_000_000;
+            long snapshotHeap = usedHeap() - heapBefore;
+            int loaded = loadedSnapshot.size();
+            loadedSnapshot = null;
+
+            System.out.printf("round %d  json load: %5d ms, %6.1f MB heap | snapshot load: %5d ms, %6.1f MB heap, %d docs%n",
+                    round, jsonMillis, jsonHeap / 1e6, snapshotMillis, snapshotHeap / 1e6, loaded);
+        }
+        System.out.printf("embedding calls during load: %d%n", embeddingModel.calls.get() - embedCallsAfterWrite);
+
+        try (var paths = Files.list(dir)) {
+            for (Path path : paths.toList()) {
+                Files.delete(path);
+            }
+        }
+        Files.delete(dir);
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static class RandomEmbeddingModel implements EmbeddingModel {
+
+        private final AtomicInteger calls = new AtomicInteger();
+
+        @Override
+        public EmbeddingResponse call(EmbeddingRequest request) {
+            calls.incrementAndGet();
+            List<Embedding> embeddings = new ArrayList<>();
+            for (int i = 0; i < request.getInstructions().size(); i++) {
+                embeddings.add(new Embedding(vector(request.getInstructions().get(i).hashCode()), i));
+            }
+            return new EmbeddingResponse(embeddings);
+        }
+
+        @Override
+        public float[] embed(Document document) {
+            calls.incrementAndGet();
+            return vector(document.getId().hashCode());
+        }
+
+        private float[] vector(long seed) {
+            SplittableRandom random = new SplittableRandom(seed);
+            float[] vector = new float[DIMENSIONS];
+            for (int i = 0; i < DIMENSIONS; i++) {
+                vector[i] = (float) random.nextDouble(-1, 1);
+            }
+            return vector;
+        }
+    }
+}
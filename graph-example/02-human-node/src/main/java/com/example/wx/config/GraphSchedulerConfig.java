@@ -0,0 +1,53 @@
+package com.example.wx.config;
+
+import com.example.wx.graph.stream.GraphStreamBridge;
+import com.example.wx.scheduler.GraphStreamScheduler;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * @author wangx
+ * @description 图流式执行共享调度器与 SSE 输出缓冲配置
+ * @create 2026/10/21 10:50
+ */
+@Configuration
+public class GraphSchedulerConfig {
+
+    @Value("${graph.scheduler.max-active-streams:64}")
+    private int maxActiveStreams;
+
+    @Value("${graph.scheduler.max-queued-streams:256}")
+    private int maxQueuedStreams;
+
+    @Value("${graph.scheduler.max-concurrent-per-tenant:16}")
+    private int maxConcurrentPerTenant;
+
+    @Value("${graph.sse.buffer-size:256}")
+    private int bufferSize;
+
+    @Value("${graph.sse.overflow-policy:DROP_OLDEST}")
+    private GraphStreamBridge.OverflowPolicy overflowPolicy;
+
+    @Bean
+    public GraphStreamScheduler graphStreamScheduler(ObjectProvider<MeterRegistry> meterRegistry) {
+        return GraphStreamScheduler.builder()
+                .maxActiveStreams(maxActiveStreams)
+                .maxQueuedStreams(maxQueuedStreams)
+                .maxConcurrentPerTenant(maxConcurrentPerTenant)
+                .meterRegistry(meterRegistry.getIfAvailable(() -> Metrics.globalRegistry))
+                .build();
+    }
+
+    @Bean
+    public GraphStreamBridge graphStreamBridge(ObjectProvider<MeterRegistry> meterRegistry) {
+        return GraphStreamBridge.builder()
+                .bufferSize(bufferSize)
+                .overflowPolicy(overflowPolicy)
+                .meterRegistry(meterRegistry.getIfAvailable(() -> Metrics.globalRegistry))
+                .build();
+    }
+}
@@ -5,15 +5,15 @@ import com.alibaba.cloud.ai.graph.CompiledGraph;
 import com.alibaba.cloud.ai.graph.NodeOutput;
 import com.alibaba.cloud.ai.graph.RunnableConfig;
 import com.alibaba.cloud.ai.graph.StateGraph;
-import com.alibaba.cloud.ai.graph.async.AsyncGenerator;
 import com.alibaba.cloud.ai.graph.checkpoint.config.SaverConfig;
-import com.alibaba.cloud.ai.graph.checkpoint.constant.SaverEnum;
-import com.alibaba.cloud.ai.graph.checkpoint.savers.MemorySaver;
-import com.alibaba.cloud.ai.graph.exception.GraphRunnerException;
 import com.alibaba.cloud.ai.graph.exception.GraphStateException;
+import com.example.wx.graph.checkpoint.FileCheckpointSaver;
+import com.example.wx.graph.stream.GraphStreamBridge;
+import com.example.wx.scheduler.GraphStreamScheduler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.MediaType;
 import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -21,8 +21,8 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import reactor.core.publisher.Flux;
-import reactor.core.publisher.Sinks;
 
+import java.time.Duration;
 import java.util.HashMap;
 
 /**
@@ -38,9 +38,16 @@ public class GraphHumanController {
 
     private final CompiledGraph compiledGraph;
 
-    public GraphHumanController(@Qualifier("humanGraph") StateGraph stateGraph) throws GraphStateException {
+    private final GraphProcess graphProcess;
+
+    public GraphHumanController(@Qualifier("humanGraph") StateGraph stateGraph,
+                                FileCheckpointSaver checkpointSaver,
+                                GraphStreamScheduler graphStreamScheduler,
+                                GraphStreamBridge graphStreamBridge,
+                                @Value("${graph.sse.flush-interval:50ms}") Duration flushInterval,
+                                @Value("${graph.sse.max-batch-size:256}") int maxBatchSize) throws GraphStateException {
         SaverConfig saverConfig = SaverConfig.builder()
-                .register(SaverEnum.MEMORY.getValue(), new MemorySaver())
+                .register(checkpointSaver)
                 .build();
 
         this.compiledGraph = stateGraph
@@ -50,27 +57,26 @@ public class GraphHumanController {
                                 .interruptBefore("human_feedback")
                                 .build()
                 );
+        this.graphProcess = new GraphProcess(graphStreamScheduler, graphStreamBridge, flushInterval, maxBatchSize);
     }
 
     @GetMapping(value = "/expend", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
     public Flux<ServerSentEvent<String>> expand(
             @RequestParam(value = "query", defaultValue = "你好，很高兴认识你，能简单介绍一下自己吗？", required = false) String query,
             @RequestParam(value = "expander_number", defaultValue = "3", required = false) Integer expenderNumber,
-            @RequestParam(value = "thread_id", defaultValue = "wx", required = false) String threadId
-    ) throws GraphRunnerException {
+            @RequestParam(value = "thread_id", defaultValue = "wx", required = false) String threadId,
+            @RequestParam(value = "tenant_id", defaultValue = "default", required = false) String tenantId
+    ) {
         RunnableConfig runnableConfig = RunnableConfig.builder().threadId(threadId).build();
         HashMap<String, Object> objectMap = new HashMap<>();
         objectMap.put("query", query);
         objectMap.put("expander_number", expenderNumber);
 
-        GraphProcess graphProcess = new GraphProcess(this.compiledGraph);
-        Sinks.Many<ServerSentEvent<String>> sink = Sinks.many().unicast().onBackpressureBuffer();
-
-        AsyncGenerator<NodeOutput> resultFuture = compiledGraph.stream(objectMap, runnableConfig);
+        // 调度器放行后才开始执行图
+        Flux<NodeOutput> outputs = Flux.defer(() -> compiledGraph.stream(objectMap, runnableConfig));
 
-        graphProcess.processStream(resultFuture, sink);
-        return sink.asFlux()
-                .doOnCancel(() -> logger.info("client disconnected from stream"))
+        return graphProcess.processStream(tenantId, outputs)
+                .doOnCancel(() -> logger.info("client disconnected from stream, thread_id: {}", threadId))
                 .doOnError(e -> logger.error("Error occurred during streaming", e));
     }
 }
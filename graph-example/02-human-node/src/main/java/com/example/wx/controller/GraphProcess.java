@@ -1,20 +1,17 @@
 package com.example.wx.controller;
 
-import com.alibaba.cloud.ai.graph.CompiledGraph;
 import com.alibaba.cloud.ai.graph.NodeOutput;
-import com.alibaba.cloud.ai.graph.async.AsyncGenerator;
 import com.alibaba.cloud.ai.graph.streaming.StreamingOutput;
-import com.alibaba.fastjson.JSON;
-import com.alibaba.fastjson.JSONObject;
+import com.example.wx.controller.SseEventEncoder.GraphEvent;
+import com.example.wx.graph.stream.GraphStreamBridge;
+import com.example.wx.scheduler.GraphStreamScheduler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.codec.ServerSentEvent;
-import reactor.core.publisher.Sinks;
+import reactor.core.publisher.Flux;
 
-import java.util.Map;
-import java.util.concurrent.CompletionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.time.Duration;
+import java.util.List;
 
 /**
  * @author wangx
@@ -25,41 +22,51 @@ public class GraphProcess {
 
     private final static Logger logger = LoggerFactory.getLogger(GraphProcess.class);
 
-    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final GraphStreamScheduler scheduler;
 
-    private CompiledGraph compiledGraph;
+    private final GraphStreamBridge bridge;
 
-    public GraphProcess(CompiledGraph compiledGraph) {
-        this.compiledGraph = compiledGraph;
+    private final Duration flushInterval;
+
+    private final int maxBatchSize;
+
+    /**
+     * @param flushInterval 该时间窗口内到达的输出合并编码，0 表示每个输出单独发送
+     * @param maxBatchSize  待发送的输出达到该数量时立即发送
+     */
+    public GraphProcess(GraphStreamScheduler scheduler, GraphStreamBridge bridge, Duration flushInterval,
+                        int maxBatchSize) {
+        this.scheduler = scheduler;
+        this.bridge = bridge;
+        this.flushInterval = flushInterval;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * 经调度器准入后订阅图的输出，客户端断开时取消订阅会停止图的执行并释放配额。
+     * 输出经 {@link GraphStreamBridge} 有界缓冲，客户端读取慢时丢弃 token chunk，节点输出不丢
+     */
+    public Flux<ServerSentEvent<String>> processStream(String tenantId, Flux<NodeOutput> outputs) {
+        Flux<GraphEvent> events = bridge.bridge(scheduler.stream(tenantId, outputs.map(this::toEvent)),
+                event -> event.chunk() != null);
+
+        SseEventEncoder encoder = new SseEventEncoder();
+        Flux<List<GraphEvent>> batches = flushInterval.isZero()
+                ? events.map(List::of)
+                // 按下游请求量向 bridge 请求，客户端读取慢时输出积压在 bridge 的有界队列中
+                : events.bufferTimeout(maxBatchSize, flushInterval, true);
+        return batches.concatMapIterable(encoder::encode, 1);
     }
 
-    public void processStream(AsyncGenerator<NodeOutput> generator, Sinks.Many<ServerSentEvent<String>> sink) {
-        executor.submit(() -> {
-            generator.forEachAsync(output ->{
-                try {
-                    logger.info("output: {}", output);
-                    String nodeName = output.node();
-                    String content;
-                    if (output instanceof StreamingOutput streamingOutput) {
-                        content = JSON.toJSONString(Map.of(nodeName, streamingOutput.chunk()));
-                    } else {
-                        JSONObject nodeOutput = new JSONObject();
-                        nodeOutput.put("data", output.state().data());
-                        nodeOutput.put("node", nodeName);
-                        content = JSON.toJSONString(nodeOutput);
-                    }
-                    sink.tryEmitNext(ServerSentEvent.builder(content).build());
-                } catch (Exception e) {
-                    throw new CompletionException(e);
-                }
-            }).thenAccept(v->{
-                // 正常完成
-                sink.tryEmitComplete();
-            }).exceptionally(e -> {
-                sink.tryEmitError(e);
-                return null;
-            });
-        });
+    private GraphEvent toEvent(NodeOutput output) {
+        // 节点执行结束时也会输出 chunk 为 null 的 StreamingOutput，按节点状态处理
+        if (output instanceof StreamingOutput<?> streamingOutput && streamingOutput.chunk() != null) {
+            // 每个 token 都会触发，只在 trace 级别输出
+            logger.trace("chunk from node {}", output.node());
+            return GraphEvent.chunk(output.node(), streamingOutput.chunk());
+        }
+        logger.info("output: {}", output);
+        return GraphEvent.state(output.node(), output.state().data());
     }
 
 }
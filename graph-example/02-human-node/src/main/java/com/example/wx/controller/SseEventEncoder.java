@@ -0,0 +1,133 @@
+package com.example.wx.controller;
+
+import com.alibaba.fastjson.JSON;
+import org.springframework.http.codec.ServerSentEvent;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * @author wangx
+ * @description 把一个流中的图输出编码为 SSE 事件
+ * <p>
+ * 每次调用 {@link #encode(List)} 处理一批输出：
+ * <ul>
+ *   <li>同一节点连续的流式 chunk 合并为一个事件</li>
+ *   <li>节点输出事件只包含相对上一次节点输出发生变化的 key（delta）和被删除的 key（removed），
+ *   第一次节点输出包含完整状态</li>
+ * </ul>
+ * chunk 直接转义写入复用的 StringBuilder，不再为每个 token 创建 Map 并走 JSON 序列化。
+ * 非线程安全，每个流创建一个。
+ * @create 2026/10/20 11:10
+ */
+public class SseEventEncoder {
+
+    private final Map<String, Object> sentState = new HashMap<>();
+
+    private final StringBuilder pendingChunk = new StringBuilder();
+
+    private final StringBuilder payload = new StringBuilder(256);
+
+    private String pendingNode;
+
+    /**
+     * 图输出：chunk 不为 null 时为流式 chunk，否则为节点的状态
+     */
+    public record GraphEvent(String node, String chunk, Map<String, Object> data) {
+
+        public static GraphEvent chunk(String node, String chunk) {
+            return new GraphEvent(node, chunk, null);
+        }
+
+        public static GraphEvent state(String node, Map<String, Object> data) {
+            return new GraphEvent(node, null, data);
+        }
+    }
+
+    public List<ServerSentEvent<String>> encode(List<GraphEvent> events) {
+        List<ServerSentEvent<String>> encoded = new ArrayList<>();
+        for (GraphEvent event : events) {
+            if (event.chunk() != null) {
+                if (pendingNode != null && !pendingNode.equals(event.node())) {
+                    encoded.add(pendingChunk());
+                }
+                pendingNode = event.node();
+                pendingChunk.append(event.chunk());
+            } else {
+                if (pendingNode != null) {
+                    encoded.add(pendingChunk());
+                }
+                encoded.add(nodeOutput(event.node(), event.data()));
+            }
+        }
+        if (pendingNode != null) {
+            encoded.add(pendingChunk());
+        }
+        return encoded;
+    }
+
+    private ServerSentEvent<String> pendingChunk() {
+        payload.setLength(0);
+        payload.append('{');
+        appendJsonString(payload, pendingNode);
+        payload.append(':');
+        appendJsonString(payload, pendingChunk);
+        payload.append('}');
+        pendingNode = null;
+        pendingChunk.setLength(0);
+        return ServerSentEvent.builder(payload.toString()).build();
+    }
+
+    private ServerSentEvent<String> nodeOutput(String node, Map<String, Object> data) {
+        Map<String, Object> delta = new LinkedHashMap<>();
+        List<String> removed = new ArrayList<>();
+        for (Map.Entry<String, Object> entry : data.entrySet()) {
+            Object previous = sentState.get(entry.getKey());
+            if (previous != entry.getValue()
+                    && (!sentState.containsKey(entry.getKey()) || !Objects.equals(previous, entry.getValue()))) {
+                delta.put(entry.getKey(), entry.getValue());
+            }
+        }
+        for (String key : sentState.keySet()) {
+            if (!data.containsKey(key)) {
+                removed.add(key);
+            }
+        }
+        sentState.clear();
+        sentState.putAll(data);
+
+        payload.setLength(0);
+        payload.append("{\"node\":");
+        appendJsonString(payload, node);
+        payload.append(",\"delta\":").append(JSON.toJSONString(delta));
+        payload.append(",\"removed\":").append(JSON.toJSONString(removed));
+        payload.append('}');
+        return ServerSentEvent.builder(payload.toString()).build();
+    }
+
+    private static void appendJsonString(StringBuilder out, CharSequence value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\t' -> out.append("\\t");
+                default -> {
+                    if (c < 0x20 || c == 0x2028 || c == 0x2029) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+                }
+            }
+        }
+        out.append('"');
+    }
+}
@@ -1,10 +1,7 @@
 package com.example.wx.node;
 
-import com.alibaba.cloud.ai.graph.GraphResponse;
 import com.alibaba.cloud.ai.graph.OverAllState;
 import com.alibaba.cloud.ai.graph.action.NodeAction;
-import com.alibaba.cloud.ai.graph.streaming.FluxConverter;
-import com.alibaba.cloud.ai.graph.streaming.StreamingOutput;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.ai.chat.client.ChatClient;
@@ -12,8 +9,6 @@ import org.springframework.ai.chat.model.ChatResponse;
 import org.springframework.ai.chat.prompt.PromptTemplate;
 import reactor.core.publisher.Flux;
 
-import java.util.Arrays;
-import java.util.List;
 import java.util.Map;
 
 /**
@@ -58,15 +53,7 @@ public class ExpanderNode implements NodeAction {
                         .param("query", query))
                 .stream().chatResponse();
 
-        Flux<GraphResponse<StreamingOutput>> nodeOutputs = FluxConverter.builder()
-                .startingNode("expander_llm_stream")
-                .startingState(state)
-                .mapResult(response -> {
-                    String text = response.getResult().getOutput().getText();
-                    List<String> queryVariants = Arrays.asList(text.split("\n"));
-                    return Map.of("expander_content", queryVariants);
-                })
-                .build(chatResponseFlux);
-        return Map.of("expander_content", nodeOutputs);
+        // 图执行时逐个输出 chunk，结束后把合并的回复写入 expander_content
+        return Map.of("expander_content", chatResponseFlux);
     }
 }
@@ -22,8 +22,8 @@ public class HumanFeedbackNode implements NodeAction {
         logger.info("human_feedback node is running.");
         HashMap<String, Object> resultMap = new HashMap<>();
         String nextStep = StateGraph.END;
-        Map<String, Object> feedBackData = state.humanFeedback().data();
-        boolean feedback = (boolean) feedBackData.getOrDefault("feed_back", true);
+        // 恢复执行时人工反馈随状态一起传入
+        boolean feedback = state.value("feed_back", true);
         if (feedback) {
             nextStep = "translate";
         }
@@ -1,13 +1,7 @@
 package com.example.wx.node;
 
-import com.alibaba.cloud.ai.graph.GraphResponse;
-import com.alibaba.cloud.ai.graph.NodeOutput;
 import com.alibaba.cloud.ai.graph.OverAllState;
 import com.alibaba.cloud.ai.graph.action.NodeAction;
-import com.alibaba.cloud.ai.graph.async.AsyncGenerator;
-import com.alibaba.cloud.ai.graph.streaming.FluxConverter;
-import com.alibaba.cloud.ai.graph.streaming.StreamingChatGenerator;
-import com.alibaba.cloud.ai.graph.streaming.StreamingOutput;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.ai.chat.client.ChatClient;
@@ -15,8 +9,6 @@ import org.springframework.ai.chat.model.ChatResponse;
 import org.springframework.ai.chat.prompt.PromptTemplate;
 import reactor.core.publisher.Flux;
 
-import java.util.Arrays;
-import java.util.List;
 import java.util.Map;
 
 /**
@@ -55,14 +47,7 @@ public class TranslateNode implements NodeAction {
                 .user((user) -> user.text(DEFAULT_PROMPT_TEMPLATE.getTemplate())
                         .param("targetLanguage", targetLanguage)
                         .param("query", query)).stream().chatResponse();
-        Flux<GraphResponse<StreamingOutput>>  generator = FluxConverter.builder()
-                .startingNode("translate_llm_stream")
-                .startingState(state)
-                .mapResult(response -> {
-                    String text = response.getResult().getOutput().getText();
-                    List<String> queryVariants = Arrays.asList(text.split("\n"));
-                    return Map.of("translate_content", queryVariants);
-                }).build(chatResponseFlux);
-        return Map.of("translate_content", generator);
+        // 图执行时逐个输出 chunk，结束后把合并的回复写入 translate_content
+        return Map.of("translate_content", chatResponseFlux);
     }
 }
@@ -0,0 +1,299 @@
+package com.example.wx.scheduler;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author wangx
+ * @description 图流式执行的准入控制
+ * <p>
+ * 图的输出本身就是 {@link Flux}，这里不再用线程阻塞遍历，只控制同时订阅的流：
+ * <ul>
+ *   <li>订阅时占用租户配额，每个租户同时进行（执行中 + 排队中）的流不超过 maxConcurrentPerTenant，超出返回 429</li>
+ *   <li>同时执行的流不超过 maxActiveStreams，其余按到达顺序排队，排队数达到 maxQueuedStreams 时返回 503</li>
+ *   <li>流结束、出错或客户端断开（Flux 被取消）时在 doFinally 中释放配额，执行名额直接交给队首的流；
+ *   还在排队的流直接出队，不会再被订阅</li>
+ * </ul>
+ * 图在订阅时同步执行节点，因此被放行的流在 scheduler 上订阅，不占用请求线程或上一个结束的流的线程。
+ * 指标：graph.stream.queued（排队数）、graph.stream.active（执行数）、graph.stream.queue.wait（排队耗时）、
+ * graph.stream.rejected（按 reason 区分的拒绝次数）。
+ * @create 2026/10/21 10:30
+ */
+public class GraphStreamScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(GraphStreamScheduler.class);
+
+    private static final String METRIC_PREFIX = "graph.stream";
+
+    private final Scheduler scheduler;
+
+    private final int maxActiveStreams;
+
+    private final int maxQueuedStreams;
+
+    private final int maxConcurrentPerTenant;
+
+    /**
+     * 租户 -> 进行中的流数量，归零时移除
+     */
+    private final Map<String, Integer> tenantStreams = new ConcurrentHashMap<>();
+
+    /**
+     * 排队中的流，与 active 一起由 lock 保护
+     */
+    private final Deque<Admission> waiting = new ArrayDeque<>();
+
+    private final Object lock = new Object();
+
+    private final AtomicInteger queued = new AtomicInteger();
+
+    private final AtomicInteger active = new AtomicInteger();
+
+    private final Timer queueWaitTimer;
+
+    private final Counter tenantLimitCounter;
+
+    private final Counter queueFullCounter;
+
+    private GraphStreamScheduler(Builder builder) {
+        this.scheduler = builder.scheduler;
+        this.maxActiveStreams = builder.maxActiveStreams;
+        this.maxQueuedStreams = builder.maxQueuedStreams;
+        this.maxConcurrentPerTenant = builder.maxConcurrentPerTenant;
+
+        MeterRegistry registry = builder.meterRegistry != null ? builder.meterRegistry : Metrics.globalRegistry;
+        Gauge.builder(METRIC_PREFIX + ".queued", queued, AtomicInteger::get).tag("name", builder.name).register(registry);
+        Gauge.builder(METRIC_PREFIX + ".active", active, AtomicInteger::get).tag("name", builder.name).register(registry);
+        this.queueWaitTimer = Timer.builder(METRIC_PREFIX + ".queue.wait").tag("name", builder.name).register(registry);
+        this.tenantLimitCounter = Counter.builder(METRIC_PREFIX + ".rejected").tag("name", builder.name)
+                .tag("reason", "tenant_limit").register(registry);
+        this.queueFullCounter = Counter.builder(METRIC_PREFIX + ".rejected").tag("name", builder.name)
+                .tag("reason", "queue_full").register(registry);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * 订阅时占用租户配额并申请执行名额，拿到名额后才订阅 source
+     */
+    public <T> Flux<T> stream(String tenantId, Flux<T> source) {
+        return Flux.defer(() -> {
+            if (!tryAcquire(tenantId)) {
+                tenantLimitCounter.increment();
+                return Flux.error(new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS,
+                        "too many concurrent streams for tenant " + tenantId));
+            }
+            Admission admission = new Admission(tenantId);
+            return Mono.<Void>create(admission::admit)
+                    .thenMany(Flux.defer(() -> source).subscribeOn(scheduler))
+                    .doFinally(signal -> admission.leave());
+        });
+    }
+
+    public int getQueued() {
+        return queued.get();
+    }
+
+    public int getActive() {
+        return active.get();
+    }
+
+    public int getTenantStreams(String tenantId) {
+        return tenantStreams.getOrDefault(tenantId, 0);
+    }
+
+    private boolean tryAcquire(String tenantId) {
+        AtomicBoolean acquired = new AtomicBoolean();
+        tenantStreams.compute(tenantId, (key, count) -> {
+            int current = count == null ? 0 : count;
+            if (current >= maxConcurrentPerTenant) {
+                return count;
+            }
+            acquired.set(true);
+            return current + 1;
+        });
+        return acquired.get();
+    }
+
+    private void release(String tenantId) {
+        tenantStreams.computeIfPresent(tenantId, (key, count) -> count <= 1 ? null : count - 1);
+    }
+
+    private enum State {
+        NEW, WAITING, ACTIVE, DONE
+    }
+
+    /**
+     * 一个已占用租户配额的流，状态变化由 lock 保护
+     */
+    private final class Admission {
+
+        private final String tenantId;
+
+        private final long createdAt = System.nanoTime();
+
+        private State state = State.NEW;
+
+        private MonoSink<Void> sink;
+
+        private Admission(String tenantId) {
+            this.tenantId = tenantId;
+        }
+
+        void admit(MonoSink<Void> sink) {
+            boolean admitted;
+            synchronized (lock) {
+                if (state != State.NEW) {
+                    return;
+                }
+                if (active.get() < maxActiveStreams) {
+                    state = State.ACTIVE;
+                    active.incrementAndGet();
+                    admitted = true;
+                } else if (waiting.size() < maxQueuedStreams) {
+                    state = State.WAITING;
+                    this.sink = sink;
+                    waiting.addLast(this);
+                    queued.incrementAndGet();
+                    return;
+                } else {
+                    state = State.DONE;
+                    admitted = false;
+                }
+            }
+            if (admitted) {
+                queueWaitTimer.record(0, TimeUnit.NANOSECONDS);
+                sink.success();
+            } else {
+                queueFullCounter.increment();
+                sink.error(new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "graph stream queue is full"));
+            }
+        }
+
+        /**
+         * 流终止（完成、出错、取消）时调用，只生效一次
+         */
+        void leave() {
+            Admission next;
+            synchronized (lock) {
+                State previous = state;
+                state = State.DONE;
+                if (previous == State.DONE) {
+                    // 排队已满被拒绝，只需释放租户配额
+                    next = null;
+                } else if (previous == State.WAITING) {
+                    waiting.remove(this);
+                    queued.decrementAndGet();
+                    logger.debug("stream of tenant {} cancelled while queued", tenantId);
+                    next = null;
+                } else if (previous == State.ACTIVE) {
+                    // 执行名额直接交给队首，active 不变
+                    next = waiting.pollFirst();
+                    if (next == null) {
+                        active.decrementAndGet();
+                    } else {
+                        next.state = State.ACTIVE;
+                        queued.decrementAndGet();
+                    }
+                } else {
+                    next = null;
+                }
+            }
+            release(tenantId);
+            if (next != null) {
+                queueWaitTimer.record(System.nanoTime() - next.createdAt, TimeUnit.NANOSECONDS);
+                next.sink.success();
+            }
+        }
+    }
+
+    public static class Builder {
+
+        private String name = "graph-stream";
+
+        private int maxActiveStreams = 64;
+
+        private int maxQueuedStreams = 256;
+
+        private int maxConcurrentPerTenant = 16;
+
+        private Scheduler scheduler = Schedulers.boundedElastic();
+
+        private MeterRegistry meterRegistry;
+
+        private Builder() {
+        }
+
+        /**
+         * 指标的 name 标签
+         */
+        public Builder name(String name) {
+            this.name = name;
+            return this;
+        }
+
+        /**
+         * 同时执行的流的上限
+         */
+        public Builder maxActiveStreams(int maxActiveStreams) {
+            this.maxActiveStreams = maxActiveStreams;
+            return this;
+        }
+
+        /**
+         * 等待执行名额的流的上限
+         */
+        public Builder maxQueuedStreams(int maxQueuedStreams) {
+            this.maxQueuedStreams = maxQueuedStreams;
+            return this;
+        }
+
+        public Builder maxConcurrentPerTenant(int maxConcurrentPerTenant) {
+            this.maxConcurrentPerTenant = maxConcurrentPerTenant;
+            return this;
+        }
+
+        /**
+         * 被放行的流在其上订阅，默认 boundedElastic
+         */
+        public Builder scheduler(Scheduler scheduler) {
+            this.scheduler = scheduler;
+            return this;
+        }
+
+        public Builder meterRegistry(MeterRegistry meterRegistry) {
+            this.meterRegistry = meterRegistry;
+            return this;
+        }
+
+        public GraphStreamScheduler build() {
+            if (maxActiveStreams <= 0 || maxQueuedStreams < 0 || maxConcurrentPerTenant <= 0) {
+                throw new IllegalArgumentException(
+                        "maxActiveStreams and maxConcurrentPerTenant must be positive, maxQueuedStreams must not be negative");
+            }
+            return new GraphStreamScheduler(this);
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.example.wx.controller;
+
+import com.alibaba.cloud.ai.graph.KeyStrategy;
+import com.alibaba.cloud.ai.graph.KeyStrategyFactory;
+import com.alibaba.cloud.ai.graph.StateGraph;
+import com.alibaba.cloud.ai.graph.action.AsyncNodeAction;
+import com.alibaba.cloud.ai.graph.exception.GraphStateException;
+import com.alibaba.cloud.ai.graph.state.strategy.ReplaceStrategy;
+import com.example.wx.config.CheckpointConfig;
+import com.example.wx.config.GraphSchedulerConfig;
+import com.example.wx.scheduler.GraphStreamScheduler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.reactive.server.FluxExchangeResult;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BooleanSupplier;
+
+import static com.alibaba.cloud.ai.graph.action.AsyncNodeAction.node_async;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * GraphHumanController 流式接口测试
+ * 启动真实的 Web 服务，用 WebTestClient 请求 /graph/human/expend，图替换为可控的桩：
+ * expander 节点在 gate 完成前一直不返回，用于让流保持执行中，验证租户上限（429）和排队上限（503）
+ *
+ * @author wangx
+ */
+@SpringBootTest(classes = GraphHumanControllerTest.StubApplication.class,
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {
+                "spring.ai.openai.api-key=test",
+                "spring.ai.openai.base-url=http://localhost",
+                "spring.ai.openai.chat.options.model=test",
+                "graph.scheduler.max-active-streams=2",
+                "graph.scheduler.max-queued-streams=1",
+                "graph.scheduler.max-concurrent-per-tenant=2"
+        })
+class GraphHumanControllerTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    /**
+     * expander 节点等待的 gate，每个用例重新创建
+     */
+    private static volatile CompletableFuture<Void> gate;
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private GraphStreamScheduler scheduler;
+
+    @DynamicPropertySource
+    static void checkpointDirectory(DynamicPropertyRegistry registry) throws IOException {
+        String directory = Files.createTempDirectory("human-node-checkpoints").toString();
+        registry.add("graph.checkpoint.directory", () -> directory);
+    }
+
+    @BeforeEach
+    void setUp() {
+        gate = new CompletableFuture<>();
+        webTestClient = webTestClient.mutate().responseTimeout(TIMEOUT).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        gate.complete(null);
+        awaitCondition(() -> scheduler.getActive() == 0 && scheduler.getQueued() == 0);
+    }
+
+    @Test
+    @DisplayName("GET /graph/human/expend - 输出节点状态后在人工反馈前结束")
+    void testExpand_Success() {
+        gate.complete(null);
+
+        String body = expand("t-success", "tenant-a")
+                .expectStatus().isOk()
+                .expectBody(String.class)
+                .returnResult()
+                .getResponseBody();
+
+        assertTrue(body != null && body.contains("\"node\":\"expander\""), "unexpected body: " + body);
+        assertTrue(body.contains("stub variants"), "unexpected body: " + body);
+        assertEquals(0, scheduler.getTenantStreams("tenant-a"));
+    }
+
+    @Test
+    @DisplayName("GET /graph/human/expend - 超过租户并发上限返回 429，其他租户不受影响")
+    void testExpand_TenantLimit() {
+        List<FluxExchangeResult<String>> open = List.of(
+                openStream("t-tenant-1", "tenant-a"),
+                openStream("t-tenant-2", "tenant-a"));
+        awaitCondition(() -> scheduler.getTenantStreams("tenant-a") == 2);
+
+        expand("t-tenant-3", "tenant-a")
+                .expectStatus().isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertEquals(2, scheduler.getTenantStreams("tenant-a"));
+
+        gate.complete(null);
+        open.forEach(GraphHumanControllerTest::assertGraphOutput);
+        awaitCondition(() -> scheduler.getTenantStreams("tenant-a") == 0);
+
+        // 配额释放后同一租户可以再次请求
+        expand("t-tenant-4", "tenant-a")
+                .expectStatus().isOk();
+    }
+
+    @Test
+    @DisplayName("GET /graph/human/expend - 执行名额占满时排队，排队已满返回 503，名额释放后排队的流继续执行")
+    void testExpand_QueueLimit() {
+        List<FluxExchangeResult<String>> active = List.of(
+                openStream("t-queue-1", "tenant-a"),
+                openStream("t-queue-2", "tenant-b"));
+        awaitCondition(() -> scheduler.getActive() == 2);
+
+        // 排队中的流还没有输出，响应头要等到拿到执行名额后才返回，因此异步发起
+        CompletableFuture<FluxExchangeResult<String>> queued =
+                CompletableFuture.supplyAsync(() -> openStream("t-queue-3", "tenant-c"));
+        awaitCondition(() -> scheduler.getQueued() == 1);
+
+        expand("t-queue-4", "tenant-d")
+                .expectStatus().isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertEquals(0, scheduler.getTenantStreams("tenant-d"));
+
+        gate.complete(null);
+        active.forEach(GraphHumanControllerTest::assertGraphOutput);
+        assertGraphOutput(queued.join());
+        awaitCondition(() -> scheduler.getActive() == 0 && scheduler.getQueued() == 0);
+    }
+
+    private WebTestClient.ResponseSpec expand(String threadId, String tenantId) {
+        return webTestClient.get()
+                .uri(uri -> uri.path("/graph/human/expend")
+                        .queryParam("thread_id", threadId)
+                        .queryParam("tenant_id", tenantId)
+                        .build())
+                .exchange();
+    }
+
+    /**
+     * 发起请求但不读取响应体，流在 gate 完成前保持打开
+     */
+    private FluxExchangeResult<String> openStream(String threadId, String tenantId) {
+        return expand(threadId, tenantId)
+                .expectStatus().isOk()
+                .returnResult(String.class);
+    }
+
+    private static void assertGraphOutput(FluxExchangeResult<String> result) {
+        List<String> events = result.getResponseBody().collectList().block(TIMEOUT);
+        assertTrue(events != null && events.stream().anyMatch(event -> event.contains("stub variants")),
+                "unexpected events: " + events);
+    }
+
+    private static void awaitCondition(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TIMEOUT.toNanos();
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                fail("condition not met within " + TIMEOUT);
+            }
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail("interrupted");
+            }
+        }
+    }
+
+    @SpringBootConfiguration
+    @EnableAutoConfiguration
+    @Import({GraphHumanController.class, GraphSchedulerConfig.class, CheckpointConfig.class})
+    static class StubApplication {
+
+        /**
+         * 与 HumanNodeConfig 相同的拓扑，expander 不调用模型，等待 gate 完成后返回固定内容
+         */
+        @Bean
+        public StateGraph humanGraph() throws GraphStateException {
+            KeyStrategyFactory keyStrategyFactory = () -> {
+                HashMap<String, KeyStrategy> keyStrategyHashMap = new HashMap<>();
+                keyStrategyHashMap.put("query", new ReplaceStrategy());
+                keyStrategyHashMap.put("expander_number", new ReplaceStrategy());
+                keyStrategyHashMap.put("expander_content", new ReplaceStrategy());
+                keyStrategyHashMap.put("feed_back", new ReplaceStrategy());
+                return keyStrategyHashMap;
+            };
+            AsyncNodeAction expander = state -> gate.thenApply(ignored ->
+                    Map.of("expander_content", "stub variants"));
+            return new StateGraph(keyStrategyFactory)
+                    .addNode("expander", expander)
+                    .addNode("human_feedback", node_async(state -> Map.of()))
+                    .addEdge(StateGraph.START, "expander")
+                    .addEdge("expander", "human_feedback")
+                    .addEdge("human_feedback", StateGraph.END);
+        }
+    }
+}
@@ -1,15 +1,19 @@
 package com.example.wx.config;
 
+import com.example.wx.rag.vectorstore.SnapshotSimpleVectorStore;
 import org.springframework.ai.embedding.EmbeddingModel;
 import org.springframework.ai.reader.TextReader;
 import org.springframework.ai.transformer.splitter.TokenTextSplitter;
-import org.springframework.ai.vectorstore.SimpleVectorStore;
 import org.springframework.ai.vectorstore.VectorStore;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
 import org.springframework.core.io.Resource;
+import org.springframework.util.DigestUtils;
+
+import java.io.IOException;
+import java.nio.file.Paths;
 
 /**
  * @author wangx
@@ -22,14 +26,24 @@ public class VectorStoreConfig {
     @Value("${rag.source:classpath:data/manual.txt}")
     private Resource ragSource;
 
+    @Value("${rag.snapshot-dir:data/vector-store}")
+    private String snapshotDir;
+
 
     @Bean
     @Primary
-    public VectorStore customVectorStore(EmbeddingModel embeddingModel) {
-        var chunks = new TokenTextSplitter().transform(new TextReader(ragSource).read());
-
-        SimpleVectorStore vectorStore = SimpleVectorStore.builder(embeddingModel).build();
-        vectorStore.write(chunks);
+    public VectorStore customVectorStore(EmbeddingModel embeddingModel) throws IOException {
+        // 以源文件哈希作为快照指纹，文件未变更时直接加载快照，不再重新向量化
+        SnapshotSimpleVectorStore vectorStore = SnapshotSimpleVectorStore.snapshotBuilder(embeddingModel)
+                .directory(Paths.get(snapshotDir))
+                .name("manual")
+                .fingerprint(DigestUtils.md5DigestAsHex(ragSource.getContentAsByteArray()))
+                .build();
+        if (!vectorStore.isComplete()) {
+            var chunks = new TokenTextSplitter().transform(new TextReader(ragSource).read());
+            vectorStore.write(chunks);
+            vectorStore.markComplete();
+        }
         return vectorStore;
     }
 }
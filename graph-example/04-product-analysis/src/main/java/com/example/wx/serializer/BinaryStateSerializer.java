@@ -0,0 +1,496 @@
+package com.example.wx.serializer;
+
+import com.alibaba.cloud.ai.graph.OverAllState;
+import com.alibaba.cloud.ai.graph.serializer.StateSerializer;
+import com.alibaba.cloud.ai.graph.state.AgentStateFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutput;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.io.StreamCorruptedException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.RecordComponent;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * @author wangx
+ * @description Binary StateSerializer with a registry of record types
+ * <p>
+ * The state map is encoded into a single length-prefixed block: tagged values, varint lengths and
+ * zig-zag varint integers, so there is no 64KB limit like {@link ObjectOutput#writeUTF(String)}.
+ * Registered records are written as their type id followed by the component values in declaration
+ * order, without field names or class names. Other {@link Serializable} values fall back to Java
+ * serialization; anything else is rejected.
+ * <p>
+ * {@link #cloneObject(OverAllState)} does not serialize: strings, boxed primitives, enums and
+ * records whose components are all immutable are shared, only mutable containers are copied.
+ * Register all record types before the serializer is used.
+ * @create 2026/10/19 23:10
+ */
+public class BinaryStateSerializer extends StateSerializer {
+
+    private static final byte FORMAT_VERSION = 1;
+
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte INTEGER = 2;
+    private static final byte LONG = 3;
+    private static final byte DOUBLE = 4;
+    private static final byte FLOAT = 5;
+    private static final byte TRUE = 6;
+    private static final byte FALSE = 7;
+    private static final byte LIST = 8;
+    private static final byte MAP = 9;
+    private static final byte RECORD = 10;
+    private static final byte SERIALIZABLE = 11;
+
+    /**
+     * Encode buffers above this size are not kept for reuse
+     */
+    private static final int MAX_POOLED_BUFFER = 1 << 20;
+
+    private static final Set<Class<?>> IMMUTABLE_TYPES = Set.of(String.class, Integer.class, Long.class,
+            Double.class, Float.class, Short.class, Byte.class, Boolean.class, Character.class);
+
+    private static final Set<Class<?>> IMMUTABLE_LISTS = Set.copyOf(List.of(List.of().getClass(),
+            List.of(1).getClass(), List.of(1, 2, 3).getClass(), Collections.emptyList().getClass(),
+            Collections.singletonList(1).getClass()));
+
+    private static final ThreadLocal<Encoder> ENCODERS = ThreadLocal.withInitial(Encoder::new);
+
+    private final Map<Class<?>, RecordType> typesByClass = new HashMap<>();
+
+    private final Map<Integer, RecordType> typesById = new HashMap<>();
+
+    public BinaryStateSerializer(AgentStateFactory<OverAllState> stateFactory) {
+        super(stateFactory);
+    }
+
+    /**
+     * Register a record type that may appear in the state
+     *
+     * @param typeId stable id written instead of the class name, must not change between versions
+     * @param type   record class
+     */
+    public BinaryStateSerializer register(int typeId, Class<? extends Record> type) {
+        if (typesById.containsKey(typeId) || typesByClass.containsKey(type)) {
+            throw new IllegalArgumentException("Duplicate record registration: " + typeId + " " + type.getName());
+        }
+        RecordType recordType = new RecordType(typeId, type);
+        typesByClass.put(type, recordType);
+        typesById.put(typeId, recordType);
+        return this;
+    }
+
+    @Override
+    public void writeData(Map<String, Object> data, ObjectOutput out) throws IOException {
+        Encoder encoder = ENCODERS.get();
+        encoder.reset();
+        try {
+            encoder.writeVarInt(data.size());
+            for (Map.Entry<String, Object> entry : data.entrySet()) {
+                encoder.writeString(entry.getKey());
+                writeValue(encoder, entry.getValue());
+            }
+            out.writeByte(FORMAT_VERSION);
+            int length = encoder.position;
+            while ((length & ~0x7F) != 0) {
+                out.writeByte((length & 0x7F) | 0x80);
+                length >>>= 7;
+            }
+            out.writeByte(length);
+            out.write(encoder.buffer, 0, encoder.position);
+        } finally {
+            if (encoder.buffer.length > MAX_POOLED_BUFFER) {
+                ENCODERS.remove();
+            }
+        }
+    }
+
+    @Override
+    public Map<String, Object> readData(ObjectInput in) throws IOException {
+        byte version = in.readByte();
+        if (version != FORMAT_VERSION) {
+            throw new StreamCorruptedException("Unsupported state format version: " + version);
+        }
+        int length = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in.readByte();
+            length |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                break;
+            }
+            if (shift >= 28) {
+                throw new StreamCorruptedException("Malformed state length");
+            }
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        Decoder decoder = new Decoder(bytes);
+        int size = decoder.readVarInt();
+        Map<String, Object> data = new HashMap<>(capacity(size));
+        for (int i = 0; i < size; i++) {
+            data.put(decoder.readString(), readValue(decoder));
+        }
+        return data;
+    }
+
+    @Override
+    public OverAllState cloneObject(OverAllState state) throws IOException {
+        Map<String, Object> data = state.data();
+        Map<String, Object> copy = new HashMap<>(capacity(data.size()));
+        for (Map.Entry<String, Object> entry : data.entrySet()) {
+            copy.put(entry.getKey(), copy(entry.getValue()));
+        }
+        return stateFactory().apply(copy);
+    }
+
+    private void writeValue(Encoder encoder, Object value) throws IOException {
+        if (value == null) {
+            encoder.writeByte(NULL);
+        } else if (value instanceof String string) {
+            encoder.writeByte(STRING);
+            encoder.writeString(string);
+        } else if (value instanceof Integer number) {
+            encoder.writeByte(INTEGER);
+            encoder.writeVarLong(zigZag(number));
+        } else if (value instanceof Long number) {
+            encoder.writeByte(LONG);
+            encoder.writeVarLong(zigZag(number));
+        } else if (value instanceof Double number) {
+            encoder.writeByte(DOUBLE);
+            encoder.writeLong(Double.doubleToRawLongBits(number));
+        } else if (value instanceof Float number) {
+            encoder.writeByte(FLOAT);
+            encoder.writeVarInt(Float.floatToRawIntBits(number));
+        } else if (value instanceof Boolean bool) {
+            encoder.writeByte(bool ? TRUE : FALSE);
+        } else if (value instanceof List<?> list) {
+            encoder.writeByte(LIST);
+            encoder.writeVarInt(list.size());
+            for (Object element : list) {
+                writeValue(encoder, element);
+            }
+        } else if (value instanceof Map<?, ?> map) {
+            encoder.writeByte(MAP);
+            encoder.writeVarInt(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                writeValue(encoder, entry.getKey());
+                writeValue(encoder, entry.getValue());
+            }
+        } else if (value instanceof Record && typesByClass.containsKey(value.getClass())) {
+            RecordType type = typesByClass.get(value.getClass());
+            encoder.writeByte(RECORD);
+            encoder.writeVarInt(type.id);
+            for (Method accessor : type.accessors) {
+                writeValue(encoder, type.get(accessor, value));
+            }
+        } else if (value instanceof Serializable) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+                out.writeObject(value);
+            }
+            encoder.writeByte(SERIALIZABLE);
+            encoder.writeVarInt(bytes.size());
+            encoder.writeBytes(bytes.toByteArray());
+        } else {
+            throw new IOException("Unsupported state value type " + value.getClass().getName()
+                    + ", register it with BinaryStateSerializer#register");
+        }
+    }
+
+    private Object readValue(Decoder decoder) throws IOException {
+        byte tag = decoder.readByte();
+        switch (tag) {
+            case NULL:
+                return null;
+            case STRING:
+                return decoder.readString();
+            case INTEGER:
+                return (int) unZigZag(decoder.readVarLong());
+            case LONG:
+                return unZigZag(decoder.readVarLong());
+            case DOUBLE:
+                return Double.longBitsToDouble(decoder.readLong());
+            case FLOAT:
+                return Float.intBitsToFloat(decoder.readVarInt());
+            case TRUE:
+                return Boolean.TRUE;
+            case FALSE:
+                return Boolean.FALSE;
+            case LIST: {
+                int size = decoder.readVarInt();
+                List<Object> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(readValue(decoder));
+                }
+                return list;
+            }
+            case MAP: {
+                int size = decoder.readVarInt();
+                Map<Object, Object> map = new LinkedHashMap<>(capacity(size));
+                for (int i = 0; i < size; i++) {
+                    map.put(readValue(decoder), readValue(decoder));
+                }
+                return map;
+            }
+            case RECORD: {
+                int typeId = decoder.readVarInt();
+                RecordType type = typesById.get(typeId);
+                if (type == null) {
+                    throw new StreamCorruptedException("Unknown record type id: " + typeId);
+                }
+                Object[] components = new Object[type.accessors.length];
+                for (int i = 0; i < components.length; i++) {
+                    components[i] = readValue(decoder);
+                }
+                return type.newInstance(components);
+            }
+            case SERIALIZABLE: {
+                int length = decoder.readVarInt();
+                try (ObjectInputStream in = new ObjectInputStream(
+                        new ByteArrayInputStream(decoder.buffer, decoder.position, length))) {
+                    decoder.position += length;
+                    return in.readObject();
+                } catch (ClassNotFoundException e) {
+                    throw new IOException(e);
+                }
+            }
+            default:
+                throw new StreamCorruptedException("Unknown value tag: " + tag);
+        }
+    }
+
+    /**
+     * Copy a state value, returning the same instance when it cannot be mutated
+     */
+    private Object copy(Object value) throws IOException {
+        if (value == null || IMMUTABLE_TYPES.contains(value.getClass()) || value instanceof Enum<?>) {
+            return value;
+        }
+        if (value instanceof List<?> list) {
+            List<Object> copy = new ArrayList<>(list.size());
+            boolean shared = IMMUTABLE_LISTS.contains(list.getClass());
+            for (Object element : list) {
+                Object copied = copy(element);
+                shared &= copied == element;
+                copy.add(copied);
+            }
+            return shared ? list : copy;
+        }
+        if (value instanceof Map<?, ?> map) {
+            Map<Object, Object> copy = new LinkedHashMap<>(capacity(map.size()));
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                copy.put(copy(entry.getKey()), copy(entry.getValue()));
+            }
+            return copy;
+        }
+        RecordType type = typesByClass.get(value.getClass());
+        if (type != null) {
+            Object[] components = new Object[type.accessors.length];
+            boolean shared = true;
+            for (int i = 0; i < components.length; i++) {
+                Object component = type.get(type.accessors[i], value);
+                components[i] = copy(component);
+                shared &= components[i] == component;
+            }
+            return shared ? value : type.newInstance(components);
+        }
+        // Unregistered values take the full serialization round trip
+        Encoder encoder = new Encoder();
+        writeValue(encoder, value);
+        return readValue(new Decoder(Arrays.copyOf(encoder.buffer, encoder.position)));
+    }
+
+    private static int capacity(int size) {
+        return (int) (size / 0.75f) + 1;
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static final class RecordType {
+
+        private final int id;
+
+        private final Method[] accessors;
+
+        private final Constructor<?> constructor;
+
+        private RecordType(int id, Class<? extends Record> type) {
+            RecordComponent[] components = type.getRecordComponents();
+            Class<?>[] parameterTypes = new Class<?>[components.length];
+            this.id = id;
+            this.accessors = new Method[components.length];
+            for (int i = 0; i < components.length; i++) {
+                accessors[i] = components[i].getAccessor();
+                accessors[i].setAccessible(true);
+                parameterTypes[i] = components[i].getType();
+            }
+            try {
+                this.constructor = type.getDeclaredConstructor(parameterTypes);
+                this.constructor.setAccessible(true);
+            } catch (NoSuchMethodException e) {
+                throw new IllegalArgumentException("No canonical constructor for " + type.getName(), e);
+            }
+        }
+
+        private Object get(Method accessor, Object value) throws IOException {
+            try {
+                return accessor.invoke(value);
+            } catch (IllegalAccessException | InvocationTargetException e) {
+                throw new IOException("Cannot read record component " + accessor.getName(), e);
+            }
+        }
+
+        private Object newInstance(Object[] components) throws IOException {
+            try {
+                return constructor.newInstance(components);
+            } catch (ReflectiveOperationException | IllegalArgumentException e) {
+                throw new IOException("Cannot create record " + constructor.getDeclaringClass().getName(), e);
+            }
+        }
+    }
+
+    /**
+     * Growable byte buffer, reused per thread by {@link #writeData(Map, ObjectOutput)}
+     */
+    private static final class Encoder {
+
+        private byte[] buffer = new byte[512];
+
+        private int position;
+
+        private void reset() {
+            position = 0;
+        }
+
+        private void ensure(int extra) {
+            if (position + extra > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length << 1, position + extra));
+            }
+        }
+
+        private void writeByte(int value) {
+            ensure(1);
+            buffer[position++] = (byte) value;
+        }
+
+        private void writeBytes(byte[] bytes) {
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+            position += bytes.length;
+        }
+
+        private void writeVarInt(int value) {
+            writeVarLong(value & 0xFFFFFFFFL);
+        }
+
+        private void writeVarLong(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        private void writeLong(long value) {
+            ensure(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                buffer[position++] = (byte) (value >>> shift);
+            }
+        }
+
+        private void writeString(String value) {
+            int length = value.length();
+            // ASCII is copied char by char, otherwise fall back to the JDK encoder
+            ensure(5 + length);
+            int start = position;
+            writeVarInt(length);
+            for (int i = 0; i < length; i++) {
+                char c = value.charAt(i);
+                if (c >= 0x80) {
+                    position = start;
+                    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                    writeVarInt(bytes.length);
+                    writeBytes(bytes);
+                    return;
+                }
+                buffer[position++] = (byte) c;
+            }
+        }
+    }
+
+    private static final class Decoder {
+
+        private final byte[] buffer;
+
+        private int position;
+
+        private Decoder(byte[] buffer) {
+            this.buffer = buffer;
+        }
+
+        private byte readByte() throws IOException {
+            if (position >= buffer.length) {
+                throw new StreamCorruptedException("Unexpected end of state data");
+            }
+            return buffer[position++];
+        }
+
+        private int readVarInt() throws IOException {
+            return (int) readVarLong();
+        }
+
+        private long readVarLong() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new StreamCorruptedException("Malformed varint");
+        }
+
+        private long readLong() throws IOException {
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value = (value << 8) | (readByte() & 0xFF);
+            }
+            return value;
+        }
+
+        private String readString() throws IOException {
+            int length = readVarInt();
+            if (length < 0 || position + length > buffer.length) {
+                throw new StreamCorruptedException("Invalid string length: " + length);
+            }
+            String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.wx;
+
+import com.alibaba.cloud.ai.graph.OverAllState;
+import com.alibaba.cloud.ai.graph.serializer.StateSerializer;
+import com.alibaba.cloud.ai.graph.serializer.plain_text.PlainTextStateSerializer;
+import com.alibaba.cloud.ai.graph.state.AgentStateFactory;
+import com.example.wx.model.Product;
+import com.example.wx.serializer.ProductStateSerializer;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutput;
+import java.io.ObjectOutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author wangx
+ * @description Serialize / deserialize / clone throughput and allocation of ProductStateSerializer
+ * <p>
+ * Usage: StateSerializerBenchmark [measure millis per case, default 2000]
+ * Compares the binary ProductStateSerializer with the previous JSON-in-writeUTF implementation
+ * (kept inline as {@link JsonStateSerializer}) on the product graph state and on a large state
+ * with a 200KB description and 500 products. Allocation is measured per thread with
+ * com.sun.management.ThreadMXBean.
+ * @create 2026/10/19 23:40
+ */
+public class StateSerializerBenchmark {
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) throws Exception {
+        long measureMillis = args.length > 0 ? Long.parseLong(args[0]) : 2000;
+        AgentStateFactory<OverAllState> stateFactory = OverAllState::new;
+        Map<String, StateSerializer> serializers = Map.of(
+                "json", new JsonStateSerializer(stateFactory),
+                "binary", new ProductStateSerializer(stateFactory));
+
+        for (Map.Entry<String, Map<String, Object>> state : Map.of("product", productState(),
+                "large", largeState()).entrySet()) {
+            for (String name : List.of("json", "binary")) {
+                StateSerializer serializer = serializers.get(name);
+                byte[] bytes;
+                try {
+                    bytes = serialize(serializer, state.getValue());
+                } catch (IOException e) {
+                    System.out.printf("%-7s %-6s serialize failed: %s%n", state.getKey(), name, e);
+                    continue;
+                }
+                OverAllState overAllState = new OverAllState(state.getValue());
+                System.out.printf("%-7s %-6s %8d bytes | serialize %s | deserialize %s | clone %s%n",
+                        state.getKey(), name, bytes.length,
+                        measure(measureMillis, () -> serialize(serializer, state.getValue())),
+                        measure(measureMillis, () -> deserialize(serializer, bytes)),
+                        measure(measureMillis, () -> serializer.cloneObject(overAllState)));
+            }
+        }
+    }
+
+    private static Map<String, Object> productState() {
+        Map<String, Object> state = new HashMap<>();
+        state.put("productDesc", """
+                Introducing our new **EcoBreeze Smart Jacket** — a perfect blend of technology and comfort.
+                Crafted with lightweight, water-resistant fabric, this jacket features built-in temperature control and adjustable ventilation zones.
+                Designed for both men and women, it’s available in navy blue, charcoal gray, and forest green.
+                Ideal for spring and autumn adventures, commuting, or casual outings.
+                """);
+        state.put("slogan", "Stay cool, stay dry, stay smart.");
+        state.put("productSpec", new Product(null, "water-resistant fabric",
+                new ArrayList<>(List.of("navy blue", "charcoal gray", "forest green")), "spring, autumn"));
+        state.put("finalProduct", new Product("Stay cool, stay dry, stay smart.", "water-resistant fabric",
+                new ArrayList<>(List.of("navy blue", "charcoal gray", "forest green")), "spring, autumn"));
+        return state;
+    }
+
+    private static Map<String, Object> largeState() {
+        Map<String, Object> state = productState();
+        state.put("productDesc", "EcoBreeze Smart Jacket, lightweight and water-resistant. ".repeat(3600));
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            products.add(new Product("slogan " + i, "material " + i, List.of("navy blue", "forest green"), "autumn"));
+        }
+        state.put("products", products);
+        return state;
+    }
+
+    private static byte[] serialize(StateSerializer serializer, Map<String, Object> data) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            serializer.writeData(data, out);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Object deserialize(StateSerializer serializer, byte[] bytes) throws Exception {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return serializer.readData(in);
+        }
+    }
+
+    private static String measure(long millis, Task task) throws Exception {
+        // Warm up for the same duration before measuring
+        long warmupEnd = System.nanoTime() + millis * 1_000_000;
+        while (System.nanoTime() < warmupEnd) {
+            task.run();
+        }
+        long threadId = Thread.currentThread().getId();
+        long allocatedBefore = THREADS.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        long end = start + millis * 1_000_000;
+        long ops = 0;
+        while (System.nanoTime() < end) {
+            task.run();
+            ops++;
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long allocated = THREADS.getThreadAllocatedBytes(threadId) - allocatedBefore;
+        return String.format("%9.0f ops/s %8d B/op", ops / seconds, allocated / ops);
+    }
+
+    @FunctionalInterface
+    private interface Task {
+        Object run() throws Exception;
+    }
+
+    /**
+     * The previous ProductStateSerializer: JSON with default typing written through writeUTF
+     */
+    private static class JsonStateSerializer extends PlainTextStateSerializer {
+
+        private final ObjectMapper mapper;
+
+        JsonStateSerializer(AgentStateFactory<OverAllState> stateFactory) {
+            super(stateFactory);
+            this.mapper = new ObjectMapper();
+            this.mapper.activateDefaultTyping(this.mapper.getPolymorphicTypeValidator(),
+                    ObjectMapper.DefaultTyping.NON_FINAL, JsonTypeInfo.As.PROPERTY);
+            this.mapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
+        }
+
+        @Override
+        public void writeData(Map<String, Object> data, ObjectOutput out) throws IOException {
+            out.writeUTF(mapper.writeValueAsString(data));
+        }
+
+        @Override
+        public Map<String, Object> readData(ObjectInput in) throws IOException {
+            return mapper.readValue(in.readUTF(), new TypeReference<Map<String, Object>>() {
+            });
+        }
+
+        @Override
+        public OverAllState cloneObject(OverAllState state) throws IOException {
+            String json = mapper.writeValueAsString(state.data());
+            return stateFactory().apply(mapper.readValue(json, new TypeReference<Map<String, Object>>() {
+            }));
+        }
+    }
+}
@@ -8,14 +8,18 @@ import com.example.wx.controller.process.GraphProcess;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.http.MediaType;
-import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -27,17 +31,25 @@ public class GraphStreamController {
     @Autowired
     private CompiledGraph compiledGraph;
 
+    @Value("${graph.sse.flush-interval:50ms}")
+    private Duration flushInterval;
+
+    @Value("${graph.sse.max-batch-size:256}")
+    private int maxBatchSize;
+
     /**
      * Stream graph processing execution
      * @param input the input content to process
      * @param threadId the thread ID for processing isolation
-     * @return SSE streaming output
+     * @param response the response the SSE frames are written to
+     * @return completion of the SSE streaming output
      * @throws GraphRunnerException if graph execution fails
      */
     @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
-    public Flux<ServerSentEvent<String>> stream(
+    public Mono<Void> stream(
             @RequestParam(value = "prompt", defaultValue = "请分析这段文本：人工智能的发展") String input,
-            @RequestParam(value = "thread_id", defaultValue = "observability", required = false) String threadId)
+            @RequestParam(value = "thread_id", defaultValue = "observability", required = false) String threadId,
+            ServerHttpResponse response)
             throws GraphRunnerException {
 
         logger.info("Starting streaming graph execution, input: {}, thread ID: {}", input, threadId);
@@ -50,16 +62,20 @@ public class GraphStreamController {
         initialState.put("input", input);
 
         // Create graph processor
-        GraphProcess graphProcess = new GraphProcess();
+        GraphProcess graphProcess = new GraphProcess(flushInterval, maxBatchSize);
 
         // Get streaming output
         Flux<NodeOutput> resultStream = compiledGraph.stream(initialState, runnableConfig);
 
 
         // 直接返回 Reactor 风格的 Flux，保证 trace context 传播
-        return graphProcess.processStream(resultStream)
+        // Encoded SSE frames go straight into response buffers, flushed once per batch
+        response.getHeaders().setContentType(MediaType.TEXT_EVENT_STREAM);
+        Flux<Flux<DataBuffer>> frames = graphProcess.processStream(resultStream, response.bufferFactory())
                 .doOnCancel(() -> logger.info("Client disconnected from streaming"))
                 .doOnError(e -> logger.error("Error occurred during streaming output", e))
-                .doOnComplete(() -> logger.info("Streaming output completed"));
+                .doOnComplete(() -> logger.info("Streaming output completed"))
+                .map(Flux::just);
+        return response.writeAndFlushWith(frames);
     }
 }
\ No newline at end of file
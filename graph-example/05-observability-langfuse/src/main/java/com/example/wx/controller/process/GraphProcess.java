@@ -2,14 +2,17 @@ package com.example.wx.controller.process;
 
 import com.alibaba.cloud.ai.graph.NodeOutput;
 import com.alibaba.cloud.ai.graph.streaming.StreamingOutput;
-import com.alibaba.fastjson.JSON;
-import com.alibaba.fastjson.JSONObject;
+import com.example.wx.controller.process.SseEventEncoder.GraphEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
-import java.util.Map;
+import java.time.Duration;
+import java.util.List;
 
 /**
  * @author wangx
@@ -20,62 +23,50 @@ public class GraphProcess {
 
     private static final Logger logger = LoggerFactory.getLogger(GraphProcess.class);
 
-    public GraphProcess() {
-    }
+    private final Duration flushInterval;
 
+    private final int maxBatchSize;
 
-    public Flux<ServerSentEvent<String>> processStream(Flux<NodeOutput> generator) {
-        return Flux.create(sink -> processNext(generator, sink));
+    /**
+     * @param flushInterval outputs arriving within this interval are written and flushed together, zero flushes every output
+     * @param maxBatchSize  flush early once this many outputs are pending
+     */
+    public GraphProcess(Duration flushInterval, int maxBatchSize) {
+        this.flushInterval = flushInterval;
+        this.maxBatchSize = maxBatchSize;
     }
 
-    public void processNext(Flux<NodeOutput> generator,
-                            reactor.core.publisher.FluxSink<ServerSentEvent<String>> sink) {
-        generator.subscribe(
-                output -> {
-                    logger.info("processNext: output node={}, output class={}, output={}",
-                            output != null ? output.node() : null,
-                            output != null ? output.getClass().getName() : null,
-                            output
-                    );
-
-                    String content;
-                    if (output instanceof StreamingOutput streamingOutput) {
-                        content = JSON.toJSONString(Map.of("type", "streaming", "node", output.node(), "chunk", streamingOutput.chunk(),
-                                "timestamp", System.currentTimeMillis()));
-                    } else {
-                        JSONObject jsonObject = new JSONObject();
-                        jsonObject.put("type", "node_output");
-                        jsonObject.put("node", output.node());
-                        jsonObject.put("data", output.state().data());
-                        jsonObject.put("timestamp", System.currentTimeMillis());
-                        content = JSON.toJSONString(jsonObject);
-                    }
-                    logger.debug("processNext: emitting SSE event for node {}",
-                            output != null ? output.node() : null);
+    /**
+     * Encode the graph outputs as SSE frames, one buffer per flush
+     */
+    public Flux<DataBuffer> processStream(Flux<NodeOutput> generator, DataBufferFactory bufferFactory) {
+        SseEventEncoder encoder = new SseEventEncoder(bufferFactory);
+        Flux<GraphEvent> events = generator.map(this::toEvent);
+        Flux<List<GraphEvent>> batches = flushInterval.isZero()
+                ? events.map(List::of)
+                // fair backpressure: request from upstream only as fast as the client drains, instead of unbounded
+                : events.bufferTimeout(maxBatchSize, flushInterval, true);
+        return batches
+                .map(encoder::encode)
+                .concatWith(Mono.fromSupplier(() -> {
+                    logger.debug("processStream: Graph processing completed");
+                    return encoder.completed();
+                }))
+                .onErrorResume(error -> {
+                    logger.error("processStream: Error occurred in data stream", error);
+                    return Mono.just(encoder.error(error));
+                })
+                .doOnDiscard(DataBuffer.class, DataBufferUtils::release);
+    }
 
-                    sink.next(ServerSentEvent.builder(content)
-                            .event("node_output")
-                            .id(output.node() + "_" + System.currentTimeMillis())
-                            .build());
-                },
-                error -> {
-                    logger.error("processNext: Error occurred in data stream", error);
-                    sink.next(ServerSentEvent.builder("{\"type\":\"error\",\"message\":\"" + error.getMessage() + "\"}")
-                            .event("error")
-                            .build());
-                    sink.next(ServerSentEvent.builder("{\"type\":\"completed\",\"message\":\"Graph processing completed with error\"}")
-                            .event("completed")
-                            .build());
-                    sink.complete();
-                },
-                () -> {
-                    logger.debug("processNext: Graph processing completed");
-                    sink.next(ServerSentEvent.builder("{\"type\":\"completed\",\"message\":\"Graph processing completed\"}")
-                            .event("completed")
-                            .build());
-                    sink.complete();
-                }
-        );
+    private GraphEvent toEvent(NodeOutput output) {
+        if (output instanceof StreamingOutput streamingOutput) {
+            // Logged per token, keep it at trace level
+            logger.trace("processStream: chunk from node {}", output.node());
+            return GraphEvent.chunk(output.node(), streamingOutput.chunk());
+        }
+        logger.info("processStream: output node={}, output class={}", output.node(), output.getClass().getName());
+        return GraphEvent.state(output.node(), output.state().data());
     }
 
 }
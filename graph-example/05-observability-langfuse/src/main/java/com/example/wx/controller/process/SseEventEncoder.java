@@ -0,0 +1,247 @@
+package com.example.wx.controller.process;
+
+import com.alibaba.fastjson.JSON;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * @author wangx
+ * @description Encodes graph outputs of one stream into SSE frames
+ * <p>
+ * Frames are written into a scratch byte array owned by the encoder and copied once into a buffer from
+ * the response's {@link DataBufferFactory} (pooled on Reactor Netty), so no ServerSentEvent, String
+ * payload or per-event JSONObject is created. Each call to {@link #encode(List)} produces one buffer,
+ * which is written and flushed together:
+ * <ul>
+ *   <li>consecutive streaming chunks of the same node in a batch are merged into one {@code streaming} event</li>
+ *   <li>{@code node_output} events carry only the state keys that changed since the previous node output
+ *   ({@code delta}) and the keys that disappeared ({@code removed}); the first one carries the whole state</li>
+ * </ul>
+ * Not thread-safe, create one per stream.
+ * @create 2026/10/20 10:20
+ */
+public class SseEventEncoder {
+
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private final DataBufferFactory bufferFactory;
+
+    private final Map<String, Object> sentState = new HashMap<>();
+
+    private final StringBuilder pendingChunk = new StringBuilder();
+
+    private String pendingNode;
+
+    private byte[] scratch = new byte[1024];
+
+    private int length;
+
+    public SseEventEncoder(DataBufferFactory bufferFactory) {
+        this.bufferFactory = bufferFactory;
+    }
+
+    /**
+     * A graph output: a streaming chunk when {@code chunk} is not null, otherwise the node's state
+     */
+    public record GraphEvent(String node, String chunk, Map<String, Object> data) {
+
+        public static GraphEvent chunk(String node, String chunk) {
+            return new GraphEvent(node, chunk, null);
+        }
+
+        public static GraphEvent state(String node, Map<String, Object> data) {
+            return new GraphEvent(node, null, data);
+        }
+    }
+
+    /**
+     * Encode a batch of outputs into one buffer
+     */
+    public DataBuffer encode(List<GraphEvent> events) {
+        length = 0;
+        long timestamp = System.currentTimeMillis();
+        for (GraphEvent event : events) {
+            if (event.chunk() != null) {
+                if (pendingNode != null && !pendingNode.equals(event.node())) {
+                    writePendingChunk(timestamp);
+                }
+                pendingNode = event.node();
+                pendingChunk.append(event.chunk());
+            } else {
+                writePendingChunk(timestamp);
+                writeNodeOutput(event.node(), event.data(), timestamp);
+            }
+        }
+        writePendingChunk(timestamp);
+        return toBuffer();
+    }
+
+    public DataBuffer completed() {
+        length = 0;
+        writeFrame("completed", "{\"type\":\"completed\",\"message\":\"Graph processing completed\"}");
+        return toBuffer();
+    }
+
+    public DataBuffer error(Throwable error) {
+        length = 0;
+        writeFrame("error", JSON.toJSONString(Map.of("type", "error",
+                "message", String.valueOf(error.getMessage()))));
+        writeFrame("completed",
+                "{\"type\":\"completed\",\"message\":\"Graph processing completed with error\"}");
+        return toBuffer();
+    }
+
+    private void writePendingChunk(long timestamp) {
+        if (pendingNode == null) {
+            return;
+        }
+        writeHeader(pendingNode, timestamp, "node_output");
+        writeAscii("data:{\"type\":\"streaming\",\"node\":");
+        writeJsonString(pendingNode);
+        writeAscii(",\"chunk\":");
+        writeJsonString(pendingChunk);
+        writeAscii(",\"timestamp\":");
+        writeAscii(Long.toString(timestamp));
+        writeAscii("}\n\n");
+        pendingNode = null;
+        pendingChunk.setLength(0);
+    }
+
+    private void writeNodeOutput(String node, Map<String, Object> data, long timestamp) {
+        Map<String, Object> delta = new LinkedHashMap<>();
+        List<String> removed = new ArrayList<>();
+        for (Map.Entry<String, Object> entry : data.entrySet()) {
+            Object previous = sentState.get(entry.getKey());
+            if (previous != entry.getValue()
+                    && (!sentState.containsKey(entry.getKey()) || !Objects.equals(previous, entry.getValue()))) {
+                delta.put(entry.getKey(), entry.getValue());
+            }
+        }
+        for (String key : sentState.keySet()) {
+            if (!data.containsKey(key)) {
+                removed.add(key);
+            }
+        }
+        sentState.clear();
+        sentState.putAll(data);
+
+        writeHeader(node, timestamp, "node_output");
+        writeAscii("data:{\"type\":\"node_output\",\"node\":");
+        writeJsonString(node);
+        writeAscii(",\"delta\":");
+        writeBytes(JSON.toJSONBytes(delta));
+        writeAscii(",\"removed\":");
+        writeBytes(JSON.toJSONBytes(removed));
+        writeAscii(",\"timestamp\":");
+        writeAscii(Long.toString(timestamp));
+        writeAscii("}\n\n");
+    }
+
+    private void writeHeader(String node, long timestamp, String event) {
+        writeAscii("id:");
+        writeUtf8(node);
+        writeAscii("_");
+        writeAscii(Long.toString(timestamp));
+        writeAscii("\nevent:");
+        writeAscii(event);
+        writeAscii("\n");
+    }
+
+    private void writeFrame(String event, String data) {
+        writeAscii("event:");
+        writeAscii(event);
+        writeAscii("\ndata:");
+        writeUtf8(data);
+        writeAscii("\n\n");
+    }
+
+    private DataBuffer toBuffer() {
+        DataBuffer buffer = bufferFactory.allocateBuffer(length);
+        buffer.write(scratch, 0, length);
+        return buffer;
+    }
+
+    private void ensure(int extra) {
+        if (length + extra > scratch.length) {
+            scratch = Arrays.copyOf(scratch, Math.max(scratch.length << 1, length + extra));
+        }
+    }
+
+    private void writeBytes(byte[] bytes) {
+        ensure(bytes.length);
+        System.arraycopy(bytes, 0, scratch, length, bytes.length);
+        length += bytes.length;
+    }
+
+    private void writeAscii(String value) {
+        int size = value.length();
+        ensure(size);
+        for (int i = 0; i < size; i++) {
+            scratch[length++] = (byte) value.charAt(i);
+        }
+    }
+
+    private void writeUtf8(String value) {
+        writeBytes(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Write a JSON string literal as UTF-8; control characters are escaped so the frame stays on one line
+     */
+    private void writeJsonString(CharSequence value) {
+        int size = value.length();
+        // Worst case: 6 bytes per escaped char, 3 bytes per BMP char
+        ensure(size * 6 + 2);
+        scratch[length++] = '"';
+        for (int i = 0; i < size; i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                scratch[length++] = '\\';
+                scratch[length++] = (byte) c;
+            } else if (c == '\n') {
+                scratch[length++] = '\\';
+                scratch[length++] = 'n';
+            } else if (c == '\r') {
+                scratch[length++] = '\\';
+                scratch[length++] = 'r';
+            } else if (c == '\t') {
+                scratch[length++] = '\\';
+                scratch[length++] = 't';
+            } else if (c < 0x20 || c == 0x2028 || c == 0x2029) {
+                scratch[length++] = '\\';
+                scratch[length++] = 'u';
+                scratch[length++] = HEX[(c >> 12) & 0xF];
+                scratch[length++] = HEX[(c >> 8) & 0xF];
+                scratch[length++] = HEX[(c >> 4) & 0xF];
+                scratch[length++] = HEX[c & 0xF];
+            } else if (c < 0x80) {
+                scratch[length++] = (byte) c;
+            } else if (c < 0x800) {
+                scratch[length++] = (byte) (0xC0 | (c >> 6));
+                scratch[length++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < size && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                scratch[length++] = (byte) (0xF0 | (codePoint >> 18));
+                scratch[length++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                scratch[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                scratch[length++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                scratch[length++] = '?';
+            } else {
+                scratch[length++] = (byte) (0xE0 | (c >> 12));
+                scratch[length++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                scratch[length++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        scratch[length++] = '"';
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.wx;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import com.example.wx.controller.process.SseEventEncoder;
+import com.example.wx.controller.process.SseEventEncoder.GraphEvent;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.http.codec.ServerSentEvent;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author wangx
+ * @description Bytes on the wire and CPU per streamed token: previous GraphProcess vs SseEventEncoder
+ * <p>
+ * Usage: SseEncoderBenchmark [tokens per node, default 500] [tokens per flush interval, default 10] [rounds, default 200]
+ * Simulates the observability graph: three streaming nodes, each followed by a node output whose state
+ * holds the input and every node's full text so far. The previous path builds a JSONObject / Map per
+ * output, serializes it with fastjson, wraps it in a ServerSentEvent and renders the SSE frame as a String
+ * (as ServerSentEventHttpMessageWriter does). The new path batches outputs as bufferTimeout would with the
+ * given number of tokens per flush interval and encodes each batch into one pooled Netty buffer.
+ * CPU and allocation are measured on the benchmark thread with com.sun.management.ThreadMXBean.
+ * @create 2026/10/20 11:40
+ */
+public class SseEncoderBenchmark {
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static final List<String> NODES = List.of("chat_node", "streaming_chat_node", "merge_node");
+
+    public static void main(String[] args) {
+        int tokensPerNode = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        int tokensPerFlush = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+        List<GraphEvent> events = events(tokensPerNode);
+        long tokens = (long) tokensPerNode * NODES.size();
+
+        for (int warmup = 0; warmup < 2; warmup++) {
+            run("previous", rounds, tokens, () -> previous(events));
+            run("encoder(1)", rounds, tokens, () -> encoded(events, 1));
+            run("encoder(" + tokensPerFlush + ")", rounds, tokens, () -> encoded(events, tokensPerFlush));
+            if (warmup == 0) {
+                System.out.println("--- after warmup ---");
+            }
+        }
+    }
+
+    private static void run(String name, int rounds, long tokens, Round round) {
+        long cpuBefore = THREADS.getCurrentThreadCpuTime();
+        long allocatedBefore = THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+        long bytes = 0;
+        for (int i = 0; i < rounds; i++) {
+            bytes = round.run();
+        }
+        long cpu = THREADS.getCurrentThreadCpuTime() - cpuBefore;
+        long allocated = THREADS.getThreadAllocatedBytes(Thread.currentThread().getId()) - allocatedBefore;
+        System.out.printf("%-14s wire %8d bytes/stream (%5.1f B/token) | CPU %7.0f ns/token | alloc %7d B/token%n",
+                name, bytes, bytes / (double) tokens, cpu / (double) (rounds * tokens), allocated / (rounds * tokens));
+    }
+
+    /**
+     * The previous GraphProcess#processNext, rendered to the bytes the SSE writer sends
+     */
+    private static long previous(List<GraphEvent> events) {
+        long bytes = 0;
+        for (GraphEvent event : events) {
+            String content;
+            if (event.chunk() != null) {
+                content = JSON.toJSONString(Map.of("type", "streaming", "node", event.node(), "chunk", event.chunk(),
+                        "timestamp", System.currentTimeMillis()));
+            } else {
+                JSONObject jsonObject = new JSONObject();
+                jsonObject.put("type", "node_output");
+                jsonObject.put("node", event.node());
+                jsonObject.put("data", event.data());
+                jsonObject.put("timestamp", System.currentTimeMillis());
+                content = JSON.toJSONString(jsonObject);
+            }
+            ServerSentEvent<String> sse = ServerSentEvent.builder(content)
+                    .event("node_output")
+                    .id(event.node() + "_" + System.currentTimeMillis())
+                    .build();
+            String frame = "id:" + sse.id() + "\nevent:" + sse.event() + "\ndata:" + sse.data() + "\n\n";
+            bytes += frame.getBytes(StandardCharsets.UTF_8).length;
+        }
+        return bytes;
+    }
+
+    private static long encoded(List<GraphEvent> events, int tokensPerFlush) {
+        SseEventEncoder encoder = new SseEventEncoder(new NettyDataBufferFactory(PooledByteBufAllocator.DEFAULT));
+        long bytes = 0;
+        List<GraphEvent> batch = new ArrayList<>();
+        for (GraphEvent event : events) {
+            batch.add(event);
+            if (batch.size() >= tokensPerFlush || event.chunk() == null) {
+                bytes += write(encoder.encode(batch));
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            bytes += write(encoder.encode(batch));
+        }
+        return bytes + write(encoder.completed());
+    }
+
+    private static long write(DataBuffer buffer) {
+        long size = buffer.readableByteCount();
+        DataBufferUtils.release(buffer);
+        return size;
+    }
+
+    private static List<GraphEvent> events(int tokensPerNode) {
+        String[] words = {"人工", "智能", "的发展", " is", " driven", " by", " data", "，", "算力", "和", "算法", "。\n"};
+        List<GraphEvent> events = new ArrayList<>();
+        Map<String, Object> state = new HashMap<>();
+        state.put("input", "请分析这段文本：人工智能的发展");
+        for (String node : NODES) {
+            StringBuilder text = new StringBuilder();
+            for (int i = 0; i < tokensPerNode; i++) {
+                String token = words[i % words.length];
+                text.append(token);
+                events.add(GraphEvent.chunk(node, token));
+            }
+            state = new HashMap<>(state);
+            state.put(node + "_result", text.toString());
+            events.add(GraphEvent.state(node, state));
+        }
+        return events;
+    }
+
+    @FunctionalInterface
+    private interface Round {
+        long run();
+    }
+}
@@ -7,11 +7,11 @@ import com.alibaba.cloud.ai.graph.RunnableConfig;
 import com.alibaba.cloud.ai.graph.StateGraph;
 import com.alibaba.cloud.ai.graph.action.InterruptionMetadata;
 import com.alibaba.cloud.ai.graph.checkpoint.config.SaverConfig;
-import com.alibaba.cloud.ai.graph.checkpoint.savers.MemorySaver;
 import com.alibaba.cloud.ai.graph.exception.GraphStateException;
 import com.alibaba.cloud.ai.graph.state.StateSnapshot;
 import com.example.wx.dto.GraphRequest;
 import com.example.wx.dto.Result;
+import com.example.wx.graph.checkpoint.FileCheckpointSaver;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -34,8 +34,8 @@ public class TestController {
     private final CompiledGraph compiledGraph;
     AtomicReference<NodeOutput> lastOutputRef = new AtomicReference<>();
 
-    public TestController(@Qualifier("slotAnalysisGraph") StateGraph slotAnalysisGraph) throws GraphStateException {
-        var saver = new MemorySaver();
+    public TestController(@Qualifier("slotAnalysisGraph") StateGraph slotAnalysisGraph,
+                          FileCheckpointSaver saver) throws GraphStateException {
         var compileConfig = CompileConfig.builder()
                 .saverConfig(SaverConfig.builder()
                         .register(saver)
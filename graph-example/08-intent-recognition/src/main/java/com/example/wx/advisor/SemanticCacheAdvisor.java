@@ -0,0 +1,330 @@
+package com.example.wx.advisor;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.client.ChatClientMessageAggregator;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisorChain;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.model.tool.ToolCallingChatOptions;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 语义缓存 Advisor
+ * <p>
+ * 将 prompt 中的 user 消息向量化，在进程内向量索引中查找相似度超过阈值且未过期的历史回答，
+ * 命中时直接返回缓存的 {@link ChatResponse}（流式调用以单元素 Flux 回放），未命中时调用模型并写入缓存。
+ * <ul>
+ *   <li>索引按「模型 + 非 user 消息」分区，system prompt 不同的节点互不命中</li>
+ *   <li>携带工具的请求与含工具调用的响应不缓存</li>
+ *   <li>容量达到上限后按 LRU 淘汰，过期条目在访问时清理</li>
+ * </ul>
+ *
+ * @author wangx
+ * @create 2026/10/18 11:05
+ */
+public class SemanticCacheAdvisor implements CallAdvisor, StreamAdvisor {
+
+    private static final Logger log = LoggerFactory.getLogger(SemanticCacheAdvisor.class);
+
+    private static final String METRIC_NAME = "graph.semantic.cache";
+
+    private final EmbeddingModel embeddingModel;
+
+    private final double similarityThreshold;
+
+    private final long ttlMillis;
+
+    private final int maxEntries;
+
+    private final int order;
+
+    private final boolean enabled;
+
+    /**
+     * access-order 的 LinkedHashMap 即 LRU 队列，读写均在 synchronized(this.index) 下进行
+     */
+    private final LinkedHashMap<Long, CacheEntry> index;
+
+    private long sequence = 0;
+
+    private final Counter hitCounter;
+
+    private final Counter missCounter;
+
+    private final Counter evictionCounter;
+
+    private SemanticCacheAdvisor(Builder builder) {
+        Assert.notNull(builder.embeddingModel, "embeddingModel cannot be null");
+        Assert.isTrue(builder.maxEntries > 0, "maxEntries must be greater than 0");
+        this.embeddingModel = builder.embeddingModel;
+        this.similarityThreshold = builder.similarityThreshold;
+        this.ttlMillis = builder.ttl.toMillis();
+        this.maxEntries = builder.maxEntries;
+        this.order = builder.order;
+        this.enabled = builder.enabled;
+        this.index = new LinkedHashMap<>(16, 0.75f, true);
+
+        MeterRegistry registry = builder.meterRegistry != null ? builder.meterRegistry : Metrics.globalRegistry;
+        this.hitCounter = Counter.builder(METRIC_NAME).tag("result", "hit").register(registry);
+        this.missCounter = Counter.builder(METRIC_NAME).tag("result", "miss").register(registry);
+        this.evictionCounter = Counter.builder(METRIC_NAME + ".evictions").register(registry);
+        Gauge.builder(METRIC_NAME + ".size", this, SemanticCacheAdvisor::size).register(registry);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public String getName() {
+        return this.getClass().getSimpleName();
+    }
+
+    @Override
+    public int getOrder() {
+        return this.order;
+    }
+
+    @Override
+    public ChatClientResponse adviseCall(ChatClientRequest chatClientRequest, CallAdvisorChain chain) {
+        if (!cacheable(chatClientRequest)) {
+            return chain.nextCall(chatClientRequest);
+        }
+        CacheKey key = toCacheKey(chatClientRequest);
+        ChatResponse cached = lookup(key);
+        if (cached != null) {
+            return ChatClientResponse.builder().chatResponse(cached).context(chatClientRequest.context()).build();
+        }
+        ChatClientResponse response = chain.nextCall(chatClientRequest);
+        store(key, response.chatResponse());
+        return response;
+    }
+
+    @Override
+    public Flux<ChatClientResponse> adviseStream(ChatClientRequest chatClientRequest, StreamAdvisorChain chain) {
+        if (!cacheable(chatClientRequest)) {
+            return chain.nextStream(chatClientRequest);
+        }
+        // 向量化为阻塞调用，放到 boundedElastic 上执行，避免占用上游的事件线程
+        return Mono.fromCallable(() -> toCacheKey(chatClientRequest))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMapMany(key -> {
+                    ChatResponse cached = lookup(key);
+                    if (cached != null) {
+                        return Flux.just(ChatClientResponse.builder()
+                                .chatResponse(cached)
+                                .context(chatClientRequest.context())
+                                .build());
+                    }
+                    return new ChatClientMessageAggregator().aggregateChatClientResponse(
+                            chain.nextStream(chatClientRequest),
+                            aggregated -> store(key, aggregated.chatResponse()));
+                });
+    }
+
+    /**
+     * 当前缓存条目数
+     */
+    public int size() {
+        synchronized (this.index) {
+            return this.index.size();
+        }
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void clear() {
+        synchronized (this.index) {
+            this.index.clear();
+        }
+    }
+
+    private boolean cacheable(ChatClientRequest request) {
+        if (!this.enabled) {
+            return false;
+        }
+        ChatOptions options = request.prompt().getOptions();
+        if (options instanceof ToolCallingChatOptions toolOptions
+                && (!toolOptions.getToolCallbacks().isEmpty() || !toolOptions.getToolNames().isEmpty())) {
+            return false;
+        }
+        return request.prompt().getInstructions().stream()
+                .anyMatch(m -> m.getMessageType() == MessageType.USER && StringUtils.hasText(m.getText()));
+    }
+
+    private CacheKey toCacheKey(ChatClientRequest request) {
+        StringBuilder partition = new StringBuilder();
+        StringBuilder userText = new StringBuilder();
+        ChatOptions options = request.prompt().getOptions();
+        if (options != null && options.getModel() != null) {
+            partition.append(options.getModel());
+        }
+        for (Message message : request.prompt().getInstructions()) {
+            if (message.getMessageType() == MessageType.USER) {
+                userText.append(message.getText()).append('\n');
+            } else {
+                partition.append('\u0000').append(message.getMessageType()).append(':').append(message.getText());
+            }
+        }
+        float[] vector = normalize(this.embeddingModel.embed(userText.toString()));
+        return new CacheKey(partition.toString(), vector);
+    }
+
+    private ChatResponse lookup(CacheKey key) {
+        long now = System.currentTimeMillis();
+        Long bestId = null;
+        double bestScore = this.similarityThreshold;
+        synchronized (this.index) {
+            Iterator<Map.Entry<Long, CacheEntry>> it = this.index.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<Long, CacheEntry> e = it.next();
+                CacheEntry entry = e.getValue();
+                if (now - entry.createdAt() > this.ttlMillis) {
+                    it.remove();
+                    this.evictionCounter.increment();
+                    continue;
+                }
+                if (!entry.partition().equals(key.partition())) {
+                    continue;
+                }
+                double score = dot(entry.vector(), key.vector());
+                if (score >= bestScore) {
+                    bestScore = score;
+                    bestId = e.getKey();
+                }
+            }
+            if (bestId != null) {
+                // get 会刷新 LRU 顺序
+                CacheEntry hit = this.index.get(bestId);
+                this.hitCounter.increment();
+                log.debug("semantic cache hit, score: {}", bestScore);
+                return hit.response();
+            }
+        }
+        this.missCounter.increment();
+        return null;
+    }
+
+    private void store(CacheKey key, ChatResponse response) {
+        if (response == null || response.getResult() == null || response.hasToolCalls()
+                || !StringUtils.hasText(response.getResult().getOutput().getText())) {
+            return;
+        }
+        synchronized (this.index) {
+            this.index.put(++this.sequence, new CacheEntry(key.partition(), key.vector(), response,
+                    System.currentTimeMillis()));
+            Iterator<Long> it = this.index.keySet().iterator();
+            while (this.index.size() > this.maxEntries && it.hasNext()) {
+                it.next();
+                it.remove();
+                this.evictionCounter.increment();
+            }
+        }
+    }
+
+    private static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        if (norm == 0) {
+            return vector;
+        }
+        float inv = (float) (1.0 / Math.sqrt(norm));
+        float[] result = new float[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            result[i] = vector[i] * inv;
+        }
+        return result;
+    }
+
+    private static double dot(float[] a, float[] b) {
+        if (a.length != b.length) {
+            return -1;
+        }
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    private record CacheKey(String partition, float[] vector) {
+    }
+
+    private record CacheEntry(String partition, float[] vector, ChatResponse response, long createdAt) {
+    }
+
+    public static class Builder {
+
+        private EmbeddingModel embeddingModel;
+        private double similarityThreshold = 0.95;
+        private Duration ttl = Duration.ofMinutes(10);
+        private int maxEntries = 1000;
+        private int order = 0;
+        private boolean enabled = true;
+        private MeterRegistry meterRegistry;
+
+        public Builder embeddingModel(EmbeddingModel embeddingModel) {
+            this.embeddingModel = embeddingModel;
+            return this;
+        }
+
+        public Builder similarityThreshold(double similarityThreshold) {
+            this.similarityThreshold = similarityThreshold;
+            return this;
+        }
+
+        public Builder ttl(Duration ttl) {
+            this.ttl = ttl;
+            return this;
+        }
+
+        public Builder maxEntries(int maxEntries) {
+            this.maxEntries = maxEntries;
+            return this;
+        }
+
+        public Builder order(int order) {
+            this.order = order;
+            return this;
+        }
+
+        public Builder enabled(boolean enabled) {
+            this.enabled = enabled;
+            return this;
+        }
+
+        public Builder meterRegistry(MeterRegistry meterRegistry) {
+            this.meterRegistry = meterRegistry;
+            return this;
+        }
+
+        public SemanticCacheAdvisor build() {
+            return new SemanticCacheAdvisor(this);
+        }
+    }
+}
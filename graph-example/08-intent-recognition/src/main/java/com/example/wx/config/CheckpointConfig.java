@@ -0,0 +1,62 @@
+package com.example.wx.config;
+
+import com.alibaba.cloud.ai.graph.StateGraph;
+import com.example.wx.graph.checkpoint.FileCheckpointSaver;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * 检查点存储配置，等待用户澄清的会话持久化到本地段文件，重启后可继续
+ *
+ * @author wangx
+ * @create 2026/10/19 21:20
+ */
+@Configuration
+public class CheckpointConfig {
+
+    @Value("${graph.checkpoint.directory:./data/checkpoints}")
+    private Path directory;
+
+    @Value("${graph.checkpoint.segment-size:64MB}")
+    private DataSize segmentSize;
+
+    @Value("${graph.checkpoint.hot-threads:1024}")
+    private int hotThreads;
+
+    @Value("${graph.checkpoint.max-checkpoints-per-thread:32}")
+    private int maxCheckpointsPerThread;
+
+    @Value("${graph.checkpoint.full-snapshot-interval:16}")
+    private int fullSnapshotInterval;
+
+    @Value("${graph.checkpoint.finished-ttl:30m}")
+    private Duration finishedTtl;
+
+    @Value("${graph.checkpoint.idle-ttl:24h}")
+    private Duration idleTtl;
+
+    @Value("${graph.checkpoint.sync-on-write:false}")
+    private boolean syncOnWrite;
+
+    @Bean(destroyMethod = "close")
+    public FileCheckpointSaver checkpointSaver(StateGraph issueClarifyGraph) throws IOException {
+        return FileCheckpointSaver.builder()
+                .directory(directory)
+                .stateSerializer(issueClarifyGraph.getStateSerializer())
+                .keyStrategies(issueClarifyGraph.getKeyStrategyFactory().apply())
+                .segmentSize(segmentSize.toBytes())
+                .hotThreads(hotThreads)
+                .maxCheckpointsPerThread(maxCheckpointsPerThread)
+                .fullSnapshotInterval(fullSnapshotInterval)
+                .finishedTtl(finishedTtl)
+                .idleTtl(idleTtl)
+                .syncOnWrite(syncOnWrite)
+                .build();
+    }
+}
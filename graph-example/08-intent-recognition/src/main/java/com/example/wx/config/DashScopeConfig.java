@@ -7,6 +7,9 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 /**
  * @author wangx
  * @description
@@ -51,6 +54,14 @@ public class DashScopeConfig {
         );
     }
 
+    /**
+     * 推测式召回使用的线程池，问答召回与意图召回并发执行
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService ragExecutor(@Value("${intent.speculative-rag.pool-size:8}") int poolSize) {
+        return Executors.newFixedThreadPool(poolSize);
+    }
+
 //    @Bean
 //    public RedissonClient redissonClient() {
 //        Config config = new Config();
@@ -7,14 +7,18 @@ import com.alibaba.cloud.ai.graph.GraphRepresentation;
 import com.alibaba.cloud.ai.graph.KeyStrategyFactory;
 import com.alibaba.cloud.ai.graph.KeyStrategyFactoryBuilder;
 import com.alibaba.cloud.ai.graph.OverAllState;
+import com.alibaba.cloud.ai.graph.RunnableConfig;
 import com.alibaba.cloud.ai.graph.StateGraph;
-import com.alibaba.cloud.ai.graph.action.NodeAction;
+import com.alibaba.cloud.ai.graph.action.AsyncNodeActionWithConfig;
+import com.alibaba.cloud.ai.graph.action.NodeActionWithConfig;
 import com.alibaba.cloud.ai.graph.exception.GraphStateException;
 import com.alibaba.cloud.ai.graph.state.strategy.AppendStrategy;
 import com.alibaba.cloud.ai.graph.state.strategy.ReplaceStrategy;
+import com.example.wx.advisor.SemanticCacheAdvisor;
 import com.example.wx.config.node.AgentToolWaitNode;
 import com.example.wx.config.node.AssessWaitNode;
 import com.example.wx.config.node.LLMNode;
+import com.example.wx.config.node.ParallelRagNode;
 import com.example.wx.config.node.RagNode;
 import com.example.wx.domain.RagDoc;
 import com.example.wx.domain.tool.AgentToolResult;
@@ -48,6 +52,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
 import java.util.stream.Collectors;
 
 import static com.alibaba.cloud.ai.graph.action.AsyncEdgeAction.edge_async;
@@ -96,12 +101,20 @@ public class IntentRecognitionGraph {
     @Value("classpath:/prompts/income_analyze.st")
     private Resource incomeAnalyzePrompt;
 
+    /**
+     * 推测式召回：问题重写后并发执行意图召回与问答召回，问答分支可省去一次召回耗时
+     */
+    @Value("${intent.speculative-rag.enabled:false}")
+    private boolean speculativeRag;
+
     private final ToolService toolService;
 
     @Bean
     public StateGraph stateGraphIntentRecognition(ChatModel chatModel,
                                                   DashScopeDocumentRetriever intentKnowledgeRetriever,
-                                                  DashScopeDocumentRetriever qaKnowledgeRetriever) throws GraphStateException {
+                                                  DashScopeDocumentRetriever qaKnowledgeRetriever,
+                                                  SemanticCacheAdvisor semanticCacheAdvisor,
+                                                  ExecutorService ragExecutor) throws GraphStateException {
 
         KeyStrategyFactory keyStrategyFactory = new KeyStrategyFactoryBuilder()
                 .addPatternStrategy(USER_QUERY, new ReplaceStrategy())
@@ -132,6 +145,7 @@ public class IntentRecognitionGraph {
                 .inputKey(USER_QUERY)
                 .outputKey(REWRITE_QUERY)
                 .isStream(true)
+                .advisors(semanticCacheAdvisor)
                 .chatOptions(DashScopeChatOptions.builder()
                         .model(DashScopeModel.ChatModel.DEEPSEEK_V3_1.value)
                         .temperature(0.7)
@@ -141,6 +155,10 @@ public class IntentRecognitionGraph {
         // 语义召回节点
         var intentRagNode = new RagNode(REWRITE_QUERY, INTENT_RAG_RESULT, intentKnowledgeRetriever);
 
+        // 知识库问答召回节点
+        var qaRagNode = new RagNode(USER_QUERY, QA_RAG_RESULT, qaKnowledgeRetriever);
+        var parallelRagNode = new ParallelRagNode(intentRagNode, qaRagNode, USER_QUERY, ragExecutor);
+
         // 意图识别节点
         var intentNode = LLMNode.builder()
                 .chatModel(chatModel)
@@ -153,6 +171,7 @@ public class IntentRecognitionGraph {
                 .userParams(new HashMap<>(Map.of(USER_QUERY, "", REWRITE_QUERY, "", INTENT_RAG_RESULT, List.of())))
                 .outputKey(INTENT_RESULT)
                 .isStream(true)
+                .advisors(semanticCacheAdvisor)
                 .build();
 
         var intentEdge = edge_async(state -> {
@@ -160,7 +179,11 @@ public class IntentRecognitionGraph {
             return "其他场景".equals(intentResult) ? "qa" : "analysis";
         });
 
-        NodeAction setParamNode = (OverAllState state) -> {
+        NodeActionWithConfig setParamNode = (OverAllState state, RunnableConfig config) -> {
+            if (speculativeRag) {
+                // 推测式召回的问答结果在 analysis 分支中不再需要，不等待其完成
+                parallelRagNode.discardQa(state, config);
+            }
             var intentResult = state.value(INTENT_RESULT, String.class).orElse("商家维度经营分析");
             var intentDesc = INTENT_DESC_MAP.get(intentResult);
             @SuppressWarnings("unchecked")
@@ -238,9 +261,6 @@ public class IntentRecognitionGraph {
         });
 
 
-        // 知识库问答节点
-        var qaRagNode = new RagNode(USER_QUERY, QA_RAG_RESULT, qaKnowledgeRetriever);
-
         var qaNode = LLMNode.builder()
                 .chatModel(chatModel)
                 .chatOptions(DashScopeChatOptions.builder()
@@ -261,13 +281,18 @@ public class IntentRecognitionGraph {
                 .isStream(true)
                 .build();
 
+        // 推测模式下 _intent_rag_node_ 提前发起问答召回，_qa_rag_node_ 只取回其结果
         StateGraph stateGraph = new StateGraph(keyStrategyFactory)
                 .addNode("_rewrite_node_", node_async(rewriteNode))
-                .addNode("_intent_rag_node_", node_async(intentRagNode))
+                .addNode("_intent_rag_node_", speculativeRag
+                        ? AsyncNodeActionWithConfig.node_async(parallelRagNode)
+                        : AsyncNodeActionWithConfig.of(node_async(intentRagNode)))
                 .addNode("_intent_node_", node_async(intentNode))
-                .addNode("_qa_rag_node_", node_async(qaRagNode))
+                .addNode("_qa_rag_node_", speculativeRag
+                        ? AsyncNodeActionWithConfig.node_async(parallelRagNode::awaitQa)
+                        : AsyncNodeActionWithConfig.of(node_async(qaRagNode)))
                 .addNode("_qa_node_", node_async(qaNode))
-                .addNode("_set_param_node_", node_async(setParamNode))
+                .addNode("_set_param_node_", AsyncNodeActionWithConfig.node_async(setParamNode))
                 .addNode("_assess_intent_node_", node_async(assessIntent))
                 .addNode("_assess_wait_node_", assessWaitNode)
                 .addNode("_agent_tool_node_", node_async(agentNode))
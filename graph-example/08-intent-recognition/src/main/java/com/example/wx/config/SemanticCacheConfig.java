@@ -0,0 +1,47 @@
+package com.example.wx.config;
+
+import com.example.wx.advisor.SemanticCacheAdvisor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * 语义缓存配置，作用于问题重写与意图识别节点
+ *
+ * @author wangx
+ * @create 2026/10/18 11:40
+ */
+@Configuration
+public class SemanticCacheConfig {
+
+    @Value("${intent.semantic-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${intent.semantic-cache.similarity-threshold:0.95}")
+    private double similarityThreshold;
+
+    @Value("${intent.semantic-cache.ttl:10m}")
+    private Duration ttl;
+
+    @Value("${intent.semantic-cache.max-entries:1000}")
+    private int maxEntries;
+
+    @Bean
+    public SemanticCacheAdvisor semanticCacheAdvisor(EmbeddingModel embeddingModel,
+                                                     ObjectProvider<MeterRegistry> meterRegistry) {
+        return SemanticCacheAdvisor.builder()
+                .embeddingModel(embeddingModel)
+                .enabled(enabled)
+                .similarityThreshold(similarityThreshold)
+                .ttl(ttl)
+                .maxEntries(maxEntries)
+                .meterRegistry(meterRegistry.getIfAvailable(() -> Metrics.globalRegistry))
+                .build();
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.wx.config;
+
+import com.example.wx.graph.stream.GraphStreamBridge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 流式接口输出缓冲配置
+ *
+ * @author wangx
+ * @create 2026/10/21 14:40
+ */
+@Configuration
+public class StreamConfig {
+
+    @Value("${intent.stream.buffer-size:256}")
+    private int bufferSize;
+
+    @Value("${intent.stream.overflow-policy:DROP_OLDEST}")
+    private GraphStreamBridge.OverflowPolicy overflowPolicy;
+
+    @Bean
+    public GraphStreamBridge graphStreamBridge(ObjectProvider<MeterRegistry> meterRegistry) {
+        return GraphStreamBridge.builder()
+                .bufferSize(bufferSize)
+                .overflowPolicy(overflowPolicy)
+                .meterRegistry(meterRegistry.getIfAvailable(() -> Metrics.globalRegistry))
+                .build();
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.wx.config.node;
+
+import com.alibaba.cloud.ai.graph.OverAllState;
+import com.alibaba.cloud.ai.graph.RunnableConfig;
+import com.alibaba.cloud.ai.graph.action.NodeActionWithConfig;
+import org.springframework.ai.chat.messages.AssistantMessage;
+
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 推测式并行召回节点
+ * <p>
+ * 意图召回与问答召回互不依赖意图识别结果：{@link #apply(OverAllState, RunnableConfig)} 把问答召回提交到 executor 异步执行，
+ * 在当前线程完成意图召回后只写入意图召回结果，不等待问答召回。
+ * <ul>
+ *   <li>问答分支：{@link #awaitQa} 取回推测的问答召回结果；没有可用的推测结果（已被丢弃、超时清理或失败被取消）时同步召回</li>
+ *   <li>analysis 分支：{@link #discardQa} 丢弃推测结果，问答召回在后台结束，结果和异常都被忽略</li>
+ * </ul>
+ * 推测结果按会话（threadId）和问答召回的输入（用户问题）暂存，发送相同问题的并发会话各自持有自己的推测结果，
+ * 不会取走或丢弃其他会话的结果；意图识别失败等原因未被取走的推测结果超过 {@link #SPECULATION_TTL_MILLIS} 后清理。
+ *
+ * @author wangx
+ * @create 2026/10/18 14:20
+ */
+public class ParallelRagNode implements NodeActionWithConfig {
+
+    private static final long SPECULATION_TTL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private final RagNode intentRagNode;
+    private final RagNode qaRagNode;
+    private final String qaInputKey;
+    private final Executor executor;
+
+    private final Map<SpeculationKey, Speculation> speculations = new ConcurrentHashMap<>();
+
+    private record SpeculationKey(String threadId, String input) {
+    }
+
+    private record Speculation(CompletableFuture<Map<String, Object>> future, long createdAt) {
+    }
+
+    public ParallelRagNode(RagNode intentRagNode, RagNode qaRagNode, String qaInputKey, Executor executor) {
+        this.intentRagNode = intentRagNode;
+        this.qaRagNode = qaRagNode;
+        this.qaInputKey = qaInputKey;
+        this.executor = executor;
+    }
+
+    @Override
+    public Map<String, Object> apply(OverAllState state, RunnableConfig config) throws Exception {
+        purgeExpired();
+        CompletableFuture<Map<String, Object>> qaFuture = CompletableFuture.supplyAsync(() -> {
+            try {
+                return qaRagNode.apply(state);
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+        Speculation previous = speculations.put(key(state, config), new Speculation(qaFuture, System.currentTimeMillis()));
+        if (previous != null) {
+            previous.future().cancel(false);
+        }
+        return intentRagNode.apply(state);
+    }
+
+    /**
+     * 问答分支：取回推测的问答召回结果
+     */
+    public Map<String, Object> awaitQa(OverAllState state, RunnableConfig config) throws Exception {
+        Speculation speculation = speculations.remove(key(state, config));
+        if (speculation == null) {
+            return qaRagNode.apply(state);
+        }
+        try {
+            return speculation.future().join();
+        } catch (CancellationException e) {
+            return qaRagNode.apply(state);
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * analysis 分支：丢弃推测的问答召回，不等待其完成
+     */
+    public void discardQa(OverAllState state, RunnableConfig config) {
+        Speculation speculation = speculations.remove(key(state, config));
+        if (speculation != null) {
+            speculation.future().cancel(false);
+        }
+    }
+
+    private void purgeExpired() {
+        long expiredBefore = System.currentTimeMillis() - SPECULATION_TTL_MILLIS;
+        speculations.values().removeIf(speculation -> {
+            if (speculation.createdAt() < expiredBefore) {
+                speculation.future().cancel(false);
+                return true;
+            }
+            return false;
+        });
+    }
+
+    private SpeculationKey key(OverAllState state, RunnableConfig config) {
+        Object value = state.value(qaInputKey).orElse("");
+        String input = value instanceof AssistantMessage message ? message.getText() : String.valueOf(value);
+        return new SpeculationKey(config.threadId().orElse(""), input);
+    }
+}
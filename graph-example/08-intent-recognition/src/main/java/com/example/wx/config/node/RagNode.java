@@ -1,6 +1,5 @@
 package com.example.wx.config.node;
 
-import com.alibaba.cloud.ai.dashscope.rag.DashScopeDocumentRetriever;
 import com.alibaba.cloud.ai.graph.OverAllState;
 import com.alibaba.cloud.ai.graph.action.NodeAction;
 import com.example.wx.domain.RagDoc;
@@ -8,6 +7,7 @@ import lombok.AllArgsConstructor;
 import org.springframework.ai.chat.messages.AssistantMessage;
 import org.springframework.ai.document.Document;
 import org.springframework.ai.rag.Query;
+import org.springframework.ai.rag.retrieval.search.DocumentRetriever;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
@@ -25,7 +25,7 @@ public class RagNode implements NodeAction {
 
     private final String inputKey;
     private final String outputKey;
-    private final DashScopeDocumentRetriever dashScopeDocumentRetriever;
+    private final DocumentRetriever documentRetriever;
 
     @Override
     public Map<String, Object> apply(OverAllState state) throws Exception {
@@ -38,7 +38,7 @@ public class RagNode implements NodeAction {
         } else {
             throw new RuntimeException(inputKey + " is null");
         }
-        List<Document> retrieve = dashScopeDocumentRetriever.retrieve(new Query(call));
+        List<Document> retrieve = documentRetriever.retrieve(new Query(call));
         ArrayList<RagDoc> docs = new ArrayList<>(retrieve.size());
         retrieve.stream()
                 .filter(d -> {
@@ -7,12 +7,14 @@ import com.alibaba.cloud.ai.graph.NodeOutput;
 import com.alibaba.cloud.ai.graph.RunnableConfig;
 import com.alibaba.cloud.ai.graph.StateGraph;
 import com.alibaba.cloud.ai.graph.checkpoint.config.SaverConfig;
-import com.alibaba.cloud.ai.graph.checkpoint.savers.MemorySaver;
 import com.alibaba.cloud.ai.graph.exception.GraphStateException;
 import com.alibaba.cloud.ai.graph.state.StateSnapshot;
+import com.alibaba.cloud.ai.graph.streaming.StreamingOutput;
 import com.example.wx.config.GraphListener;
 import com.example.wx.domain.ChatMemory;
 import com.example.wx.domain.ChatResult;
+import com.example.wx.graph.checkpoint.FileCheckpointSaver;
+import com.example.wx.graph.stream.GraphStreamBridge;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -21,8 +23,6 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.core.publisher.Sinks;
-import reactor.core.scheduler.Schedulers;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -48,11 +48,13 @@ import static com.example.wx.constants.IntentGraphParams.WEEK_OF_YEAR;
 public class ChatController {
     private final CompiledGraph compiledGraph;
 
+    private final GraphStreamBridge streamBridge;
+
     public ChatController(StateGraph issueClarifyGraph
             , GraphListener graphListener
-//            , MemorySaver postgresSaver
+            , FileCheckpointSaver saver
+            , GraphStreamBridge streamBridge
     ) throws GraphStateException {
-        var saver = new MemorySaver();
         var compileConfig = CompileConfig.builder()
                 // .withLifecycleListener(graphListener)
                 .saverConfig(SaverConfig.builder()
@@ -60,6 +62,7 @@ public class ChatController {
                         .build())
                 .build();
         this.compiledGraph = issueClarifyGraph.compile(compileConfig);
+        this.streamBridge = streamBridge;
     }
 
     @GetMapping("/call")
@@ -138,21 +141,12 @@ public class ChatController {
         var config = RunnableConfig.builder()
                 .threadId(chatId)
                 .build();
-        // 创建 Sink，unicast 适用于单订阅者场景
-        Sinks.Many<ChatResult> sink = Sinks.many().unicast().onBackpressureBuffer();
-        getExecutionStream(query, config).doOnNext(nodeOutput -> {
-                    // 手动发送数据
-                    ChatResult result = toChatResult(nodeOutput);
-                    sink.tryEmitNext(result);
-                })
-                .doOnComplete(() -> {
-                    // 发送结束标记并关闭
-                    sink.tryEmitNext(ChatResult.end());
-                    sink.tryEmitComplete();
-                })
-                .doOnError(sink::tryEmitError)
-                .subscribe();  // 启动订阅
-        return sink.asFlux();
+        // 图的执行跟随 HTTP 订阅：客户端读取慢时只丢弃 token chunk，断开时取消执行
+        return streamBridge.bridge(Flux.defer(() -> getExecutionStream(query, config)), StreamingOutput.class::isInstance)
+                .map(this::toChatResult)
+                // 发送结束标记
+                .concatWithValues(ChatResult.end())
+                .doOnCancel(() -> log.info("客户端断开，取消执行：{}", chatId));
     }
 
     private Flux<NodeOutput> getExecutionStream(String query,
@@ -0,0 +1,155 @@
+package com.example.wx;
+
+import com.alibaba.cloud.ai.graph.OverAllState;
+import com.alibaba.cloud.ai.graph.RunnableConfig;
+import com.alibaba.cloud.ai.graph.checkpoint.BaseCheckpointSaver;
+import com.alibaba.cloud.ai.graph.checkpoint.Checkpoint;
+import com.alibaba.cloud.ai.graph.checkpoint.savers.MemorySaver;
+import com.alibaba.cloud.ai.graph.serializer.std.ObjectStreamStateSerializer;
+import com.example.wx.graph.checkpoint.FileCheckpointSaver;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static com.example.wx.constants.IntentGraphParams.HISTORY;
+import static com.example.wx.constants.IntentGraphParams.REPLY;
+import static com.example.wx.constants.IntentGraphParams.USER_QUERY;
+
+/**
+ * MemorySaver 与 FileCheckpointSaver 的内存占用、恢复耗时对比
+ * <p>
+ * 用法：CheckpointSaverBenchmark [会话数，默认 5000] [每个会话的轮数，默认 12] [热数据会话数，默认 1024]
+ * 多个线程并发写入，每轮向 history 追加一条消息并更新问题与回复；写完后输出 GC 后的堆占用、段文件大小，
+ * 热数据 / 冷数据会话的 get 耗时 p50/p99，以及重新打开（扫描段文件重建索引）的耗时。
+ *
+ * @author wangx
+ * @create 2026/10/19 21:40
+ */
+public class CheckpointSaverBenchmark {
+
+    private static final int WRITERS = 16;
+
+    private static final int SAMPLES = 2000;
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        int turns = args.length > 1 ? Integer.parseInt(args[1]) : 12;
+        int hotThreads = args.length > 2 ? Integer.parseInt(args[2]) : 1024;
+        var serializer = new ObjectStreamStateSerializer(OverAllState::new);
+
+        long baseline = usedHeap();
+        MemorySaver memorySaver = new MemorySaver();
+        long start = System.nanoTime();
+        write(memorySaver, threads, turns);
+        System.out.printf("MemorySaver:         write %6d ms, heap %7.1f MB%n",
+                (System.nanoTime() - start) / 1_000_000, (usedHeap() - baseline) / 1048576.0);
+        memorySaver = null;
+
+        Path directory = Files.createTempDirectory("checkpoint-benchmark");
+        baseline = usedHeap();
+        FileCheckpointSaver fileSaver = FileCheckpointSaver.builder()
+                .directory(directory)
+                .stateSerializer(serializer)
+                .hotThreads(hotThreads)
+                .build();
+        start = System.nanoTime();
+        write(fileSaver, threads, turns);
+        System.out.printf("FileCheckpointSaver: write %6d ms, heap %7.1f MB, disk %7.1f MB%n",
+                (System.nanoTime() - start) / 1_000_000, (usedHeap() - baseline) / 1048576.0,
+                diskBytes(directory) / 1048576.0);
+
+        // 最后写入的会话在热数据中，最早写入的会话已被淘汰
+        System.out.println("hot  get " + latency(fileSaver, threads - Math.min(hotThreads, threads) / 2, threads));
+        System.out.println("cold get " + latency(fileSaver, 0, Math.max(1, threads - hotThreads)));
+        fileSaver.close();
+
+        start = System.nanoTime();
+        FileCheckpointSaver reopened = FileCheckpointSaver.builder()
+                .directory(directory)
+                .stateSerializer(serializer)
+                .hotThreads(hotThreads)
+                .build();
+        System.out.printf("reopen: %d threads in %d ms%n", reopened.threadCount(), (System.nanoTime() - start) / 1_000_000);
+        System.out.println("resume after reopen " + latency(reopened, 0, threads));
+        reopened.close();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    private static void write(BaseCheckpointSaver saver, int threads, int turns) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int w = 0; w < WRITERS; w++) {
+            int writer = w;
+            futures.add(executor.submit(() -> {
+                for (int t = writer; t < threads; t += WRITERS) {
+                    RunnableConfig config = RunnableConfig.builder().threadId("chat-" + t).build();
+                    List<String> history = new ArrayList<>();
+                    for (int turn = 0; turn < turns; turn++) {
+                        history.add("第 " + turn + " 轮：用户询问上个月各门店的收入和订单数量，并要求按区域汇总对比 " + t);
+                        Map<String, Object> state = new HashMap<>();
+                        state.put(HISTORY, new ArrayList<>(history));
+                        state.put(USER_QUERY, "上个月收入多少 " + turn);
+                        state.put(REPLY, "请确认需要查询的门店范围 " + turn);
+                        saver.put(config, Checkpoint.builder()
+                                .id(UUID.randomUUID().toString())
+                                .nodeId("human_feedback")
+                                .nextNodeId("human_feedback")
+                                .state(state)
+                                .build());
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+    }
+
+    private static String latency(BaseCheckpointSaver saver, int from, int to) {
+        long[] samples = new long[Math.min(SAMPLES, to - from)];
+        for (int i = 0; i < samples.length; i++) {
+            RunnableConfig config = RunnableConfig.builder().threadId("chat-" + (from + i)).build();
+            long start = System.nanoTime();
+            if (saver.get(config).isEmpty()) {
+                throw new IllegalStateException("checkpoint missing for chat-" + (from + i));
+            }
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        return String.format("p50 %.3f ms, p99 %.3f ms (%d threads)", samples[samples.length / 2] / 1e6,
+                samples[(int) (samples.length * 0.99)] / 1e6, samples.length);
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static long diskBytes(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.mapToLong(file -> file.toFile().length()).sum();
+        }
+    }
+}
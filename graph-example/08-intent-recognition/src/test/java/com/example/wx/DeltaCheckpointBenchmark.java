@@ -0,0 +1,154 @@
+package com.example.wx;
+
+import com.alibaba.cloud.ai.graph.KeyStrategy;
+import com.alibaba.cloud.ai.graph.OverAllState;
+import com.alibaba.cloud.ai.graph.RunnableConfig;
+import com.alibaba.cloud.ai.graph.checkpoint.Checkpoint;
+import com.alibaba.cloud.ai.graph.serializer.std.ObjectStreamStateSerializer;
+import com.alibaba.cloud.ai.graph.state.strategy.AppendStrategy;
+import com.alibaba.cloud.ai.graph.state.strategy.ReplaceStrategy;
+import com.example.wx.graph.checkpoint.FileCheckpointSaver;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static com.example.wx.constants.IntentGraphParams.CLARIFY_LIST;
+import static com.example.wx.constants.IntentGraphParams.HISTORY;
+import static com.example.wx.constants.IntentGraphParams.REPLY;
+import static com.example.wx.constants.IntentGraphParams.REWRITE_QUERY;
+import static com.example.wx.constants.IntentGraphParams.USER_QUERY;
+
+/**
+ * 长澄清对话下检查点的写入字节数与 stateOf（读取最新检查点）耗时
+ * <p>
+ * 用法：DeltaCheckpointBenchmark [会话数，默认 200] [每个会话的轮数，默认 50]
+ * 每轮模拟一次 _assess_wait_node_ → _rewrite_node_ 循环，写入三个检查点：用户输入追加到 history，
+ * 问题重写更新 rewrite_query，评估追加 clarify_list 并更新 reply。对比三种写法：
+ * <ul>
+ *   <li>full：每个检查点都写完整快照</li>
+ *   <li>key-delta：只写发生变化的 key，history / clarify_list 变化时仍写整个列表</li>
+ *   <li>append-delta：按 KeyStrategy 只写 history / clarify_list 追加的元素</li>
+ * </ul>
+ * 输出第 1 轮、最后一轮的写入字节数、总写入字节数，以及重新打开后冷读取、热读取最新检查点的耗时。
+ *
+ * @author wangx
+ * @create 2026/10/19 22:30
+ */
+public class DeltaCheckpointBenchmark {
+
+    private static final Map<String, KeyStrategy> KEY_STRATEGIES = Map.of(
+            USER_QUERY, new ReplaceStrategy(),
+            HISTORY, new AppendStrategy(),
+            REWRITE_QUERY, new ReplaceStrategy(),
+            CLARIFY_LIST, new AppendStrategy(),
+            REPLY, new ReplaceStrategy());
+
+    public static void main(String[] args) throws Exception {
+        int conversations = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int turns = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+
+        run("full", conversations, turns, 1, Map.of());
+        run("key-delta", conversations, turns, 16, Map.of());
+        run("append-delta", conversations, turns, 16, KEY_STRATEGIES);
+    }
+
+    private static void run(String name, int conversations, int turns, int fullSnapshotInterval,
+                            Map<String, KeyStrategy> keyStrategies) throws Exception {
+        var serializer = new ObjectStreamStateSerializer(OverAllState::new);
+        Path directory = Files.createTempDirectory("delta-checkpoint-benchmark");
+        FileCheckpointSaver.Builder builder = FileCheckpointSaver.builder()
+                .directory(directory)
+                .stateSerializer(serializer)
+                .fullSnapshotInterval(fullSnapshotInterval)
+                .maxCheckpointsPerThread(turns * 3)
+                .keyStrategies(keyStrategies);
+
+        long[] bytesPerTurn = new long[turns];
+        FileCheckpointSaver saver = builder.build();
+        long start = System.nanoTime();
+        for (int c = 0; c < conversations; c++) {
+            RunnableConfig config = RunnableConfig.builder().threadId("chat-" + c).build();
+            List<String> history = new ArrayList<>();
+            List<String> clarifyList = new ArrayList<>();
+            Map<String, Object> state = new HashMap<>();
+            for (int turn = 0; turn < turns; turn++) {
+                long before = diskBytes(directory);
+                String query = "第 " + turn + " 轮：查询上个月各门店的收入和订单数量，按区域汇总对比 " + c;
+                history.add(query);
+                state.put(USER_QUERY, query);
+                state.put(HISTORY, new ArrayList<>(history));
+                put(saver, config, state, "_assess_wait_node_", "_rewrite_node_");
+
+                state.put(REWRITE_QUERY, "查询 " + c + " 号商户上个月的收入，第 " + turn + " 次补充条件");
+                put(saver, config, state, "_rewrite_node_", "_assess_node_");
+
+                clarifyList.add("请确认门店范围和统计口径（第 " + turn + " 次澄清）");
+                state.put(CLARIFY_LIST, new ArrayList<>(clarifyList));
+                state.put(REPLY, "请确认需要查询的门店范围 " + turn);
+                put(saver, config, state, "_assess_node_", "_assess_wait_node_");
+                bytesPerTurn[turn] += diskBytes(directory) - before;
+            }
+        }
+        long writeMillis = (System.nanoTime() - start) / 1_000_000;
+        long total = diskBytes(directory);
+        saver.close();
+
+        saver = builder.build();
+        String cold = latency(saver, conversations);
+        String hot = latency(saver, conversations);
+        saver.close();
+
+        System.out.printf("%-12s write %5d ms, bytes/turn first %6d last %6d, total %7.1f MB | stateOf cold %s, hot %s%n",
+                name, writeMillis, bytesPerTurn[0] / conversations, bytesPerTurn[turns - 1] / conversations,
+                total / 1048576.0, cold, hot);
+        delete(directory);
+    }
+
+    private static void put(FileCheckpointSaver saver, RunnableConfig config, Map<String, Object> state,
+                            String nodeId, String nextNodeId) throws Exception {
+        saver.put(config, Checkpoint.builder()
+                .id(UUID.randomUUID().toString())
+                .nodeId(nodeId)
+                .nextNodeId(nextNodeId)
+                .state(new HashMap<>(state))
+                .build());
+    }
+
+    private static String latency(FileCheckpointSaver saver, int conversations) {
+        long[] samples = new long[conversations];
+        for (int c = 0; c < conversations; c++) {
+            RunnableConfig config = RunnableConfig.builder().threadId("chat-" + c).build();
+            long start = System.nanoTime();
+            if (saver.get(config).isEmpty()) {
+                throw new IllegalStateException("checkpoint missing for chat-" + c);
+            }
+            samples[c] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        return String.format("p50 %.3f ms p99 %.3f ms", samples[samples.length / 2] / 1e6,
+                samples[(int) (samples.length * 0.99)] / 1e6);
+    }
+
+    private static long diskBytes(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.mapToLong(file -> file.toFile().length()).sum();
+        }
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+}
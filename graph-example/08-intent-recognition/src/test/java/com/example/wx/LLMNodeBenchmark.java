@@ -0,0 +1,120 @@
+package com.example.wx;
+
+import com.alibaba.cloud.ai.graph.OverAllState;
+import com.example.wx.config.node.LLMNode;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.chat.prompt.PromptTemplate;
+import org.springframework.ai.chat.prompt.SystemPromptTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.example.wx.constants.IntentGraphParams.INTENT_RAG_RESULT;
+import static com.example.wx.constants.IntentGraphParams.REWRITE_QUERY;
+import static com.example.wx.constants.IntentGraphParams.USER_QUERY;
+import static com.example.wx.constants.PromptConstant.INTENT_NODE_USER_PROMPT;
+
+/**
+ * LLMNode apply() 耗时对比：每次重建 ChatClient/模板 vs 构建时预创建
+ * <p>
+ * 使用桩 ChatModel，仅衡量节点自身的开销
+ *
+ * @author wangx
+ * @create 2026/10/18 10:12
+ */
+public class LLMNodeBenchmark {
+
+    private static final String SYSTEM_PROMPT = """
+            你是一个意图识别助手，历史会话如下
+            {history_list}
+            """;
+
+    private static final int WARMUP = 20_000;
+    private static final int ITERATIONS = 100_000;
+
+    public static void main(String[] args) throws Exception {
+        ChatModel chatModel = new StubChatModel();
+        ChatOptions options = ChatOptions.builder().model("stub").temperature(0.7).build();
+        Map<String, Object> userParams = new HashMap<>(Map.of(USER_QUERY, "", REWRITE_QUERY, "", INTENT_RAG_RESULT, List.of()));
+        Map<String, Object> sysParams = new HashMap<>(Map.of("history_list", List.of()));
+
+        OverAllState state = new OverAllState(Map.of(
+                USER_QUERY, "上个月收入多少",
+                REWRITE_QUERY, "查询上个月的收入",
+                INTENT_RAG_RESULT, List.of("商家维度经营分析"),
+                "history_list", List.of("你好")));
+
+        LLMNode node = LLMNode.builder()
+                .chatModel(chatModel)
+                .chatOptions(options)
+                .systemPrompt(SYSTEM_PROMPT)
+                .sysParams(sysParams)
+                .userPrompt(INTENT_NODE_USER_PROMPT)
+                .userParams(userParams)
+                .outputKey("out")
+                .build();
+
+        run("legacy  ", () -> legacyApply(chatModel, options, sysParams, userParams, state));
+        run("prebuilt", () -> node.apply(state));
+    }
+
+    private static void run(String name, ThrowingRunnable action) throws Exception {
+        for (int i = 0; i < WARMUP; i++) {
+            action.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            action.run();
+        }
+        long cost = System.nanoTime() - start;
+        System.out.printf("%s : %.2f us/op%n", name, cost / 1000.0 / ITERATIONS);
+    }
+
+    /**
+     * 改造前的 apply() 实现：每次调用都构建 ChatClient 并解析模板
+     */
+    private static String legacyApply(ChatModel chatModel, ChatOptions options, Map<String, Object> sysParams,
+                                      Map<String, Object> userParams, OverAllState state) {
+        List<Message> messageList = new ArrayList<>();
+        messageList.add(new SystemPromptTemplate(SYSTEM_PROMPT).createMessage(resolve(sysParams, state)));
+        messageList.add(new PromptTemplate(INTENT_NODE_USER_PROMPT).createMessage(resolve(userParams, state)));
+        return ChatClient.builder(chatModel)
+                .defaultOptions(options)
+                .build()
+                .prompt()
+                .messages(messageList)
+                .call().content();
+    }
+
+    private static Map<String, Object> resolve(Map<String, Object> configParams, OverAllState state) {
+        Map<String, Object> resolved = new HashMap<>(configParams.size());
+        for (String key : configParams.keySet()) {
+            resolved.put(key, state.value(key).orElse(""));
+        }
+        return resolved;
+    }
+
+    @FunctionalInterface
+    private interface ThrowingRunnable {
+        void run() throws Exception;
+    }
+
+    private static class StubChatModel implements ChatModel {
+
+        private final ChatResponse response = new ChatResponse(List.of(new Generation(new AssistantMessage("商家维度经营分析"))));
+
+        @Override
+        public ChatResponse call(Prompt prompt) {
+            return response;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.wx;
+
+import com.alibaba.cloud.ai.graph.OverAllState;
+import com.alibaba.cloud.ai.graph.RunnableConfig;
+import com.example.wx.config.node.ParallelRagNode;
+import com.example.wx.config.node.RagNode;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.rag.retrieval.search.DocumentRetriever;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static com.example.wx.constants.IntentGraphParams.INTENT_RAG_RESULT;
+import static com.example.wx.constants.IntentGraphParams.QA_RAG_RESULT;
+import static com.example.wx.constants.IntentGraphParams.REWRITE_QUERY;
+import static com.example.wx.constants.IntentGraphParams.USER_QUERY;
+
+/**
+ * 顺序召回与推测式并行召回的耗时对比（召回器为带固定延迟的桩实现）
+ * <p>
+ * qa 分支：顺序模式需要 意图召回 + 问答召回，推测模式只需 max(意图召回, 问答召回)；
+ * analysis 分支：两种模式都只需意图召回，推测的问答召回被丢弃，不等待其完成。
+ *
+ * @author wangx
+ * @create 2026/10/18 14:45
+ */
+public class SpeculativeRagBenchmark {
+
+    private static final long INTENT_LATENCY_MS = 120;
+    private static final long QA_LATENCY_MS = 150;
+    private static final int ROUNDS = 20;
+
+    public static void main(String[] args) throws Exception {
+        var intentRagNode = new RagNode(REWRITE_QUERY, INTENT_RAG_RESULT, new StubRetriever(INTENT_LATENCY_MS, "商家维度经营分析"));
+        var qaRagNode = new RagNode(USER_QUERY, QA_RAG_RESULT, new StubRetriever(QA_LATENCY_MS, "客服知识库"));
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        var parallelRagNode = new ParallelRagNode(intentRagNode, qaRagNode, USER_QUERY, executor);
+
+        OverAllState state = new OverAllState(Map.of(USER_QUERY, "上个月收入多少", REWRITE_QUERY, "查询上个月的收入"));
+        RunnableConfig config = RunnableConfig.builder().threadId("benchmark").build();
+
+        // 预热
+        parallelRagNode.apply(state, config);
+        parallelRagNode.awaitQa(state, config);
+
+        // 相同问题的两个会话：一个会话丢弃推测结果不影响另一个会话取回自己的结果
+        RunnableConfig other = RunnableConfig.builder().threadId("benchmark-other").build();
+        parallelRagNode.apply(state, config);
+        parallelRagNode.apply(state, other);
+        parallelRagNode.discardQa(state, other);
+        if (!parallelRagNode.awaitQa(state, config).containsKey(QA_RAG_RESULT)) {
+            throw new IllegalStateException("speculative result of one thread was discarded by another");
+        }
+
+        long sequentialQa = 0;
+        long sequentialAnalysis = 0;
+        long speculativeQa = 0;
+        long speculativeAnalysis = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = System.nanoTime();
+            intentRagNode.apply(state);
+            long intentDone = System.nanoTime();
+            qaRagNode.apply(state);
+            long qaDone = System.nanoTime();
+            sequentialAnalysis += intentDone - start;
+            sequentialQa += qaDone - start;
+
+            start = System.nanoTime();
+            Map<String, Object> intentResult = parallelRagNode.apply(state, config);
+            Map<String, Object> qaResult = parallelRagNode.awaitQa(state, config);
+            speculativeQa += System.nanoTime() - start;
+            if (!intentResult.containsKey(INTENT_RAG_RESULT) || !qaResult.containsKey(QA_RAG_RESULT)) {
+                throw new IllegalStateException("missing rag result: " + intentResult.keySet() + qaResult.keySet());
+            }
+
+            start = System.nanoTime();
+            parallelRagNode.apply(state, config);
+            parallelRagNode.discardQa(state, config);
+            speculativeAnalysis += System.nanoTime() - start;
+        }
+        executor.shutdown();
+
+        System.out.printf("qa 分支       sequential: %6.1f ms, speculative: %6.1f ms%n",
+                sequentialQa / 1e6 / ROUNDS, speculativeQa / 1e6 / ROUNDS);
+        System.out.printf("analysis 分支 sequential: %6.1f ms, speculative: %6.1f ms%n",
+                sequentialAnalysis / 1e6 / ROUNDS, speculativeAnalysis / 1e6 / ROUNDS);
+    }
+
+    private record StubRetriever(long latencyMs, String docName) implements DocumentRetriever {
+
+        @Override
+        public List<Document> retrieve(org.springframework.ai.rag.Query query) {
+            try {
+                Thread.sleep(latencyMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return List.of(new Document(query.text(), Map.of("_score", 0.8, "doc_name", docName)));
+        }
+    }
+}
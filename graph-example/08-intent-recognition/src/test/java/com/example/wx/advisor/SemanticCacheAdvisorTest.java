@@ -0,0 +1,179 @@
+package com.example.wx.advisor;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * SemanticCacheAdvisor 命中、低于阈值未命中、TTL 过期与 LRU 淘汰
+ * <p>
+ * 向量化使用固定的二维向量表，问题之间的余弦相似度见 {@link #VECTORS}；模型按调用次数返回不同的回答，
+ * 以调用次数和回答内容判断是否走了缓存。
+ *
+ * @author wangx
+ * @create 2026/10/18 20:30
+ */
+class SemanticCacheAdvisorTest {
+
+    private static final String WEATHER = "今天天气怎么样";
+
+    /**
+     * 与 WEATHER 的相似度约 0.99
+     */
+    private static final String WEATHER_PARAPHRASE = "今天的天气如何";
+
+    /**
+     * 与 WEATHER 的相似度 0.8，低于阈值 0.95
+     */
+    private static final String WEATHER_TOMORROW = "明天天气怎么样";
+
+    /**
+     * 与 WEATHER 正交
+     */
+    private static final String INCOME = "查询本月商户收入";
+
+    private static final Map<String, float[]> VECTORS = Map.of(
+            WEATHER, new float[]{1f, 0f},
+            WEATHER_PARAPHRASE, new float[]{0.99f, 0.14f},
+            WEATHER_TOMORROW, new float[]{0.8f, 0.6f},
+            INCOME, new float[]{0f, 1f});
+
+    private final AtomicInteger modelCalls = new AtomicInteger();
+
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        this.meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void similarQuestionHitsCache() {
+        SemanticCacheAdvisor advisor = advisor(SemanticCacheAdvisor.builder());
+        ChatClient chatClient = chatClient(advisor);
+
+        String first = ask(chatClient, WEATHER);
+        String second = ask(chatClient, WEATHER_PARAPHRASE);
+
+        assertThat(second).isEqualTo(first);
+        assertThat(this.modelCalls).hasValue(1);
+        assertThat(counter("hit")).isEqualTo(1);
+        assertThat(counter("miss")).isEqualTo(1);
+    }
+
+    @Test
+    void questionBelowThresholdMissesCache() {
+        SemanticCacheAdvisor advisor = advisor(SemanticCacheAdvisor.builder());
+        ChatClient chatClient = chatClient(advisor);
+
+        String first = ask(chatClient, WEATHER);
+        String second = ask(chatClient, WEATHER_TOMORROW);
+
+        assertThat(second).isNotEqualTo(first);
+        assertThat(this.modelCalls).hasValue(2);
+        assertThat(counter("hit")).isZero();
+        assertThat(advisor.size()).isEqualTo(2);
+    }
+
+    @Test
+    void expiredEntryIsNotServed() throws InterruptedException {
+        SemanticCacheAdvisor advisor = advisor(SemanticCacheAdvisor.builder().ttl(Duration.ofMillis(50)));
+        ChatClient chatClient = chatClient(advisor);
+
+        String first = ask(chatClient, WEATHER);
+        Thread.sleep(120);
+        String second = ask(chatClient, WEATHER);
+
+        assertThat(second).isNotEqualTo(first);
+        assertThat(this.modelCalls).hasValue(2);
+        assertThat(this.meterRegistry.get("graph.semantic.cache.evictions").counter().count()).isEqualTo(1);
+        // 过期条目被清理，只剩第二次写入的回答
+        assertThat(advisor.size()).isEqualTo(1);
+    }
+
+    @Test
+    void leastRecentlyUsedEntryIsEvicted() {
+        SemanticCacheAdvisor advisor = advisor(SemanticCacheAdvisor.builder().maxEntries(2));
+        ChatClient chatClient = chatClient(advisor);
+
+        ask(chatClient, WEATHER);
+        ask(chatClient, INCOME);
+        // 命中刷新 WEATHER 的访问顺序，INCOME 成为最久未使用的条目
+        ask(chatClient, WEATHER);
+        ask(chatClient, WEATHER_TOMORROW);
+        assertThat(this.modelCalls).hasValue(3);
+        assertThat(advisor.size()).isEqualTo(2);
+
+        ask(chatClient, WEATHER);
+        assertThat(this.modelCalls).hasValue(3);
+        ask(chatClient, INCOME);
+        assertThat(this.modelCalls).hasValue(4);
+        assertThat(this.meterRegistry.get("graph.semantic.cache.evictions").counter().count()).isEqualTo(2);
+    }
+
+    private SemanticCacheAdvisor advisor(SemanticCacheAdvisor.Builder builder) {
+        return builder.embeddingModel(new FixedEmbeddingModel())
+                .similarityThreshold(0.95)
+                .meterRegistry(this.meterRegistry)
+                .build();
+    }
+
+    private ChatClient chatClient(SemanticCacheAdvisor advisor) {
+        ChatModel chatModel = new ChatModel() {
+            @Override
+            public ChatResponse call(Prompt prompt) {
+                int n = modelCalls.incrementAndGet();
+                return new ChatResponse(List.of(new Generation(new AssistantMessage("answer " + n))));
+            }
+        };
+        return ChatClient.builder(chatModel).defaultAdvisors(advisor).build();
+    }
+
+    private static String ask(ChatClient chatClient, String question) {
+        return chatClient.prompt().user(question).call().content();
+    }
+
+    private double counter(String result) {
+        return this.meterRegistry.get("graph.semantic.cache").tag("result", result).counter().count();
+    }
+
+    private static class FixedEmbeddingModel implements EmbeddingModel {
+
+        @Override
+        public EmbeddingResponse call(EmbeddingRequest request) {
+            List<Embedding> embeddings = new ArrayList<>();
+            for (String text : request.getInstructions()) {
+                // 拼接时每条 user 消息末尾带有换行
+                float[] vector = VECTORS.get(text.strip());
+                assertThat(vector).as("vector of '%s'", text).isNotNull();
+                embeddings.add(new Embedding(vector, embeddings.size()));
+            }
+            return new EmbeddingResponse(embeddings);
+        }
+
+        @Override
+        public float[] embed(Document document) {
+            return embed(document.getText());
+        }
+    }
+}
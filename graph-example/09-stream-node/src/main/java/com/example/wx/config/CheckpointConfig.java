@@ -0,0 +1,63 @@
+package com.example.wx.config;
+
+import com.alibaba.cloud.ai.graph.StateGraph;
+import com.example.wx.graph.checkpoint.FileCheckpointSaver;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * 检查点存储配置，流式对话的检查点持久化到本地段文件，进程内存不随会话数增长
+ *
+ * @author wangx
+ * @create 2026/10/20 10:30
+ */
+@Configuration
+public class CheckpointConfig {
+
+    @Value("${graph.checkpoint.directory:./data/checkpoints}")
+    private Path directory;
+
+    @Value("${graph.checkpoint.segment-size:64MB}")
+    private DataSize segmentSize;
+
+    @Value("${graph.checkpoint.hot-threads:1024}")
+    private int hotThreads;
+
+    @Value("${graph.checkpoint.max-checkpoints-per-thread:32}")
+    private int maxCheckpointsPerThread;
+
+    @Value("${graph.checkpoint.full-snapshot-interval:16}")
+    private int fullSnapshotInterval;
+
+    @Value("${graph.checkpoint.finished-ttl:30m}")
+    private Duration finishedTtl;
+
+    @Value("${graph.checkpoint.idle-ttl:24h}")
+    private Duration idleTtl;
+
+    @Value("${graph.checkpoint.sync-on-write:false}")
+    private boolean syncOnWrite;
+
+    @Bean(destroyMethod = "close")
+    public FileCheckpointSaver checkpointSaver(@Qualifier("streamGraph") StateGraph streamGraph) throws IOException {
+        return FileCheckpointSaver.builder()
+                .directory(directory)
+                .stateSerializer(streamGraph.getStateSerializer())
+                .keyStrategies(streamGraph.getKeyStrategyFactory().apply())
+                .segmentSize(segmentSize.toBytes())
+                .hotThreads(hotThreads)
+                .maxCheckpointsPerThread(maxCheckpointsPerThread)
+                .fullSnapshotInterval(fullSnapshotInterval)
+                .finishedTtl(finishedTtl)
+                .idleTtl(idleTtl)
+                .syncOnWrite(syncOnWrite)
+                .build();
+    }
+}
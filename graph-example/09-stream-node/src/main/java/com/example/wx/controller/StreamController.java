@@ -6,10 +6,10 @@ import com.alibaba.cloud.ai.graph.NodeOutput;
 import com.alibaba.cloud.ai.graph.RunnableConfig;
 import com.alibaba.cloud.ai.graph.StateGraph;
 import com.alibaba.cloud.ai.graph.checkpoint.config.SaverConfig;
-import com.alibaba.cloud.ai.graph.checkpoint.savers.MemorySaver;
 import com.alibaba.cloud.ai.graph.exception.GraphStateException;
 import com.alibaba.cloud.ai.graph.streaming.StreamingOutput;
 import com.example.wx.domain.ChatResult;
+import com.example.wx.graph.checkpoint.FileCheckpointSaver;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -29,8 +29,7 @@ public class StreamController {
 
     private final CompiledGraph compiledGraph;
 
-    public StreamController(StateGraph streamGraph) throws GraphStateException {
-        var saver = new MemorySaver();
+    public StreamController(StateGraph streamGraph, FileCheckpointSaver saver) throws GraphStateException {
         var compileConfig = CompileConfig.builder()
                 .saverConfig(SaverConfig.builder()
                         .register(saver)
@@ -2,7 +2,6 @@ package com.example.wx.node;
 
 import com.alibaba.cloud.ai.graph.OverAllState;
 import com.alibaba.cloud.ai.graph.action.NodeAction;
-import lombok.AllArgsConstructor;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.ai.chat.messages.Message;
 import org.springframework.ai.chat.messages.UserMessage;
@@ -28,33 +27,37 @@ import java.util.Optional;
  *   <li>纯文本输出或结构化输出（自动解析为 Java 对象）</li>
  *   <li>动态输出类型（运行时从 state 获取类名）</li>
  * </ul>
+ * <p>
+ * ChatClient 与 System/User 模板在 {@link Builder#build()} 时创建一次，
+ * 运行时仅按 state 绑定模板参数，避免每次执行节点都重建 advisor 链和模板
  *
  * @author wangx
  * @create 2025/12/9 22:06
  */
-@AllArgsConstructor
 public class LLMNode implements NodeAction {
 
-    private ChatModel chatModel;
-    private ChatOptions chatOptions;
+    private final ChatClient chatClient;
     //
-    private String inputKey;
-    private String outputKey;
-    private String systemPrompt;
-    private Map<String, Object> sysParams;
-    private String userPrompt;
-    private Map<String, Object> userParams;
-    private String outputSchemaKey;
-    private BeanOutputConverter<?> converter;
+    private final String inputKey;
+    private final String outputKey;
+    private final SystemPromptTemplate systemTemplate;
+    private final Map<String, Object> sysParams;
+    private final PromptTemplate userTemplate;
+    private final Map<String, Object> userParams;
+    private final String outputSchemaKey;
+    private final BeanOutputConverter<?> converter;
 
     public LLMNode(Builder builder) {
-        this.chatModel = builder.chatModel;
-        this.chatOptions = builder.chatOptions;
+        this.chatClient = ChatClient.builder(builder.chatModel)
+                .defaultOptions(builder.chatOptions)
+                .build();
         this.inputKey = builder.inputKey;
         this.outputKey = builder.outputKey;
-        this.systemPrompt = builder.systemPrompt;
+        this.systemTemplate = StringUtils.hasText(builder.systemPrompt)
+                ? new SystemPromptTemplate(builder.systemPrompt) : null;
         this.sysParams = builder.sysParams;
-        this.userPrompt = builder.userPrompt;
+        this.userTemplate = StringUtils.hasText(builder.userPrompt)
+                ? new PromptTemplate(builder.userPrompt) : null;
         this.userParams = builder.userParams;
         this.outputSchemaKey = builder.outputSchemaKey;
         this.converter = builder.converter;
@@ -78,9 +81,7 @@ public class LLMNode implements NodeAction {
         value.ifPresent(s -> messageList.add(new UserMessage(s)));
 
         // 调用 LLM
-        var content = ChatClient.builder(chatModel)
-                .defaultOptions(this.chatOptions)
-                .build()
+        var content = this.chatClient
                 .prompt()
                 .messages(messageList)
                 .call().content();
@@ -109,21 +110,20 @@ public class LLMNode implements NodeAction {
     /**
      * 渲染 System Prompt 模板
      * <p>
-     * 使用 {@link PromptTemplate} 将 sysParams 中定义的变量从 state 获取并替换到模板中
+     * 使用预编译的 {@link SystemPromptTemplate} 将 sysParams 中定义的变量从 state 获取并替换到模板中
      *
      * @param state 全局状态
      */
     private void renderSystemPrompt(OverAllState state, List<Message> messageList) {
-        if (!StringUtils.hasText(systemPrompt)) {
+        if (this.systemTemplate == null) {
             return;
         }
-        SystemPromptTemplate template = new SystemPromptTemplate(systemPrompt);
         Map<String, Object> params = resolveParams(this.sysParams, state);
         Message message = null;
         if (!params.isEmpty()) {
-            message = template.createMessage(params);
+            message = this.systemTemplate.createMessage(params);
         } else {
-            message = template.createMessage();
+            message = this.systemTemplate.createMessage();
         }
         messageList.add(message);
     }
@@ -140,16 +140,15 @@ public class LLMNode implements NodeAction {
      * @param state 全局状态
      */
     private void renderUserPrompt(OverAllState state, List<Message> messageList) {
-        if (!StringUtils.hasText(userPrompt)) {
+        if (this.userTemplate == null) {
             return;
         }
-        PromptTemplate template = new PromptTemplate(userPrompt);
         Map<String, Object> params = resolveParams(this.userParams, state);
         Message message = null;
         if (!params.isEmpty()) {
-            message = template.createMessage(params);
+            message = this.userTemplate.createMessage(params);
         } else {
-            message = template.createMessage();
+            message = this.userTemplate.createMessage();
         }
         messageList.add(message);
     }
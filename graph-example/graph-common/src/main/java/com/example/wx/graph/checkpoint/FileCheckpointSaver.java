@@ -0,0 +1,1075 @@
+package com.example.wx.graph.checkpoint;
+
+import com.alibaba.cloud.ai.graph.KeyStrategy;
+import com.alibaba.cloud.ai.graph.RunnableConfig;
+import com.alibaba.cloud.ai.graph.StateGraph;
+import com.alibaba.cloud.ai.graph.checkpoint.BaseCheckpointSaver;
+import com.alibaba.cloud.ai.graph.checkpoint.Checkpoint;
+import com.alibaba.cloud.ai.graph.serializer.StateSerializer;
+import com.alibaba.cloud.ai.graph.state.strategy.AppendStrategy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * 基于追加写段文件的检查点存储，替代 MemorySaver
+ * <p>
+ * 存储结构：
+ * <ul>
+ *   <li>段文件：所有会话的检查点按写入顺序追加到 segment-N.log，单个段超过 segmentSize 后滚动到新段；
+ *   每条记录为 长度 + CRC32 + 记录体，启动时顺序扫描重建索引，末尾写了一半的记录被截断</li>
+ *   <li>增量编码：检查点只记录相对上一个检查点发生变化的 key 和被删除的 key，
+ *   链长达到 fullSnapshotInterval 或上一个检查点不在内存中时写入完整快照。
+ *   {@link AppendStrategy} 的 key（如 history）新值以旧列表为前缀时只记录追加的元素，
+ *   长对话每轮写入的字节数不随历史长度增长</li>
+ *   <li>索引：每个 threadId 在内存中只保留检查点的位置和增量链关系，不保留状态本身</li>
+ *   <li>热数据：最近访问的 hotThreads 个会话已还原的状态保存在内存中（LRU）；
+ *   读取时只还原被请求的检查点，{@code stateOf} 只需要沿最新检查点的增量链读到最近的完整快照</li>
+ * </ul>
+ * 后台任务定期淘汰过期会话：已结束（下一节点为 END）的会话超过 finishedTtl、其他会话超过 idleTtl 未写入即被清除；
+ * 段文件中有效数据不足一半时执行压缩，把存活会话重写到新段并删除旧段，压缩期间暂停读写。
+ * <p>
+ * 每个会话最多保留 maxCheckpointsPerThread 个检查点，更早的检查点不再出现在 {@link #list(RunnableConfig)} 中。
+ * 记录写入操作系统页缓存即返回，进程崩溃不丢数据；需要抵御掉电时开启 syncOnWrite。
+ *
+ * @author wangx
+ * @create 2026/10/19 20:40
+ */
+public class FileCheckpointSaver implements BaseCheckpointSaver, Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileCheckpointSaver.class);
+
+    private static final byte FULL = 1;
+
+    private static final byte DELTA = 2;
+
+    private static final byte CLEAR = 3;
+
+    /**
+     * 带追加部分的增量
+     */
+    private static final byte APPEND_DELTA = 4;
+
+    private static final int RECORD_HEADER_BYTES = 8;
+
+    private static final String SEGMENT_PREFIX = "segment-";
+
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final Path directory;
+
+    private final StateSerializer stateSerializer;
+
+    private final long segmentSize;
+
+    private final int maxCheckpointsPerThread;
+
+    private final int fullSnapshotInterval;
+
+    private final long finishedTtlMillis;
+
+    private final long idleTtlMillis;
+
+    private final boolean syncOnWrite;
+
+    /**
+     * 使用 AppendStrategy 合并的 key
+     */
+    private final Set<String> appendKeys;
+
+    private final Map<String, ThreadIndex> threads = new ConcurrentHashMap<>();
+
+    /**
+     * threadId -> 已还原的检查点状态
+     */
+    private final Map<String, Map<Entry, Map<String, Object>>> hot;
+
+    private final ConcurrentSkipListMap<Integer, FileChannel> segments = new ConcurrentSkipListMap<>();
+
+    /**
+     * 普通读写持有读锁，压缩持有写锁
+     */
+    private final ReadWriteLock compactionLock = new ReentrantReadWriteLock();
+
+    private final Object appendLock = new Object();
+
+    private final ScheduledExecutorService maintenance;
+
+    private int activeSegment;
+
+    private long activeSize;
+
+    private FileCheckpointSaver(Builder builder) throws IOException {
+        Assert.notNull(builder.directory, "directory cannot be null");
+        Assert.notNull(builder.stateSerializer, "stateSerializer cannot be null");
+        Assert.isTrue(builder.fullSnapshotInterval > 0 && builder.maxCheckpointsPerThread > 0,
+                "fullSnapshotInterval and maxCheckpointsPerThread must be greater than 0");
+        this.directory = builder.directory;
+        this.stateSerializer = builder.stateSerializer;
+        this.segmentSize = builder.segmentSize;
+        this.maxCheckpointsPerThread = builder.maxCheckpointsPerThread;
+        this.fullSnapshotInterval = builder.fullSnapshotInterval;
+        this.finishedTtlMillis = builder.finishedTtl.toMillis();
+        this.idleTtlMillis = builder.idleTtl.toMillis();
+        this.syncOnWrite = builder.syncOnWrite;
+        this.appendKeys = new HashSet<>();
+        builder.keyStrategies.forEach((key, strategy) -> {
+            if (strategy instanceof AppendStrategy) {
+                appendKeys.add(key);
+            }
+        });
+        int hotThreads = builder.hotThreads;
+        this.hot = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Map<Entry, Map<String, Object>>> eldest) {
+                return size() > hotThreads;
+            }
+        });
+
+        Files.createDirectories(directory);
+        recover();
+
+        this.maintenance = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "checkpoint-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = builder.maintenanceInterval.toMillis();
+        this.maintenance.scheduleWithFixedDelay(this::maintain, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public Collection<Checkpoint> list(RunnableConfig config) {
+        compactionLock.readLock().lock();
+        try {
+            ThreadIndex index = threads.get(threadId(config));
+            if (index == null) {
+                return List.of();
+            }
+            synchronized (index) {
+                return checkpoints(threadId(config), index);
+            }
+        } finally {
+            compactionLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<Checkpoint> get(RunnableConfig config) {
+        compactionLock.readLock().lock();
+        try {
+            ThreadIndex index = threads.get(threadId(config));
+            if (index == null) {
+                return Optional.empty();
+            }
+            synchronized (index) {
+                Entry entry;
+                if (config.checkPointId().isPresent()) {
+                    int position = indexOf(index.checkpoints, config.checkPointId().get());
+                    entry = position == -1 ? null : index.checkpoints.get(position);
+                } else {
+                    entry = index.checkpoints.peekFirst();
+                }
+                return Optional.ofNullable(entry).map(found -> checkpoint(found, decoded(threadId(config))));
+            }
+        } finally {
+            compactionLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public RunnableConfig put(RunnableConfig config, Checkpoint checkpoint) throws Exception {
+        String threadId = threadId(config);
+        String replaceId = config.checkPointId().orElse(null);
+        compactionLock.readLock().lock();
+        try {
+            while (true) {
+                ThreadIndex index = threads.computeIfAbsent(threadId, key -> new ThreadIndex());
+                synchronized (index) {
+                    if (index.removed) {
+                        // 与 clear 并发，重新获取索引
+                        continue;
+                    }
+                    put(threadId, index, replaceId, checkpoint);
+                    break;
+                }
+            }
+        } finally {
+            compactionLock.readLock().unlock();
+        }
+        return replaceId != null ? config : RunnableConfig.builder(config).checkPointId(checkpoint.getId()).build();
+    }
+
+    private void put(String threadId, ThreadIndex index, String replaceId, Checkpoint checkpoint) throws IOException {
+        int replaceAt = -1;
+        if (replaceId != null) {
+            replaceAt = indexOf(index.checkpoints, replaceId);
+            if (replaceAt == -1) {
+                throw new NoSuchElementException("Checkpoint with id " + replaceId + " not found!");
+            }
+        }
+
+        // 上一个检查点的状态在热数据中时写增量，否则写完整快照
+        Map<Entry, Map<String, Object>> decoded = decoded(threadId);
+        Entry latest = index.checkpoints.peekFirst();
+        Map<String, Object> latestState = latest == null ? null : decoded.get(latest);
+        boolean full = latest == null || latestState == null || latest.chain + 1 >= fullSnapshotInterval;
+
+        long now = System.currentTimeMillis();
+        byte[] body = encode(threadId, checkpoint, replaceId, now, full ? null : latest,
+                full ? null : latestState, checkpoint.getState());
+        Entry entry = append(body, checkpoint, full ? null : latest);
+
+        if (replaceAt >= 0) {
+            decoded.remove(index.checkpoints.set(replaceAt, entry));
+        } else {
+            index.checkpoints.addFirst(entry);
+            while (index.checkpoints.size() > maxCheckpointsPerThread) {
+                decoded.remove(index.checkpoints.removeLast());
+            }
+        }
+        index.lastWrite = now;
+        decoded.put(entry, checkpoint.getState());
+    }
+
+    /**
+     * 清除会话的全部检查点
+     */
+    public boolean clear(RunnableConfig config) {
+        String threadId = threadId(config);
+        compactionLock.readLock().lock();
+        try {
+            return remove(threadId) != null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            compactionLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Tag release(RunnableConfig config) throws Exception {
+        String threadId = threadId(config);
+        compactionLock.readLock().lock();
+        try {
+            ThreadIndex index = threads.get(threadId);
+            if (index == null) {
+                return new Tag(threadId, List.of());
+            }
+            List<Checkpoint> checkpoints;
+            synchronized (index) {
+                checkpoints = checkpoints(threadId, index);
+            }
+            remove(threadId);
+            return new Tag(threadId, checkpoints);
+        } finally {
+            compactionLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 当前存储的会话数
+     */
+    public int threadCount() {
+        return threads.size();
+    }
+
+    /**
+     * 淘汰过期会话：已结束的会话超过 finishedTtl、其他会话超过 idleTtl 未写入
+     *
+     * @return 淘汰的会话数
+     */
+    public int evictExpired() throws IOException {
+        long now = System.currentTimeMillis();
+        int evicted = 0;
+        compactionLock.readLock().lock();
+        try {
+            for (Map.Entry<String, ThreadIndex> thread : threads.entrySet()) {
+                ThreadIndex index = thread.getValue();
+                boolean expired;
+                synchronized (index) {
+                    Entry latest = index.checkpoints.peekFirst();
+                    boolean finished = latest != null && StateGraph.END.equals(latest.nextNodeId);
+                    long idle = now - index.lastWrite;
+                    expired = idle > idleTtlMillis || finished && idle > finishedTtlMillis;
+                }
+                if (expired && remove(thread.getKey()) != null) {
+                    evicted++;
+                }
+            }
+        } finally {
+            compactionLock.readLock().unlock();
+        }
+        return evicted;
+    }
+
+    /**
+     * 把存活会话的检查点重写到新段，删除旧段
+     */
+    public void compact() throws IOException {
+        compactionLock.writeLock().lock();
+        try {
+            int firstSegment;
+            synchronized (appendLock) {
+                roll();
+                firstSegment = activeSegment;
+            }
+            for (Map.Entry<String, ThreadIndex> thread : threads.entrySet()) {
+                ThreadIndex index = thread.getValue();
+                Map<Entry, Map<String, Object>> decoded = new IdentityHashMap<>();
+                LinkedList<Entry> rewritten = new LinkedList<>();
+                Map<String, Object> previousState = null;
+                Entry previous = null;
+                // 从最早的检查点开始重写，保持增量链
+                for (Iterator<Entry> it = index.checkpoints.descendingIterator(); it.hasNext(); ) {
+                    Entry entry = it.next();
+                    Map<String, Object> state = decode(entry, decoded);
+                    boolean full = previous == null || previous.chain + 1 >= fullSnapshotInterval;
+                    Checkpoint checkpoint = Checkpoint.builder()
+                            .id(entry.id)
+                            .nodeId(entry.nodeId)
+                            .nextNodeId(entry.nextNodeId)
+                            .state(state)
+                            .build();
+                    byte[] body = encode(thread.getKey(), checkpoint, null, index.lastWrite,
+                            full ? null : previous, full ? null : previousState, state);
+                    previous = append(body, checkpoint, full ? null : previous);
+                    previousState = state;
+                    rewritten.addFirst(previous);
+                }
+                index.checkpoints = rewritten;
+            }
+            // 重写后索引项已替换，已还原的状态按新索引项重新缓存
+            hot.clear();
+
+            for (Integer segment : new ArrayList<>(segments.headMap(firstSegment).keySet())) {
+                segments.remove(segment).close();
+                Files.deleteIfExists(segmentPath(segment));
+            }
+            logger.info("Checkpoint segments compacted, {} threads, {} bytes", threads.size(), totalBytes());
+        } finally {
+            compactionLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        maintenance.shutdownNow();
+        compactionLock.writeLock().lock();
+        try {
+            for (FileChannel channel : segments.values()) {
+                channel.close();
+            }
+            segments.clear();
+        } finally {
+            compactionLock.writeLock().unlock();
+        }
+    }
+
+    private void maintain() {
+        try {
+            int evicted = evictExpired();
+            if (evicted > 0) {
+                logger.info("Evicted {} expired checkpoint threads", evicted);
+            }
+            if (segments.size() > 1 && liveBytes() * 2 < totalBytes()) {
+                compact();
+            }
+        } catch (Exception e) {
+            logger.warn("Checkpoint maintenance failed", e);
+        }
+    }
+
+    /**
+     * 获取会话的全部检查点（最新的在前），调用方需持有 index 的锁
+     */
+    private List<Checkpoint> checkpoints(String threadId, ThreadIndex index) {
+        Map<Entry, Map<String, Object>> decoded = decoded(threadId);
+        List<Checkpoint> checkpoints = new ArrayList<>(index.checkpoints.size());
+        for (Entry entry : index.checkpoints) {
+            checkpoints.add(checkpoint(entry, decoded));
+        }
+        return checkpoints;
+    }
+
+    private Checkpoint checkpoint(Entry entry, Map<Entry, Map<String, Object>> decoded) {
+        return Checkpoint.builder()
+                .id(entry.id)
+                .nodeId(entry.nodeId)
+                .nextNodeId(entry.nextNodeId)
+                .state(decode(entry, decoded))
+                .build();
+    }
+
+    /**
+     * 会话已还原的状态，不在热数据中时创建空缓存并放入热数据
+     */
+    private Map<Entry, Map<String, Object>> decoded(String threadId) {
+        return hot.computeIfAbsent(threadId, key -> new IdentityHashMap<>());
+    }
+
+    private ThreadIndex remove(String threadId) throws IOException {
+        ThreadIndex index = threads.get(threadId);
+        if (index == null) {
+            return null;
+        }
+        synchronized (index) {
+            if (index.removed) {
+                return null;
+            }
+            append(encodeClear(threadId), null, null);
+            index.removed = true;
+            threads.remove(threadId, index);
+            hot.remove(threadId);
+        }
+        return index;
+    }
+
+    // ---------------------------------------------------------------- 编解码
+
+    private byte[] encode(String threadId, Checkpoint checkpoint, String replaceId, long timestamp, Entry base,
+                          Map<String, Object> baseState, Map<String, Object> state) throws IOException {
+        Map<String, Object> changed = state;
+        Map<String, Object> appended = Map.of();
+        List<String> removed = List.of();
+        if (base != null) {
+            changed = new HashMap<>();
+            appended = new HashMap<>();
+            for (Map.Entry<String, Object> entry : state.entrySet()) {
+                Object previous = baseState.get(entry.getKey());
+                if (previous == entry.getValue() || baseState.containsKey(entry.getKey()) && Objects.equals(previous, entry.getValue())) {
+                    continue;
+                }
+                List<Object> tail = appendKeys.contains(entry.getKey()) ? appendedTail(previous, entry.getValue()) : null;
+                if (tail != null) {
+                    appended.put(entry.getKey(), tail);
+                } else {
+                    changed.put(entry.getKey(), entry.getValue());
+                }
+            }
+            removed = new ArrayList<>();
+            for (String key : baseState.keySet()) {
+                if (!state.containsKey(key)) {
+                    removed.add(key);
+                }
+            }
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(base == null ? FULL : appended.isEmpty() ? DELTA : APPEND_DELTA);
+        writeString(out, threadId);
+        writeString(out, checkpoint.getId());
+        writeNullableString(out, checkpoint.getNodeId());
+        writeNullableString(out, checkpoint.getNextNodeId());
+        writeNullableString(out, replaceId);
+        out.writeLong(timestamp);
+        if (base != null) {
+            writeVarLong(out, base.segment);
+            writeVarLong(out, base.offset);
+        }
+        writeVarLong(out, removed.size());
+        for (String key : removed) {
+            writeString(out, key);
+        }
+        byte[] payload = serialize(changed);
+        writeVarLong(out, payload.length);
+        out.write(payload);
+        if (!appended.isEmpty()) {
+            byte[] appendedPayload = serialize(appended);
+            writeVarLong(out, appendedPayload.length);
+            out.write(appendedPayload);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * 新列表以旧列表为前缀时返回追加的元素，否则返回 null（按替换处理）
+     */
+    private static List<Object> appendedTail(Object previous, Object value) {
+        if (!(previous instanceof List<?> before) || !(value instanceof List<?> after) || after.size() <= before.size()) {
+            return null;
+        }
+        Iterator<?> beforeIt = before.iterator();
+        Iterator<?> afterIt = after.iterator();
+        while (beforeIt.hasNext()) {
+            Object expected = beforeIt.next();
+            Object actual = afterIt.next();
+            if (expected != actual && !Objects.equals(expected, actual)) {
+                return null;
+            }
+        }
+        return new ArrayList<>(after.subList(before.size(), after.size()));
+    }
+
+    private byte[] encodeClear(String threadId) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(32);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(CLEAR);
+        writeString(out, threadId);
+        return bytes.toByteArray();
+    }
+
+    private Record parse(byte[] body) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+        Record record = new Record();
+        record.type = in.readByte();
+        record.threadId = readString(in);
+        if (record.type == CLEAR) {
+            return record;
+        }
+        record.id = readString(in);
+        record.nodeId = readNullableString(in);
+        record.nextNodeId = readNullableString(in);
+        record.replaceId = readNullableString(in);
+        record.timestamp = in.readLong();
+        if (record.type == DELTA || record.type == APPEND_DELTA) {
+            record.baseSegment = (int) readVarLong(in);
+            record.baseOffset = readVarLong(in);
+        }
+        int removed = (int) readVarLong(in);
+        record.removed = new ArrayList<>(removed);
+        for (int i = 0; i < removed; i++) {
+            record.removed.add(readString(in));
+        }
+        record.payload = new byte[(int) readVarLong(in)];
+        in.readFully(record.payload);
+        if (record.type == APPEND_DELTA) {
+            record.appendedPayload = new byte[(int) readVarLong(in)];
+            in.readFully(record.appendedPayload);
+        }
+        return record;
+    }
+
+    /**
+     * 还原检查点的完整状态：沿增量链找到完整快照或已还原的检查点，再依次应用增量
+     */
+    private Map<String, Object> decode(Entry entry, Map<Entry, Map<String, Object>> decoded) {
+        Deque<Entry> chain = new ArrayDeque<>();
+        Entry current = entry;
+        while (current != null && !decoded.containsKey(current)) {
+            chain.push(current);
+            current = current.base;
+        }
+        Map<String, Object> state = current == null ? null : decoded.get(current);
+        try {
+            while (!chain.isEmpty()) {
+                Entry next = chain.pop();
+                Record record = parse(read(next));
+                Map<String, Object> applied;
+                if (record.type == FULL) {
+                    applied = new HashMap<>();
+                } else if (state != null) {
+                    applied = new HashMap<>(state);
+                } else {
+                    throw new IllegalStateException("Missing base checkpoint for " + next.id);
+                }
+                record.removed.forEach(applied::remove);
+                applied.putAll(deserialize(record.payload));
+                if (record.appendedPayload != null) {
+                    deserialize(record.appendedPayload).forEach((key, tail) -> {
+                        List<Object> list = new ArrayList<>((List<?>) applied.getOrDefault(key, List.of()));
+                        list.addAll((List<?>) tail);
+                        applied.put(key, list);
+                    });
+                }
+                decoded.put(next, applied);
+                state = applied;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return state;
+    }
+
+    private byte[] serialize(Map<String, Object> state) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            stateSerializer.writeData(state, out);
+        }
+        return bytes.toByteArray();
+    }
+
+    private Map<String, Object> deserialize(byte[] payload) throws IOException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(payload))) {
+            return stateSerializer.readData(in);
+        } catch (ClassNotFoundException e) {
+            throw new IOException(e);
+        }
+    }
+
+    // ---------------------------------------------------------------- 段文件
+
+    private Entry append(byte[] body, Checkpoint checkpoint, Entry base) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_HEADER_BYTES + body.length);
+        buffer.putInt(body.length).putInt((int) crc.getValue()).put(body).flip();
+
+        synchronized (appendLock) {
+            if (activeSize > 0 && activeSize + buffer.remaining() > segmentSize) {
+                roll();
+            }
+            FileChannel channel = segments.get(activeSegment);
+            long offset = activeSize;
+            while (buffer.hasRemaining()) {
+                activeSize += channel.write(buffer, activeSize);
+            }
+            if (syncOnWrite) {
+                channel.force(false);
+            }
+            if (checkpoint == null) {
+                return null;
+            }
+            Entry entry = new Entry(checkpoint.getId(), checkpoint.getNodeId(), checkpoint.getNextNodeId());
+            entry.segment = activeSegment;
+            entry.offset = offset;
+            entry.length = (int) (activeSize - offset);
+            entry.base = base;
+            entry.chain = base == null ? 0 : base.chain + 1;
+            return entry;
+        }
+    }
+
+    private byte[] read(Entry entry) throws IOException {
+        FileChannel channel = segments.get(entry.segment);
+        if (channel == null) {
+            throw new IOException("Segment " + entry.segment + " not found");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(entry.length);
+        long position = entry.offset;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new EOFException("Unexpected end of segment " + entry.segment);
+            }
+            position += read;
+        }
+        buffer.flip();
+        int length = buffer.getInt();
+        int checksum = buffer.getInt();
+        byte[] body = new byte[length];
+        buffer.get(body);
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        if ((int) crc.getValue() != checksum) {
+            throw new IOException("Checksum mismatch in segment " + entry.segment + " at " + entry.offset);
+        }
+        return body;
+    }
+
+    /**
+     * 调用方需持有 appendLock
+     */
+    private void roll() throws IOException {
+        activeSegment = segments.isEmpty() ? 1 : segments.lastKey() + 1;
+        activeSize = 0;
+        segments.put(activeSegment, FileChannel.open(segmentPath(activeSegment), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE));
+    }
+
+    private Path segmentPath(int segment) {
+        return directory.resolve(String.format("%s%08d%s", SEGMENT_PREFIX, segment, SEGMENT_SUFFIX));
+    }
+
+    /**
+     * 顺序扫描段文件重建索引；最后一个段末尾不完整或校验失败的记录被截断，
+     * 其余段中的损坏记录只跳过并打印 ERROR 日志，不修改文件
+     */
+    private void recover() throws IOException {
+        List<Integer> ids;
+        try (Stream<Path> files = Files.list(directory)) {
+            ids = files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                    .map(name -> Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())))
+                    .sorted()
+                    .toList();
+        }
+
+        Map<Long, Entry> byLocation = new HashMap<>();
+        long start = System.nanoTime();
+        int records = 0;
+        for (int i = 0; i < ids.size(); i++) {
+            int segment = ids.get(i);
+            FileChannel channel = FileChannel.open(segmentPath(segment), StandardOpenOption.READ, StandardOpenOption.WRITE);
+            segments.put(segment, channel);
+            long size = channel.size();
+            long position = 0;
+            ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_BYTES);
+            while (position + RECORD_HEADER_BYTES <= size) {
+                header.clear();
+                channel.read(header, position);
+                header.flip();
+                int length = header.getInt();
+                if (length <= 0 || position + RECORD_HEADER_BYTES + length > size) {
+                    break;
+                }
+                Entry location = new Entry(null, null, null);
+                location.segment = segment;
+                location.offset = position;
+                location.length = RECORD_HEADER_BYTES + length;
+                byte[] body;
+                try {
+                    body = read(location);
+                } catch (IOException e) {
+                    break;
+                }
+                apply(parse(body), location, byLocation);
+                position += location.length;
+                records++;
+            }
+            boolean last = i == ids.size() - 1;
+            if (position < size && last) {
+                // 只有最后一个段可能因进程中断而末尾写了一半
+                logger.warn("Truncating {} bytes of incomplete records in {}", size - position, segmentPath(segment));
+                channel.truncate(position);
+            } else if (position < size) {
+                // 已封存的段不会再写入，记录损坏说明磁盘或文件被破坏；保留原文件以便排查，之后的记录跳过
+                logger.error("Segment {} is corrupted at offset {}, skipping its remaining {} bytes; "
+                                + "checkpoints stored after this offset are lost", segmentPath(segment), position,
+                        size - position);
+            }
+            if (last) {
+                activeSegment = segment;
+                activeSize = position;
+            }
+        }
+        if (segments.isEmpty()) {
+            roll();
+        }
+        logger.info("Recovered {} checkpoint threads from {} records in {} ms", threads.size(), records,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    private void apply(Record record, Entry location, Map<Long, Entry> byLocation) {
+        if (record.type == CLEAR) {
+            threads.remove(record.threadId);
+            return;
+        }
+        Entry base = null;
+        if (record.type != FULL) {
+            base = byLocation.get(locationKey(record.baseSegment, record.baseOffset));
+            if (base == null) {
+                logger.warn("Skipping checkpoint {} of thread {}, base record is missing", record.id, record.threadId);
+                return;
+            }
+        }
+        Entry entry = new Entry(record.id, record.nodeId, record.nextNodeId);
+        entry.segment = location.segment;
+        entry.offset = location.offset;
+        entry.length = location.length;
+        entry.base = base;
+        entry.chain = base == null ? 0 : base.chain + 1;
+        byLocation.put(locationKey(entry.segment, entry.offset), entry);
+
+        ThreadIndex index = threads.computeIfAbsent(record.threadId, key -> new ThreadIndex());
+        int replaceAt = record.replaceId == null ? -1 : indexOf(index.checkpoints, record.replaceId);
+        if (replaceAt >= 0) {
+            index.checkpoints.set(replaceAt, entry);
+        } else {
+            index.checkpoints.addFirst(entry);
+            while (index.checkpoints.size() > maxCheckpointsPerThread) {
+                index.checkpoints.removeLast();
+            }
+        }
+        index.lastWrite = record.timestamp;
+    }
+
+    private long liveBytes() {
+        Set<Entry> live = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (ThreadIndex index : threads.values()) {
+            synchronized (index) {
+                for (Entry entry : index.checkpoints) {
+                    for (Entry current = entry; current != null && live.add(current); current = current.base) {
+                        // 增量链上的记录都需要保留
+                    }
+                }
+            }
+        }
+        return live.stream().mapToLong(entry -> entry.length).sum();
+    }
+
+    private long totalBytes() {
+        long total = 0;
+        for (FileChannel channel : segments.values()) {
+            try {
+                total += channel.size();
+            } catch (IOException e) {
+                // 已关闭的段不计入
+            }
+        }
+        return total;
+    }
+
+    // ---------------------------------------------------------------- 工具方法
+
+    private static String threadId(RunnableConfig config) {
+        return config.threadId().orElse(THREAD_ID_DEFAULT);
+    }
+
+    private static int indexOf(List<Entry> entries, String id) {
+        for (int i = 0; i < entries.size(); i++) {
+            if (entries.get(i).id.equals(id)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static long locationKey(int segment, long offset) {
+        return ((long) segment << 40) | offset;
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[(int) readVarLong(in)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeNullableString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            writeString(out, value);
+        }
+    }
+
+    private static String readNullableString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? readString(in) : null;
+    }
+
+    /**
+     * 单个会话的索引，只记录检查点的位置（最新的在前）
+     */
+    private static final class ThreadIndex {
+
+        private LinkedList<Entry> checkpoints = new LinkedList<>();
+
+        private long lastWrite;
+
+        private boolean removed;
+    }
+
+    /**
+     * 检查点在段文件中的位置，base 为增量的基准检查点
+     */
+    private static final class Entry {
+
+        private final String id;
+
+        private final String nodeId;
+
+        private final String nextNodeId;
+
+        private int segment;
+
+        private long offset;
+
+        private int length;
+
+        private Entry base;
+
+        private int chain;
+
+        private Entry(String id, String nodeId, String nextNodeId) {
+            this.id = id;
+            this.nodeId = nodeId;
+            this.nextNodeId = nextNodeId;
+        }
+    }
+
+    private static final class Record {
+
+        private byte type;
+
+        private String threadId;
+
+        private String id;
+
+        private String nodeId;
+
+        private String nextNodeId;
+
+        private String replaceId;
+
+        private long timestamp;
+
+        private int baseSegment;
+
+        private long baseOffset;
+
+        private List<String> removed;
+
+        private byte[] payload;
+
+        private byte[] appendedPayload;
+    }
+
+    public static class Builder {
+
+        private Path directory;
+        private StateSerializer stateSerializer;
+        private long segmentSize = 64L * 1024 * 1024;
+        private int hotThreads = 1024;
+        private int maxCheckpointsPerThread = 32;
+        private int fullSnapshotInterval = 16;
+        private Duration finishedTtl = Duration.ofMinutes(30);
+        private Duration idleTtl = Duration.ofDays(1);
+        private Duration maintenanceInterval = Duration.ofMinutes(1);
+        private boolean syncOnWrite = false;
+        private Map<String, KeyStrategy> keyStrategies = Map.of();
+
+        /**
+         * 段文件所在目录
+         */
+        public Builder directory(Path directory) {
+            this.directory = directory;
+            return this;
+        }
+
+        /**
+         * 状态序列化器，一般使用 StateGraph 的序列化器
+         */
+        public Builder stateSerializer(StateSerializer stateSerializer) {
+            this.stateSerializer = stateSerializer;
+            return this;
+        }
+
+        /**
+         * 状态的合并策略，AppendStrategy 的 key 按追加记录增量
+         */
+        public Builder keyStrategies(Map<String, KeyStrategy> keyStrategies) {
+            this.keyStrategies = keyStrategies;
+            return this;
+        }
+
+        public Builder segmentSize(long segmentSize) {
+            this.segmentSize = segmentSize;
+            return this;
+        }
+
+        /**
+         * 热数据中保留的会话数
+         */
+        public Builder hotThreads(int hotThreads) {
+            this.hotThreads = hotThreads;
+            return this;
+        }
+
+        public Builder maxCheckpointsPerThread(int maxCheckpointsPerThread) {
+            this.maxCheckpointsPerThread = maxCheckpointsPerThread;
+            return this;
+        }
+
+        /**
+         * 增量链的最大长度，达到后写入完整快照
+         */
+        public Builder fullSnapshotInterval(int fullSnapshotInterval) {
+            this.fullSnapshotInterval = fullSnapshotInterval;
+            return this;
+        }
+
+        /**
+         * 已结束会话的保留时长
+         */
+        public Builder finishedTtl(Duration finishedTtl) {
+            this.finishedTtl = finishedTtl;
+            return this;
+        }
+
+        /**
+         * 未结束会话（如等待用户确认）的保留时长
+         */
+        public Builder idleTtl(Duration idleTtl) {
+            this.idleTtl = idleTtl;
+            return this;
+        }
+
+        public Builder maintenanceInterval(Duration maintenanceInterval) {
+            this.maintenanceInterval = maintenanceInterval;
+            return this;
+        }
+
+        public Builder syncOnWrite(boolean syncOnWrite) {
+            this.syncOnWrite = syncOnWrite;
+            return this;
+        }
+
+        public FileCheckpointSaver build() throws IOException {
+            return new FileCheckpointSaver(this);
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package com.example.wx.graph.stream;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * 把图的输出流桥接到 HTTP 订阅，替代 unicast().onBackpressureBuffer() + 独立 subscribe() 的写法
+ * <p>
+ * <ul>
+ *   <li>生命周期跟随下游：HTTP 订阅时才订阅图的输出流（开始执行），客户端断开时取消图的输出流（停止执行）</li>
+ *   <li>有界缓冲：图的输出先进入最多 bufferSize 个元素的队列，按下游的请求量发送。
+ *   队列满时按 {@link OverflowPolicy} 丢弃可丢弃的元素（token chunk）；
+ *   节点输出等不可丢弃的元素永远不丢，队列满时仍会入队，因此只有节点输出会让队列超过 bufferSize</li>
+ *   <li>图的错误和完成在队列中已有的元素发送完后才传递给下游</li>
+ * </ul>
+ * 丢弃次数记录在 graph.stream.dropped 指标中。每次订阅的状态相互独立，实例可被所有请求共享。
+ *
+ * @author wangx
+ * @create 2026/10/21 14:10
+ */
+public class GraphStreamBridge {
+
+    public enum OverflowPolicy {
+        /**
+         * 丢弃队列中最早的 chunk，客户端追上后看到的是最新的输出
+         */
+        DROP_OLDEST,
+        /**
+         * 丢弃新到的 chunk，客户端看到的是连续的开头部分
+         */
+        DROP_LATEST
+    }
+
+    private final int bufferSize;
+
+    private final OverflowPolicy overflowPolicy;
+
+    private final Counter droppedCounter;
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    private GraphStreamBridge(Builder builder) {
+        this.bufferSize = builder.bufferSize;
+        this.overflowPolicy = builder.overflowPolicy;
+        MeterRegistry registry = builder.meterRegistry != null ? builder.meterRegistry : Metrics.globalRegistry;
+        this.droppedCounter = Counter.builder("graph.stream.dropped")
+                .tag("policy", overflowPolicy.name().toLowerCase())
+                .register(registry);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @param source    图的输出流，每次订阅返回的 Flux 时订阅一次
+     * @param droppable 判断元素在队列满时是否可以丢弃
+     */
+    public <T> Flux<T> bridge(Publisher<? extends T> source, Predicate<? super T> droppable) {
+        return Flux.create(sink -> new Bridge<T>(sink, droppable).start(source), FluxSink.OverflowStrategy.IGNORE);
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    private void onDropped() {
+        dropped.incrementAndGet();
+        droppedCounter.increment();
+    }
+
+    /**
+     * 一次订阅的状态：上游推入队列，drain 按下游请求量取出，同一时刻只有一个线程在 drain
+     */
+    private final class Bridge<T> extends BaseSubscriber<T> {
+
+        private final FluxSink<T> sink;
+
+        private final Predicate<? super T> droppable;
+
+        private final ArrayDeque<T> queue = new ArrayDeque<>();
+
+        private final AtomicLong requested = new AtomicLong();
+
+        private final AtomicInteger wip = new AtomicInteger();
+
+        private volatile boolean done;
+
+        private volatile boolean cancelled;
+
+        private Throwable error;
+
+        private Bridge(FluxSink<T> sink, Predicate<? super T> droppable) {
+            this.sink = sink;
+            this.droppable = droppable;
+        }
+
+        private void start(Publisher<? extends T> source) {
+            sink.onRequest(n -> {
+                requested.accumulateAndGet(n, (current, add) -> current + add < 0 ? Long.MAX_VALUE : current + add);
+                drain();
+            });
+            sink.onCancel(() -> {
+                // 客户端断开：取消图的执行并丢弃已缓冲的输出
+                cancelled = true;
+                dispose();
+                synchronized (queue) {
+                    queue.clear();
+                }
+            });
+            source.subscribe(this);
+        }
+
+        @Override
+        protected void hookOnNext(T value) {
+            if (cancelled) {
+                return;
+            }
+            synchronized (queue) {
+                if (queue.size() >= bufferSize) {
+                    if (overflowPolicy == OverflowPolicy.DROP_OLDEST && removeOldestDroppable()) {
+                        onDropped();
+                    } else if (droppable.test(value)) {
+                        onDropped();
+                        return;
+                    }
+                }
+                queue.offer(value);
+            }
+            drain();
+        }
+
+        @Override
+        protected void hookOnError(Throwable throwable) {
+            error = throwable;
+            done = true;
+            drain();
+        }
+
+        @Override
+        protected void hookOnComplete() {
+            done = true;
+            drain();
+        }
+
+        private boolean removeOldestDroppable() {
+            Iterator<T> iterator = queue.iterator();
+            while (iterator.hasNext()) {
+                if (droppable.test(iterator.next())) {
+                    iterator.remove();
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void drain() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+            int missed = 1;
+            for (; ; ) {
+                long demand = requested.get();
+                long emitted = 0;
+                while (emitted != demand && !cancelled) {
+                    T value;
+                    synchronized (queue) {
+                        value = queue.poll();
+                    }
+                    if (value == null) {
+                        break;
+                    }
+                    sink.next(value);
+                    emitted++;
+                }
+                if (cancelled) {
+                    return;
+                }
+                if (done) {
+                    boolean empty;
+                    synchronized (queue) {
+                        empty = queue.isEmpty();
+                    }
+                    if (empty) {
+                        if (error != null) {
+                            sink.error(error);
+                        } else {
+                            sink.complete();
+                        }
+                        return;
+                    }
+                }
+                if (emitted != 0 && demand != Long.MAX_VALUE) {
+                    requested.addAndGet(-emitted);
+                }
+                missed = wip.addAndGet(-missed);
+                if (missed == 0) {
+                    return;
+                }
+            }
+        }
+    }
+
+    public static class Builder {
+
+        private int bufferSize = 256;
+
+        private OverflowPolicy overflowPolicy = OverflowPolicy.DROP_OLDEST;
+
+        private MeterRegistry meterRegistry;
+
+        private Builder() {
+        }
+
+        public Builder bufferSize(int bufferSize) {
+            this.bufferSize = bufferSize;
+            return this;
+        }
+
+        public Builder overflowPolicy(OverflowPolicy overflowPolicy) {
+            this.overflowPolicy = overflowPolicy;
+            return this;
+        }
+
+        public Builder meterRegistry(MeterRegistry meterRegistry) {
+            this.meterRegistry = meterRegistry;
+            return this;
+        }
+
+        public GraphStreamBridge build() {
+            if (bufferSize <= 0) {
+                throw new IllegalArgumentException("bufferSize must be positive");
+            }
+            return new GraphStreamBridge(this);
+        }
+    }
+}
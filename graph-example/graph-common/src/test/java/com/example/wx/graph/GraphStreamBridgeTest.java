@@ -0,0 +1,170 @@
+package com.example.wx.graph;
+
+import com.example.wx.graph.stream.GraphStreamBridge;
+import com.example.wx.graph.stream.GraphStreamBridge.OverflowPolicy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 慢客户端的内存占用与客户端断开后图是否继续执行：08 原 ChatController.stream2 的 Sinks 写法 vs GraphStreamBridge
+ * <p>
+ * 用法：GraphStreamBridgeTest [输出数量，默认 500000]
+ * <ul>
+ *   <li>慢客户端：图以最快速度输出 token chunk，每 10000 个 chunk 跟一个节点输出；客户端只读一个元素后停止读取，
+ *   等图执行完后统计仍被缓冲的堆内存，再读完剩余元素，检查节点输出一个不丢</li>
+ *   <li>断开：图每毫秒输出一个 chunk，客户端读 20 个后断开，200ms 后统计图是否被取消、断开后又输出了多少</li>
+ * </ul>
+ * GraphStreamBridge 不满足预期时抛出 IllegalStateException。
+ *
+ * @author wangx
+ * @create 2026/10/21 15:10
+ */
+public class GraphStreamBridgeTest {
+
+    private record Event(boolean chunk, String text) {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int outputs = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+
+        slowConsumer("previous", outputs, null);
+        for (OverflowPolicy policy : OverflowPolicy.values()) {
+            slowConsumer(policy.name().toLowerCase(), outputs, GraphStreamBridge.builder()
+                    .bufferSize(256)
+                    .overflowPolicy(policy)
+                    .meterRegistry(new SimpleMeterRegistry())
+                    .build());
+        }
+
+        cancellation("previous", null);
+        cancellation("bridge", GraphStreamBridge.builder().meterRegistry(new SimpleMeterRegistry()).build());
+    }
+
+    private static void slowConsumer(String name, int outputs, GraphStreamBridge bridge) throws Exception {
+        CountDownLatch graphDone = new CountDownLatch(1);
+        Flux<Event> graph = Flux.range(0, outputs)
+                .map(i -> i % 10_000 == 9_999
+                        ? new Event(false, "node-" + i)
+                        : new Event(true, "token " + i + " of the streaming reply"))
+                .doFinally(signal -> graphDone.countDown())
+                .subscribeOn(Schedulers.boundedElastic());
+
+        long baseline = usedHeap();
+        StalledClient client = new StalledClient();
+        stream(graph, bridge).subscribe(client);
+        if (!graphDone.await(60, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("graph did not finish");
+        }
+        long retained = usedHeap() - baseline;
+
+        client.resume();
+        if (!client.done.await(60, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("client did not finish");
+        }
+        int expectedStates = outputs / 10_000;
+        System.out.printf("slow client %-12s retained %8.1f MB while stalled | received chunks %7d, node outputs %4d/%d, "
+                        + "dropped %7d%n", name, Math.max(retained, 0) / 1048576.0, client.chunks.get(), client.states.get(),
+                expectedStates, bridge == null ? 0 : bridge.getDropped());
+        if (bridge != null && (client.states.get() != expectedStates || retained > 16 * 1048576L)) {
+            throw new IllegalStateException(name + ": node outputs lost or buffer not bounded");
+        }
+    }
+
+    private static void cancellation(String name, GraphStreamBridge bridge) throws Exception {
+        AtomicLong produced = new AtomicLong();
+        AtomicBoolean graphCancelled = new AtomicBoolean();
+        Scheduler graphScheduler = Schedulers.newSingle("graph-" + name);
+        Flux<Event> graph = Flux.interval(Duration.ofMillis(1), graphScheduler)
+                .map(i -> new Event(true, "token " + i))
+                .doOnNext(event -> produced.incrementAndGet())
+                .doOnCancel(() -> graphCancelled.set(true));
+
+        CountDownLatch received = new CountDownLatch(20);
+        var subscription = stream(graph, bridge).subscribe(event -> received.countDown());
+        received.await(5, TimeUnit.SECONDS);
+        subscription.dispose();
+        long atDisconnect = produced.get();
+        Thread.sleep(200);
+        long afterDisconnect = produced.get() - atDisconnect;
+        System.out.printf("disconnect  %-12s graph cancelled %-5s | outputs produced after disconnect %d%n",
+                name, graphCancelled.get(), afterDisconnect);
+        if (bridge != null && (!graphCancelled.get() || afterDisconnect > 1)) {
+            throw new IllegalStateException(name + ": graph kept running after the client disconnected");
+        }
+        // 原写法下图不会停止，这里手动结束
+        graphScheduler.dispose();
+    }
+
+    /**
+     * bridge 为 null 时使用原 ChatController#stream2 的写法
+     */
+    private static Flux<Event> stream(Flux<Event> graph, GraphStreamBridge bridge) {
+        if (bridge != null) {
+            return bridge.bridge(graph, Event::chunk);
+        }
+        Sinks.Many<Event> sink = Sinks.many().unicast().onBackpressureBuffer();
+        graph.doOnNext(sink::tryEmitNext)
+                .doOnComplete(sink::tryEmitComplete)
+                .doOnError(sink::tryEmitError)
+                .subscribe();
+        return sink.asFlux();
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    /**
+     * 只读取一个元素后停止读取的客户端，resume 后读完剩余元素
+     */
+    private static class StalledClient extends BaseSubscriber<Event> {
+
+        private final AtomicInteger chunks = new AtomicInteger();
+
+        private final AtomicInteger states = new AtomicInteger();
+
+        private final CountDownLatch done = new CountDownLatch(1);
+
+        @Override
+        protected void hookOnSubscribe(Subscription subscription) {
+            subscription.request(1);
+        }
+
+        @Override
+        protected void hookOnNext(Event event) {
+            (event.chunk() ? chunks : states).incrementAndGet();
+        }
+
+        @Override
+        protected void hookOnComplete() {
+            done.countDown();
+        }
+
+        @Override
+        protected void hookOnError(Throwable throwable) {
+            throwable.printStackTrace();
+            done.countDown();
+        }
+
+        void resume() {
+            requestUnbounded();
+        }
+    }
+}
@@ -1,12 +1,21 @@
 package com.example.wx.config;
 
-import com.alibaba.cloud.ai.memory.jdbc.MysqlChatMemoryRepository;
-import com.alibaba.cloud.ai.memory.jdbc.PostgresChatMemoryRepository;
+import com.example.wx.memory.BatchingChatMemory;
+import com.example.wx.memory.CachingChatMemoryRepository;
+import com.example.wx.memory.JdbcAppendingChatMemoryRepository;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.ai.chat.memory.ChatMemoryRepository;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.time.Duration;
 
 /**
  * @author wangx
@@ -23,6 +32,8 @@ public class MemoryConfig {
     private String mysqlPassword;
     @Value("${spring.ai.chat.memory.repository.jdbc.mysql.driver-class-name}")
     private String mysqlDriverClassName;
+    @Value("${spring.ai.chat.memory.repository.jdbc.mysql.initialize-schema:true}")
+    private boolean mysqlInitializeSchema;
 
 
     @Value("${spring.ai.chat.memory.repository.jdbc.postgres.jdbc-url}")
@@ -33,30 +44,116 @@ public class MemoryConfig {
     private String pgsqlPassword;
     @Value("${spring.ai.chat.memory.repository.jdbc.postgres.driver-class-name}")
     private String pgsqlDriverClassName;
+    @Value("${spring.ai.chat.memory.repository.jdbc.postgres.initialize-schema:true}")
+    private boolean pgsqlInitializeSchema;
+
+    // 连接池
+    @Value("${spring.ai.chat.memory.repository.jdbc.pool.maximum-pool-size:10}")
+    private int maximumPoolSize;
+    @Value("${spring.ai.chat.memory.repository.jdbc.pool.minimum-idle:2}")
+    private int minimumIdle;
+
+    // 记忆窗口与异步落库
+    @Value("${spring.ai.chat.memory.max-messages:100}")
+    private int maxMessages;
+    @Value("${spring.ai.chat.memory.write-behind.enabled:false}")
+    private boolean writeBehind;
+    @Value("${spring.ai.chat.memory.write-behind.flush-interval:500ms}")
+    private Duration flushInterval;
+    @Value("${spring.ai.chat.memory.buffer.max-messages:10}")
+    private int maxBufferedMessages;
+    @Value("${spring.ai.chat.memory.buffer.max-age:5s}")
+    private Duration maxBufferAge;
+
+    // 进程内窗口缓存
+    @Value("${spring.ai.chat.memory.cache.max-conversations:10000}")
+    private int cacheMaxConversations;
+    @Value("${spring.ai.chat.memory.cache.ttl:30m}")
+    private Duration cacheTtl;
+
+    @Bean(destroyMethod = "close")
+    public HikariDataSource mysqlMemoryDataSource() {
+        HikariDataSource dataSource = createDataSource("mysql-memory-pool", mysqlDriverClassName,
+                mysqlJdbcUrl, mysqlUsername, mysqlPassword);
+        // 将 batchUpdate 改写为多值 insert，一次往返写入一轮对话
+        dataSource.addDataSourceProperty("rewriteBatchedStatements", "true");
+        return dataSource;
+    }
+
+    @Bean(destroyMethod = "close")
+    public HikariDataSource pgsqlMemoryDataSource() {
+        HikariDataSource dataSource = createDataSource("pgsql-memory-pool", pgsqlDriverClassName,
+                pgsqlJdbcUrl, pgsqlUsername, pgsqlPassword);
+        dataSource.addDataSourceProperty("reWriteBatchedInserts", "true");
+        return dataSource;
+    }
+
+    @Bean
+    public JdbcAppendingChatMemoryRepository mysqlChatMemoryRepository(@Qualifier("mysqlMemoryDataSource") HikariDataSource dataSource) {
+        return JdbcAppendingChatMemoryRepository.builder()
+                .jdbcTemplate(new JdbcTemplate(dataSource))
+                .dialect(JdbcAppendingChatMemoryRepository.Dialect.MYSQL)
+                .initializeSchema(mysqlInitializeSchema)
+                .build();
+    }
 
     @Bean
-    public MysqlChatMemoryRepository mysqlChatMemoryRepository() {
-        DriverManagerDataSource dataSource = new DriverManagerDataSource();
-        dataSource.setDriverClassName(mysqlDriverClassName);
-        dataSource.setUrl(mysqlJdbcUrl);
-        dataSource.setUsername(mysqlUsername);
-        dataSource.setPassword(mysqlPassword);
-        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
-        return MysqlChatMemoryRepository.mysqlBuilder()
-                .jdbcTemplate(jdbcTemplate)
+    public JdbcAppendingChatMemoryRepository pgsqlChatMemoryRepository(@Qualifier("pgsqlMemoryDataSource") HikariDataSource dataSource) {
+        return JdbcAppendingChatMemoryRepository.builder()
+                .jdbcTemplate(new JdbcTemplate(dataSource))
+                .dialect(JdbcAppendingChatMemoryRepository.Dialect.POSTGRESQL)
+                .initializeSchema(pgsqlInitializeSchema)
                 .build();
     }
 
     @Bean
-    public PostgresChatMemoryRepository pgsqlChatMemoryRepository() {
-        DriverManagerDataSource dataSource = new DriverManagerDataSource();
-        dataSource.setDriverClassName(pgsqlDriverClassName);
-        dataSource.setUrl(pgsqlJdbcUrl);
-        dataSource.setUsername(pgsqlUsername);
-        dataSource.setPassword(pgsqlPassword);
-        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
-        return PostgresChatMemoryRepository.postgresBuilder()
-                .jdbcTemplate(jdbcTemplate)
+    public BatchingChatMemory mysqlChatMemory(@Qualifier("mysqlChatMemoryRepository") JdbcAppendingChatMemoryRepository repository,
+                                              ObjectProvider<MeterRegistry> meterRegistry) {
+        // 每轮对话只追加新消息，不再整体删除重写
+        return batching(cached("mysql", repository, meterRegistry));
+    }
+
+    @Bean
+    public BatchingChatMemory pgsqlChatMemory(@Qualifier("pgsqlChatMemoryRepository") JdbcAppendingChatMemoryRepository repository,
+                                              ObjectProvider<MeterRegistry> meterRegistry) {
+        // 每轮对话只追加新消息，不再整体删除重写
+        return batching(cached("pgsql", repository, meterRegistry));
+    }
+
+    private BatchingChatMemory batching(ChatMemoryRepository repository) {
+        return BatchingChatMemory.builder()
+                .chatMemoryRepository(repository)
+                .maxMessages(maxMessages)
+                .writeBehind(writeBehind)
+                .flushInterval(flushInterval)
+                .maxBufferedMessages(maxBufferedMessages)
+                .maxBufferAge(maxBufferAge)
                 .build();
     }
+
+    private CachingChatMemoryRepository cached(String name, ChatMemoryRepository delegate,
+                                               ObjectProvider<MeterRegistry> meterRegistry) {
+        return CachingChatMemoryRepository.builder()
+                .name(name)
+                .delegate(delegate)
+                .maxConversations(cacheMaxConversations)
+                .ttl(cacheTtl)
+                .meterRegistry(meterRegistry.getIfAvailable(() -> Metrics.globalRegistry))
+                .build();
+    }
+
+    private HikariDataSource createDataSource(String poolName, String driverClassName, String jdbcUrl,
+                                              String username, String password) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName(poolName);
+        config.setDriverClassName(driverClassName);
+        config.setJdbcUrl(jdbcUrl);
+        config.setUsername(username);
+        config.setPassword(password);
+        config.setMaximumPoolSize(maximumPoolSize);
+        config.setMinimumIdle(minimumIdle);
+        // 与 DriverManagerDataSource 一致，数据库不可用时不阻断应用启动
+        config.setInitializationFailTimeout(-1);
+        return new HikariDataSource(config);
+    }
 }
@@ -1,9 +1,8 @@
 package com.example.wx.controller;
 
-import com.alibaba.cloud.ai.memory.jdbc.MysqlChatMemoryRepository;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.ai.chat.client.advisor.MessageChatMemoryAdvisor;
-import org.springframework.ai.chat.memory.MessageWindowChatMemory;
+import org.springframework.ai.chat.memory.ChatMemory;
 import org.springframework.ai.chat.messages.Message;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -23,18 +22,14 @@ import static org.springframework.ai.chat.memory.ChatMemory.CONVERSATION_ID;
 @RequestMapping("/memory/mysql")
 public class MysqlMemoryController {
     private final ChatClient chatClient;
-    private final int MAX_MESSAGES = 100;
-    private final MessageWindowChatMemory messageWindowChatMemory;
+    private final ChatMemory chatMemory;
 
-    public MysqlMemoryController(ChatClient.Builder builder, MysqlChatMemoryRepository mysqlChatMemoryRepository) {
-        this.messageWindowChatMemory = MessageWindowChatMemory.builder()
-                .chatMemoryRepository(mysqlChatMemoryRepository)
-                .maxMessages(MAX_MESSAGES)
-                .build();
+    public MysqlMemoryController(ChatClient.Builder builder, ChatMemory mysqlChatMemory) {
+        this.chatMemory = mysqlChatMemory;
 
         this.chatClient = builder
                 .defaultAdvisors(
-                        MessageChatMemoryAdvisor.builder(messageWindowChatMemory)
+                        MessageChatMemoryAdvisor.builder(chatMemory)
                                 .build()
                 )
                 .build();
@@ -53,6 +48,6 @@ public class MysqlMemoryController {
 
     @GetMapping("/messages")
     public List<Message> messages(@RequestParam(value = "conversation_id", defaultValue = "tom") String conversationId) {
-        return messageWindowChatMemory.get(conversationId);
+        return chatMemory.get(conversationId);
     }
 }
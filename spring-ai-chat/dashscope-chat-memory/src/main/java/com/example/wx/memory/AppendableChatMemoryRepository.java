@@ -0,0 +1,23 @@
+package com.example.wx.memory;
+
+import org.springframework.ai.chat.memory.ChatMemoryRepository;
+import org.springframework.ai.chat.messages.Message;
+
+import java.util.List;
+
+/**
+ * 支持追加写入的 {@link ChatMemoryRepository}
+ * <p>
+ * {@link #saveAll(String, List)} 的语义是整体替换会话的消息（先删后写），
+ * {@link #appendAll(String, List)} 只插入新消息，已有的消息不动。
+ *
+ * @author wangx
+ * @create 2026/10/18 17:40
+ */
+public interface AppendableChatMemoryRepository extends ChatMemoryRepository {
+
+    /**
+     * 在会话末尾追加消息
+     */
+    void appendAll(String conversationId, List<Message> messages);
+}
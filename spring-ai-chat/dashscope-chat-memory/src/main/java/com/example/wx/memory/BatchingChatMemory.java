@@ -0,0 +1,319 @@
+package com.example.wx.memory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.memory.ChatMemoryRepository;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.util.Assert;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 按轮次批量写入的窗口聊天记忆
+ * <p>
+ * {@link org.springframework.ai.chat.memory.MessageWindowChatMemory} 每次 add 都会先读出整个窗口再整体重写，
+ * {@code MessageChatMemoryAdvisor} 一轮对话 add 两次（user、assistant），即两次读 + 两次重写。
+ * 这里把消息先暂存在内存中，满足以下任一条件时一次追加写入：
+ * <ul>
+ *   <li>收到 assistant 消息（一轮结束）</li>
+ *   <li>暂存的消息数达到 maxBufferedMessages</li>
+ *   <li>最早暂存的消息超过 maxBufferAge 仍未写入（例如只有 user 消息、模型调用失败的一轮），由后台线程写入</li>
+ * </ul>
+ * 同步模式下满足条件时立即落库；write-behind 模式下标记为脏数据，由后台线程按 flushInterval 异步落库，同一会话的多轮合并为一次写入。
+ * <p>
+ * 仓库实现 {@link AppendableChatMemoryRepository} 时只追加本次暂存的消息，
+ * 每追加 maxMessages 条消息后按窗口整体重写一次，清理窗口外的历史；否则退化为读出窗口合并后 {@code saveAll}。
+ * 落库时先把暂存消息从缓冲区取出，数据库读写不在 ConcurrentHashMap 的 compute 中执行；
+ * 写入失败时消息放回缓冲区等待重试。
+ * 同一会话的读取与落库通过分段读写锁互斥，未落库的消息对 {@link #get(String)} 始终可见，进程内读己之写保持一致。
+ *
+ * @author wangx
+ * @create 2026/10/18 15:30
+ */
+public class BatchingChatMemory implements ChatMemory, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(BatchingChatMemory.class);
+
+    private static final int LOCK_STRIPES = 64;
+
+    private final ChatMemoryRepository chatMemoryRepository;
+
+    private final int maxMessages;
+
+    private final boolean writeBehind;
+
+    private final int maxBufferedMessages;
+
+    private final long maxBufferAgeMillis;
+
+    /**
+     * 尚未落库的消息，key 为 conversationId
+     */
+    private final Map<String, Buffer> pending = new ConcurrentHashMap<>();
+
+    private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 上次按窗口重写后追加的消息数，key 为 conversationId
+     */
+    private final Map<String, Integer> appendedSinceCompaction = new ConcurrentHashMap<>();
+
+    private final ReadWriteLock[] locks = new ReadWriteLock[LOCK_STRIPES];
+
+    private final ScheduledExecutorService flusher;
+
+    /**
+     * 暂存的消息及最早一条的暂存时间，按写时复制替换
+     */
+    private record Buffer(List<Message> messages, long since) {
+    }
+
+    private BatchingChatMemory(Builder builder) {
+        Assert.notNull(builder.chatMemoryRepository, "chatMemoryRepository cannot be null");
+        Assert.isTrue(builder.maxMessages > 0, "maxMessages must be greater than 0");
+        Assert.isTrue(builder.maxBufferedMessages > 0, "maxBufferedMessages must be greater than 0");
+        this.chatMemoryRepository = builder.chatMemoryRepository;
+        this.maxMessages = builder.maxMessages;
+        this.writeBehind = builder.writeBehind;
+        this.maxBufferedMessages = builder.maxBufferedMessages;
+        this.maxBufferAgeMillis = builder.maxBufferAge.toMillis();
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            this.locks[i] = new ReentrantReadWriteLock();
+        }
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "chat-memory-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = this.writeBehind
+                ? builder.flushInterval.toMillis()
+                : Math.max(1, this.maxBufferAgeMillis / 2);
+        this.flusher.scheduleWithFixedDelay(this::flushDirty, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public void add(String conversationId, List<Message> messages) {
+        Assert.hasText(conversationId, "conversationId cannot be null or empty");
+        Assert.notNull(messages, "messages cannot be null");
+        if (messages.isEmpty()) {
+            return;
+        }
+        // 只做内存操作，暂存列表按写时复制替换，读路径无需加锁
+        Buffer buffer = this.pending.compute(conversationId, (id, current) -> current == null
+                ? new Buffer(List.copyOf(messages), System.currentTimeMillis())
+                : new Buffer(concat(current.messages(), messages), current.since()));
+        boolean turnCompleted = messages.stream().anyMatch(m -> m.getMessageType() == MessageType.ASSISTANT);
+        if (!turnCompleted && buffer.messages().size() < this.maxBufferedMessages) {
+            return;
+        }
+        if (this.writeBehind) {
+            this.dirty.add(conversationId);
+        } else {
+            flush(conversationId);
+        }
+    }
+
+    @Override
+    public List<Message> get(String conversationId) {
+        Assert.hasText(conversationId, "conversationId cannot be null or empty");
+        // 读锁保证读取期间暂存消息不会被落库，仓库与缓冲区不会同时包含或同时缺少同一批消息
+        Lock lock = lock(conversationId).readLock();
+        lock.lock();
+        try {
+            List<Message> messages = new ArrayList<>(this.chatMemoryRepository.findByConversationId(conversationId));
+            Buffer buffered = this.pending.get(conversationId);
+            if (buffered != null) {
+                messages.addAll(buffered.messages());
+            }
+            return window(messages);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void clear(String conversationId) {
+        Assert.hasText(conversationId, "conversationId cannot be null or empty");
+        Lock lock = lock(conversationId).writeLock();
+        lock.lock();
+        try {
+            this.pending.remove(conversationId);
+            this.dirty.remove(conversationId);
+            this.appendedSinceCompaction.remove(conversationId);
+            this.chatMemoryRepository.deleteByConversationId(conversationId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 将指定会话暂存的消息落库
+     */
+    public void flush(String conversationId) {
+        Lock lock = lock(conversationId).writeLock();
+        lock.lock();
+        try {
+            // 先取出暂存消息，之后的 add 写入新的缓冲区
+            Buffer buffered = this.pending.remove(conversationId);
+            if (buffered == null) {
+                return;
+            }
+            try {
+                write(conversationId, buffered.messages());
+            } catch (RuntimeException e) {
+                // 放回缓冲区，排在取出后新暂存的消息之前
+                this.pending.merge(conversationId, buffered,
+                        (newer, failed) -> new Buffer(concat(failed.messages(), newer.messages()), failed.since()));
+                throw e;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 落库所有 write-behind 模式下的脏会话，以及暂存超过 maxBufferAge 的会话
+     */
+    public void flushDirty() {
+        long expiredBefore = System.currentTimeMillis() - this.maxBufferAgeMillis;
+        this.pending.forEach((conversationId, buffer) -> {
+            if (buffer.since() <= expiredBefore) {
+                this.dirty.add(conversationId);
+            }
+        });
+        for (String conversationId : this.dirty) {
+            this.dirty.remove(conversationId);
+            try {
+                flush(conversationId);
+            } catch (RuntimeException e) {
+                this.dirty.add(conversationId);
+                log.warn("flush chat memory failed, conversationId: {}", conversationId, e);
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        this.flusher.shutdown();
+        this.dirty.addAll(this.pending.keySet());
+        flushDirty();
+    }
+
+    private void write(String conversationId, List<Message> messages) {
+        if (!(this.chatMemoryRepository instanceof AppendableChatMemoryRepository appendable)) {
+            List<Message> merged = new ArrayList<>(this.chatMemoryRepository.findByConversationId(conversationId));
+            merged.addAll(messages);
+            this.chatMemoryRepository.saveAll(conversationId, window(merged));
+            return;
+        }
+        appendable.appendAll(conversationId, messages);
+        int appended = this.appendedSinceCompaction.merge(conversationId, messages.size(), Integer::sum);
+        if (appended >= this.maxMessages) {
+            // 追加写入不会删除窗口外的消息，定期按窗口重写一次，避免表无限增长
+            appendable.saveAll(conversationId, window(appendable.findByConversationId(conversationId)));
+            this.appendedSinceCompaction.remove(conversationId);
+        }
+    }
+
+    private ReadWriteLock lock(String conversationId) {
+        return this.locks[Math.floorMod(conversationId.hashCode(), LOCK_STRIPES)];
+    }
+
+    private static List<Message> concat(List<Message> first, List<Message> second) {
+        List<Message> list = new ArrayList<>(first.size() + second.size());
+        list.addAll(first);
+        list.addAll(second);
+        return List.copyOf(list);
+    }
+
+    /**
+     * 与 MessageWindowChatMemory 一致的窗口策略：只保留最新的 system 消息，超出上限时淘汰最早的非 system 消息
+     */
+    private List<Message> window(List<Message> messages) {
+        SystemMessage latestSystem = null;
+        List<Message> others = new ArrayList<>(messages.size());
+        for (Message message : messages) {
+            if (message instanceof SystemMessage systemMessage) {
+                latestSystem = systemMessage;
+            } else {
+                others.add(message);
+            }
+        }
+        int limit = latestSystem != null ? this.maxMessages - 1 : this.maxMessages;
+        List<Message> result = new ArrayList<>(Math.min(messages.size(), this.maxMessages));
+        if (latestSystem != null) {
+            result.add(latestSystem);
+        }
+        result.addAll(others.subList(Math.max(0, others.size() - limit), others.size()));
+        return result;
+    }
+
+    public static class Builder {
+
+        private ChatMemoryRepository chatMemoryRepository;
+        private int maxMessages = 20;
+        private boolean writeBehind = false;
+        private Duration flushInterval = Duration.ofMillis(500);
+        private int maxBufferedMessages = 10;
+        private Duration maxBufferAge = Duration.ofSeconds(5);
+
+        public Builder chatMemoryRepository(ChatMemoryRepository chatMemoryRepository) {
+            this.chatMemoryRepository = chatMemoryRepository;
+            return this;
+        }
+
+        public Builder maxMessages(int maxMessages) {
+            this.maxMessages = maxMessages;
+            return this;
+        }
+
+        public Builder writeBehind(boolean writeBehind) {
+            this.writeBehind = writeBehind;
+            return this;
+        }
+
+        public Builder flushInterval(Duration flushInterval) {
+            this.flushInterval = flushInterval;
+            return this;
+        }
+
+        /**
+         * 暂存的消息数达到该值时不等一轮结束立即落库
+         */
+        public Builder maxBufferedMessages(int maxBufferedMessages) {
+            this.maxBufferedMessages = maxBufferedMessages;
+            return this;
+        }
+
+        /**
+         * 暂存超过该时长的消息由后台线程落库
+         */
+        public Builder maxBufferAge(Duration maxBufferAge) {
+            this.maxBufferAge = maxBufferAge;
+            return this;
+        }
+
+        public BatchingChatMemory build() {
+            return new BatchingChatMemory(this);
+        }
+    }
+}
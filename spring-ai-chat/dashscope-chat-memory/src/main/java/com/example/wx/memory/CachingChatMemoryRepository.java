@@ -0,0 +1,254 @@
+package com.example.wx.memory;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.ai.chat.memory.ChatMemoryRepository;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.util.Assert;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 带进程内 LRU 缓存的 {@link ChatMemoryRepository} 装饰器
+ * <p>
+ * 热点会话的窗口缓存在堆内，读请求直接命中缓存；写请求先写入底层仓库，成功后再刷新缓存（write-through）。
+ * 追加写入时底层仓库实现了 {@link AppendableChatMemoryRepository} 则直接追加，否则读出后整体重写；已缓存的会话在缓存中同步追加。
+ * 缓存按会话数上限做 LRU 淘汰，条目超过 TTL 后在下次读取时重新加载。
+ * 未命中时在锁外加载，加载期间若该会话发生了写入或失效，加载到的旧数据只返回给调用方，不写入缓存。
+ * 命中、未命中和淘汰次数通过 Micrometer 暴露：
+ * <ul>
+ *   <li>{@code chat.memory.cache{name, result=hit|miss}}</li>
+ *   <li>{@code chat.memory.cache.evictions{name, cause=size|expired}}</li>
+ *   <li>{@code chat.memory.cache.size{name}}、{@code chat.memory.cache.hit.ratio{name}}</li>
+ * </ul>
+ *
+ * @author wangx
+ * @create 2026/10/18 17:05
+ */
+public class CachingChatMemoryRepository implements AppendableChatMemoryRepository {
+
+    private static final String METRIC_NAME = "chat.memory.cache";
+
+    private final ChatMemoryRepository delegate;
+
+    private final int maxConversations;
+
+    private final long ttlMillis;
+
+    /**
+     * access-order 的 LinkedHashMap，超出容量时由 removeEldestEntry 淘汰最久未访问的会话
+     */
+    private final LinkedHashMap<String, CacheEntry> cache;
+
+    /**
+     * 正在加载的会话及本次加载的令牌，与 cache 共用同一把锁；写入和失效会移除令牌，令牌不在时加载结果不回填缓存
+     */
+    private final Map<String, Object> loading = new HashMap<>();
+
+    private final Counter hitCounter;
+
+    private final Counter missCounter;
+
+    private final Counter sizeEvictionCounter;
+
+    private final Counter expiredEvictionCounter;
+
+    private CachingChatMemoryRepository(Builder builder) {
+        Assert.notNull(builder.delegate, "delegate cannot be null");
+        Assert.isTrue(builder.maxConversations > 0, "maxConversations must be greater than 0");
+        this.delegate = builder.delegate;
+        this.maxConversations = builder.maxConversations;
+        this.ttlMillis = builder.ttl.toMillis();
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+                if (size() > CachingChatMemoryRepository.this.maxConversations) {
+                    sizeEvictionCounter.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+
+        MeterRegistry registry = builder.meterRegistry != null ? builder.meterRegistry : Metrics.globalRegistry;
+        this.hitCounter = Counter.builder(METRIC_NAME).tag("name", builder.name).tag("result", "hit").register(registry);
+        this.missCounter = Counter.builder(METRIC_NAME).tag("name", builder.name).tag("result", "miss").register(registry);
+        this.sizeEvictionCounter = Counter.builder(METRIC_NAME + ".evictions")
+                .tag("name", builder.name).tag("cause", "size").register(registry);
+        this.expiredEvictionCounter = Counter.builder(METRIC_NAME + ".evictions")
+                .tag("name", builder.name).tag("cause", "expired").register(registry);
+        Gauge.builder(METRIC_NAME + ".size", this, CachingChatMemoryRepository::size)
+                .tag("name", builder.name).register(registry);
+        Gauge.builder(METRIC_NAME + ".hit.ratio", this, CachingChatMemoryRepository::hitRatio)
+                .tag("name", builder.name).register(registry);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public List<String> findConversationIds() {
+        return this.delegate.findConversationIds();
+    }
+
+    @Override
+    public List<Message> findByConversationId(String conversationId) {
+        Assert.hasText(conversationId, "conversationId cannot be null or empty");
+        long now = System.currentTimeMillis();
+        synchronized (this.cache) {
+            this.loading.remove(conversationId);
+            CacheEntry entry = this.cache.get(conversationId);
+            if (entry != null) {
+                if (now - entry.loadedAt() <= this.ttlMillis) {
+                    this.hitCounter.increment();
+                    return entry.messages();
+                }
+                this.cache.remove(conversationId);
+                this.expiredEvictionCounter.increment();
+            }
+        }
+        this.missCounter.increment();
+        Object token = new Object();
+        synchronized (this.cache) {
+            this.loading.put(conversationId, token);
+        }
+        List<Message> messages = null;
+        try {
+            messages = List.copyOf(this.delegate.findByConversationId(conversationId));
+            return messages;
+        } finally {
+            synchronized (this.cache) {
+                // 令牌被移除说明加载期间有写入或失效，加载结果可能已过期
+                if (this.loading.remove(conversationId, token) && messages != null) {
+                    this.cache.putIfAbsent(conversationId, new CacheEntry(messages, now));
+                }
+            }
+        }
+    }
+
+    @Override
+    public void saveAll(String conversationId, List<Message> messages) {
+        Assert.hasText(conversationId, "conversationId cannot be null or empty");
+        Assert.notNull(messages, "messages cannot be null");
+        try {
+            this.delegate.saveAll(conversationId, messages);
+        } catch (RuntimeException e) {
+            // 写入失败时缓存可能与数据库不一致，直接失效
+            invalidate(conversationId);
+            throw e;
+        }
+        put(conversationId, List.copyOf(messages), System.currentTimeMillis());
+    }
+
+    @Override
+    public void appendAll(String conversationId, List<Message> messages) {
+        Assert.hasText(conversationId, "conversationId cannot be null or empty");
+        Assert.notNull(messages, "messages cannot be null");
+        try {
+            if (this.delegate instanceof AppendableChatMemoryRepository appendable) {
+                appendable.appendAll(conversationId, messages);
+            } else {
+                List<Message> merged = new ArrayList<>(this.delegate.findByConversationId(conversationId));
+                merged.addAll(messages);
+                this.delegate.saveAll(conversationId, merged);
+            }
+        } catch (RuntimeException e) {
+            invalidate(conversationId);
+            throw e;
+        }
+        synchronized (this.cache) {
+            this.loading.remove(conversationId);
+            CacheEntry entry = this.cache.get(conversationId);
+            if (entry != null) {
+                List<Message> merged = new ArrayList<>(entry.messages());
+                merged.addAll(messages);
+                this.cache.put(conversationId, new CacheEntry(List.copyOf(merged), entry.loadedAt()));
+            }
+        }
+    }
+
+    @Override
+    public void deleteByConversationId(String conversationId) {
+        Assert.hasText(conversationId, "conversationId cannot be null or empty");
+        this.delegate.deleteByConversationId(conversationId);
+        invalidate(conversationId);
+    }
+
+    /**
+     * 使指定会话的缓存失效
+     */
+    public void invalidate(String conversationId) {
+        synchronized (this.cache) {
+            this.loading.remove(conversationId);
+            this.cache.remove(conversationId);
+        }
+    }
+
+    public int size() {
+        synchronized (this.cache) {
+            return this.cache.size();
+        }
+    }
+
+    public double hitRatio() {
+        double hits = this.hitCounter.count();
+        double total = hits + this.missCounter.count();
+        return total == 0 ? 0 : hits / total;
+    }
+
+    private void put(String conversationId, List<Message> messages, long loadedAt) {
+        synchronized (this.cache) {
+            this.loading.remove(conversationId);
+            this.cache.put(conversationId, new CacheEntry(messages, loadedAt));
+        }
+    }
+
+    private record CacheEntry(List<Message> messages, long loadedAt) {
+    }
+
+    public static class Builder {
+
+        private ChatMemoryRepository delegate;
+        private String name = "default";
+        private int maxConversations = 10_000;
+        private Duration ttl = Duration.ofMinutes(30);
+        private MeterRegistry meterRegistry;
+
+        public Builder delegate(ChatMemoryRepository delegate) {
+            this.delegate = delegate;
+            return this;
+        }
+
+        public Builder name(String name) {
+            this.name = name;
+            return this;
+        }
+
+        public Builder maxConversations(int maxConversations) {
+            this.maxConversations = maxConversations;
+            return this;
+        }
+
+        public Builder ttl(Duration ttl) {
+            this.ttl = ttl;
+            return this;
+        }
+
+        public Builder meterRegistry(MeterRegistry meterRegistry) {
+            this.meterRegistry = meterRegistry;
+            return this;
+        }
+
+        public CachingChatMemoryRepository build() {
+            return new CachingChatMemoryRepository(this);
+        }
+    }
+}
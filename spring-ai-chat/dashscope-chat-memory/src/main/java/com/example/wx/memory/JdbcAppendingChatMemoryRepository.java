@@ -0,0 +1,228 @@
+package com.example.wx.memory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.ToolResponseMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.Assert;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * 支持追加写入的 JDBC 记忆仓库
+ * <p>
+ * 消息的顺序由数据库生成的自增列 seq 决定，读取按 seq 排序，不再依赖按毫秒递增的 timestamp
+ * （两次追加落在同一毫秒内时 timestamp 会重叠，读取顺序不确定）。
+ * <ul>
+ *   <li>{@link #appendAll(String, List)} 对表做一次批量 insert，一轮对话只需一次往返
+ *   （配合 rewriteBatchedStatements / reWriteBatchedInserts）</li>
+ *   <li>{@link #saveAll(String, List)} 在一个事务内先删后写，整体替换会话的消息</li>
+ * </ul>
+ * 表结构见 {@link Dialect}，initializeSchema 为 true 时启动时创建（已存在则跳过）。
+ *
+ * @author wangx
+ * @create 2026/10/18 17:50
+ */
+public class JdbcAppendingChatMemoryRepository implements AppendableChatMemoryRepository {
+
+    private static final Logger logger = LoggerFactory.getLogger(JdbcAppendingChatMemoryRepository.class);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final String insertSql;
+
+    private final String selectSql;
+
+    private final String selectConversationIdsSql;
+
+    private final String deleteSql;
+
+    private JdbcAppendingChatMemoryRepository(Builder builder) {
+        Assert.notNull(builder.jdbcTemplate, "jdbcTemplate cannot be null");
+        Assert.notNull(builder.jdbcTemplate.getDataSource(), "jdbcTemplate must have a DataSource");
+        Assert.notNull(builder.dialect, "dialect cannot be null");
+        Assert.hasText(builder.tableName, "tableName cannot be null or empty");
+        String table = builder.tableName;
+        this.jdbcTemplate = builder.jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(
+                new DataSourceTransactionManager(builder.jdbcTemplate.getDataSource()));
+        this.insertSql = "INSERT INTO " + table + " (conversation_id, content, type, created_at) VALUES (?, ?, ?, ?)";
+        this.selectSql = "SELECT content, type FROM " + table + " WHERE conversation_id = ? ORDER BY seq";
+        this.selectConversationIdsSql = "SELECT DISTINCT conversation_id FROM " + table;
+        this.deleteSql = "DELETE FROM " + table + " WHERE conversation_id = ?";
+        if (builder.initializeSchema) {
+            initializeSchema(builder.dialect, table);
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * 各数据库的建表语句，seq 为自增主键，(conversation_id, seq) 索引覆盖按会话顺序读取
+     */
+    public enum Dialect {
+
+        MYSQL("""
+                CREATE TABLE IF NOT EXISTS %1$s (
+                    seq BIGINT AUTO_INCREMENT PRIMARY KEY,
+                    conversation_id VARCHAR(256) NOT NULL,
+                    content LONGTEXT NOT NULL,
+                    type VARCHAR(16) NOT NULL,
+                    created_at TIMESTAMP(3) NOT NULL,
+                    INDEX idx_%1$s_conversation (conversation_id, seq)
+                )"""),
+
+        POSTGRESQL("""
+                CREATE TABLE IF NOT EXISTS %1$s (
+                    seq BIGSERIAL PRIMARY KEY,
+                    conversation_id VARCHAR(256) NOT NULL,
+                    content TEXT NOT NULL,
+                    type VARCHAR(16) NOT NULL,
+                    created_at TIMESTAMP NOT NULL
+                )""", "CREATE INDEX IF NOT EXISTS idx_%1$s_conversation ON %1$s (conversation_id, seq)"),
+
+        H2("""
+                CREATE TABLE IF NOT EXISTS %1$s (
+                    seq BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+                    conversation_id VARCHAR(256) NOT NULL,
+                    content CLOB NOT NULL,
+                    type VARCHAR(16) NOT NULL,
+                    created_at TIMESTAMP NOT NULL
+                )""", "CREATE INDEX IF NOT EXISTS idx_%1$s_conversation ON %1$s (conversation_id, seq)");
+
+        private final List<String> ddl;
+
+        Dialect(String... ddl) {
+            this.ddl = List.of(ddl);
+        }
+    }
+
+    @Override
+    public List<String> findConversationIds() {
+        return this.jdbcTemplate.queryForList(this.selectConversationIdsSql, String.class);
+    }
+
+    @Override
+    public List<Message> findByConversationId(String conversationId) {
+        Assert.hasText(conversationId, "conversationId cannot be null or empty");
+        return this.jdbcTemplate.query(this.selectSql,
+                (rs, rowNum) -> toMessage(rs.getString(1), MessageType.valueOf(rs.getString(2))), conversationId);
+    }
+
+    @Override
+    public void saveAll(String conversationId, List<Message> messages) {
+        Assert.hasText(conversationId, "conversationId cannot be null or empty");
+        Assert.notNull(messages, "messages cannot be null");
+        this.transactionTemplate.executeWithoutResult(status -> {
+            this.jdbcTemplate.update(this.deleteSql, conversationId);
+            insert(conversationId, messages);
+        });
+    }
+
+    @Override
+    public void appendAll(String conversationId, List<Message> messages) {
+        Assert.hasText(conversationId, "conversationId cannot be null or empty");
+        Assert.notNull(messages, "messages cannot be null");
+        insert(conversationId, messages);
+    }
+
+    @Override
+    public void deleteByConversationId(String conversationId) {
+        Assert.hasText(conversationId, "conversationId cannot be null or empty");
+        this.jdbcTemplate.update(this.deleteSql, conversationId);
+    }
+
+    /**
+     * 同一批次内按列表顺序插入，seq 随之递增
+     */
+    private void insert(String conversationId, List<Message> messages) {
+        if (messages.isEmpty()) {
+            return;
+        }
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        this.jdbcTemplate.batchUpdate(this.insertSql, messages, messages.size(), (ps, message) -> {
+            ps.setString(1, conversationId);
+            ps.setString(2, message.getText());
+            ps.setString(3, message.getMessageType().name());
+            ps.setTimestamp(4, now);
+        });
+    }
+
+    private void initializeSchema(Dialect dialect, String table) {
+        try {
+            for (String ddl : dialect.ddl) {
+                this.jdbcTemplate.execute(ddl.formatted(table));
+            }
+        } catch (DataAccessException e) {
+            // 与连接池的 initializationFailTimeout(-1) 一致，数据库不可用时不阻断应用启动
+            logger.warn("Initialize chat memory table {} failed", table, e);
+        }
+    }
+
+    private static Message toMessage(String content, MessageType type) {
+        return switch (type) {
+            case USER -> new UserMessage(content);
+            case ASSISTANT -> new AssistantMessage(content);
+            case SYSTEM -> new SystemMessage(content);
+            // 工具调用结果只保存了文本，无法还原
+            case TOOL -> ToolResponseMessage.builder().responses(List.of()).build();
+        };
+    }
+
+    public static class Builder {
+
+        private JdbcTemplate jdbcTemplate;
+
+        private Dialect dialect;
+
+        private String tableName = "ai_chat_message";
+
+        private boolean initializeSchema = false;
+
+        private Builder() {
+        }
+
+        public Builder jdbcTemplate(JdbcTemplate jdbcTemplate) {
+            this.jdbcTemplate = jdbcTemplate;
+            return this;
+        }
+
+        public Builder dialect(Dialect dialect) {
+            this.dialect = dialect;
+            return this;
+        }
+
+        /**
+         * 表名，默认 ai_chat_message（与 spring-ai-alibaba 的 ai_chat_memory 表结构不同，没有 seq 列）
+         */
+        public Builder tableName(String tableName) {
+            this.tableName = tableName;
+            return this;
+        }
+
+        /**
+         * 是否在创建时建表（已存在则跳过）
+         */
+        public Builder initializeSchema(boolean initializeSchema) {
+            this.initializeSchema = initializeSchema;
+            return this;
+        }
+
+        public JdbcAppendingChatMemoryRepository build() {
+            return new JdbcAppendingChatMemoryRepository(this);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.wx;
+
+import com.example.wx.memory.AppendableChatMemoryRepository;
+import com.example.wx.memory.BatchingChatMemory;
+import com.example.wx.memory.JdbcAppendingChatMemoryRepository;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.memory.ChatMemoryRepository;
+import org.springframework.ai.chat.memory.MessageWindowChatMemory;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * 每轮对话的记忆开销对比：MessageWindowChatMemory vs BatchingChatMemory
+ * <p>
+ * 按 MessageChatMemoryAdvisor 的调用方式模拟一轮对话（get → add(user) → add(assistant)），
+ * 仓库为嵌入式 H2 上的 {@link JdbcAppendingChatMemoryRepository}，统计仓库调用次数与耗时；
+ * BatchingChatMemory 通过追加写入只插入新消息。每组结束后从表中读回会话，校验消息按写入顺序排列。
+ *
+ * @author wangx
+ * @create 2026/10/18 16:20
+ */
+public class ChatMemoryBenchmark {
+
+    private static final int TURNS = 200;
+    private static final int WARMUP_TURNS = 50;
+    private static final int MAX_MESSAGES = 100;
+
+    public static void main(String[] args) throws Exception {
+        run("MessageWindowChatMemory", repository -> MessageWindowChatMemory.builder()
+                .chatMemoryRepository(repository)
+                .maxMessages(MAX_MESSAGES)
+                .build());
+        run("BatchingChatMemory     ", repository -> BatchingChatMemory.builder()
+                .chatMemoryRepository(repository)
+                .maxMessages(MAX_MESSAGES)
+                .build());
+        run("BatchingChatMemory(wb) ", repository -> BatchingChatMemory.builder()
+                .chatMemoryRepository(repository)
+                .maxMessages(MAX_MESSAGES)
+                .writeBehind(true)
+                .build());
+    }
+
+    private static void run(String name, Function<ChatMemoryRepository, ChatMemory> factory) throws Exception {
+        try (HikariDataSource dataSource = h2(name.trim())) {
+            CountingRepository repository = new CountingRepository(JdbcAppendingChatMemoryRepository.builder()
+                    .jdbcTemplate(new JdbcTemplate(dataSource))
+                    .dialect(JdbcAppendingChatMemoryRepository.Dialect.H2)
+                    .initializeSchema(true)
+                    .build());
+            ChatMemory chatMemory = factory.apply(repository);
+            converse(chatMemory, "warmup", WARMUP_TURNS);
+            repository.calls.set(0);
+
+            long start = System.nanoTime();
+            converse(chatMemory, "tom", TURNS);
+            long cost = System.nanoTime() - start;
+            int calls = repository.calls.get();
+            if (chatMemory instanceof BatchingChatMemory batching) {
+                // 落库剩余的暂存消息后再校验
+                batching.destroy();
+            }
+            verifyOrder(name, repository.findByConversationId("tom"));
+            System.out.printf("%s : %.3f ms/turn, %.1f repository calls/turn%n", name,
+                    cost / 1e6 / TURNS, calls / (double) TURNS);
+        }
+    }
+
+    private static void converse(ChatMemory chatMemory, String conversationId, int turns) {
+        for (int i = 0; i < turns; i++) {
+            chatMemory.get(conversationId);
+            chatMemory.add(conversationId, List.of(new UserMessage("question " + i)));
+            chatMemory.add(conversationId, List.of(new AssistantMessage("answer " + i)));
+        }
+    }
+
+    /**
+     * 表中保留的是以最后一轮结尾的连续若干轮，user/assistant 交替且轮次递增
+     */
+    private static void verifyOrder(String name, List<Message> messages) {
+        if (messages.isEmpty() || messages.size() % 2 != 0) {
+            throw new IllegalStateException(name + " unexpected message count " + messages.size());
+        }
+        int first = TURNS - messages.size() / 2;
+        for (int i = 0; i < messages.size(); i++) {
+            int turn = first + i / 2;
+            String expected = (i % 2 == 0 ? "question " : "answer ") + turn;
+            if (!expected.equals(messages.get(i).getText())) {
+                throw new IllegalStateException(name + " out of order at " + i + ": expected '" + expected
+                        + "' but was '" + messages.get(i).getText() + "'");
+            }
+        }
+    }
+
+    private static HikariDataSource h2(String name) {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl("jdbc:h2:mem:" + name.replaceAll("\\W", "_") + ";DB_CLOSE_DELAY=-1");
+        config.setUsername("sa");
+        config.setMaximumPoolSize(4);
+        return new HikariDataSource(config);
+    }
+
+    private static class CountingRepository implements AppendableChatMemoryRepository {
+
+        private final JdbcAppendingChatMemoryRepository delegate;
+
+        private final AtomicInteger calls = new AtomicInteger();
+
+        private CountingRepository(JdbcAppendingChatMemoryRepository delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public List<String> findConversationIds() {
+            calls.incrementAndGet();
+            return delegate.findConversationIds();
+        }
+
+        @Override
+        public List<Message> findByConversationId(String conversationId) {
+            calls.incrementAndGet();
+            return delegate.findByConversationId(conversationId);
+        }
+
+        @Override
+        public void saveAll(String conversationId, List<Message> messages) {
+            calls.incrementAndGet();
+            delegate.saveAll(conversationId, messages);
+        }
+
+        @Override
+        public void appendAll(String conversationId, List<Message> messages) {
+            calls.incrementAndGet();
+            delegate.appendAll(conversationId, messages);
+        }
+
+        @Override
+        public void deleteByConversationId(String conversationId) {
+            calls.incrementAndGet();
+            delegate.deleteByConversationId(conversationId);
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.wx.memory;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.memory.InMemoryChatMemoryRepository;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * CachingChatMemoryRepository 未命中加载与写入、失效并发时的缓存一致性
+ * <p>
+ * 底层仓库在读出数据后停在闸门上，模拟加载进行到一半；此时另一线程写入或失效该会话，
+ * 放行后加载到的旧窗口只返回给本次调用方，之后的读取必须看到新数据。
+ *
+ * @author wangx
+ * @create 2026/10/18 20:45
+ */
+class CachingChatMemoryRepositoryTest {
+
+    private static final String CONVERSATION_ID = "tom";
+
+    private static final Message QUESTION = new UserMessage("question 0");
+
+    private static final Message ANSWER = new AssistantMessage("answer 0");
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    private GatedRepository delegate;
+
+    private CachingChatMemoryRepository repository;
+
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        this.delegate = new GatedRepository();
+        this.delegate.saveAll(CONVERSATION_ID, List.of(QUESTION));
+        this.meterRegistry = new SimpleMeterRegistry();
+        this.repository = CachingChatMemoryRepository.builder()
+                .name("test")
+                .delegate(this.delegate)
+                .meterRegistry(this.meterRegistry)
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.executor.shutdownNow();
+    }
+
+    @Test
+    void loadIsCachedWithoutConcurrentWrites() {
+        assertThat(this.repository.findByConversationId(CONVERSATION_ID)).containsExactly(QUESTION);
+        assertThat(this.repository.findByConversationId(CONVERSATION_ID)).containsExactly(QUESTION);
+
+        assertThat(this.delegate.reads).hasValue(1);
+        assertThat(hits()).isEqualTo(1);
+    }
+
+    @Test
+    void invalidationDuringLoadDiscardsLoadedMessages() throws Exception {
+        CompletableFuture<List<Message>> load = loadInBackground();
+
+        // 会话在别处被改写，随后失效本地缓存
+        this.delegate.saveAll(CONVERSATION_ID, List.of(QUESTION, ANSWER));
+        this.repository.invalidate(CONVERSATION_ID);
+        this.delegate.release();
+
+        assertThat(load.get(5, TimeUnit.SECONDS)).containsExactly(QUESTION);
+        assertThat(this.repository.size()).isZero();
+        assertThat(this.repository.findByConversationId(CONVERSATION_ID)).containsExactly(QUESTION, ANSWER);
+        assertThat(this.delegate.reads).hasValue(2);
+    }
+
+    @Test
+    void appendDuringLoadDiscardsLoadedMessages() throws Exception {
+        CompletableFuture<List<Message>> load = loadInBackground();
+
+        // 会话尚未缓存，追加只写入底层仓库
+        this.repository.appendAll(CONVERSATION_ID, List.of(ANSWER));
+        this.delegate.release();
+
+        assertThat(load.get(5, TimeUnit.SECONDS)).containsExactly(QUESTION);
+        assertThat(this.repository.findByConversationId(CONVERSATION_ID)).containsExactly(QUESTION, ANSWER);
+    }
+
+    @Test
+    void deleteDuringLoadDiscardsLoadedMessages() throws Exception {
+        CompletableFuture<List<Message>> load = loadInBackground();
+
+        this.repository.deleteByConversationId(CONVERSATION_ID);
+        this.delegate.release();
+
+        assertThat(load.get(5, TimeUnit.SECONDS)).containsExactly(QUESTION);
+        assertThat(this.repository.findByConversationId(CONVERSATION_ID)).isEmpty();
+    }
+
+    @Test
+    void saveDuringLoadKeepsSavedMessages() throws Exception {
+        CompletableFuture<List<Message>> load = loadInBackground();
+
+        this.repository.saveAll(CONVERSATION_ID, List.of(QUESTION, ANSWER));
+        this.delegate.release();
+
+        assertThat(load.get(5, TimeUnit.SECONDS)).containsExactly(QUESTION);
+        // saveAll 写入的窗口留在缓存中，不被旧的加载结果覆盖
+        assertThat(this.repository.findByConversationId(CONVERSATION_ID)).containsExactly(QUESTION, ANSWER);
+        assertThat(this.delegate.reads).hasValue(1);
+    }
+
+    /**
+     * 在后台线程发起一次未命中加载，返回时底层仓库已读出旧数据并停在闸门上
+     */
+    private CompletableFuture<List<Message>> loadInBackground() throws InterruptedException {
+        this.delegate.arm();
+        CompletableFuture<List<Message>> load = CompletableFuture.supplyAsync(
+                () -> this.repository.findByConversationId(CONVERSATION_ID), this.executor);
+        assertThat(this.delegate.loaded.await(5, TimeUnit.SECONDS)).isTrue();
+        return load;
+    }
+
+    private double hits() {
+        return this.meterRegistry.get("chat.memory.cache").tag("result", "hit").counter().count();
+    }
+
+    private static class GatedRepository implements AppendableChatMemoryRepository {
+
+        private final InMemoryChatMemoryRepository store = new InMemoryChatMemoryRepository();
+
+        private final AtomicInteger reads = new AtomicInteger();
+
+        private volatile boolean armed;
+
+        private final CountDownLatch loaded = new CountDownLatch(1);
+
+        private final CountDownLatch released = new CountDownLatch(1);
+
+        void arm() {
+            this.armed = true;
+        }
+
+        void release() {
+            this.armed = false;
+            this.released.countDown();
+        }
+
+        @Override
+        public List<String> findConversationIds() {
+            return this.store.findConversationIds();
+        }
+
+        @Override
+        public List<Message> findByConversationId(String conversationId) {
+            this.reads.incrementAndGet();
+            List<Message> messages = this.store.findByConversationId(conversationId);
+            if (this.armed) {
+                this.loaded.countDown();
+                try {
+                    this.released.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return messages;
+        }
+
+        @Override
+        public void saveAll(String conversationId, List<Message> messages) {
+            this.store.saveAll(conversationId, messages);
+        }
+
+        @Override
+        public void appendAll(String conversationId, List<Message> messages) {
+            List<Message> merged = new ArrayList<>(this.store.findByConversationId(conversationId));
+            merged.addAll(messages);
+            this.store.saveAll(conversationId, merged);
+        }
+
+        @Override
+        public void deleteByConversationId(String conversationId) {
+            this.store.deleteByConversationId(conversationId);
+        }
+    }
+}
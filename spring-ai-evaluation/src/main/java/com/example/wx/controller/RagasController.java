@@ -1,8 +1,11 @@
 package com.example.wx.controller;
 
 import com.example.wx.evaluator.CustomerEvaluator;
+import com.example.wx.rag.vectorstore.SnapshotSimpleVectorStore;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -17,11 +20,8 @@ import org.springframework.ai.evaluation.EvaluationRequest;
 import org.springframework.ai.evaluation.Evaluator;
 import org.springframework.ai.rag.advisor.RetrievalAugmentationAdvisor;
 import org.springframework.ai.rag.retrieval.search.VectorStoreDocumentRetriever;
-import org.springframework.ai.vectorstore.SearchRequest;
-import org.springframework.ai.vectorstore.SimpleVectorStore;
-import org.springframework.ai.vectorstore.VectorStore;
-import org.springframework.ai.vectorstore.filter.FilterExpressionBuilder;
-import org.springframework.util.CollectionUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.util.DigestUtils;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
@@ -37,18 +37,30 @@ import org.springframework.web.bind.annotation.RestController;
 @Slf4j
 public class RagasController {
 
+    private static final String CORPUS = """
+            中华人民共和国首都位于北京市，中华人民共和国成立前夕的旧称为北平，
+            是中共中央及中央人民政府所在地，中央四个直辖市之一，
+            全国政治、文化、国际交往和科技创新中心，中国古都、国家历史文化名城和国家中心城市之一。
+            """;
 
-    private final VectorStore vectorStore;
+    private final SnapshotSimpleVectorStore vectorStore;
     private final ObjectMapper objectMapper;
     private final Advisor ragAdvisor;
     private final Advisor loggerAdvisor;
     private final ChatClient chatClient;
     private final ChatClient.Builder chatClientBuilder;
 
-    public RagasController(ObjectMapper objectMapper, EmbeddingModel embeddingModel, ChatClient.Builder chatClientBuilder) {
+    public RagasController(ObjectMapper objectMapper, EmbeddingModel embeddingModel, ChatClient.Builder chatClientBuilder,
+                           @Value("${vector-store.snapshot-dir:data/vector-store}") String snapshotDir,
+                           @Value("${spring.ai.dashscope.embedding.options.model:}") String embeddingModelName) {
         this.chatClientBuilder = chatClientBuilder;
         this.chatClient = chatClientBuilder.defaultSystem("中文作答").build();
-        this.vectorStore = SimpleVectorStore.builder(embeddingModel).build();
+        this.vectorStore = SnapshotSimpleVectorStore.snapshotBuilder(embeddingModel)
+                .directory(Paths.get(snapshotDir))
+                .name("ragas")
+                // 语料或向量模型变更时快照失效，重新向量化
+                .fingerprint(DigestUtils.md5DigestAsHex((embeddingModelName + "\n" + CORPUS).getBytes(StandardCharsets.UTF_8)))
+                .build();
         this.objectMapper = objectMapper;
         this.ragAdvisor = RetrievalAugmentationAdvisor.builder()
                 .documentRetriever(VectorStoreDocumentRetriever.builder()
@@ -62,21 +74,11 @@ public class RagasController {
 
     @PostConstruct
     public void init() {
-        var searchDocuments = vectorStore.similaritySearch(
-                SearchRequest.builder()
-                        .filterExpression(new FilterExpressionBuilder().eq("title", "中国的首都").build())
-                        .similarityThreshold(0.5d)
-                        .topK(3)
-                        .build()
-        );
-        if (CollectionUtils.isEmpty(searchDocuments)) {
-            var content = """
-                    中华人民共和国首都位于北京市，中华人民共和国成立前夕的旧称为北平，
-                    是中共中央及中央人民政府所在地，中央四个直辖市之一，
-                    全国政治、文化、国际交往和科技创新中心，中国古都、国家历史文化名城和国家中心城市之一。
-                    """;
-            var document = new Document(content, Map.of("title", "中国的首都"));
+        // 快照已恢复数据时无需检索确认，避免启动时调用 EmbeddingModel
+        if (!vectorStore.isComplete()) {
+            var document = new Document(CORPUS, Map.of("title", "中国的首都"));
             vectorStore.add(List.of(document));
+            vectorStore.markComplete();
         }
     }
 
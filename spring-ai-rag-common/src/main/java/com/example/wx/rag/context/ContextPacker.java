@@ -0,0 +1,270 @@
+package com.example.wx.rag.context;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 检索结果的上下文打包：在 token 预算内按相关度贪心选取文档
+ * <ul>
+ *   <li>token 数用 cl100k_base 编码计算，与 TokenTextSplitter 分片时使用的编码一致</li>
+ *   <li>按分数从高到低放入，分数为空时保持检索返回的顺序</li>
+ *   <li>用 64 位 SimHash（字符 3-gram）去除近似重复的片段，汉明距离不超过 duplicateDistance 视为重复</li>
+ *   <li>放不下的文档在句子边界处截断，剩余预算不足 minTrimTokens 时不再截断</li>
+ * </ul>
+ *
+ * @author wangx
+ * @create 2026/10/19 13:10
+ */
+public class ContextPacker {
+
+    /**
+     * 被截断的文档会带上该元数据
+     */
+    public static final String TRIMMED = "context_trimmed";
+
+    private static final int SHINGLE = 3;
+
+    /**
+     * 文档之间分隔符的 token 开销
+     */
+    private static final int SEPARATOR_TOKENS = 1;
+
+    private final TokenCountEstimator tokenCountEstimator;
+
+    private final int maxTokens;
+
+    private final int duplicateDistance;
+
+    private final int minTrimTokens;
+
+    private ContextPacker(Builder builder) {
+        Assert.notNull(builder.tokenCountEstimator, "tokenCountEstimator cannot be null");
+        Assert.isTrue(builder.maxTokens > 0, "maxTokens must be greater than 0");
+        Assert.isTrue(builder.duplicateDistance >= 0 && builder.duplicateDistance < 64,
+                "duplicateDistance must be between 0 and 63");
+        this.tokenCountEstimator = builder.tokenCountEstimator;
+        this.maxTokens = builder.maxTokens;
+        this.duplicateDistance = builder.duplicateDistance;
+        this.minTrimTokens = builder.minTrimTokens;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public int estimate(String text) {
+        return StringUtils.hasLength(text) ? tokenCountEstimator.estimate(text) : 0;
+    }
+
+    public Result pack(List<Document> documents) {
+        List<Document> ranked = new ArrayList<>(documents);
+        // List.sort 是稳定排序，分数相同或为空时保持原顺序
+        ranked.sort(Comparator.comparingDouble((Document document) ->
+                document.getScore() != null ? document.getScore() : Double.NEGATIVE_INFINITY).reversed());
+
+        List<Document> packed = new ArrayList<>();
+        List<Long> fingerprints = new ArrayList<>();
+        int used = 0;
+        int inputTokens = 0;
+        int duplicates = 0;
+        int trimmed = 0;
+        for (Document document : ranked) {
+            String text = document.getText();
+            if (!StringUtils.hasText(text)) {
+                continue;
+            }
+            int tokens = estimate(text);
+            inputTokens += tokens;
+            long fingerprint = simHash(text);
+            if (isDuplicate(fingerprint, fingerprints)) {
+                duplicates++;
+                continue;
+            }
+            int remaining = maxTokens - used - (packed.isEmpty() ? 0 : SEPARATOR_TOKENS);
+            if (tokens <= remaining) {
+                packed.add(document);
+                fingerprints.add(fingerprint);
+                used += tokens + (packed.size() > 1 ? SEPARATOR_TOKENS : 0);
+                continue;
+            }
+            if (remaining < minTrimTokens) {
+                continue;
+            }
+            String head = trimToSentences(text, remaining);
+            if (head.isEmpty()) {
+                continue;
+            }
+            Map<String, Object> metadata = new HashMap<>(document.getMetadata());
+            metadata.put(TRIMMED, true);
+            packed.add(document.mutate().text(head).metadata(metadata).build());
+            fingerprints.add(fingerprint);
+            used += estimate(head) + (packed.size() > 1 ? SEPARATOR_TOKENS : 0);
+            trimmed++;
+        }
+        return new Result(packed, inputTokens, used, duplicates, trimmed);
+    }
+
+    /**
+     * 取不超过 budget 个 token 的完整句子前缀
+     */
+    String trimToSentences(String text, int budget) {
+        StringBuilder head = new StringBuilder();
+        int used = 0;
+        int start = 0;
+        for (int end : sentenceEnds(text)) {
+            String sentence = text.substring(start, end);
+            int tokens = estimate(sentence);
+            if (used + tokens > budget) {
+                break;
+            }
+            head.append(sentence);
+            used += tokens;
+            start = end;
+        }
+        // 逐句累加的估算与整体编码可能略有出入，整体超出时去掉最后一句
+        String result = head.toString();
+        while (!result.isEmpty() && estimate(result) > budget) {
+            int cut = lastSentenceStart(result);
+            result = result.substring(0, cut);
+        }
+        return result.strip();
+    }
+
+    private static List<Integer> sentenceEnds(String text) {
+        List<Integer> ends = new ArrayList<>();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            boolean end = switch (c) {
+                case '。', '！', '？', '；', '\n' -> true;
+                case '.', '!', '?', ';' -> i + 1 == text.length() || Character.isWhitespace(text.charAt(i + 1));
+                default -> false;
+            };
+            if (end) {
+                ends.add(i + 1);
+            }
+        }
+        if (ends.isEmpty() || ends.get(ends.size() - 1) != text.length()) {
+            ends.add(text.length());
+        }
+        return ends;
+    }
+
+    private static int lastSentenceStart(String text) {
+        List<Integer> ends = sentenceEnds(text);
+        return ends.size() > 1 ? ends.get(ends.size() - 2) : 0;
+    }
+
+    private boolean isDuplicate(long fingerprint, List<Long> fingerprints) {
+        for (long existing : fingerprints) {
+            if (Long.bitCount(existing ^ fingerprint) <= duplicateDistance) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 64 位 SimHash，特征为去除空白后的字符 3-gram，中英文通用
+     */
+    static long simHash(String text) {
+        String normalized = text.replaceAll("\\s+", "").toLowerCase(Locale.ROOT);
+        int[] weights = new int[64];
+        if (normalized.length() < SHINGLE) {
+            add(weights, fnv1a(normalized, 0, normalized.length()));
+        }
+        for (int i = 0; i + SHINGLE <= normalized.length(); i++) {
+            add(weights, fnv1a(normalized, i, i + SHINGLE));
+        }
+        long hash = 0;
+        for (int bit = 0; bit < 64; bit++) {
+            if (weights[bit] > 0) {
+                hash |= 1L << bit;
+            }
+        }
+        return hash;
+    }
+
+    private static void add(int[] weights, long hash) {
+        for (int bit = 0; bit < 64; bit++) {
+            weights[bit] += ((hash >>> bit) & 1) != 0 ? 1 : -1;
+        }
+    }
+
+    private static long fnv1a(String text, int from, int to) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = from; i < to; i++) {
+            hash ^= text.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * 打包结果
+     *
+     * @param documents 放入上下文的文档，按相关度排序
+     * @param inputTokens 输入文档（不含空文档）的 token 总数
+     * @param packedTokens 打包后的 token 数
+     * @param duplicates 因近似重复丢弃的文档数
+     * @param trimmed 被截断的文档数
+     */
+    public record Result(List<Document> documents, int inputTokens, int packedTokens, int duplicates, int trimmed) {
+    }
+
+    public static class Builder {
+
+        private TokenCountEstimator tokenCountEstimator;
+        private int maxTokens = 3000;
+        private int duplicateDistance = 3;
+        private int minTrimTokens = 32;
+
+        /**
+         * 默认 cl100k_base
+         */
+        public Builder tokenCountEstimator(TokenCountEstimator tokenCountEstimator) {
+            this.tokenCountEstimator = tokenCountEstimator;
+            return this;
+        }
+
+        /**
+         * 上下文 token 预算
+         */
+        public Builder maxTokens(int maxTokens) {
+            this.maxTokens = maxTokens;
+            return this;
+        }
+
+        /**
+         * SimHash 汉明距离不超过该值视为近似重复，0 表示只去除完全相同的片段
+         */
+        public Builder duplicateDistance(int duplicateDistance) {
+            this.duplicateDistance = duplicateDistance;
+            return this;
+        }
+
+        /**
+         * 剩余预算低于该值时不再截断放入
+         */
+        public Builder minTrimTokens(int minTrimTokens) {
+            this.minTrimTokens = minTrimTokens;
+            return this;
+        }
+
+        public ContextPacker build() {
+            if (this.tokenCountEstimator == null) {
+                this.tokenCountEstimator = new JTokkitTokenCountEstimator();
+            }
+            return new ContextPacker(this);
+        }
+    }
+}
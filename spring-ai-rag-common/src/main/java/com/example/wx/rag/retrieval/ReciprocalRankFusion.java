@@ -0,0 +1,110 @@
+package com.example.wx.rag.retrieval;
+
+import org.springframework.ai.document.Document;
+import org.springframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * 倒数排名融合（Reciprocal Rank Fusion）
+ * <p>
+ * 每路结果按名次打分 {@code 1 / (rrfK + rank)}，同一文档在多路中出现时分数累加，按总分取前 limit 条；
+ * 同一路中重复出现的文档只计一次。分数相同时保持先出现的顺序。
+ * 融合后的分数写入 {@link Document#getScore()} 与 {@link #RRF_SCORE} 元数据，命中的各路名称以逗号分隔写入 sourcesKey 元数据。
+ *
+ * @author wangx
+ * @create 2026/10/19 18:30
+ */
+public class ReciprocalRankFusion {
+
+    /**
+     * 融合后写入文档元数据的 RRF 分数
+     */
+    public static final String RRF_SCORE = "rrf_score";
+
+    private final int rrfK;
+
+    private final Function<Document, String> keyFunction;
+
+    private final String sourcesKey;
+
+    /**
+     * @param rrfK        RRF 平滑常数
+     * @param keyFunction 判断是否为同一文档的 key，返回 null 的文档被忽略
+     * @param sourcesKey  记录命中各路名称的元数据 key
+     */
+    public ReciprocalRankFusion(int rrfK, Function<Document, String> keyFunction, String sourcesKey) {
+        Assert.isTrue(rrfK > 0, "rrfK must be greater than 0");
+        Assert.notNull(keyFunction, "keyFunction cannot be null");
+        Assert.hasText(sourcesKey, "sourcesKey cannot be null or empty");
+        this.rrfK = rrfK;
+        this.keyFunction = keyFunction;
+        this.sourcesKey = sourcesKey;
+    }
+
+    /**
+     * 按文档 id 判断同一文档
+     */
+    public static ReciprocalRankFusion byId(int rrfK, String sourcesKey) {
+        return new ReciprocalRankFusion(rrfK, Document::getId, sourcesKey);
+    }
+
+    /**
+     * 按去除空白后的正文判断同一文档，适用于 id 不一致的多个知识库
+     */
+    public static ReciprocalRankFusion byText(int rrfK, String sourcesKey) {
+        return new ReciprocalRankFusion(rrfK,
+                document -> document.getText() != null ? document.getText().replaceAll("\\s+", "") : null, sourcesKey);
+    }
+
+    /**
+     * @param rankings 各路名称到按相关度排好序的结果
+     * @param limit    返回条数上限
+     */
+    public List<Document> fuse(Map<String, List<Document>> rankings, int limit) {
+        Map<String, Fused> fused = new LinkedHashMap<>();
+        rankings.forEach((name, documents) -> {
+            for (int rank = 0; rank < documents.size(); rank++) {
+                Document document = documents.get(rank);
+                String key = keyFunction.apply(document);
+                if (key == null) {
+                    continue;
+                }
+                Fused entry = fused.computeIfAbsent(key, k -> new Fused(document));
+                if (!entry.sources.contains(name)) {
+                    entry.score += 1.0 / (rrfK + rank + 1);
+                    entry.sources.add(name);
+                }
+            }
+        });
+        List<Fused> ranked = new ArrayList<>(fused.values());
+        ranked.sort((a, b) -> Double.compare(b.score, a.score));
+
+        List<Document> result = new ArrayList<>(Math.min(limit, ranked.size()));
+        for (Fused entry : ranked.subList(0, Math.min(limit, ranked.size()))) {
+            Map<String, Object> metadata = new HashMap<>(entry.document.getMetadata());
+            metadata.put(RRF_SCORE, entry.score);
+            metadata.put(sourcesKey, String.join(",", entry.sources));
+            result.add(entry.document.mutate().metadata(metadata).score(entry.score).build());
+        }
+        return result;
+    }
+
+    private static final class Fused {
+
+        private final Document document;
+
+        private final List<String> sources = new ArrayList<>(2);
+
+        private double score;
+
+        private Fused(Document document) {
+            this.document = document;
+        }
+    }
+}
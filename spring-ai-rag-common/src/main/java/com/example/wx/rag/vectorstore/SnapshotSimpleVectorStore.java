@@ -0,0 +1,511 @@
+package com.example.wx.rag.vectorstore;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.SimpleVectorStore;
+import org.springframework.ai.vectorstore.SimpleVectorStoreContent;
+import org.springframework.util.Assert;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 带二进制快照的 SimpleVectorStore
+ * <p>
+ * SimpleVectorStore 自带的 save/load 使用 JSON，向量按十进制文本存储，加载时需要整体解析。这里改为两个文件：
+ * <ul>
+ *   <li>{@code <name>.vec}：float32 小端序向量，按槽位顺序追加，加载时内存映射读取</li>
+ *   <li>{@code <name>.docs}：文档日志，追加 ADD(id, 槽位, 文本, 元数据) 与 DELETE(id) 记录，加载时重放</li>
+ * </ul>
+ * add/delete 只在文件末尾追加记录，不重写整个快照；失效槽位占比超过 compactionRatio 时整体压缩重写。
+ * 启动时从快照恢复，不调用 EmbeddingModel。fingerprint 与快照中记录的不一致时（如源文件已变更）丢弃快照，
+ * 由调用方根据 {@link #isComplete()} 重新写入。
+ * <p>
+ * 调用方写完全量数据后调用 {@link #markComplete()}，在文档日志中追加 COMMIT 记录。
+ * 没有 COMMIT 记录的快照（如写入过程中进程退出）加载时整体丢弃，避免把只写了一部分的快照当作完整数据。
+ *
+ * @author wangx
+ * @create 2026/10/18 21:10
+ */
+public class SnapshotSimpleVectorStore extends SimpleVectorStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(SnapshotSimpleVectorStore.class);
+
+    private static final int VECTOR_MAGIC = 0x56454331;
+
+    private static final int DOCS_MAGIC = 0x444F4331;
+
+    private static final int VERSION = 1;
+
+    /**
+     * magic、version、dimensions、generation
+     */
+    private static final int VECTOR_HEADER_BYTES = 16;
+
+    private static final byte OP_ADD = 1;
+
+    private static final byte OP_DELETE = 2;
+
+    private static final byte OP_COMMIT = 3;
+
+    private static final TypeReference<Map<String, Object>> METADATA_TYPE = new TypeReference<>() {
+    };
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final Path vectorFile;
+
+    private final Path docsFile;
+
+    private final String fingerprint;
+
+    private final double compactionRatio;
+
+    /**
+     * id 到向量槽位的映射，只在持有 this 锁时访问
+     */
+    private final Map<String, Integer> slots = new HashMap<>();
+
+    private int dimensions = -1;
+
+    private int generation = 0;
+
+    private int nextSlot = 0;
+
+    /**
+     * 快照中是否已有 COMMIT 记录，只在持有 this 锁时修改
+     */
+    private volatile boolean complete = false;
+
+    private SnapshotSimpleVectorStore(Builder builder) {
+        super(SimpleVectorStore.builder(builder.embeddingModel));
+        Assert.notNull(builder.directory, "directory cannot be null");
+        Assert.hasText(builder.name, "name cannot be null or empty");
+        Assert.isTrue(builder.compactionRatio > 0 && builder.compactionRatio < 1, "compactionRatio must be in (0, 1)");
+        this.vectorFile = builder.directory.resolve(builder.name + ".vec");
+        this.docsFile = builder.directory.resolve(builder.name + ".docs");
+        this.fingerprint = builder.fingerprint;
+        this.compactionRatio = builder.compactionRatio;
+        try {
+            Files.createDirectories(builder.directory);
+            load();
+        } catch (IOException | RuntimeException e) {
+            // 快照损坏时退化为空库，由调用方重新写入
+            logger.warn("Load vector store snapshot {} failed, starting empty", this.vectorFile, e);
+            this.store.clear();
+            reset();
+        }
+    }
+
+    public static Builder snapshotBuilder(EmbeddingModel embeddingModel) {
+        return new Builder(embeddingModel);
+    }
+
+    public int size() {
+        return this.store.size();
+    }
+
+    public boolean isEmpty() {
+        return this.store.isEmpty();
+    }
+
+    /**
+     * 快照是否已由 {@link #markComplete()} 标记为写入完成
+     */
+    public boolean isComplete() {
+        return this.complete;
+    }
+
+    /**
+     * 全量写入完成后调用，之后的增量 add/delete 不影响完成状态
+     */
+    public synchronized void markComplete() {
+        if (this.complete) {
+            return;
+        }
+        if (this.dimensions >= 0) {
+            try {
+                appendDocs(new byte[]{OP_COMMIT});
+            } catch (IOException e) {
+                throw new UncheckedIOException("Write vector store snapshot failed: " + this.docsFile, e);
+            }
+        }
+        // 没有写入任何文档时不落盘，下次启动重新写入（源数据为空时代价可以忽略）
+        this.complete = true;
+    }
+
+    @Override
+    public void doAdd(List<Document> documents) {
+        // 向量化在锁外执行，写快照时再串行化
+        super.doAdd(documents);
+        List<SimpleVectorStoreContent> added = documents.stream()
+                .map(document -> this.store.get(document.getId()))
+                .filter(Objects::nonNull)
+                .toList();
+        append(added);
+    }
+
+    @Override
+    public void doDelete(List<String> idList) {
+        super.doDelete(idList);
+        synchronized (this) {
+            try {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                DataOutputStream out = new DataOutputStream(bytes);
+                for (String id : idList) {
+                    if (this.slots.remove(id) != null) {
+                        out.writeByte(OP_DELETE);
+                        writeString(out, id);
+                    }
+                }
+                if (bytes.size() > 0) {
+                    appendDocs(bytes.toByteArray());
+                    compactIfNeeded();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Write vector store snapshot failed: " + this.docsFile, e);
+            }
+        }
+    }
+
+    private synchronized void append(List<SimpleVectorStoreContent> contents) {
+        if (contents.isEmpty()) {
+            return;
+        }
+        try {
+            if (this.dimensions < 0) {
+                this.dimensions = contents.get(0).getEmbedding().length;
+                writeHeaders();
+            }
+            // 先写向量再写文档日志，进程中断时未写完向量的 ADD 记录不会出现
+            ByteBuffer vectors = ByteBuffer.allocate(contents.size() * this.dimensions * Float.BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            int slot = this.nextSlot;
+            for (SimpleVectorStoreContent content : contents) {
+                float[] embedding = content.getEmbedding();
+                Assert.isTrue(embedding.length == this.dimensions,
+                        "embedding dimensions " + embedding.length + " do not match snapshot dimensions " + this.dimensions);
+                for (float value : embedding) {
+                    vectors.putFloat(value);
+                }
+                writeAdd(out, content, slot++);
+            }
+            vectors.flip();
+            try (FileChannel channel = FileChannel.open(this.vectorFile, StandardOpenOption.WRITE)) {
+                long position = slotOffset(this.nextSlot);
+                while (vectors.hasRemaining()) {
+                    position += channel.write(vectors, position);
+                }
+                channel.force(false);
+            }
+            appendDocs(bytes.toByteArray());
+            for (SimpleVectorStoreContent content : contents) {
+                this.slots.put(content.getId(), this.nextSlot++);
+            }
+            compactIfNeeded();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Write vector store snapshot failed: " + this.vectorFile, e);
+        }
+    }
+
+    private void load() throws IOException {
+        if (!Files.exists(this.vectorFile) || !Files.exists(this.docsFile)) {
+            reset();
+            return;
+        }
+        long start = System.nanoTime();
+        ByteBuffer docs = ByteBuffer.wrap(Files.readAllBytes(this.docsFile));
+        if (docs.remaining() < 12 || docs.getInt() != DOCS_MAGIC || docs.getInt() != VERSION) {
+            logger.warn("Unrecognized vector store snapshot {}, discarding", this.docsFile);
+            reset();
+            return;
+        }
+        int docsGeneration = docs.getInt();
+        if (!Objects.equals(readString(docs), this.fingerprint)) {
+            logger.info("Vector store snapshot {} fingerprint changed, discarding", this.docsFile);
+            reset();
+            return;
+        }
+        int headerEnd = docs.position();
+
+        Map<String, DocRecord> live = new HashMap<>();
+        int validEnd = headerEnd;
+        boolean committed = false;
+        try {
+            while (docs.hasRemaining()) {
+                byte op = docs.get();
+                if (op == OP_COMMIT) {
+                    committed = true;
+                    validEnd = docs.position();
+                    continue;
+                }
+                String id = readString(docs);
+                if (op == OP_ADD) {
+                    int slot = docs.getInt();
+                    String text = readString(docs);
+                    byte[] metadata = readBytes(docs);
+                    live.put(id, new DocRecord(slot, text, metadata));
+                } else if (op == OP_DELETE) {
+                    live.remove(id);
+                } else {
+                    throw new IOException("Unknown record type " + op + " at offset " + validEnd);
+                }
+                validEnd = docs.position();
+            }
+        } catch (BufferUnderflowException e) {
+            // 末尾记录未写完整，丢弃
+            logger.warn("Truncated record at the end of {}, ignored", this.docsFile);
+        }
+        if (!committed) {
+            // 全量写入未完成，快照中只有部分文档
+            logger.warn("Vector store snapshot {} was not completed, discarding", this.docsFile);
+            reset();
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(this.vectorFile, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(VECTOR_HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(header, 0);
+            header.flip();
+            if (header.remaining() < VECTOR_HEADER_BYTES || header.getInt() != VECTOR_MAGIC || header.getInt() != VERSION) {
+                logger.warn("Unrecognized vector store snapshot {}, discarding", this.vectorFile);
+                reset();
+                return;
+            }
+            this.dimensions = header.getInt();
+            this.generation = header.getInt();
+            if (this.generation != docsGeneration) {
+                // 压缩过程中被中断，两个文件不属于同一代
+                logger.warn("Vector store snapshot {} generation mismatch, discarding", this.vectorFile);
+                reset();
+                return;
+            }
+            long slotBytes = (long) this.dimensions * Float.BYTES;
+            long vectorBytes = channel.size() - VECTOR_HEADER_BYTES;
+            Assert.isTrue(vectorBytes <= Integer.MAX_VALUE, "vector snapshot larger than 2GB is not supported");
+            this.nextSlot = (int) (vectorBytes / slotBytes);
+            FloatBuffer vectors = channel.map(FileChannel.MapMode.READ_ONLY, VECTOR_HEADER_BYTES, this.nextSlot * slotBytes)
+                    .order(ByteOrder.LITTLE_ENDIAN)
+                    .asFloatBuffer();
+            for (Map.Entry<String, DocRecord> entry : live.entrySet()) {
+                DocRecord record = entry.getValue();
+                if (record.slot() >= this.nextSlot) {
+                    continue;
+                }
+                float[] embedding = new float[this.dimensions];
+                vectors.get(record.slot() * this.dimensions, embedding);
+                Map<String, Object> metadata = this.objectMapper.readValue(record.metadata(), METADATA_TYPE);
+                this.store.put(entry.getKey(), new SimpleVectorStoreContent(entry.getKey(), record.text(), metadata, embedding));
+                this.slots.put(entry.getKey(), record.slot());
+            }
+        }
+        if (validEnd < docs.limit()) {
+            try (FileChannel channel = FileChannel.open(this.docsFile, StandardOpenOption.WRITE)) {
+                channel.truncate(validEnd);
+            }
+        }
+        this.complete = true;
+        logger.info("Loaded {} documents from vector store snapshot {} in {} ms",
+                this.store.size(), this.vectorFile, (System.nanoTime() - start) / 1_000_000);
+        compactIfNeeded();
+    }
+
+    /**
+     * 失效槽位占比超过阈值时，按当前内存中的数据写入新一代快照并替换
+     */
+    private void compactIfNeeded() throws IOException {
+        int dead = this.nextSlot - this.slots.size();
+        if (this.nextSlot == 0 || dead <= this.nextSlot * this.compactionRatio) {
+            return;
+        }
+        int nextGeneration = this.generation + 1;
+        Path vectorTmp = this.vectorFile.resolveSibling(this.vectorFile.getFileName() + ".tmp");
+        Path docsTmp = this.docsFile.resolveSibling(this.docsFile.getFileName() + ".tmp");
+        Map<String, Integer> compacted = new HashMap<>();
+        try (FileChannel channel = FileChannel.open(vectorTmp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            writeDocsHeader(out, nextGeneration);
+            channel.write(vectorHeader(nextGeneration));
+            ByteBuffer vector = ByteBuffer.allocate(this.dimensions * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            int slot = 0;
+            for (String id : this.slots.keySet()) {
+                SimpleVectorStoreContent content = this.store.get(id);
+                if (content == null) {
+                    continue;
+                }
+                vector.clear();
+                for (float value : content.getEmbedding()) {
+                    vector.putFloat(value);
+                }
+                vector.flip();
+                while (vector.hasRemaining()) {
+                    channel.write(vector);
+                }
+                writeAdd(out, content, slot);
+                compacted.put(id, slot++);
+            }
+            if (this.complete) {
+                out.writeByte(OP_COMMIT);
+            }
+            channel.force(false);
+            Files.write(docsTmp, bytes.toByteArray());
+        }
+        Files.move(vectorTmp, this.vectorFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Files.move(docsTmp, this.docsFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        logger.info("Compacted vector store snapshot {}: {} -> {} slots", this.vectorFile, this.nextSlot, compacted.size());
+        this.generation = nextGeneration;
+        this.nextSlot = compacted.size();
+        this.slots.clear();
+        this.slots.putAll(compacted);
+    }
+
+    private void reset() {
+        this.complete = false;
+        this.slots.clear();
+        this.dimensions = -1;
+        this.generation = 0;
+        this.nextSlot = 0;
+    }
+
+    private void writeHeaders() throws IOException {
+        try (FileChannel channel = FileChannel.open(this.vectorFile, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            channel.write(vectorHeader(this.generation));
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        writeDocsHeader(new DataOutputStream(bytes), this.generation);
+        Files.write(this.docsFile, bytes.toByteArray());
+    }
+
+    private ByteBuffer vectorHeader(int generation) {
+        return ByteBuffer.allocate(VECTOR_HEADER_BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN)
+                .putInt(VECTOR_MAGIC)
+                .putInt(VERSION)
+                .putInt(this.dimensions)
+                .putInt(generation)
+                .flip();
+    }
+
+    private void writeDocsHeader(DataOutputStream out, int generation) throws IOException {
+        out.writeInt(DOCS_MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(generation);
+        writeString(out, this.fingerprint);
+    }
+
+    private void writeAdd(DataOutputStream out, SimpleVectorStoreContent content, int slot) throws IOException {
+        out.writeByte(OP_ADD);
+        writeString(out, content.getId());
+        out.writeInt(slot);
+        writeString(out, content.getText());
+        writeBytes(out, this.objectMapper.writeValueAsBytes(content.getMetadata()));
+    }
+
+    private void appendDocs(byte[] bytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(this.docsFile, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+    }
+
+    private long slotOffset(int slot) {
+        return VECTOR_HEADER_BYTES + (long) slot * this.dimensions * Float.BYTES;
+    }
+
+    /**
+     * 长度前缀 + UTF-8，不受 writeUTF 64KB 的限制
+     */
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        writeBytes(out, (value != null ? value : "").getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        return new String(readBytes(buffer), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] readBytes(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private record DocRecord(int slot, String text, byte[] metadata) {
+    }
+
+    public static class Builder {
+
+        private final EmbeddingModel embeddingModel;
+        private Path directory;
+        private String name = "vector-store";
+        private String fingerprint = "";
+        private double compactionRatio = 0.5;
+
+        private Builder(EmbeddingModel embeddingModel) {
+            this.embeddingModel = embeddingModel;
+        }
+
+        public Builder directory(Path directory) {
+            this.directory = directory;
+            return this;
+        }
+
+        public Builder name(String name) {
+            this.name = name;
+            return this;
+        }
+
+        /**
+         * 源数据指纹（如源文件哈希），与快照记录的不一致时丢弃快照
+         */
+        public Builder fingerprint(String fingerprint) {
+            this.fingerprint = fingerprint;
+            return this;
+        }
+
+        public Builder compactionRatio(double compactionRatio) {
+            this.compactionRatio = compactionRatio;
+            return this;
+        }
+
+        public SnapshotSimpleVectorStore build() {
+            return new SnapshotSimpleVectorStore(this);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.wx.chat;
+
+import org.springframework.ai.document.Document;
+import org.springframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 预编译的知识库问答提示词模板
+ * <p>
+ * 模板中的 {@code {context}} 与 {@code {query}} 占位符在构造时一次性切分为字面量片段，
+ * 渲染时按片段与文档长度预先算出总长度，只分配一次 StringBuilder，
+ * 不再每次请求都解析格式串，也不生成拼接后的中间 context 字符串。
+ *
+ * @author wangx
+ * @create 2026/10/19 11:20
+ */
+public final class RagPromptTemplate {
+
+    public static final String CONTEXT = "{context}";
+
+    public static final String QUERY = "{query}";
+
+    public static final String DEFAULT_TEMPLATE = "基于以下知识库内容回答用户问题。如果知识库内容无法回答问题，请明确说明。\n\n"
+            + "知识库内容：\n{context}\n\n"
+            + "用户问题：{query}\n\n"
+            + "请基于上述知识库内容给出准确、有用的回答：";
+
+    private static final String DOCUMENT_SEPARATOR = "\n\n";
+
+    private static final RagPromptTemplate DEFAULT = compile(DEFAULT_TEMPLATE);
+
+    /**
+     * 字面量片段，相邻片段之间是一个占位符
+     */
+    private final String[] literals;
+
+    /**
+     * 第 i 个占位符是否为 {context}，否则为 {query}
+     */
+    private final boolean[] contextSlots;
+
+    private final int literalLength;
+
+    private RagPromptTemplate(List<String> literals, List<Boolean> contextSlots) {
+        this.literals = literals.toArray(String[]::new);
+        this.contextSlots = new boolean[contextSlots.size()];
+        for (int i = 0; i < this.contextSlots.length; i++) {
+            this.contextSlots[i] = contextSlots.get(i);
+        }
+        this.literalLength = literals.stream().mapToInt(String::length).sum();
+    }
+
+    public static RagPromptTemplate defaultTemplate() {
+        return DEFAULT;
+    }
+
+    public static RagPromptTemplate compile(String template) {
+        Assert.hasText(template, "template cannot be empty");
+        List<String> literals = new ArrayList<>();
+        List<Boolean> contextSlots = new ArrayList<>();
+        int from = 0;
+        while (true) {
+            int context = template.indexOf(CONTEXT, from);
+            int query = template.indexOf(QUERY, from);
+            int next = context < 0 ? query : query < 0 ? context : Math.min(context, query);
+            if (next < 0) {
+                break;
+            }
+            boolean isContext = next == context;
+            literals.add(template.substring(from, next));
+            contextSlots.add(isContext);
+            from = next + (isContext ? CONTEXT : QUERY).length();
+        }
+        literals.add(template.substring(from));
+        return new RagPromptTemplate(literals, contextSlots);
+    }
+
+    /**
+     * 渲染提示词，文档按给定顺序以空行分隔
+     */
+    public String render(List<Document> documents, String query) {
+        int contextLength = 0;
+        for (Document document : documents) {
+            contextLength += length(document);
+        }
+        contextLength += Math.max(0, documents.size() - 1) * DOCUMENT_SEPARATOR.length();
+
+        int capacity = literalLength;
+        for (boolean isContext : contextSlots) {
+            capacity += isContext ? contextLength : query.length();
+        }
+        StringBuilder prompt = new StringBuilder(capacity);
+        for (int i = 0; i < contextSlots.length; i++) {
+            prompt.append(literals[i]);
+            if (contextSlots[i]) {
+                appendContext(prompt, documents);
+            } else {
+                prompt.append(query);
+            }
+        }
+        return prompt.append(literals[literals.length - 1]).toString();
+    }
+
+    private static void appendContext(StringBuilder prompt, List<Document> documents) {
+        for (int i = 0; i < documents.size(); i++) {
+            if (i > 0) {
+                prompt.append(DOCUMENT_SEPARATOR);
+            }
+            String text = documents.get(i).getText();
+            if (text != null) {
+                prompt.append(text);
+            }
+        }
+    }
+
+    private static int length(Document document) {
+        String text = document.getText();
+        return text != null ? text.length() : 0;
+    }
+}
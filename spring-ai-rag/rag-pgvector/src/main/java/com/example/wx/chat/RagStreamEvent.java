@@ -0,0 +1,55 @@
+package com.example.wx.chat;
+
+/**
+ * 流式知识库对话事件，对应 SSE 的 event 与 data
+ * <ul>
+ *   <li>status：阶段状态，如 retrieving</li>
+ *   <li>documents：检索完成，data 为命中的文档数</li>
+ *   <li>token：LLM 生成的内容片段</li>
+ *   <li>done / error：结束或失败</li>
+ * </ul>
+ *
+ * @param type 事件类型
+ * @param data 事件内容
+ * @author wangx
+ * @create 2026/10/19 11:30
+ */
+public record RagStreamEvent(String type, String data) {
+
+    public static final String STATUS = "status";
+
+    public static final String DOCUMENTS = "documents";
+
+    public static final String TOKEN = "token";
+
+    public static final String DONE = "done";
+
+    public static final String ERROR = "error";
+
+    public static RagStreamEvent status(String status) {
+        return new RagStreamEvent(STATUS, status);
+    }
+
+    public static RagStreamEvent documents(int count) {
+        return new RagStreamEvent(DOCUMENTS, String.valueOf(count));
+    }
+
+    public static RagStreamEvent token(String content) {
+        return new RagStreamEvent(TOKEN, content);
+    }
+
+    public static RagStreamEvent done() {
+        return new RagStreamEvent(DONE, "");
+    }
+
+    public static RagStreamEvent error(String message) {
+        return new RagStreamEvent(ERROR, message);
+    }
+
+    /**
+     * 是否是返回给用户的文本内容（生成内容或错误提示）
+     */
+    public boolean isContent() {
+        return TOKEN.equals(type) || ERROR.equals(type);
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.wx.config;
+
+import com.example.wx.rag.context.ContextPacker;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 检索结果放入提示词前的上下文打包配置
+ *
+ * @author wangx
+ * @create 2026/10/19 14:00
+ */
+@Configuration
+public class ContextPackingConfig {
+
+    @Bean
+    public ContextPacker contextPacker(@Value("${knowledge-base.context.max-tokens:3000}") int maxTokens,
+                                       @Value("${knowledge-base.context.duplicate-distance:3}") int duplicateDistance,
+                                       @Value("${knowledge-base.context.min-trim-tokens:32}") int minTrimTokens) {
+        return ContextPacker.builder()
+                .maxTokens(maxTokens)
+                .duplicateDistance(duplicateDistance)
+                .minTrimTokens(minTrimTokens)
+                .build();
+    }
+}
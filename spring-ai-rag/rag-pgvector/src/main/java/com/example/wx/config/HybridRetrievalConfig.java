@@ -0,0 +1,77 @@
+package com.example.wx.config;
+
+import com.example.wx.retrieval.HybridDocumentRetriever;
+import com.example.wx.retrieval.PgFullTextDocumentRetriever;
+import org.springframework.ai.rag.retrieval.search.VectorStoreDocumentRetriever;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 混合检索配置：pgvector 向量检索 + Postgres 全文检索，RRF 融合
+ *
+ * @author wangx
+ * @create 2026/10/19 10:10
+ */
+@Configuration
+public class HybridRetrievalConfig {
+
+    @Value("${knowledge-base.retrieval.candidate-k:20}")
+    private int candidateK;
+
+    @Value("${knowledge-base.retrieval.rrf-k:60}")
+    private int rrfK;
+
+    @Value("${knowledge-base.retrieval.timeout:3s}")
+    private Duration timeout;
+
+    @Value("${knowledge-base.retrieval.text-search-config:simple}")
+    private String textSearchConfig;
+
+    @Value("${spring.ai.vectorstore.pgvector.schema-name:public}")
+    private String schemaName;
+
+    @Value("${spring.ai.vectorstore.pgvector.table-name:vector_store}")
+    private String tableName;
+
+    /**
+     * 两路召回并发执行的线程池
+     * <p>
+     * 队列有界：召回卡住占满线程时新的召回直接被拒绝并按超时处理，而不是排在无界队列里等到截止时间之后
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService hybridRetrievalExecutor(@Value("${knowledge-base.retrieval.pool-size:8}") int poolSize,
+                                                   @Value("${knowledge-base.retrieval.queue-capacity:32}") int queueCapacity) {
+        return new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity));
+    }
+
+    @Bean
+    public HybridDocumentRetriever hybridDocumentRetriever(VectorStore vectorStore, JdbcTemplate jdbcTemplate,
+                                                           ExecutorService hybridRetrievalExecutor) {
+        // 每路多召回一些候选，融合后再截取 topK
+        return HybridDocumentRetriever.builder()
+                .retriever("vector", VectorStoreDocumentRetriever.builder()
+                        .vectorStore(vectorStore)
+                        .topK(candidateK)
+                        .build())
+                .retriever("fulltext", PgFullTextDocumentRetriever.builder(jdbcTemplate)
+                        .schemaName(schemaName)
+                        .tableName(tableName)
+                        .textSearchConfig(textSearchConfig)
+                        .topK(candidateK)
+                        .build())
+                .executor(hybridRetrievalExecutor)
+                .rrfK(rrfK)
+                .timeout(timeout)
+                .build();
+    }
+}
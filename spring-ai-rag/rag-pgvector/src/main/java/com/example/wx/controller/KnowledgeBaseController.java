@@ -1,10 +1,13 @@
 package com.example.wx.controller;
 
+import com.example.wx.chat.RagStreamEvent;
+import com.example.wx.ingest.IngestionProgress;
 import com.example.wx.service.KnowledgeBaseService;
 import org.springframework.ai.document.Document;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -68,6 +71,19 @@ public class KnowledgeBaseController {
         }
     }
 
+    /**
+     * 流式上传文件到知识库，以 SSE 推送入库进度。
+     *
+     * @param file 上传的文件
+     * @return 入库进度流
+     */
+    @PostMapping(value = "/upload-file-stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<Flux<IngestionProgress>> uploadFileWithProgress(@RequestParam("file") MultipartFile file) {
+        if (file.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+        return ResponseEntity.ok(knowledgeBaseService.loadFileWithProgress(file));
+    }
 
     /**
      * 在指定业务类型的知识库中执行相似性搜索。
@@ -144,4 +160,30 @@ public class KnowledgeBaseController {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Flux.just("流式对话过程中发生错误: " + e.getMessage()));
         }
     }
+
+    /**
+     * 流式LLM对话接口（SSE 事件流），先推送 status/documents 检索状态事件，再逐个推送 token 事件，以 done 或 error 结束。
+     *
+     * @param query 用户查询问题
+     * @param topK  检索的相关文档数量（默认为5）
+     * @return SSE 事件流
+     */
+    @GetMapping(value = "/chat-events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<Flux<ServerSentEvent<String>>> chatWithKnowledgeEvents(@RequestParam("query") String query,
+                                                                                 @RequestParam(value = "topK", defaultValue = "5") int topK) {
+        if (query == null || query.trim().isEmpty()) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Flux.just(toServerSentEvent(RagStreamEvent.error("查询问题是必需的"))));
+        }
+        if (topK <= 0) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Flux.just(toServerSentEvent(RagStreamEvent.error("topK必须是正整数"))));
+        }
+        return ResponseEntity.ok(knowledgeBaseService.chatWithKnowledgeEvents(query, topK)
+                .map(KnowledgeBaseController::toServerSentEvent));
+    }
+
+    private static ServerSentEvent<String> toServerSentEvent(RagStreamEvent event) {
+        return ServerSentEvent.builder(event.data()).event(event.type()).build();
+    }
 }
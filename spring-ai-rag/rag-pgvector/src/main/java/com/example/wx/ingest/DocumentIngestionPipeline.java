@@ -0,0 +1,130 @@
+package com.example.wx.ingest;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.reader.tika.TikaDocumentReader;
+import org.springframework.ai.transformer.splitter.TokenTextSplitter;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 流式、内存有界的文档入库流水线
+ * <p>
+ * 解析 → 分片 → 批量写入 三个阶段通过 Reactor 串联并由背压驱动：
+ * <ol>
+ *   <li>解析：PDF 逐页读取（不一次性加载全部页面），其他类型交给 Tika</li>
+ *   <li>分片：每页经 {@link TokenTextSplitter} 切分后按 batchSize 聚合为批次</li>
+ *   <li>写入：{@link VectorStore#add(List)} 内部完成向量化与落库，最多 concurrency 个批次并发执行</li>
+ * </ol>
+ * 解析与写入运行在不同线程上，中间最多缓冲 prefetch 个批次，写入跟不上时解析自动暂停，
+ * 因此堆内同时存在的分片数上限约为 (prefetch + concurrency) * batchSize，与文档页数无关。
+ *
+ * @author wangx
+ * @create 2026/10/18 18:10
+ */
+public class DocumentIngestionPipeline {
+
+    private static final Logger logger = LoggerFactory.getLogger(DocumentIngestionPipeline.class);
+
+    private final VectorStore vectorStore;
+
+    private final TokenTextSplitter splitter;
+
+    private final int batchSize;
+
+    private final int concurrency;
+
+    private final int prefetch;
+
+    public DocumentIngestionPipeline(VectorStore vectorStore, TokenTextSplitter splitter, int batchSize,
+                                     int concurrency, int prefetch) {
+        Assert.notNull(vectorStore, "vectorStore cannot be null");
+        Assert.notNull(splitter, "splitter cannot be null");
+        Assert.isTrue(batchSize > 0 && concurrency > 0 && prefetch > 0,
+                "batchSize, concurrency and prefetch must be greater than 0");
+        this.vectorStore = vectorStore;
+        this.splitter = splitter;
+        this.batchSize = batchSize;
+        this.concurrency = concurrency;
+        this.prefetch = prefetch;
+    }
+
+    /**
+     * 将文件入库，每完成一个批次发出一次进度，最后发出 finished = true 的汇总进度
+     *
+     * @param file 本地文件
+     * @param fileName 原始文件名，用于选择解析器和写入元数据
+     * @return 入库进度流
+     */
+    public Flux<IngestionProgress> ingest(Path file, String fileName) {
+        AtomicInteger pages = new AtomicInteger();
+        AtomicInteger chunks = new AtomicInteger();
+        AtomicInteger batches = new AtomicInteger();
+
+        return readPages(file, fileName)
+                .subscribeOn(Schedulers.boundedElastic())
+                .doOnNext(page -> pages.incrementAndGet())
+                .concatMapIterable(page -> this.splitter.apply(List.of(page)))
+                .buffer(this.batchSize)
+                // 解析与写入在不同线程上执行，中间最多缓冲 prefetch 个批次
+                .publishOn(Schedulers.boundedElastic(), this.prefetch)
+                .flatMap(batch -> Mono.fromCallable(() -> {
+                            this.vectorStore.add(batch);
+                            return batch.size();
+                        })
+                        .subscribeOn(Schedulers.boundedElastic()), this.concurrency, 1)
+                .map(written -> new IngestionProgress(fileName, pages.get(), chunks.addAndGet(written),
+                        batches.incrementAndGet(), false))
+                .doOnNext(progress -> logger.debug("文件入库进度: {}", progress))
+                .concatWith(Mono.fromSupplier(() -> new IngestionProgress(fileName, pages.get(), chunks.get(),
+                        batches.get(), true)));
+    }
+
+    private Flux<Document> readPages(Path file, String fileName) {
+        if (fileName != null && fileName.toLowerCase().endsWith(".pdf")) {
+            return Flux.using(() -> Loader.loadPDF(file.toFile()),
+                    pdf -> readPdfPages(pdf, fileName),
+                    pdf -> {
+                        try {
+                            pdf.close();
+                        } catch (IOException e) {
+                            logger.warn("关闭PDF文件失败: {}", fileName, e);
+                        }
+                    });
+        }
+        return Flux.defer(() -> Flux.fromIterable(new TikaDocumentReader(new FileSystemResource(file)).get()));
+    }
+
+    private Flux<Document> readPdfPages(PDDocument pdf, String fileName) {
+        PDFTextStripper stripper = new PDFTextStripper();
+        // 按需逐页提取文本，下游未请求时不会继续解析
+        return Flux.range(1, pdf.getNumberOfPages())
+                .map(pageNumber -> {
+                    stripper.setStartPage(pageNumber);
+                    stripper.setEndPage(pageNumber);
+                    try {
+                        String text = stripper.getText(pdf);
+                        return new Document(text, Map.of("file_name", fileName, "page_number", pageNumber));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                })
+                .filter(page -> StringUtils.hasText(page.getText()));
+    }
+}
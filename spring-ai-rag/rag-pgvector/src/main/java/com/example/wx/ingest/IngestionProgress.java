@@ -0,0 +1,16 @@
+package com.example.wx.ingest;
+
+/**
+ * 文档入库进度
+ *
+ * @param fileName 文件名
+ * @param pagesRead 已解析的页数
+ * @param chunksWritten 已写入向量库的分片数
+ * @param batchesWritten 已完成的写入批次数
+ * @param finished 是否全部完成
+ * @author wangx
+ * @create 2026/10/18 18:10
+ */
+public record IngestionProgress(String fileName, int pagesRead, int chunksWritten, int batchesWritten,
+                                boolean finished) {
+}
@@ -0,0 +1,172 @@
+package com.example.wx.retrieval;
+
+import com.example.wx.rag.retrieval.ReciprocalRankFusion;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.rag.Query;
+import org.springframework.ai.rag.retrieval.search.DocumentRetriever;
+import org.springframework.util.Assert;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 多路召回 + 倒数排名融合（Reciprocal Rank Fusion）
+ * <p>
+ * 各路召回器（如向量检索、全文检索）在 executor 上并发执行，整体耗时取决于最慢的一路而不是各路之和。
+ * 每路结果按名次打分 {@code 1 / (rrfK + rank)}，同一文档在多路中出现时分数累加，按总分取 topK。
+ * RRF 只依赖名次，不需要对向量相似度与 ts_rank 这类量纲不同的分数做归一化。
+ * 某一路超时或失败时只使用其余各路的结果，全部失败时抛出异常。超时的一路被中断，
+ * executor 队列已满被拒绝的一路与超时同样处理，不会排队等待被卡住的线程。
+ * <p>
+ * 本次返回条数默认为 topK，可通过 {@link Query#context()} 中的 {@link #TOP_K} 覆盖，上限为各路候选数之和；
+ * 等待时长同理可通过 {@link #TIMEOUT} 覆盖，例如流式对话只等待先返回的几路，尽早开始生成。
+ *
+ * @author wangx
+ * @create 2026/10/19 09:50
+ */
+public class HybridDocumentRetriever implements DocumentRetriever {
+
+    private static final Logger logger = LoggerFactory.getLogger(HybridDocumentRetriever.class);
+
+    /**
+     * Query context 中覆盖返回条数的 key
+     */
+    public static final String TOP_K = "hybrid_top_k";
+
+    /**
+     * Query context 中覆盖等待时长的 key，值为 {@link Duration}
+     */
+    public static final String TIMEOUT = "hybrid_timeout";
+
+    /**
+     * 融合后写入文档元数据：RRF 分数、命中的召回器名称
+     */
+    public static final String RRF_SCORE = ReciprocalRankFusion.RRF_SCORE;
+
+    public static final String SOURCES = "hybrid_sources";
+
+    private final Map<String, DocumentRetriever> retrievers;
+
+    private final ExecutorService executor;
+
+    private final ReciprocalRankFusion fusion;
+
+    private final int topK;
+
+    private final long timeoutMillis;
+
+    private HybridDocumentRetriever(Builder builder) {
+        Assert.notEmpty(builder.retrievers, "retrievers cannot be empty");
+        Assert.notNull(builder.executor, "executor cannot be null");
+        Assert.isTrue(builder.rrfK > 0 && builder.topK > 0, "rrfK and topK must be greater than 0");
+        this.retrievers = Collections.unmodifiableMap(new LinkedHashMap<>(builder.retrievers));
+        this.executor = builder.executor;
+        this.fusion = ReciprocalRankFusion.byId(builder.rrfK, SOURCES);
+        this.topK = builder.topK;
+        this.timeoutMillis = builder.timeout.toMillis();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public List<Document> retrieve(Query query) {
+        Assert.notNull(query, "query cannot be null");
+        Map<String, Future<List<Document>>> futures = new LinkedHashMap<>();
+        retrievers.forEach((name, retriever) -> {
+            try {
+                futures.put(name, executor.submit(() -> retriever.retrieve(query)));
+            } catch (RejectedExecutionException e) {
+                logger.warn("Retriever {} rejected, retrieval pool is saturated, skipped", name);
+            }
+        });
+
+        long timeout = query.context().get(TIMEOUT) instanceof Duration duration ? duration.toMillis() : timeoutMillis;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        Map<String, List<Document>> rankings = new LinkedHashMap<>();
+        for (Map.Entry<String, Future<List<Document>>> entry : futures.entrySet()) {
+            try {
+                long remaining = Math.max(0, deadline - System.nanoTime());
+                rankings.put(entry.getKey(), entry.getValue().get(remaining, TimeUnit.NANOSECONDS));
+            } catch (TimeoutException e) {
+                // FutureTask.cancel(true) 中断执行线程，释放给后续请求
+                entry.getValue().cancel(true);
+                logger.warn("Retriever {} timed out after {} ms, skipped", entry.getKey(), timeout);
+            } catch (ExecutionException e) {
+                logger.warn("Retriever {} failed, skipped", entry.getKey(), e.getCause());
+            } catch (InterruptedException e) {
+                futures.values().forEach(future -> future.cancel(true));
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Hybrid retrieval interrupted", e);
+            }
+        }
+        if (rankings.isEmpty()) {
+            throw new IllegalStateException("All retrievers failed for query: " + query.text());
+        }
+        Object override = query.context().get(TOP_K);
+        int limit = override instanceof Number number ? number.intValue() : topK;
+        return fusion.fuse(rankings, limit);
+    }
+
+    public static class Builder {
+
+        private final Map<String, DocumentRetriever> retrievers = new LinkedHashMap<>();
+        private ExecutorService executor;
+        private int rrfK = 60;
+        private int topK = 5;
+        private Duration timeout = Duration.ofSeconds(3);
+
+        /**
+         * 添加一路召回器，name 用于日志与 {@link #SOURCES} 元数据
+         */
+        public Builder retriever(String name, DocumentRetriever retriever) {
+            this.retrievers.put(name, retriever);
+            return this;
+        }
+
+        /**
+         * 执行各路召回的线程池，超时的召回通过 {@link Future#cancel(boolean)} 中断
+         */
+        public Builder executor(ExecutorService executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * RRF 平滑常数，越大各名次之间的分差越小，默认 60
+         */
+        public Builder rrfK(int rrfK) {
+            this.rrfK = rrfK;
+            return this;
+        }
+
+        public Builder topK(int topK) {
+            this.topK = topK;
+            return this;
+        }
+
+        /**
+         * 等待各路召回的总时长
+         */
+        public Builder timeout(Duration timeout) {
+            this.timeout = timeout;
+            return this;
+        }
+
+        public HybridDocumentRetriever build() {
+            return new HybridDocumentRetriever(this);
+        }
+    }
+}
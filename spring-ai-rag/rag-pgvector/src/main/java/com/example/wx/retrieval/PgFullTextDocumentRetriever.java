@@ -0,0 +1,168 @@
+package com.example.wx.retrieval;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.rag.Query;
+import org.springframework.ai.rag.retrieval.search.DocumentRetriever;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 基于 Postgres 全文检索（tsvector）的召回器，与 PgVectorStore 共用同一张表
+ * <p>
+ * 对 content 列建立 {@code to_tsvector(config, content)} 表达式 GIN 索引，查询词之间取 OR，按 ts_rank_cd 排序。
+ * 只提取查询中的字母数字词元（订单号、SKU、错误码、英文术语等向量检索容易漏召回的部分），
+ * 默认的 simple 配置不做中文分词，中文语义由向量检索负责。
+ *
+ * @author wangx
+ * @create 2026/10/19 09:30
+ */
+public class PgFullTextDocumentRetriever implements DocumentRetriever {
+
+    private static final Logger logger = LoggerFactory.getLogger(PgFullTextDocumentRetriever.class);
+
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
+
+    private static final Pattern TERM = Pattern.compile("[A-Za-z0-9]{2,}");
+
+    private static final TypeReference<Map<String, Object>> METADATA_TYPE = new TypeReference<>() {
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final String sql;
+
+    private final int topK;
+
+    private PgFullTextDocumentRetriever(Builder builder) {
+        Assert.notNull(builder.jdbcTemplate, "jdbcTemplate cannot be null");
+        Assert.isTrue(builder.topK > 0, "topK must be greater than 0");
+        // 标识符直接拼入 SQL（表达式索引要求 config 为常量），只允许合法标识符
+        for (String identifier : List.of(builder.schemaName, builder.tableName, builder.textSearchConfig)) {
+            Assert.isTrue(IDENTIFIER.matcher(identifier).matches(), "invalid identifier: " + identifier);
+        }
+        this.jdbcTemplate = builder.jdbcTemplate;
+        this.topK = builder.topK;
+        String table = builder.schemaName + "." + builder.tableName;
+        String tsvector = "to_tsvector('" + builder.textSearchConfig + "', content)";
+        this.sql = "SELECT id, content, metadata, ts_rank_cd(" + tsvector + ", q) AS rank"
+                + " FROM " + table + ", to_tsquery('" + builder.textSearchConfig + "', ?) q"
+                + " WHERE " + tsvector + " @@ q"
+                + " ORDER BY rank DESC LIMIT ?";
+        if (builder.initializeIndex) {
+            try {
+                this.jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS " + builder.tableName + "_content_fts_idx ON "
+                        + table + " USING gin (" + tsvector + ")");
+            } catch (RuntimeException e) {
+                logger.warn("Create full text index on {} failed, full text search will fall back to sequential scan",
+                        table, e);
+            }
+        }
+    }
+
+    public static Builder builder(JdbcTemplate jdbcTemplate) {
+        return new Builder(jdbcTemplate);
+    }
+
+    @Override
+    public List<Document> retrieve(Query query) {
+        String tsquery = toTsQuery(query.text());
+        if (tsquery.isEmpty()) {
+            return List.of();
+        }
+        return jdbcTemplate.query(sql, (rs, rowNum) -> {
+            String metadataJson = rs.getString("metadata");
+            Map<String, Object> metadata = StringUtils.hasText(metadataJson)
+                    ? readMetadata(metadataJson)
+                    : new HashMap<>();
+            return Document.builder()
+                    .id(rs.getString("id"))
+                    .text(rs.getString("content"))
+                    .metadata(metadata)
+                    .score(rs.getDouble("rank"))
+                    .build();
+        }, tsquery, topK);
+    }
+
+    /**
+     * 提取字母数字词元并以 OR 连接，词元只含字母数字，无需转义
+     */
+    static String toTsQuery(String text) {
+        Set<String> terms = new LinkedHashSet<>();
+        Matcher matcher = TERM.matcher(text);
+        while (matcher.find()) {
+            terms.add(matcher.group().toLowerCase(Locale.ROOT));
+        }
+        return String.join(" | ", terms);
+    }
+
+    private Map<String, Object> readMetadata(String json) {
+        try {
+            return objectMapper.readValue(json, METADATA_TYPE);
+        } catch (Exception e) {
+            logger.warn("Parse document metadata failed: {}", json, e);
+            return new HashMap<>();
+        }
+    }
+
+    public static class Builder {
+
+        private final JdbcTemplate jdbcTemplate;
+        private String schemaName = "public";
+        private String tableName = "vector_store";
+        private String textSearchConfig = "simple";
+        private int topK = 20;
+        private boolean initializeIndex = true;
+
+        private Builder(JdbcTemplate jdbcTemplate) {
+            this.jdbcTemplate = jdbcTemplate;
+        }
+
+        public Builder schemaName(String schemaName) {
+            this.schemaName = schemaName;
+            return this;
+        }
+
+        public Builder tableName(String tableName) {
+            this.tableName = tableName;
+            return this;
+        }
+
+        /**
+         * Postgres 文本检索配置，如 simple、english
+         */
+        public Builder textSearchConfig(String textSearchConfig) {
+            this.textSearchConfig = textSearchConfig;
+            return this;
+        }
+
+        public Builder topK(int topK) {
+            this.topK = topK;
+            return this;
+        }
+
+        public Builder initializeIndex(boolean initializeIndex) {
+            this.initializeIndex = initializeIndex;
+            return this;
+        }
+
+        public PgFullTextDocumentRetriever build() {
+            return new PgFullTextDocumentRetriever(this);
+        }
+    }
+}
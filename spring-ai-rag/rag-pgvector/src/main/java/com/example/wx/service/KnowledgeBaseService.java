@@ -1,5 +1,7 @@
 package com.example.wx.service;
 
+import com.example.wx.chat.RagStreamEvent;
+import com.example.wx.ingest.IngestionProgress;
 import org.springframework.ai.document.Document;
 import org.springframework.web.multipart.MultipartFile;
 import reactor.core.publisher.Flux;
@@ -27,6 +29,14 @@ public interface KnowledgeBaseService {
      */
     String loadFileByType(MultipartFile file);
 
+    /**
+     * 流式加载文件到知识库，按批次返回入库进度。
+     *
+     * @param file 上传的文件
+     * @return 入库进度流，最后一个元素 finished 为 true
+     */
+    Flux<IngestionProgress> loadFileWithProgress(MultipartFile file);
+
     /**
      * 基于查询在指定业务类型中搜索相似文档。
      *
@@ -54,4 +64,13 @@ public interface KnowledgeBaseService {
      */
     Flux<String> chatWithKnowledgeStream(String query, int topK);
 
+    /**
+     * 流式LLM对话接口，除生成内容外还推送检索状态事件，检索完成前即可收到首个事件。
+     *
+     * @param query 用户查询问题
+     * @param topK 检索的相关文档数量
+     * @return 对话事件流，以 done 或 error 事件结束
+     */
+    Flux<RagStreamEvent> chatWithKnowledgeEvents(String query, int topK);
+
 }
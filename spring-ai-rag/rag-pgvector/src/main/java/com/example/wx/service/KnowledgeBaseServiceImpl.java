@@ -1,5 +1,14 @@
 package com.example.wx.service;
 
+import com.example.wx.chat.RagPromptTemplate;
+import com.example.wx.chat.RagStreamEvent;
+import com.example.wx.ingest.DocumentIngestionPipeline;
+import com.example.wx.ingest.IngestionProgress;
+import com.example.wx.rag.context.ContextPacker;
+import com.example.wx.retrieval.HybridDocumentRetriever;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.ai.chat.client.ChatClient;
@@ -7,23 +16,28 @@ import org.springframework.ai.chat.client.advisor.SimpleLoggerAdvisor;
 import org.springframework.ai.chat.model.ChatModel;
 import org.springframework.ai.chat.prompt.ChatOptions;
 import org.springframework.ai.document.Document;
-import org.springframework.ai.reader.pdf.PagePdfDocumentReader;
-import org.springframework.ai.reader.tika.TikaDocumentReader;
+import org.springframework.ai.rag.Query;
 import org.springframework.ai.transformer.splitter.TokenTextSplitter;
 import org.springframework.ai.vectorstore.SearchRequest;
 import org.springframework.ai.vectorstore.VectorStore;
-import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.util.Assert;
 import org.springframework.web.multipart.MultipartFile;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
+import java.time.Duration;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * @author wangx
@@ -33,14 +47,46 @@ import java.util.stream.Collectors;
 @Service
 public class KnowledgeBaseServiceImpl implements KnowledgeBaseService {
     private static final Logger logger = LoggerFactory.getLogger(KnowledgeBaseServiceImpl.class);
+
+    /**
+     * 流式对话首个 token 耗时，按接口打 endpoint 标签
+     */
+    public static final String TTFT_METRIC = "rag.chat.time-to-first-token";
+
+    private static final String NO_RESULT_ANSWER = "抱歉，我在知识库中没有找到相关信息来回答您的问题。";
+
+    private static final RagPromptTemplate PROMPT_TEMPLATE = RagPromptTemplate.defaultTemplate();
+
     private final VectorStore vectorStore;
     private final ChatClient chatClient;
-
-    public KnowledgeBaseServiceImpl(VectorStore vectorStore, ChatModel chatModel) {
+    private final DocumentIngestionPipeline ingestionPipeline;
+    private final HybridDocumentRetriever hybridRetriever;
+    private final ContextPacker contextPacker;
+    private final boolean hybridEnabled;
+    private final Duration streamRetrievalTimeout;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Timer> ttftTimers = new ConcurrentHashMap<>();
+
+    public KnowledgeBaseServiceImpl(VectorStore vectorStore, ChatModel chatModel,
+                                    HybridDocumentRetriever hybridRetriever,
+                                    ContextPacker contextPacker,
+                                    ObjectProvider<MeterRegistry> meterRegistry,
+                                    @Value("${knowledge-base.retrieval.hybrid-enabled:true}") boolean hybridEnabled,
+                                    @Value("${knowledge-base.retrieval.stream-timeout:800ms}") Duration streamRetrievalTimeout,
+                                    @Value("${knowledge-base.ingestion.batch-size:16}") int batchSize,
+                                    @Value("${knowledge-base.ingestion.concurrency:2}") int concurrency,
+                                    @Value("${knowledge-base.ingestion.prefetch:2}") int prefetch) {
         this.vectorStore = vectorStore;
+        this.hybridRetriever = hybridRetriever;
+        this.contextPacker = contextPacker;
+        this.hybridEnabled = hybridEnabled;
+        this.streamRetrievalTimeout = streamRetrievalTimeout;
+        this.meterRegistry = meterRegistry.getIfAvailable(() -> Metrics.globalRegistry);
         this.chatClient = ChatClient.builder(chatModel)
                 .defaultAdvisors(new SimpleLoggerAdvisor())
                 .build();
+        this.ingestionPipeline = new DocumentIngestionPipeline(vectorStore, new TokenTextSplitter(),
+                batchSize, concurrency, prefetch);
     }
 
     /**
@@ -85,6 +131,26 @@ public class KnowledgeBaseServiceImpl implements KnowledgeBaseService {
     }
 
 
+    /**
+     * 对话检索：开启混合检索时并发执行向量检索与全文检索并按 RRF 融合，否则为纯向量检索
+     *
+     * @param timeout 混合检索的等待时长，为 null 时使用默认配置
+     */
+    private List<Document> retrieve(String query, int topK, Duration timeout) {
+        if (!hybridEnabled) {
+            return similaritySearch(query, topK);
+        }
+        Map<String, Object> context = timeout != null
+                ? Map.of(HybridDocumentRetriever.TOP_K, topK, HybridDocumentRetriever.TIMEOUT, timeout)
+                : Map.of(HybridDocumentRetriever.TOP_K, topK);
+        List<Document> results = hybridRetriever.retrieve(Query.builder()
+                .text(query)
+                .context(context)
+                .build());
+        logger.info("混合检索完成，找到 {} 个相关文档", results.size());
+        return results;
+    }
+
     /**
      * 根据文件类型加载文件到向量存储中。
      *
@@ -94,43 +160,47 @@ public class KnowledgeBaseServiceImpl implements KnowledgeBaseService {
     @Override
     public String loadFileByType(MultipartFile file) {
         Assert.notNull(file, "文件不能为空");
+        String fileName = file.getOriginalFilename();
+        try {
+            IngestionProgress progress = loadFileWithProgress(file).blockLast();
+            int chunks = progress != null ? progress.chunksWritten() : 0;
+            return String.format("成功处理文件 %s，共生成 %d 个文档片段", fileName, chunks);
+        } catch (Exception e) {
+            logger.error("文件处理失败: fileName={}, error={}", fileName, e.getMessage(), e);
+            return "文件处理失败: " + e.getMessage();
+        }
+    }
 
-        logger.info("开始处理文件上传: fileName={}, fileSize={}", file.getOriginalFilename(),  file.getSize());
+    /**
+     * 流式加载文件：逐页解析、分片后按批次写入向量存储，内存占用与文件页数无关。
+     *
+     * @param file 要上传的文件
+     * @return 入库进度流
+     */
+    @Override
+    public Flux<IngestionProgress> loadFileWithProgress(MultipartFile file) {
+        Assert.notNull(file, "文件不能为空");
+        String fileName = file.getOriginalFilename();
+        logger.info("开始处理文件上传: fileName={}, fileSize={}", fileName, file.getSize());
 
+        Path tempFile;
         try {
             // 创建临时文件
-            Path tempFile = Files.createTempFile("upload_", "_" + file.getOriginalFilename());
-            Files.copy(file.getInputStream(), tempFile, StandardCopyOption.REPLACE_EXISTING);
-
-            List<Document> documents;
-            String fileName = file.getOriginalFilename();
-
-            // 根据文件类型选择合适的文档读取器
-            if (fileName.toLowerCase().endsWith(".pdf")) {
-                // 使用PDF读取器
-                PagePdfDocumentReader pdfReader = new PagePdfDocumentReader(tempFile.toUri().toString());
-                documents = pdfReader.get();
-                logger.info("使用PDF读取器处理文件: {}", fileName);
-            } else {
-                // 使用Tika读取器处理其他类型文件
-                TikaDocumentReader tikaReader = new TikaDocumentReader(tempFile.toUri().toString());
-                documents = tikaReader.get();
-                logger.info("使用Tika读取器处理文件: {}", fileName);
-            }
-            // 添加文档到向量存储
-            vectorStore.add(documents);
-
-            // 清理临时文件
-            Files.deleteIfExists(tempFile);
-
-            logger.info("文件处理完成: fileName={}, documentsCount={}", fileName,  documents.size());
-
-            return String.format("成功处理文件 %s，共生成 %d 个文档片段", fileName, documents.size());
-
+            tempFile = Files.createTempFile("upload_", "_" + fileName);
+            file.transferTo(tempFile);
         } catch (IOException e) {
-            logger.error("文件处理失败: fileName={}, error={}", file.getOriginalFilename(),  e.getMessage(), e);
-            return "文件处理失败: " + e.getMessage();
+            return Flux.error(e);
         }
+        return ingestionPipeline.ingest(tempFile, fileName)
+                .doOnComplete(() -> logger.info("文件处理完成: fileName={}", fileName))
+                .doFinally(signal -> {
+                    // 清理临时文件
+                    try {
+                        Files.deleteIfExists(tempFile);
+                    } catch (IOException e) {
+                        logger.warn("临时文件删除失败: {}", tempFile, e);
+                    }
+                });
     }
 
     @Override
@@ -139,18 +209,15 @@ public class KnowledgeBaseServiceImpl implements KnowledgeBaseService {
         logger.info("开始知识库对话，查询: '{}'", query);
 
         // 检索相关文档
-        List<Document> relevantDocs = similaritySearch(query, topK);
+        List<Document> relevantDocs = retrieve(query, topK, null);
 
         if (relevantDocs.isEmpty()) {
             logger.warn("未找到与查询相关的文档");
-            return "抱歉，我在知识库中没有找到相关信息来回答您的问题。";
+            return NO_RESULT_ANSWER;
         }
 
-        // 构建上下文
-        String context = relevantDocs.stream().map(Document::getText).collect(Collectors.joining("\n\n"));
-
-        // 构建提示词
-        String prompt = String.format("基于以下知识库内容回答用户问题。如果知识库内容无法回答问题，请明确说明。\n\n" + "知识库内容：\n%s\n\n" + "用户问题：%s\n\n" + "请基于上述知识库内容给出准确、有用的回答：", context, query);
+        // 按 token 预算打包后构建提示词
+        String prompt = PROMPT_TEMPLATE.render(pack(relevantDocs), query);
 
         // 调用LLM生成回答
         String answer = chatClient.prompt(prompt).call().content();
@@ -163,28 +230,71 @@ public class KnowledgeBaseServiceImpl implements KnowledgeBaseService {
     public Flux<String> chatWithKnowledgeStream(String query, int topK) {
         Assert.hasText(query, "查询问题不能为空");
         logger.info("开始流式知识库对话，查询: '{}'", query);
+        // 保持原有的检索等待时长，只有 chat-events 使用 stream-timeout
+        return streamEvents(query, topK, null, "chat-stream")
+                .filter(RagStreamEvent::isContent)
+                .map(RagStreamEvent::data);
+    }
 
-        try {
-            // 检索相关文档
-            List<Document> relevantDocs = similaritySearch(query, topK);
-
-            if (relevantDocs.isEmpty()) {
-                logger.warn("未找到与查询相关的文档");
-                return Flux.just("抱歉，我在知识库中没有找到相关信息来回答您的问题。");
-            }
-
-            // 构建上下文
-            String context = relevantDocs.stream().map(Document::getText).collect(Collectors.joining("\n\n"));
+    @Override
+    public Flux<RagStreamEvent> chatWithKnowledgeEvents(String query, int topK) {
+        Assert.hasText(query, "查询问题不能为空");
+        logger.info("开始流式知识库对话（事件流），查询: '{}'", query);
+        return streamEvents(query, topK, streamRetrievalTimeout, "chat-events");
+    }
 
-            // 构建提示词
-            String prompt = String.format("基于以下知识库内容回答用户问题。如果知识库内容无法回答问题，请明确说明。\n\n" + "知识库内容：\n%s\n\n" + "用户问题：%s\n\n" + "请基于上述知识库内容给出准确、有用的回答：", context, query);
+    /**
+     * 流式对话：先推送 retrieving 状态，检索在 boundedElastic 上执行，不阻塞调用线程；
+     * 指定 retrievalTimeout 时混合检索只等待该时长，超时的一路被舍弃，拿到排名靠前的文档后立即开始生成。
+     * 从订阅到收到首个 token 的耗时记录到 {@link #TTFT_METRIC}。
+     *
+     * @param retrievalTimeout 混合检索的等待时长，为 null 时使用默认配置
+     */
+    private Flux<RagStreamEvent> streamEvents(String query, int topK, Duration retrievalTimeout, String endpoint) {
+        return Flux.defer(() -> {
+            long start = System.nanoTime();
+            AtomicBoolean firstToken = new AtomicBoolean();
+            Flux<RagStreamEvent> answer = Mono.fromCallable(() -> retrieve(query, topK, retrievalTimeout))
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .flatMapMany(relevantDocs -> {
+                        if (relevantDocs.isEmpty()) {
+                            logger.warn("未找到与查询相关的文档");
+                            return Flux.just(RagStreamEvent.documents(0), RagStreamEvent.token(NO_RESULT_ANSWER));
+                        }
+                        String prompt = PROMPT_TEMPLATE.render(pack(relevantDocs), query);
+                        Flux<RagStreamEvent> tokens = chatClient.prompt(prompt).stream().content()
+                                .doOnNext(token -> {
+                                    if (firstToken.compareAndSet(false, true)) {
+                                        ttftTimer(endpoint).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                                    }
+                                })
+                                .map(RagStreamEvent::token);
+                        return Flux.concat(Flux.just(RagStreamEvent.documents(relevantDocs.size())), tokens);
+                    });
+            return Flux.concat(Flux.just(RagStreamEvent.status("retrieving")), answer, Flux.just(RagStreamEvent.done()))
+                    .onErrorResume(e -> {
+                        logger.error("流式知识库对话失败，查询: '{}'", query, e);
+                        return Flux.just(RagStreamEvent.error("对话过程中发生错误: " + e.getMessage()));
+                    });
+        });
+    }
 
-            // 调用LLM生成流式回答
-            return chatClient.prompt(prompt).stream().content();
+    /**
+     * 按 token 预算选取文档，去除近似重复片段，放不下的在句子边界截断
+     */
+    private List<Document> pack(List<Document> documents) {
+        ContextPacker.Result packed = contextPacker.pack(documents);
+        logger.info("上下文打包: 文档 {} -> {}，token {} -> {}，去重 {}，截断 {}", documents.size(),
+                packed.documents().size(), packed.inputTokens(), packed.packedTokens(), packed.duplicates(),
+                packed.trimmed());
+        return packed.documents();
+    }
 
-        } catch (Exception e) {
-            logger.error("流式知识库对话失败，查询: '{}'", query, e);
-            return Flux.just("对话过程中发生错误: " + e.getMessage());
-        }
+    private Timer ttftTimer(String endpoint) {
+        return ttftTimers.computeIfAbsent(endpoint, key -> Timer.builder(TTFT_METRIC)
+                .description("Time from request to first generated token")
+                .tag("endpoint", key)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry));
     }
 }
@@ -0,0 +1,277 @@
+package com.example.wx;
+
+import ch.qos.logback.classic.Level;
+import com.example.wx.retrieval.HybridDocumentRetriever;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.ai.rag.Query;
+import org.springframework.ai.rag.retrieval.search.DocumentRetriever;
+import org.springframework.ai.rag.retrieval.search.VectorStoreDocumentRetriever;
+import org.springframework.ai.vectorstore.SimpleVectorStore;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 纯向量 / 纯全文 / 混合 RRF 三种检索的 recall@5 与延迟对比（离线，无需 Postgres）
+ * <p>
+ * 语料为 2000 条中文工单，每条包含主题、细节描述以及订单号、SKU、错误码。
+ * <ul>
+ *   <li>向量检索：SimpleVectorStore + 桩 EmbeddingModel（中文字符 bigram 哈希，忽略含数字的词元，模拟向量模型对编号不敏感）</li>
+ *   <li>全文检索：进程内 BM25，与 PgFullTextDocumentRetriever 一样只索引字母数字词元，作为 tsvector 的替身</li>
+ * </ul>
+ * 两路各注入固定延迟（向量 40ms 含 query 向量化，全文 15ms），对比顺序执行与并发融合的耗时。
+ *
+ * @author wangx
+ * @create 2026/10/19 10:40
+ */
+public class HybridRetrievalBenchmark {
+
+    private static final String[] TOPICS = {"退款进度查询", "物流配送延迟", "发票开具失败", "账号无法登录", "优惠券无法使用",
+            "商品质量问题", "支付扣款重复", "会员积分异常", "地址修改申请", "售后换货流程"};
+
+    private static final String[] DETAILS = {"夜间下单", "大促期间", "首次购买", "海外仓发货", "企业采购", "预售商品", "拼团订单",
+            "跨店满减", "分期付款", "礼品卡支付", "门店自提", "冷链配送", "以旧换新", "定制商品", "二手回收", "保价申请",
+            "缺货补发", "赠品遗漏", "包装破损", "延保服务"};
+
+    private static final Pattern TERM = Pattern.compile("[A-Za-z0-9]{2,}");
+
+    private static final int TOP_K = 5;
+    private static final int CANDIDATE_K = 20;
+    private static final long VECTOR_LATENCY_MS = 40;
+    private static final long TEXT_LATENCY_MS = 15;
+
+    public static void main(String[] args) {
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger("org.springframework.ai")).setLevel(Level.WARN);
+
+        List<Document> corpus = new ArrayList<>();
+        for (int t = 0; t < TOPICS.length; t++) {
+            for (int d = 0; d < DETAILS.length; d++) {
+                for (int n = 0; n < 10; n++) {
+                    int i = corpus.size();
+                    String text = String.format("工单%d：客户反馈%s，场景为%s。关联订单 ORD%06d，商品 SKU-%04d，系统返回错误码 E%04d。",
+                            i, TOPICS[t], DETAILS[d], 100000 + i * 7, 1000 + i, 2000 + i);
+                    corpus.add(new Document("doc-" + i, text, Map.of("topic", TOPICS[t])));
+                }
+            }
+        }
+
+        SimpleVectorStore vectorStore = SimpleVectorStore.builder(new BigramEmbeddingModel(256)).build();
+        vectorStore.add(corpus);
+        DocumentRetriever vector = delayed(VectorStoreDocumentRetriever.builder()
+                .vectorStore(vectorStore)
+                .topK(CANDIDATE_K)
+                .build(), VECTOR_LATENCY_MS);
+        DocumentRetriever text = delayed(new Bm25Retriever(corpus, CANDIDATE_K), TEXT_LATENCY_MS);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        HybridDocumentRetriever hybrid = HybridDocumentRetriever.builder()
+                .retriever("vector", vector)
+                .retriever("fulltext", text)
+                .executor(executor)
+                .topK(TOP_K)
+                .timeout(Duration.ofSeconds(5))
+                .build();
+
+        // 编号类查询：订单号 / SKU / 错误码；语义类查询：主题 + 场景的口语化描述
+        List<Map.Entry<String, String>> identifierQueries = new ArrayList<>();
+        List<Map.Entry<String, String>> semanticQueries = new ArrayList<>();
+        for (int i = 0; i < corpus.size(); i += 10) {
+            String id = "doc-" + i;
+            identifierQueries.add(Map.entry(switch (i % 3) {
+                case 0 -> String.format("订单 ORD%06d 现在是什么状态", 100000 + i * 7);
+                case 1 -> String.format("SKU-%04d 这个商品怎么处理", 1000 + i);
+                default -> String.format("页面提示错误码 E%04d 怎么办", 2000 + i);
+            }, id));
+            String topic = TOPICS[i / (DETAILS.length * 10)];
+            String detail = DETAILS[(i / 10) % DETAILS.length];
+            semanticQueries.add(Map.entry("我在" + detail + "时遇到" + topic, topic));
+        }
+
+        System.out.printf("%-10s | %-18s | %-18s | %-12s%n", "retriever", "identifier recall", "semantic precision", "mean / p99");
+        report("vector", q -> head(vector.retrieve(q)), identifierQueries, semanticQueries, corpus);
+        report("fulltext", q -> head(text.retrieve(q)), identifierQueries, semanticQueries, corpus);
+        report("sequential", q -> {
+            // 两路顺序执行后融合，作为并发执行的耗时基线
+            vector.retrieve(q);
+            text.retrieve(q);
+            return List.of();
+        }, List.of(), semanticQueries.subList(0, 50), corpus);
+        report("hybrid", hybrid::retrieve, identifierQueries, semanticQueries, corpus);
+        executor.shutdown();
+    }
+
+    private static void report(String name, Function<Query, List<Document>> retriever,
+                               List<Map.Entry<String, String>> identifierQueries,
+                               List<Map.Entry<String, String>> semanticQueries, List<Document> corpus) {
+        Map<String, String> topics = new HashMap<>();
+        corpus.forEach(document -> topics.put(document.getId(), (String) document.getMetadata().get("topic")));
+        List<Long> latencies = new ArrayList<>();
+
+        int identifierHits = 0;
+        for (Map.Entry<String, String> query : identifierQueries) {
+            long start = System.nanoTime();
+            List<Document> found = retriever.apply(new Query(query.getKey()));
+            latencies.add(System.nanoTime() - start);
+            if (found.stream().anyMatch(document -> document.getId().equals(query.getValue()))) {
+                identifierHits++;
+            }
+        }
+        // 语义类查询以 top5 中主题一致的比例衡量
+        int relevant = 0;
+        int returned = 0;
+        for (Map.Entry<String, String> query : semanticQueries) {
+            long start = System.nanoTime();
+            List<Document> found = retriever.apply(new Query(query.getKey()));
+            latencies.add(System.nanoTime() - start);
+            returned += found.size();
+            relevant += (int) found.stream().filter(document -> query.getValue().equals(topics.get(document.getId()))).count();
+        }
+        long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+        double mean = Arrays.stream(sorted).average().orElse(0);
+        System.out.printf("%-10s | %18s | %18s | %5.1f / %5.1f ms%n", name,
+                identifierQueries.isEmpty() ? "-" : String.format("%.3f", (double) identifierHits / identifierQueries.size()),
+                returned == 0 ? "-" : String.format("%.3f", (double) relevant / returned),
+                mean / 1e6, sorted[sorted.length * 99 / 100] / 1e6);
+    }
+
+    private static List<Document> head(List<Document> documents) {
+        return documents.subList(0, Math.min(TOP_K, documents.size()));
+    }
+
+    private static DocumentRetriever delayed(DocumentRetriever delegate, long latencyMs) {
+        return query -> {
+            try {
+                Thread.sleep(latencyMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return delegate.retrieve(query);
+        };
+    }
+
+    private static List<String> terms(String text) {
+        List<String> terms = new ArrayList<>();
+        Matcher matcher = TERM.matcher(text);
+        while (matcher.find()) {
+            terms.add(matcher.group().toLowerCase(Locale.ROOT));
+        }
+        return terms;
+    }
+
+    /**
+     * tsvector 的进程内替身：字母数字词元上的 BM25
+     */
+    private static class Bm25Retriever implements DocumentRetriever {
+
+        private static final double K1 = 1.2;
+        private static final double B = 0.75;
+
+        private final List<Document> documents;
+        private final List<Map<String, Integer>> termFrequencies = new ArrayList<>();
+        private final Map<String, Integer> documentFrequencies = new HashMap<>();
+        private final double averageLength;
+        private final int topK;
+
+        Bm25Retriever(List<Document> documents, int topK) {
+            this.documents = documents;
+            this.topK = topK;
+            long totalLength = 0;
+            for (Document document : documents) {
+                Map<String, Integer> frequencies = new HashMap<>();
+                List<String> terms = terms(document.getText());
+                terms.forEach(term -> frequencies.merge(term, 1, Integer::sum));
+                frequencies.keySet().forEach(term -> documentFrequencies.merge(term, 1, Integer::sum));
+                termFrequencies.add(frequencies);
+                totalLength += terms.size();
+            }
+            this.averageLength = (double) totalLength / documents.size();
+        }
+
+        @Override
+        public List<Document> retrieve(Query query) {
+            List<String> queryTerms = terms(query.text());
+            List<Map.Entry<Integer, Double>> scored = new ArrayList<>();
+            for (int i = 0; i < documents.size(); i++) {
+                Map<String, Integer> frequencies = termFrequencies.get(i);
+                int length = frequencies.values().stream().mapToInt(Integer::intValue).sum();
+                double score = 0;
+                for (String term : queryTerms) {
+                    Integer tf = frequencies.get(term);
+                    if (tf == null) {
+                        continue;
+                    }
+                    int df = documentFrequencies.get(term);
+                    double idf = Math.log(1 + (documents.size() - df + 0.5) / (df + 0.5));
+                    score += idf * tf * (K1 + 1) / (tf + K1 * (1 - B + B * length / averageLength));
+                }
+                if (score > 0) {
+                    scored.add(Map.entry(i, score));
+                }
+            }
+            scored.sort(Map.Entry.<Integer, Double>comparingByValue().reversed());
+            return scored.stream()
+                    .limit(topK)
+                    .map(entry -> documents.get(entry.getKey()))
+                    .toList();
+        }
+    }
+
+    /**
+     * 中文字符 bigram + 纯字母英文词的哈希向量，忽略含数字的词元
+     */
+    private static class BigramEmbeddingModel implements EmbeddingModel {
+
+        private final int dimensions;
+
+        BigramEmbeddingModel(int dimensions) {
+            this.dimensions = dimensions;
+        }
+
+        @Override
+        public EmbeddingResponse call(EmbeddingRequest request) {
+            List<Embedding> embeddings = new ArrayList<>();
+            for (int i = 0; i < request.getInstructions().size(); i++) {
+                embeddings.add(new Embedding(vector(request.getInstructions().get(i)), i));
+            }
+            return new EmbeddingResponse(embeddings);
+        }
+
+        @Override
+        public float[] embed(Document document) {
+            return vector(document.getText());
+        }
+
+        @Override
+        public int dimensions() {
+            return dimensions;
+        }
+
+        private float[] vector(String text) {
+            float[] vector = new float[dimensions];
+            String chinese = text.replaceAll("[^\\u4e00-\\u9fa5]", "");
+            for (int i = 0; i + 1 < chinese.length(); i++) {
+                vector[Math.floorMod(chinese.substring(i, i + 2).hashCode(), dimensions)] += 1;
+            }
+            for (String word : text.split("[^A-Za-z0-9-]+")) {
+                if (!word.isEmpty() && word.chars().noneMatch(Character::isDigit)) {
+                    vector[Math.floorMod(word.toLowerCase(Locale.ROOT).hashCode(), dimensions)] += 1;
+                }
+            }
+            return vector;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.wx;
+
+import com.example.wx.ingest.DocumentIngestionPipeline;
+import com.example.wx.ingest.IngestionProgress;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.ai.transformer.splitter.TokenTextSplitter;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 500 页 PDF 的入库基准：桩 EmbeddingModel + 丢弃写入的 VectorStore，
+ * 每完成一个批次采样一次堆占用，观察堆内存是否随页数增长
+ *
+ * @author wangx
+ * @create 2026/10/18 18:50
+ */
+public class IngestionPipelineBenchmark {
+
+    private static final int PAGES = 500;
+
+    public static void main(String[] args) throws Exception {
+        Path pdf = createPdf(PAGES);
+        EmbeddingModel embeddingModel = new FakeEmbeddingModel(1024);
+        var pipeline = new DocumentIngestionPipeline(new DiscardingVectorStore(embeddingModel),
+                new TokenTextSplitter(), 16, 2, 2);
+
+        Runtime runtime = Runtime.getRuntime();
+        long start = System.nanoTime();
+        long[] maxUsed = {0};
+        IngestionProgress last = pipeline.ingest(pdf, "benchmark.pdf")
+                .doOnNext(progress -> {
+                    long used = runtime.totalMemory() - runtime.freeMemory();
+                    maxUsed[0] = Math.max(maxUsed[0], used);
+                    if (progress.batchesWritten() % 20 == 0) {
+                        System.out.printf("pages=%d chunks=%d heap=%.1f MB%n", progress.pagesRead(),
+                                progress.chunksWritten(), used / 1024.0 / 1024.0);
+                    }
+                })
+                .blockLast();
+        long cost = System.nanoTime() - start;
+        Files.deleteIfExists(pdf);
+
+        System.out.printf("done: %s, %.1f s, max heap sample %.1f MB%n", last, cost / 1e9,
+                maxUsed[0] / 1024.0 / 1024.0);
+    }
+
+    private static Path createPdf(int pages) throws Exception {
+        Path file = Files.createTempFile("benchmark_", ".pdf");
+        try (PDDocument document = new PDDocument()) {
+            PDType1Font font = new PDType1Font(Standard14Fonts.FontName.HELVETICA);
+            for (int p = 0; p < pages; p++) {
+                PDPage page = new PDPage();
+                document.addPage(page);
+                try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                    content.beginText();
+                    content.setFont(font, 10);
+                    content.setLeading(12);
+                    content.newLineAtOffset(40, 750);
+                    for (int line = 0; line < 55; line++) {
+                        content.showText("page " + p + " line " + line
+                                + " spring ai document ingestion pipeline benchmark text");
+                        content.newLine();
+                    }
+                    content.endText();
+                }
+            }
+            document.save(file.toFile());
+        }
+        return file;
+    }
+
+    private static class FakeEmbeddingModel implements EmbeddingModel {
+
+        private final int dimensions;
+
+        FakeEmbeddingModel(int dimensions) {
+            this.dimensions = dimensions;
+        }
+
+        @Override
+        public EmbeddingResponse call(EmbeddingRequest request) {
+            List<Embedding> embeddings = new ArrayList<>(request.getInstructions().size());
+            for (int i = 0; i < request.getInstructions().size(); i++) {
+                embeddings.add(new Embedding(new float[dimensions], i));
+            }
+            return new EmbeddingResponse(embeddings);
+        }
+
+        @Override
+        public float[] embed(Document document) {
+            return new float[dimensions];
+        }
+    }
+
+    /**
+     * 只做向量化、不保留数据的 VectorStore
+     */
+    private record DiscardingVectorStore(EmbeddingModel embeddingModel) implements VectorStore {
+
+        @Override
+        public void add(List<Document> documents) {
+            embeddingModel.embed(documents.stream().map(Document::getText).toList());
+        }
+
+        @Override
+        public void delete(List<String> idList) {
+        }
+
+        @Override
+        public void delete(Filter.Expression filterExpression) {
+        }
+
+        @Override
+        public List<Document> similaritySearch(SearchRequest request) {
+            return List.of();
+        }
+    }
+}
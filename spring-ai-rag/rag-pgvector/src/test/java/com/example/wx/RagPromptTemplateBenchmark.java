@@ -0,0 +1,56 @@
+package com.example.wx;
+
+import com.example.wx.chat.RagPromptTemplate;
+import org.springframework.ai.document.Document;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * 提示词构建对比：Collectors.joining + String.format 与预编译的 RagPromptTemplate，
+ * 先校验两者输出一致，再比较单次构建耗时
+ *
+ * @author wangx
+ * @create 2026/10/19 11:50
+ */
+public class RagPromptTemplateBenchmark {
+
+    private static final int ITERATIONS = 200_000;
+
+    public static void main(String[] args) {
+        String query = "大促期间下单后多久发货？";
+        List<Document> documents = IntStream.range(0, 5)
+                .mapToObj(i -> new Document("片段" + i + "：" + "订单支付成功后，仓库会在承诺时效内完成拣货与出库。".repeat(20)))
+                .toList();
+        RagPromptTemplate template = RagPromptTemplate.defaultTemplate();
+
+        String expected = format(documents, query);
+        if (!expected.equals(template.render(documents, query))) {
+            throw new IllegalStateException("rendered prompt differs from String.format");
+        }
+
+        for (int round = 0; round < 3; round++) {
+            long blackhole = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                blackhole += format(documents, query).length();
+            }
+            long formatNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                blackhole += template.render(documents, query).length();
+            }
+            long templateNanos = System.nanoTime() - start;
+            System.out.printf("round %d | String.format %7.0f ns/op | RagPromptTemplate %7.0f ns/op | %d%n",
+                    round, (double) formatNanos / ITERATIONS, (double) templateNanos / ITERATIONS, blackhole % 10);
+        }
+    }
+
+    private static String format(List<Document> documents, String query) {
+        String context = documents.stream().map(Document::getText).collect(Collectors.joining("\n\n"));
+        return String.format("基于以下知识库内容回答用户问题。如果知识库内容无法回答问题，请明确说明。\n\n" + "知识库内容：\n%s\n\n"
+                + "用户问题：%s\n\n" + "请基于上述知识库内容给出准确、有用的回答：", context, query);
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.wx.dotenv;
+
+import org.springframework.context.ApplicationEvent;
+
+import java.util.Set;
+
+/**
+ * .env 文件重新加载后发布的事件
+ * <p>
+ * 事件发布时新值已经生效，Environment 中可以直接读到。
+ * 只在启动时读取一次配置的 Bean（如 @ConfigurationProperties、持有 API Key 的客户端）可监听该事件，
+ * 按 {@link #getKeys()} 判断是否需要重新绑定或重建。
+ *
+ * @author wangx
+ */
+public class DotenvChangedEvent extends ApplicationEvent {
+
+    private final Set<String> keys;
+
+    /**
+     * @param source 发生变化的属性源
+     * @param keys   新增、删除或值发生变化的变量名
+     */
+    public DotenvChangedEvent(DotenvPropertySource source, Set<String> keys) {
+        super(source);
+        this.keys = Set.copyOf(keys);
+    }
+
+    public Set<String> getKeys() {
+        return keys;
+    }
+
+}
@@ -1,5 +1,6 @@
 package com.example.wx.dotenv;
 
+import com.example.wx.dotenv.cache.DotenvCache;
 import com.example.wx.dotenv.parser.DefaultDotenvParser;
 import com.example.wx.dotenv.parser.DotenvParser;
 import com.example.wx.dotenv.resolver.DefaultVariableResolver;
@@ -7,14 +8,19 @@ import com.example.wx.dotenv.resolver.VariableResolver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.config.ConfigDataEnvironmentPostProcessor;
+import org.springframework.boot.convert.DurationStyle;
 import org.springframework.boot.env.EnvironmentPostProcessor;
 import org.springframework.core.Ordered;
 import org.springframework.core.env.ConfigurableEnvironment;
 
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -25,12 +31,24 @@ import java.util.Map;
  * <p>
  * 特性：
  * <ul>
- *   <li>自动查找项目根目录下的 .env 文件</li>
+ *   <li>自动查找工作目录及上级目录中的 .env 与 .env.{profile} 文件，按 {@link DotenvFileLocator} 的优先级合并</li>
  *   <li>支持 ${VAR} 和 ${VAR:-default} 语法</li>
- *   <li>优先级最高，会覆盖 application.yml 和系统环境变量中的同名属性</li>
+ *   <li>在 {@link ConfigDataEnvironmentPostProcessor} 之前执行，spring.config.import、profile 激活等 ConfigData 中的占位符
+ *   可以引用 .env 中的变量；application.yml 中激活的 profile 对应的 .env.{profile} 由
+ *   {@link DotenvProfileEnvironmentPostProcessor} 在 ConfigData 之后补充加载</li>
+ *   <li>属性源优先级最高，会覆盖 application.yml 和系统环境变量中的同名属性</li>
  *   <li>文件不存在时静默跳过</li>
  *   <li>解析失败时打印 ERROR 日志但不阻断启动</li>
  * </ul>
+ * <p>
+ * 配置项（系统属性、环境变量或命令行参数）：
+ * <ul>
+ *   <li>dotenv.search-parents - 是否向上级目录查找，默认 true</li>
+ *   <li>dotenv.cache.enabled - 是否缓存解析结果，默认 false；开启后源文件与引用的环境变量不变时跳过解析</li>
+ *   <li>dotenv.cache.file - 缓存文件路径，默认为 ~/.cache/spring-boot-dotenv 下按工作目录区分的文件</li>
+ *   <li>dotenv.watch.enabled - 是否监听 .env 文件变化并重新加载，默认 false，见 {@link DotenvFileWatcher}</li>
+ *   <li>dotenv.watch.debounce - 连续变化合并为一次重新加载的等待时长，默认 500ms</li>
+ * </ul>
  *
  * @author wangx
  */
@@ -38,10 +56,18 @@ public class DotenvEnvironmentPostProcessor implements EnvironmentPostProcessor,
 
     private static final Logger log = LoggerFactory.getLogger(DotenvEnvironmentPostProcessor.class);
 
-    private static final String DOTENV_FILE_NAME = ".env";
+    public static final String SEARCH_PARENTS_PROPERTY = "dotenv.search-parents";
+
+    public static final String CACHE_ENABLED_PROPERTY = "dotenv.cache.enabled";
+
+    public static final String CACHE_FILE_PROPERTY = "dotenv.cache.file";
+
+    public static final String WATCH_ENABLED_PROPERTY = "dotenv.watch.enabled";
+
+    public static final String WATCH_DEBOUNCE_PROPERTY = "dotenv.watch.debounce";
 
     /**
-     * 设置为最高优先级，确保在其他 PostProcessor 之前执行
+     * 在 ConfigData 之前执行，ConfigData 解析占位符时 .env 中的变量已可用
      */
     private static final int ORDER = Ordered.HIGHEST_PRECEDENCE + 10;
 
@@ -59,29 +85,63 @@ public class DotenvEnvironmentPostProcessor implements EnvironmentPostProcessor,
 
     @Override
     public void postProcessEnvironment(ConfigurableEnvironment environment, SpringApplication application) {
-        Path dotenvPath = findDotenvFile();
+        Path workingDir = Paths.get(System.getProperty("user.dir"));
+        DotenvFileLocator locator = new DotenvFileLocator(
+                environment.getProperty(SEARCH_PARENTS_PROPERTY, Boolean.class, true));
+        List<Path> dotenvFiles = locator.locate(workingDir, Arrays.asList(environment.getActiveProfiles()));
 
-        if (dotenvPath == null) {
+        if (environment.getPropertySources().get(DotenvPropertySource.DOTENV_PROPERTY_SOURCE_NAME)
+                instanceof DotenvPropertySource loaded) {
+            reload(loaded, dotenvFiles);
+            return;
+        }
+        if (dotenvFiles.isEmpty()) {
             log.debug(".env 文件不存在，跳过加载");
             return;
         }
+        log.debug("找到 .env 文件: {}", dotenvFiles);
 
         try {
-            // 1. 解析 .env 文件
-            Map<String, String> rawVariables = parser.parse(dotenvPath);
-            if (rawVariables.isEmpty()) {
+            DotenvCache cache = null;
+            Map<String, String> resolvedVariables = null;
+            if (environment.getProperty(CACHE_ENABLED_PROPERTY, Boolean.class, false)) {
+                cache = new DotenvCache(cacheFile(environment, workingDir), System.getenv());
+                resolvedVariables = cache.read(dotenvFiles);
+            }
+
+            if (resolvedVariables != null) {
+                log.debug("使用 .env 缓存 {}", cache.getCacheFile());
+            } else {
+                // 1. 按优先级从低到高解析并合并 .env 文件
+                Map<String, String> rawVariables = parse(dotenvFiles);
+
+                // 2. 解析变量引用（合并后解析，可以引用其他文件中的变量）
+                resolvedVariables = resolver.resolveAll(rawVariables);
+                if (cache != null) {
+                    cache.write(dotenvFiles, rawVariables, resolvedVariables);
+                }
+            }
+
+            if (resolvedVariables.isEmpty()) {
                 log.debug(".env 文件为空，跳过加载");
                 return;
             }
 
-            // 2. 解析变量引用
-            Map<String, String> resolvedVariables = resolver.resolveAll(rawVariables);
-
             // 3. 添加到 Environment（最高优先级）
-            DotenvPropertySource propertySource = new DotenvPropertySource(resolvedVariables);
+            DotenvPropertySource propertySource = new DotenvPropertySource(resolvedVariables, dotenvFiles);
             environment.getPropertySources().addFirst(propertySource);
 
-            log.info("成功从 .env 文件加载 {} 个变量", resolvedVariables.size());
+            // 4. 监听文件变化，重新加载时按当前激活的 profile 重新查找
+            if (application != null && environment.getProperty(WATCH_ENABLED_PROPERTY, Boolean.class, false)) {
+                Duration debounce = DurationStyle.detectAndParse(
+                        environment.getProperty(WATCH_DEBOUNCE_PROPERTY, "500ms"));
+                application.addListeners(new DotenvFileWatcher(locator.directories(workingDir), debounce,
+                        () -> resolver.resolveAll(parse(locator.locate(workingDir,
+                                Arrays.asList(environment.getActiveProfiles())))),
+                        propertySource));
+            }
+
+            log.info("成功从 {} 个 .env 文件加载 {} 个变量", dotenvFiles.size(), resolvedVariables.size());
             if (log.isDebugEnabled()) {
                 resolvedVariables.keySet().forEach(key -> log.debug("  - {}", key));
             }
@@ -94,20 +154,41 @@ public class DotenvEnvironmentPostProcessor implements EnvironmentPostProcessor,
     }
 
     /**
-     * 查找 .env 文件
-     * 从当前工作目录查找
+     * 已加载过 .env 时，激活的 profile 变化导致文件列表变化则重新解析全部文件并整体替换变量；
+     * 不使用缓存，缓存只对应启动时第一次加载的文件列表
      */
-    private Path findDotenvFile() {
-        // 从当前工作目录查找
-        Path workingDir = Paths.get(System.getProperty("user.dir"));
-        Path dotenvPath = workingDir.resolve(DOTENV_FILE_NAME);
+    private void reload(DotenvPropertySource loaded, List<Path> dotenvFiles) {
+        if (dotenvFiles.equals(loaded.getFiles())) {
+            return;
+        }
+        try {
+            Map<String, String> resolvedVariables = resolver.resolveAll(parse(dotenvFiles));
+            loaded.update(resolvedVariables, dotenvFiles);
+            log.info("激活的 profile 变化，从 {} 个 .env 文件重新加载 {} 个变量", dotenvFiles.size(), resolvedVariables.size());
+        } catch (Exception e) {
+            log.error("重新加载 .env 文件时发生错误: {}", e.getMessage(), e);
+        }
+    }
 
-        if (Files.exists(dotenvPath) && Files.isRegularFile(dotenvPath)) {
-            log.debug("找到 .env 文件: {}", dotenvPath.toAbsolutePath());
-            return dotenvPath;
+    private Map<String, String> parse(List<Path> dotenvFiles) throws IOException {
+        Map<String, String> rawVariables = new LinkedHashMap<>();
+        for (Path dotenvFile : dotenvFiles) {
+            rawVariables.putAll(parser.parse(dotenvFile));
         }
+        return rawVariables;
+    }
 
-        return null;
+    /**
+     * 缓存文件路径，未配置时为用户目录下按工作目录区分的文件。
+     * 缓存中是明文的解析结果，不放在所有用户可写的临时目录，避免被其他用户读取或预先放置伪造的缓存
+     */
+    private Path cacheFile(ConfigurableEnvironment environment, Path workingDir) {
+        String configured = environment.getProperty(CACHE_FILE_PROPERTY);
+        if (configured != null && !configured.isBlank()) {
+            return Paths.get(configured);
+        }
+        String name = Integer.toHexString(workingDir.toAbsolutePath().normalize().toString().hashCode()) + ".bin";
+        return Paths.get(System.getProperty("user.home"), ".cache", "spring-boot-dotenv", name);
     }
 
     @Override
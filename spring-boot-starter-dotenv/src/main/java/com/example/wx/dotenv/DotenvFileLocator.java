@@ -0,0 +1,83 @@
+package com.example.wx.dotenv;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * 查找需要加载的 .env 文件
+ * <p>
+ * 从起始目录（通常是 user.dir）开始逐级向上查找，直到包含 .git 的目录（项目根目录）或文件系统根目录为止。
+ * 每个目录中依次查找 .env 和各激活 profile 对应的 .env.{profile}。
+ * <p>
+ * 返回的文件按优先级从低到高排列，合并时后面的文件覆盖前面的同名变量：
+ * <ol>
+ *   <li>上级目录低于下级目录（模块目录中的 .env 覆盖项目根目录中的 .env）</li>
+ *   <li>同一目录中 .env 低于 .env.{profile}</li>
+ *   <li>多个 profile 时，后激活的 profile 优先</li>
+ * </ol>
+ *
+ * @author wangx
+ */
+public class DotenvFileLocator {
+
+    public static final String DOTENV_FILE_NAME = ".env";
+
+    private static final String PROJECT_ROOT_MARKER = ".git";
+
+    private final boolean searchParents;
+
+    /**
+     * @param searchParents 是否向上级目录查找
+     */
+    public DotenvFileLocator(boolean searchParents) {
+        this.searchParents = searchParents;
+    }
+
+    /**
+     * 查找 .env 文件
+     *
+     * @param startDir 起始目录
+     * @param profiles 激活的 profile，按激活顺序排列
+     * @return 存在的 .env 文件，按优先级从低到高排列
+     */
+    public List<Path> locate(Path startDir, List<String> profiles) {
+        List<Path> files = new ArrayList<>();
+        for (Path directory : directories(startDir)) {
+            addIfExists(files, directory.resolve(DOTENV_FILE_NAME));
+            for (String profile : profiles) {
+                addIfExists(files, directory.resolve(DOTENV_FILE_NAME + "." + profile));
+            }
+        }
+        return files;
+    }
+
+    /**
+     * 需要查找 .env 文件的目录
+     *
+     * @param startDir 起始目录
+     * @return 目录列表，按优先级从低到高排列（最上级目录在前）
+     */
+    public List<Path> directories(Path startDir) {
+        Deque<Path> directories = new ArrayDeque<>();
+        Path dir = startDir.toAbsolutePath().normalize();
+        while (dir != null) {
+            directories.push(dir);
+            if (!searchParents || Files.exists(dir.resolve(PROJECT_ROOT_MARKER))) {
+                break;
+            }
+            dir = dir.getParent();
+        }
+        return new ArrayList<>(directories);
+    }
+
+    private void addIfExists(List<Path> files, Path file) {
+        if (Files.isRegularFile(file)) {
+            files.add(file);
+        }
+    }
+
+}
@@ -0,0 +1,166 @@
+package com.example.wx.dotenv;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.event.ContextClosedEvent;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 监听 .env 文件变化并重新加载
+ * <p>
+ * 应用启动完成（{@link ApplicationReadyEvent}）后在守护线程中用 {@link WatchService} 监听 .env 所在的各级目录，
+ * 名称以 .env 开头的文件被创建、修改或删除时，等待 debounce 时长内没有新的事件后重新加载一次，
+ * 整体替换 {@link DotenvPropertySource} 中的变量；有变量发生变化时发布 {@link DotenvChangedEvent}。
+ * 重新加载失败时保留原有变量。应用上下文关闭时停止监听。
+ *
+ * @author wangx
+ */
+public class DotenvFileWatcher implements ApplicationListener<ApplicationEvent> {
+
+    private static final Logger log = LoggerFactory.getLogger(DotenvFileWatcher.class);
+
+    private final List<Path> directories;
+
+    private final long debounceMillis;
+
+    private final Callable<Map<String, String>> loader;
+
+    private final DotenvPropertySource propertySource;
+
+    private volatile ConfigurableApplicationContext context;
+
+    private volatile WatchService watchService;
+
+    /**
+     * @param directories    需要监听的目录
+     * @param debounce       连续变化合并为一次重新加载的等待时长
+     * @param loader         重新查找、解析 .env 文件，返回解析后的变量
+     * @param propertySource 需要更新的属性源
+     */
+    public DotenvFileWatcher(List<Path> directories, Duration debounce, Callable<Map<String, String>> loader,
+                             DotenvPropertySource propertySource) {
+        this.directories = List.copyOf(directories);
+        this.debounceMillis = debounce.toMillis();
+        this.loader = loader;
+        this.propertySource = propertySource;
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationEvent event) {
+        if (event instanceof ApplicationReadyEvent ready && this.context == null) {
+            this.context = ready.getApplicationContext();
+            start();
+        } else if (event instanceof ContextClosedEvent closed && closed.getApplicationContext() == this.context) {
+            stop();
+        }
+    }
+
+    private synchronized void start() {
+        try {
+            WatchService service = FileSystems.getDefault().newWatchService();
+            for (Path directory : directories) {
+                if (Files.isDirectory(directory)) {
+                    directory.register(service, StandardWatchEventKinds.ENTRY_CREATE,
+                            StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+                }
+            }
+            this.watchService = service;
+        } catch (IOException e) {
+            log.warn("无法监听 .env 文件变化: {}", e.getMessage());
+            return;
+        }
+
+        Thread thread = new Thread(this::watch, "dotenv-watcher");
+        thread.setDaemon(true);
+        thread.start();
+        log.info("开始监听 .env 文件变化: {}", directories);
+    }
+
+    private synchronized void stop() {
+        WatchService service = this.watchService;
+        this.watchService = null;
+        if (service != null) {
+            try {
+                service.close();
+            } catch (IOException e) {
+                log.debug("关闭 .env 文件监听失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void watch() {
+        WatchService service = this.watchService;
+        while (service != null) {
+            try {
+                boolean changed = drain(service.take());
+                // 编辑器保存、原子替换会连续产生多个事件，安静 debounce 时长后只加载一次
+                WatchKey next;
+                while ((next = service.poll(debounceMillis, TimeUnit.MILLISECONDS)) != null) {
+                    changed |= drain(next);
+                }
+                if (changed) {
+                    reload();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ClosedWatchServiceException e) {
+                return;
+            }
+        }
+    }
+
+    private boolean drain(WatchKey key) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW
+                    || event.context() instanceof Path path
+                    && path.getFileName().toString().startsWith(DotenvFileLocator.DOTENV_FILE_NAME)) {
+                changed = true;
+            }
+        }
+        key.reset();
+        return changed;
+    }
+
+    private void reload() {
+        Map<String, String> variables;
+        try {
+            variables = loader.call();
+        } catch (Exception e) {
+            log.error("重新加载 .env 文件失败，保留原有变量: {}", e.getMessage(), e);
+            return;
+        }
+
+        Set<String> keys = propertySource.update(variables);
+        if (keys.isEmpty()) {
+            return;
+        }
+        // 只打印变量名，不打印值
+        log.info(".env 文件已重新加载，{} 个变量发生变化: {}", keys.size(), keys);
+        ConfigurableApplicationContext context = this.context;
+        if (context != null && context.isActive()) {
+            context.publishEvent(new DotenvChangedEvent(propertySource, keys));
+        }
+    }
+
+}
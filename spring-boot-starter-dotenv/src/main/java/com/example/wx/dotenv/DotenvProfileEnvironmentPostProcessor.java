@@ -0,0 +1,34 @@
+package com.example.wx.dotenv;
+
+import com.example.wx.dotenv.parser.DotenvParser;
+import com.example.wx.dotenv.resolver.VariableResolver;
+import org.springframework.boot.context.config.ConfigDataEnvironmentPostProcessor;
+
+/**
+ * 补充加载 ConfigData 中激活的 profile 对应的 .env.{profile}
+ * <p>
+ * {@link DotenvEnvironmentPostProcessor} 在 ConfigData 之前执行，只能看到系统属性、环境变量和命令行参数中激活的 profile。
+ * 本类紧跟在 {@link ConfigDataEnvironmentPostProcessor} 之后执行，此时 application.yml 中的 spring.profiles.active 已生效，
+ * 按最终激活的 profile 重新查找 .env 文件，文件列表发生变化时重新解析并替换已加载的变量；
+ * 之前没有找到任何 .env 文件时按正常流程加载。
+ *
+ * @author wangx
+ */
+public class DotenvProfileEnvironmentPostProcessor extends DotenvEnvironmentPostProcessor {
+
+    private static final int ORDER = ConfigDataEnvironmentPostProcessor.ORDER + 1;
+
+    public DotenvProfileEnvironmentPostProcessor() {
+        super();
+    }
+
+    public DotenvProfileEnvironmentPostProcessor(DotenvParser parser, VariableResolver resolver) {
+        super(parser, resolver);
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+
+}
@@ -2,12 +2,22 @@ package com.example.wx.dotenv;
 
 import org.springframework.core.env.EnumerablePropertySource;
 
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 /**
  * .env 文件的 PropertySource 实现
  * <p>
- * 将 .env 文件中的变量作为 Spring Environment 的属性源
+ * 将 .env 文件中的变量作为 Spring Environment 的属性源。
+ * 变量保存在 volatile 引用的不可变 Map 中，{@link #update(Map)} 整体替换该引用：
+ * 读取不加锁，也不会看到只更新了一半的变量。
+ * 同时记录变量来自哪些 .env 文件，激活的 profile 变化后据此判断是否需要重新加载。
  *
  * @author wangx
  */
@@ -15,22 +25,87 @@ public class DotenvPropertySource extends EnumerablePropertySource<Map<String, S
 
     public static final String DOTENV_PROPERTY_SOURCE_NAME = "dotenv";
 
+    private volatile Map<String, String> variables;
+
+    private volatile List<Path> files;
+
     public DotenvPropertySource(Map<String, String> source) {
-        super(DOTENV_PROPERTY_SOURCE_NAME, source);
+        this(DOTENV_PROPERTY_SOURCE_NAME, source);
+    }
+
+    public DotenvPropertySource(Map<String, String> source, List<Path> files) {
+        this(DOTENV_PROPERTY_SOURCE_NAME, source);
+        this.files = List.copyOf(files);
     }
 
     public DotenvPropertySource(String name, Map<String, String> source) {
         super(name, source);
+        this.variables = Collections.unmodifiableMap(new LinkedHashMap<>(source));
+        this.files = List.of();
+    }
+
+    /**
+     * 返回当前的变量，重新加载后为新的变量
+     */
+    @Override
+    public Map<String, String> getSource() {
+        return this.variables;
     }
 
     @Override
     public String[] getPropertyNames() {
-        return this.source.keySet().toArray(new String[0]);
+        return this.variables.keySet().toArray(new String[0]);
     }
 
     @Override
     public Object getProperty(String name) {
-        return this.source.get(name);
+        return this.variables.get(name);
+    }
+
+    /**
+     * 变量来源的 .env 文件，按优先级从低到高排列
+     */
+    public List<Path> getFiles() {
+        return this.files;
+    }
+
+    /**
+     * 替换全部变量及其来源文件
+     *
+     * @param source 新的变量
+     * @param files  新变量来源的 .env 文件
+     * @return 新增、删除或值发生变化的变量名
+     */
+    public Set<String> update(Map<String, String> source, List<Path> files) {
+        Set<String> changed = update(source);
+        this.files = List.copyOf(files);
+        return changed;
+    }
+
+    /**
+     * 替换全部变量
+     *
+     * @param source 新的变量
+     * @return 新增、删除或值发生变化的变量名
+     */
+    public Set<String> update(Map<String, String> source) {
+        Map<String, String> previous = this.variables;
+        Map<String, String> next = Collections.unmodifiableMap(new LinkedHashMap<>(source));
+
+        Set<String> changed = new HashSet<>();
+        next.forEach((key, value) -> {
+            if (!Objects.equals(previous.get(key), value)) {
+                changed.add(key);
+            }
+        });
+        for (String key : previous.keySet()) {
+            if (!next.containsKey(key)) {
+                changed.add(key);
+            }
+        }
+
+        this.variables = next;
+        return changed;
     }
 
 }
@@ -0,0 +1,250 @@
+package com.example.wx.dotenv.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * 解析结果的二进制缓存
+ * <p>
+ * 缓存文件记录每个源文件的路径、修改时间和大小，以及解析过程中引用到的系统环境变量的值；
+ * 再次启动时这些信息全部一致才使用缓存，跳过解析和变量展开。源文件增删、profile 变化导致的文件列表变化同样会使缓存失效。
+ * <p>
+ * 格式：魔数、版本号，源文件列表，环境变量依赖列表，键值对列表；字符串为长度前缀的 UTF-8 字节，没有 64KB 的限制。
+ * 写入时先写临时文件再原子替换，并发启动的多个进程不会读到写了一半的缓存。
+ * <p>
+ * 注意缓存中是明文的解析结果（可能包含 API Key），缓存目录应与 .env 文件具有同等的访问控制；
+ * 缓存目录不存在时在 POSIX 文件系统上以 700 权限创建。
+ *
+ * @author wangx
+ */
+public class DotenvCache {
+
+    private static final Logger log = LoggerFactory.getLogger(DotenvCache.class);
+
+    private static final int MAGIC = 0x44454E56;
+
+    private static final byte VERSION = 2;
+
+    private final Path cacheFile;
+
+    private final Map<String, String> environment;
+
+    /**
+     * @param cacheFile   缓存文件路径
+     * @param environment 系统环境变量，需与变量解析器使用的一致
+     */
+    public DotenvCache(Path cacheFile, Map<String, String> environment) {
+        this.cacheFile = cacheFile;
+        this.environment = environment;
+    }
+
+    public Path getCacheFile() {
+        return cacheFile;
+    }
+
+    /**
+     * 读取缓存
+     *
+     * @param sources 当前需要加载的 .env 文件，按优先级从低到高排列
+     * @return 解析后的变量；缓存不存在、已失效或损坏时返回 null
+     */
+    public Map<String, String> read(List<Path> sources) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(cacheFile)))) {
+            if (in.readInt() != MAGIC || in.readByte() != VERSION) {
+                return null;
+            }
+
+            int sourceCount = in.readInt();
+            if (sourceCount != sources.size()) {
+                return null;
+            }
+            for (Path source : sources) {
+                String path = readString(in);
+                long lastModified = in.readLong();
+                long size = in.readLong();
+                BasicFileAttributes attributes = Files.readAttributes(source, BasicFileAttributes.class);
+                if (!path.equals(source.toAbsolutePath().toString())
+                        || lastModified != attributes.lastModifiedTime().toMillis()
+                        || size != attributes.size()) {
+                    return null;
+                }
+            }
+
+            int dependencyCount = in.readInt();
+            for (int i = 0; i < dependencyCount; i++) {
+                String name = readString(in);
+                // 记录的是值本身而不是哈希，值发生任何变化都会使缓存失效
+                String value = in.readBoolean() ? readString(in) : null;
+                if (!Objects.equals(value, environment.get(name))) {
+                    return null;
+                }
+            }
+
+            int entryCount = in.readInt();
+            Map<String, String> variables = new LinkedHashMap<>(entryCount * 4 / 3 + 1);
+            for (int i = 0; i < entryCount; i++) {
+                variables.put(readString(in), readString(in));
+            }
+            return variables;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | RuntimeException e) {
+            log.debug(".env 缓存 {} 无法读取，重新解析: {}", cacheFile, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 写入缓存，失败时只打印警告
+     *
+     * @param sources  已加载的 .env 文件，按优先级从低到高排列
+     * @param raw      合并后的原始变量（用于收集引用到的环境变量）
+     * @param resolved 解析后的变量
+     */
+    public void write(List<Path> sources, Map<String, String> raw, Map<String, String> resolved) {
+        try {
+            Path parent = cacheFile.toAbsolutePath().getParent();
+            createPrivateDirectories(parent);
+            // 临时文件在 POSIX 文件系统上的权限为 600
+            Path temp = Files.createTempFile(parent, cacheFile.getFileName().toString(), ".tmp");
+            try {
+                writeTo(temp, sources, raw, resolved);
+                try {
+                    Files.move(temp, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp, cacheFile, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("写入 .env 缓存 {} 失败: {}", cacheFile, e.getMessage());
+        }
+    }
+
+    private static void createPrivateDirectories(Path directory) throws IOException {
+        if (Files.isDirectory(directory)) {
+            return;
+        }
+        try {
+            Files.createDirectories(directory,
+                    PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+        } catch (UnsupportedOperationException e) {
+            // 非 POSIX 文件系统（如 Windows）沿用默认的访问控制
+            Files.createDirectories(directory);
+        }
+    }
+
+    private void writeTo(Path temp, List<Path> sources, Map<String, String> raw, Map<String, String> resolved)
+            throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+
+            out.writeInt(sources.size());
+            for (Path source : sources) {
+                BasicFileAttributes attributes = Files.readAttributes(source, BasicFileAttributes.class);
+                writeString(out, source.toAbsolutePath().toString());
+                out.writeLong(attributes.lastModifiedTime().toMillis());
+                out.writeLong(attributes.size());
+            }
+
+            Set<String> dependencies = referencedNames(raw.values());
+            out.writeInt(dependencies.size());
+            for (String name : dependencies) {
+                writeString(out, name);
+                // 未设置与设置为空字符串需要区分
+                String value = environment.get(name);
+                out.writeBoolean(value != null);
+                if (value != null) {
+                    writeString(out, value);
+                }
+            }
+
+            out.writeInt(resolved.size());
+            for (Map.Entry<String, String> entry : resolved.entrySet()) {
+                writeString(out, entry.getKey());
+                writeString(out, entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * 收集值中 ${NAME} 引用的变量名，这些变量在系统环境变量中的值会影响解析结果
+     */
+    private Set<String> referencedNames(Iterable<String> values) {
+        Set<String> names = new LinkedHashSet<>();
+        for (String value : values) {
+            int start = value == null ? -1 : value.indexOf("${");
+            while (start != -1) {
+                int end = start + 2;
+                while (end < value.length() && value.charAt(end) != '}' && value.charAt(end) != ':') {
+                    end++;
+                }
+                if (end > start + 2) {
+                    names.add(value.substring(start + 2, end));
+                }
+                start = value.indexOf("${", end);
+            }
+        }
+        return names;
+    }
+
+    private static void writeString(OutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[readVarInt(in)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeVarInt(OutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarInt(InputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.read();
+            if (b == -1) {
+                throw new IOException("Unexpected end of cache file");
+            }
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint in cache file");
+    }
+
+}
@@ -7,7 +7,6 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.LinkedHashMap;
-import java.util.List;
 import java.util.Map;
 
 /**
@@ -30,65 +29,92 @@ public class DefaultDotenvParser implements DotenvParser {
 
     @Override
     public Map<String, String> parse(Path path) throws IOException {
-        Map<String, String> result = new LinkedHashMap<>();
-        List<String> lines = Files.readAllLines(path);
-
-        for (int lineNum = 0; lineNum < lines.size(); lineNum++) {
-            String line = lines.get(lineNum).trim();
-
-            // 跳过空行和注释行
-            if (line.isEmpty() || line.startsWith("#")) {
-                continue;
-            }
+        return parse(Files.readString(path));
+    }
 
-            // 查找第一个等号
-            int equalsIndex = line.indexOf('=');
-            if (equalsIndex == -1) {
-                log.warn(".env 文件第 {} 行格式无效，缺少等号: {}", lineNum + 1, line);
-                continue;
+    /**
+     * 解析 .env 文件内容
+     * <p>
+     * 对整段内容按字符单遍扫描：行、键、值都以下标定位，trim 与去引号只移动下标，
+     * 每个有效行只为键和值各创建一个字符串。换行符兼容 \n、\r\n 与 \r。
+     *
+     * @param content .env 文件内容
+     * @return 解析后的键值对
+     */
+    public Map<String, String> parse(String content) {
+        Map<String, String> result = new LinkedHashMap<>();
+        int length = content.length();
+        int lineStart = 0;
+        int lineNum = 0;
+
+        while (lineStart < length) {
+            lineNum++;
+            int lineEnd = lineStart;
+            while (lineEnd < length && content.charAt(lineEnd) != '\n' && content.charAt(lineEnd) != '\r') {
+                lineEnd++;
             }
+            parseLine(content, lineStart, lineEnd, lineNum, result);
 
-            String key = line.substring(0, equalsIndex).trim();
-            String value = line.substring(equalsIndex + 1);
-
-            // 验证 key 是否有效
-            if (key.isEmpty()) {
-                log.warn(".env 文件第 {} 行格式无效，键名为空: {}", lineNum + 1, line);
-                continue;
+            lineStart = lineEnd + 1;
+            if (lineEnd + 1 < length && content.charAt(lineEnd) == '\r' && content.charAt(lineEnd + 1) == '\n') {
+                lineStart++;
             }
-
-            // 处理值：去除引号
-            value = stripQuotes(value.trim());
-
-            result.put(key, value);
         }
 
         return result;
     }
 
     /**
-     * 去除值两端的引号（双引号或单引号）
-     * 遵循 YAML 的处理逻辑
+     * 解析 [start, end) 范围内的一行
      */
-    private String stripQuotes(String value) {
-        if (value.length() < 2) {
-            return value;
+    private void parseLine(String content, int start, int end, int lineNum, Map<String, String> result) {
+        // 与 String.trim 一致，去除两端 <= ' ' 的字符
+        while (start < end && content.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && content.charAt(end - 1) <= ' ') {
+            end--;
+        }
+
+        // 跳过空行和注释行
+        if (start == end || content.charAt(start) == '#') {
+            return;
+        }
+
+        // 查找第一个等号
+        int equalsIndex = content.indexOf('=', start);
+        if (equalsIndex == -1 || equalsIndex >= end) {
+            log.warn(".env 文件第 {} 行格式无效，缺少等号: {}", lineNum, content.substring(start, end));
+            return;
         }
 
-        char firstChar = value.charAt(0);
-        char lastChar = value.charAt(value.length() - 1);
+        int keyEnd = equalsIndex;
+        while (keyEnd > start && content.charAt(keyEnd - 1) <= ' ') {
+            keyEnd--;
+        }
 
-        // 双引号
-        if (firstChar == '"' && lastChar == '"') {
-            return value.substring(1, value.length() - 1);
+        // 验证 key 是否有效
+        if (keyEnd == start) {
+            log.warn(".env 文件第 {} 行格式无效，键名为空: {}", lineNum, content.substring(start, end));
+            return;
         }
 
-        // 单引号
-        if (firstChar == '\'' && lastChar == '\'') {
-            return value.substring(1, value.length() - 1);
+        int valueStart = equalsIndex + 1;
+        while (valueStart < end && content.charAt(valueStart) <= ' ') {
+            valueStart++;
+        }
+
+        // 处理值：去除两端成对的引号（双引号或单引号），遵循 YAML 的处理逻辑
+        if (end - valueStart >= 2) {
+            char firstChar = content.charAt(valueStart);
+            char lastChar = content.charAt(end - 1);
+            if ((firstChar == '"' || firstChar == '\'') && firstChar == lastChar) {
+                valueStart++;
+                end--;
+            }
         }
 
-        return value;
+        result.put(content.substring(start, keyEnd), content.substring(valueStart, end));
     }
 
 }
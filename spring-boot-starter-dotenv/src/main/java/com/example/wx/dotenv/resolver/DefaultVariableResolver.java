@@ -3,10 +3,11 @@ package com.example.wx.dotenv.resolver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Set;
 
 /**
  * 默认的变量引用解析器实现
@@ -14,16 +15,21 @@ import java.util.regex.Pattern;
  * 支持以下语法：
  * <ul>
  *   <li>${VAR} - 简单变量引用</li>
- *   <li>${VAR:-default} - 带默认值的变量引用</li>
+ *   <li>${VAR:-default} - 带默认值的变量引用，默认值中可以再嵌套引用</li>
  * </ul>
  * <p>
  * 解析顺序：
  * <ol>
- *   <li>先在 .env 文件已解析的变量中查找</li>
+ *   <li>先在 .env 文件的变量中查找（与声明顺序无关，引用后面声明的变量也可以解析）</li>
  *   <li>再从系统环境变量中查找</li>
  *   <li>如果都找不到且有默认值，使用默认值</li>
  *   <li>如果都找不到且无默认值，保留原始 ${VAR} 并打印警告</li>
  * </ol>
+ * <p>
+ * 引用按字符单遍扫描，不使用正则；替换进来的值同样会被展开，
+ * 展开过程中记录正在解析的变量，出现循环引用（如 A=${B}、B=${A}）时只查找系统环境变量，
+ * 仍找不到则按未定义处理并打印警告，不会无限递归。
+ * 系统环境变量在创建解析器时取一次快照，之后的查找不再调用 {@link System#getenv(String)}。
  *
  * @author wangx
  */
@@ -31,22 +37,27 @@ public class DefaultVariableResolver implements VariableResolver {
 
     private static final Logger log = LoggerFactory.getLogger(DefaultVariableResolver.class);
 
+    private final Map<String, String> environment;
+
+    public DefaultVariableResolver() {
+        this(System.getenv());
+    }
+
     /**
-     * 匹配 ${VAR} 或 ${VAR:-default} 格式
-     * 捕获组1: 变量名
-     * 捕获组2: 默认值（可选，包含 :- 前缀）
+     * @param environment 用于查找的系统环境变量
      */
-    private static final Pattern VARIABLE_PATTERN = Pattern.compile("\\$\\{([^}:]+)(:-[^}]*)?}");
+    public DefaultVariableResolver(Map<String, String> environment) {
+        this.environment = Map.copyOf(environment);
+    }
 
     @Override
     public Map<String, String> resolveAll(Map<String, String> variables) {
-        Map<String, String> resolved = new LinkedHashMap<>();
+        Map<String, String> cache = new HashMap<>(variables.size() * 4 / 3 + 1);
+        Set<String> resolving = new HashSet<>();
+        Map<String, String> resolved = new LinkedHashMap<>(variables.size() * 4 / 3 + 1);
 
-        for (Map.Entry<String, String> entry : variables.entrySet()) {
-            String key = entry.getKey();
-            String value = entry.getValue();
-            String resolvedValue = resolve(value, resolved);
-            resolved.put(key, resolvedValue);
+        for (String key : variables.keySet()) {
+            resolved.put(key, resolveVariable(key, variables, cache, resolving));
         }
 
         return resolved;
@@ -54,57 +65,145 @@ public class DefaultVariableResolver implements VariableResolver {
 
     @Override
     public String resolve(String value, Map<String, String> resolvedVariables) {
-        if (value == null || !value.contains("${")) {
-            return value;
-        }
+        return expand(value, resolvedVariables, Map.of(), new HashSet<>());
+    }
 
-        StringBuffer result = new StringBuffer();
-        Matcher matcher = VARIABLE_PATTERN.matcher(value);
+    /**
+     * 解析 .env 中的一个变量，结果写入 cache，每个变量只展开一次
+     */
+    private String resolveVariable(String name, Map<String, String> variables, Map<String, String> cache,
+                                   Set<String> resolving) {
+        String cached = cache.get(name);
+        if (cached != null) {
+            return cached;
+        }
+        resolving.add(name);
+        String value = expand(variables.get(name), cache, variables, resolving);
+        resolving.remove(name);
+        cache.put(name, value);
+        return value;
+    }
 
-        while (matcher.find()) {
-            String varName = matcher.group(1);
-            String defaultPart = matcher.group(2);
-            String defaultValue = (defaultPart != null) ? defaultPart.substring(2) : null;
+    /**
+     * 展开值中的 ${VAR} 与 ${VAR:-default}，不含引用时直接返回原值
+     *
+     * @param resolved  已解析的变量
+     * @param variables 尚未解析的 .env 变量，按需展开
+     * @param resolving 正在解析的变量名，用于检测循环引用
+     */
+    private String expand(String value, Map<String, String> resolved, Map<String, String> variables,
+                          Set<String> resolving) {
+        if (value == null) {
+            return null;
+        }
+        int start = value.indexOf("${");
+        if (start == -1) {
+            return value;
+        }
 
-            String replacement = lookupVariable(varName, resolvedVariables, defaultValue);
-            // 需要对替换值中的特殊字符进行转义
-            matcher.appendReplacement(result, Matcher.quoteReplacement(replacement));
+        int length = value.length();
+        StringBuilder result = new StringBuilder(length + 16);
+        int copied = 0;
+
+        while (start != -1) {
+            int nameStart = start + 2;
+            int nameEnd = nameStart;
+            while (nameEnd < length && value.charAt(nameEnd) != '}' && value.charAt(nameEnd) != ':') {
+                nameEnd++;
+            }
+
+            int close = -1;
+            int defaultStart = -1;
+            if (nameEnd < length && nameEnd > nameStart) {
+                if (value.charAt(nameEnd) == '}') {
+                    close = nameEnd;
+                } else if (nameEnd + 1 < length && value.charAt(nameEnd + 1) == '-') {
+                    defaultStart = nameEnd + 2;
+                    close = findClose(value, defaultStart);
+                }
+            }
+
+            // 不是合法的引用，原样保留 "${" 继续向后扫描
+            if (close == -1) {
+                start = value.indexOf("${", nameStart);
+                continue;
+            }
+
+            result.append(value, copied, start);
+            String name = value.substring(nameStart, nameEnd);
+            String replacement = lookupVariable(name, resolved, variables, resolving);
+            if (replacement == null && defaultStart != -1) {
+                replacement = expand(value.substring(defaultStart, close), resolved, variables, resolving);
+            }
+            if (replacement == null) {
+                log.warn("无法解析变量引用: ${}, 变量 '{}' 未定义且无默认值", name, name);
+                replacement = "${" + name + "}";
+            }
+            result.append(replacement);
+
+            copied = close + 1;
+            start = value.indexOf("${", copied);
         }
-        matcher.appendTail(result);
 
-        // 递归解析，处理嵌套引用
-        String resolvedValue = result.toString();
-        if (resolvedValue.contains("${") && !resolvedValue.equals(value)) {
-            return resolve(resolvedValue, resolvedVariables);
+        if (copied == 0) {
+            return value;
         }
+        return result.append(value, copied, length).toString();
+    }
 
-        return resolvedValue;
+    /**
+     * 查找默认值结尾的 '}'，默认值中嵌套的 ${...} 成对跳过
+     */
+    private int findClose(String value, int from) {
+        int depth = 0;
+        for (int i = from; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '$' && i + 1 < value.length() && value.charAt(i + 1) == '{') {
+                depth++;
+                i++;
+            } else if (c == '}') {
+                if (depth == 0) {
+                    return i;
+                }
+                depth--;
+            }
+        }
+        return -1;
     }
 
     /**
      * 查找变量值
-     * 优先级：.env 已解析变量 > 系统环境变量 > 默认值
+     * 优先级：.env 变量 > 系统环境变量，都找不到时返回 null。
+     * 正在解析的变量再次被引用时（如 PATH=${PATH}:/opt/bin）跳过 .env，只从系统环境变量中查找。
      */
-    private String lookupVariable(String varName, Map<String, String> resolvedVariables, String defaultValue) {
-        // 1. 先从 .env 已解析的变量中查找
-        if (resolvedVariables.containsKey(varName)) {
-            return resolvedVariables.get(varName);
+    private String lookupVariable(String varName, Map<String, String> resolved, Map<String, String> variables,
+                                  Set<String> resolving) {
+        boolean cyclic = resolving.contains(varName);
+        if (!cyclic) {
+            // 1. 先从 .env 的变量中查找
+            String value = resolved.get(varName);
+            if (value != null) {
+                return value;
+            }
+            if (variables.containsKey(varName)) {
+                return resolveVariable(varName, variables, resolved, resolving);
+            }
         }
 
-        // 2. 再从系统环境变量中查找
-        String envValue = System.getenv(varName);
-        if (envValue != null) {
-            return envValue;
+        // 2. 再从系统环境变量中查找，环境变量的值中的引用同样展开
+        String envValue = environment.get(varName);
+        if (envValue == null) {
+            if (cyclic) {
+                log.warn("变量 '{}' 存在循环引用，按未定义处理", varName);
+            }
+            return null;
         }
-
-        // 3. 使用默认值
-        if (defaultValue != null) {
-            return defaultValue;
+        if (!cyclic && envValue.contains("${")) {
+            resolving.add(varName);
+            envValue = expand(envValue, resolved, variables, resolving);
+            resolving.remove(varName);
         }
-
-        // 4. 都找不到，打印警告并保留原始格式
-        log.warn("无法解析变量引用: ${}, 变量 '{}' 未定义且无默认值", varName, varName);
-        return "${" + varName + "}";
+        return envValue;
     }
 
 }
@@ -0,0 +1,163 @@
+import com.example.wx.dotenv.parser.DefaultDotenvParser;
+import com.example.wx.dotenv.resolver.DefaultVariableResolver;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ *@description .env 加载耗时与分配量对比：原 readAllLines + 正则解析 vs 单遍扫描解析
+ * <p>
+ * 用法：DotenvLoadBenchmark [行数，默认 5000]
+ * 生成的 .env 中混有注释、引号值、向前引用、带默认值的引用和系统环境变量引用（HOME、PATH），
+ * 分别统计解析、变量展开两个阶段每次的平均耗时与当前线程分配的字节数，并校验两种实现结果一致。
+ *@author wangx
+ *@create 2026/10/19 18:30
+ */
+public class DotenvLoadBenchmark {
+
+    private static final int WARMUP = 200;
+    private static final int ITERATIONS = 500;
+
+    public static void main(String[] args) throws IOException {
+        int lines = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        Path dotenv = Files.createTempFile("benchmark", ".env");
+        Files.writeString(dotenv, generate(lines));
+
+        DefaultDotenvParser parser = new DefaultDotenvParser();
+        DefaultVariableResolver resolver = new DefaultVariableResolver();
+        Map<String, String> raw = parser.parse(dotenv);
+        Map<String, String> legacyRaw = LegacyLoader.parse(dotenv);
+        Map<String, String> resolved = resolver.resolveAll(raw);
+        Map<String, String> legacyResolved = LegacyLoader.resolveAll(legacyRaw);
+        System.out.printf("%d lines, %d keys, %d bytes, parse equal=%s, resolve equal=%s%n", lines, raw.size(),
+                Files.size(dotenv), raw.equals(legacyRaw), resolved.equals(legacyResolved));
+
+        System.out.printf("%-16s | %10s | %12s%n", "phase", "ms/op", "KB alloc/op");
+        measure("parse legacy", () -> LegacyLoader.parse(dotenv));
+        measure("parse scan", () -> parser.parse(dotenv));
+        measure("resolve legacy", () -> LegacyLoader.resolveAll(legacyRaw));
+        measure("resolve scan", () -> resolver.resolveAll(raw));
+        Files.delete(dotenv);
+    }
+
+    /**
+     * 只使用向后引用，两种实现的解析结果应当一致
+     */
+    private static String generate(int lines) {
+        StringBuilder sb = new StringBuilder(lines * 48);
+        sb.append("# generated by DotenvLoadBenchmark\n");
+        sb.append("BASE_URL=https://dashscope.aliyuncs.com\n");
+        for (int i = 0; i < lines; i++) {
+            switch (i % 8) {
+                case 0 -> sb.append("# section ").append(i).append('\n');
+                case 1 -> sb.append("SERVICE_").append(i).append("_NAME=service-").append(i).append('\n');
+                case 2 -> sb.append("SERVICE_").append(i).append("_DESC=\"description of service ").append(i).append("\"\n");
+                case 3 -> sb.append("SERVICE_").append(i).append("_URL=${BASE_URL}/api/v1/service/").append(i).append('\n');
+                case 4 -> sb.append("SERVICE_").append(i).append("_TIMEOUT=${TIMEOUT_").append(i).append(":-30s}\n");
+                case 5 -> sb.append("SERVICE_").append(i).append("_HOME=${HOME}/data/").append(i).append('\n');
+                case 6 -> sb.append("  SERVICE_").append(i).append("_ALIAS = '${SERVICE_").append(i - 5).append("_NAME}-alias'  \n");
+                default -> sb.append('\n');
+            }
+        }
+        return sb.toString();
+    }
+
+    private static void measure(String name, IoTask task) throws IOException {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        for (int i = 0; i < WARMUP; i++) {
+            task.run();
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            task.run();
+        }
+        long elapsed = System.nanoTime() - start;
+        allocated = threads.getThreadAllocatedBytes(threadId) - allocated;
+        System.out.printf("%-16s | %10.3f | %12.1f%n", name, elapsed / 1e6 / ITERATIONS, allocated / 1024.0 / ITERATIONS);
+    }
+
+    private interface IoTask {
+
+        Object run() throws IOException;
+    }
+
+    /**
+     * 原实现：Files.readAllLines 逐行解析，正则 + StringBuffer 展开引用，每次查找调用 System.getenv
+     */
+    private static class LegacyLoader {
+
+        private static final Pattern VARIABLE_PATTERN = Pattern.compile("\\$\\{([^}:]+)(:-[^}]*)?}");
+
+        static Map<String, String> parse(Path path) throws IOException {
+            Map<String, String> result = new LinkedHashMap<>();
+            List<String> lines = Files.readAllLines(path);
+            for (String rawLine : lines) {
+                String line = rawLine.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                int equalsIndex = line.indexOf('=');
+                if (equalsIndex == -1) {
+                    continue;
+                }
+                String key = line.substring(0, equalsIndex).trim();
+                if (key.isEmpty()) {
+                    continue;
+                }
+                String value = line.substring(equalsIndex + 1).trim();
+                if (value.length() >= 2 && (value.charAt(0) == '"' || value.charAt(0) == '\'')
+                        && value.charAt(0) == value.charAt(value.length() - 1)) {
+                    value = value.substring(1, value.length() - 1);
+                }
+                result.put(key, value);
+            }
+            return result;
+        }
+
+        static Map<String, String> resolveAll(Map<String, String> variables) {
+            Map<String, String> resolved = new LinkedHashMap<>();
+            for (Map.Entry<String, String> entry : variables.entrySet()) {
+                resolved.put(entry.getKey(), resolve(entry.getValue(), resolved));
+            }
+            return resolved;
+        }
+
+        static String resolve(String value, Map<String, String> resolvedVariables) {
+            if (value == null || !value.contains("${")) {
+                return value;
+            }
+            StringBuffer result = new StringBuffer();
+            Matcher matcher = VARIABLE_PATTERN.matcher(value);
+            while (matcher.find()) {
+                String varName = matcher.group(1);
+                String defaultPart = matcher.group(2);
+                String replacement;
+                if (resolvedVariables.containsKey(varName)) {
+                    replacement = resolvedVariables.get(varName);
+                } else if (System.getenv(varName) != null) {
+                    replacement = System.getenv(varName);
+                } else if (defaultPart != null) {
+                    replacement = defaultPart.substring(2);
+                } else {
+                    replacement = "${" + varName + "}";
+                }
+                matcher.appendReplacement(result, Matcher.quoteReplacement(replacement));
+            }
+            matcher.appendTail(result);
+            String resolvedValue = result.toString();
+            if (resolvedValue.contains("${") && !resolvedValue.equals(value)) {
+                return resolve(resolvedValue, resolvedVariables);
+            }
+            return resolvedValue;
+        }
+    }
+}
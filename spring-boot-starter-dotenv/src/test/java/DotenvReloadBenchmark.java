@@ -0,0 +1,84 @@
+import com.example.wx.dotenv.DotenvPropertySource;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ *@description DotenvPropertySource 在持续重新加载下的读取吞吐与一致性
+ * <p>
+ * 用法：DotenvReloadBenchmark [读线程数，默认 4] [每轮时长 ms，默认 2000]
+ * 读线程不断读取 getProperty，并检查 getSource() 快照中首尾两个变量属于同一版本（不会看到替换了一半的变量）；
+ * 写线程每 1ms 整体替换一次全部 1000 个变量。分别输出没有写线程与有写线程时的读取吞吐。
+ *@author wangx
+ *@create 2026/10/19 20:10
+ */
+public class DotenvReloadBenchmark {
+
+    private static final int KEYS = 1000;
+
+    public static void main(String[] args) throws InterruptedException {
+        int readers = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        long durationMs = args.length > 1 ? Long.parseLong(args[1]) : 2000;
+        DotenvPropertySource propertySource = new DotenvPropertySource(version(0));
+
+        for (boolean reloading : new boolean[]{false, true}) {
+            AtomicBoolean running = new AtomicBoolean(true);
+            AtomicLong reads = new AtomicLong();
+            AtomicLong torn = new AtomicLong();
+            AtomicLong reloads = new AtomicLong();
+            CountDownLatch done = new CountDownLatch(readers);
+
+            for (int r = 0; r < readers; r++) {
+                Thread reader = new Thread(() -> {
+                    long local = 0;
+                    while (running.get()) {
+                        for (int i = 0; i < KEYS; i++) {
+                            if (propertySource.getProperty("KEY_" + i) == null) {
+                                torn.incrementAndGet();
+                            }
+                        }
+                        Map<String, String> snapshot = propertySource.getSource();
+                        if (!snapshot.get("KEY_0").equals(snapshot.get("KEY_" + (KEYS - 1)))) {
+                            torn.incrementAndGet();
+                        }
+                        local += KEYS;
+                    }
+                    reads.addAndGet(local);
+                    done.countDown();
+                });
+                reader.start();
+            }
+            Thread writer = new Thread(() -> {
+                int version = 1;
+                while (running.get() && reloading) {
+                    propertySource.update(version(version++));
+                    reloads.incrementAndGet();
+                    try {
+                        Thread.sleep(1);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            });
+            writer.start();
+
+            Thread.sleep(durationMs);
+            running.set(false);
+            done.await();
+            writer.join();
+            System.out.printf("reloading=%-5s readers=%d: %.1f M reads/s, %d reloads, %d inconsistent reads%n",
+                    reloading, readers, reads.get() / 1e3 / durationMs, reloads.get(), torn.get());
+        }
+    }
+
+    private static Map<String, String> version(int version) {
+        Map<String, String> variables = new LinkedHashMap<>();
+        for (int i = 0; i < KEYS; i++) {
+            variables.put("KEY_" + i, "v" + version);
+        }
+        return variables;
+    }
+}
@@ -0,0 +1,143 @@
+import com.example.wx.dotenv.DotenvEnvironmentPostProcessor;
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ *@description 分层 / profile .env 加载与二进制缓存对冷启动的影响
+ * <p>
+ * 用法：DotenvStartupBenchmark [根目录 .env 行数，默认 5000] [每种模式的启动次数，默认 10]
+ * 生成 项目根目录/.env（含 .git 标记）、模块目录/.env、模块目录/.env.dev 三个文件，工作目录为模块目录、profile 为 dev。
+ * 每次测量都启动一个新的 JVM（与 CI、容器中的真实启动一致），分别统计：
+ * <ul>
+ *   <li>processor：冷 JVM 中首次执行 DotenvEnvironmentPostProcessor 的耗时</li>
+ *   <li>application：冷 JVM 中 SpringApplication 启动一个空上下文的耗时</li>
+ * </ul>
+ * 两项各在不缓存、缓存命中两种模式下运行，缓存命中模式在测量前先启动一次写入缓存。
+ *@author wangx
+ *@create 2026/10/19 19:20
+ */
+public class DotenvStartupBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int lines = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        Path root = Files.createTempDirectory("dotenv-startup");
+        Path module = Files.createDirectories(root.resolve("graph-example"));
+        Files.createDirectories(root.resolve(".git"));
+        Files.writeString(root.resolve(".env"), generate("ROOT", lines));
+        Files.writeString(module.resolve(".env"), generate("MODULE", 200));
+        Files.writeString(module.resolve(".env.dev"), generate("ROOT", 50));
+        Path cacheFile = root.resolve("cache/dotenv.bin");
+
+        System.out.printf("root .env %d lines, %d runs per mode%n", lines, runs);
+        System.out.printf("%-12s | %-8s | %10s | %10s%n", "phase", "cache", "mean ms", "min ms");
+        for (String phase : List.of("processor", "application")) {
+            for (boolean cached : List.of(false, true)) {
+                Files.deleteIfExists(cacheFile);
+                if (cached) {
+                    launch(module, cacheFile, true, phase);
+                }
+                long[] elapsed = new long[runs];
+                for (int i = 0; i < runs; i++) {
+                    elapsed[i] = launch(module, cacheFile, cached, phase);
+                }
+                System.out.printf("%-12s | %-8s | %10.1f | %10.1f%n", phase, cached ? "hit" : "off",
+                        Arrays.stream(elapsed).average().orElse(0) / 1e6, Arrays.stream(elapsed).min().orElse(0) / 1e6);
+            }
+        }
+    }
+
+    private static String generate(String prefix, int lines) {
+        StringBuilder sb = new StringBuilder(lines * 48);
+        sb.append("BASE_URL=https://dashscope.aliyuncs.com\n");
+        for (int i = 0; i < lines; i++) {
+            switch (i % 4) {
+                case 0 -> sb.append("# ").append(prefix).append(' ').append(i).append('\n');
+                case 1 -> sb.append(prefix).append('_').append(i).append("=value-").append(i).append('\n');
+                case 2 -> sb.append(prefix).append('_').append(i).append("=${BASE_URL}/api/").append(i).append('\n');
+                default -> sb.append(prefix).append('_').append(i).append("=\"${HOME:-/root}/").append(i).append("\"\n");
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 启动一个子 JVM，返回子进程报告的耗时（纳秒）
+     */
+    private static long launch(Path workingDir, Path cacheFile, boolean cached, String phase)
+            throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add("-Duser.dir=" + workingDir);
+        command.add("-Dspring.profiles.active=dev");
+        command.add("-Ddotenv.cache.enabled=" + cached);
+        command.add("-Ddotenv.cache.file=" + cacheFile);
+        command.add(Child.class.getName());
+        command.add(phase);
+
+        Process process = new ProcessBuilder(command).directory(workingDir.toFile()).redirectErrorStream(true).start();
+        String result = null;
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("elapsed=")) {
+                    result = line.substring("elapsed=".length());
+                }
+            }
+        }
+        if (process.waitFor() != 0 || result == null) {
+            throw new IllegalStateException("Child JVM failed for phase " + phase);
+        }
+        return Long.parseLong(result);
+    }
+
+    /**
+     * 子 JVM 入口
+     */
+    public static class Child {
+
+        public static void main(String[] args) {
+            long start = System.nanoTime();
+            if ("processor".equals(args[0])) {
+                StandardEnvironment environment = new StandardEnvironment();
+                new DotenvEnvironmentPostProcessor().postProcessEnvironment(environment, null);
+                if (environment.getProperty("ROOT_1") == null) {
+                    throw new IllegalStateException(".env not loaded");
+                }
+            } else {
+                try (ConfigurableApplicationContext context = new SpringApplicationBuilder(EmptyConfiguration.class)
+                        .web(WebApplicationType.NONE)
+                        .bannerMode(Banner.Mode.OFF)
+                        .logStartupInfo(false)
+                        .run()) {
+                    if (context.getEnvironment().getProperty("ROOT_1") == null) {
+                        throw new IllegalStateException(".env not loaded");
+                    }
+                }
+            }
+            System.out.println("elapsed=" + (System.nanoTime() - start));
+        }
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    static class EmptyConfiguration {
+    }
+}